@@ -0,0 +1,106 @@
+package com.spirent.birdapp;
+
+import com.spirent.birdapp.bird.Bird;
+import com.spirent.birdapp.bird.BirdRepository;
+import com.spirent.birdapp.sighting.SightingDto;
+import com.spirent.birdapp.sighting.SightingRepository;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Repository queries against an embedded H2 database in MySQL mode, seeded with 100 birds and 100k sightings.
+ * Absolute numbers are not comparable with MySQL; this is meant to catch regressions in the JPQL, the DTO
+ * projections and the Hibernate overhead around them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryQueryBenchmark {
+    private static final int BIRDS = 100;
+    private static final int SIGHTINGS = 100_000;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 5, 8, 0, 0);
+
+    private ConfigurableApplicationContext context;
+    private BirdRepository birdRepository;
+    private SightingRepository sightingRepository;
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(BirdAppApplication.class)
+                .profiles("test")
+                .run(
+                        "--spring.main.web-application-type=none",
+                        "--spring.datasource.url=jdbc:h2:mem:bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE,DAY",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--logging.level.root=warn");
+        birdRepository = context.getBean(BirdRepository.class);
+        sightingRepository = context.getBean(SightingRepository.class);
+
+        var jdbcTemplate = context.getBean(JdbcTemplate.class);
+        var birds = new ArrayList<Object[]>();
+        for (long i = 1; i <= BIRDS; i++) {
+            birds.add(new Object[]{i, "Bird " + i, i % 2 == 0 ? "Red" : "Brown", 10.0, 20.0});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO bird (id, name, color, height, weight) VALUES (?, ?, ?, ?, ?)", birds);
+        var sightings = new ArrayList<Object[]>();
+        for (long i = 1; i <= SIGHTINGS; i++) {
+            sightings.add(new Object[]{i, i % BIRDS + 1, "Location " + i % 100, START.plusMinutes(i)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO sighting (id, bird_id, location, date_time) VALUES (?, ?, ?, ?)", sightings);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Bird> findAllBirdsByColor() {
+        return birdRepository.findAllBirds(null, "Red");
+    }
+
+    @Benchmark
+    public List<SightingDto> findByLocation() {
+        return sightingRepository.findByLocation("Location 7");
+    }
+
+    @Benchmark
+    public List<SightingDto> findByBirdName() {
+        return sightingRepository.findByBirdName("Bird 7");
+    }
+
+    @Benchmark
+    public List<SightingDto> findByDateTimeBetween() {
+        return sightingRepository.findByDateTimeBetween(START.plusDays(10), START.plusDays(11));
+    }
+
+    @Benchmark
+    public List<SightingDto> findPageAfter() {
+        return sightingRepository.findPageAfter(50_000L, Limit.of(100));
+    }
+}
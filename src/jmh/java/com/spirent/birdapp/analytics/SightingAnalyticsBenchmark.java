@@ -0,0 +1,74 @@
+package com.spirent.birdapp.analytics;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Group-by scans of the {@link SightingColumnStore}, over all sightings and over the last day. Sightings are loaded
+ * in date order, one per second, for 1000 birds at 10000 locations, so the last day covers 86400 sightings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class SightingAnalyticsBenchmark {
+    private static final LocalDateTime START = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    @Param({"1000000", "10000000", "30000000"})
+    private int size;
+
+    private SightingColumnStore store;
+    private LocalDateTime lastDay;
+    private LocalDateTime end;
+
+    @Setup
+    public void setup() {
+        store = new SightingColumnStore();
+        var chunk = new ArrayList<SightingColumnStore.Row>(10_000);
+        for (int i = 0; i < size; i++) {
+            chunk.add(new SightingColumnStore.Row(i + 1L, i % 1000, "Bird " + i % 1000, "Location " + i % 10_000,
+                    START.plusSeconds(i)));
+            if (chunk.size() == 10_000) {
+                store.load(chunk);
+                chunk.clear();
+            }
+        }
+        store.load(chunk);
+        end = START.plusSeconds(size);
+        lastDay = end.minusDays(1);
+    }
+
+    @Benchmark
+    public SightingColumnStore.Counts countByBird() {
+        return store.countByBird(null, null, null);
+    }
+
+    @Benchmark
+    public SightingColumnStore.Counts countByLocationOfBird() {
+        return store.countByLocation(null, null, "Bird 7");
+    }
+
+    @Benchmark
+    public SightingColumnStore.Counts countByBirdLastDay() {
+        return store.countByBird(lastDay, end, null);
+    }
+
+    @Benchmark
+    public SightingColumnStore.Counts countByLocationLastDay() {
+        return store.countByLocation(lastDay, end, null);
+    }
+}
@@ -0,0 +1,38 @@
+package com.spirent.birdapp.bird;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Entity to DTO mapping done for every bird returned by {@link BirdService}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BirdMappingBenchmark {
+    private final BirdService birdService = new BirdService(null, null, null, null, null, null, null);
+    private final Bird bird = Bird.builder().id(1L).name("Sparrow").color("Brown").weight(0.03).height(0.15).build();
+    private final CreateBirdDto createBirdDto = CreateBirdDto.builder()
+            .name("Sparrow").color("Brown").weight(0.03).height(0.15).build();
+
+    @Benchmark
+    public BirdDto fromEntity() {
+        return birdService.fromEntity(bird);
+    }
+
+    @Benchmark
+    public Bird toEntity() {
+        return birdService.toEntity(createBirdDto);
+    }
+}
@@ -0,0 +1,45 @@
+package com.spirent.birdapp.sighting;
+
+import com.spirent.birdapp.bird.Bird;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Entity to DTO mapping done on every write through {@link SightingService}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SightingMappingBenchmark {
+    private final SightingService sightingService = new SightingService(null, null, null, null, null, null, null, null);
+    private final Sighting sighting = Sighting.builder()
+            .id(1L)
+            .bird(Bird.builder().id(1L).name("Sparrow").build())
+            .location("Lake")
+            .dateTime(LocalDateTime.of(2024, 5, 8, 10, 0))
+            .build();
+    private final CreateSightingDto createSightingDto = CreateSightingDto.builder()
+            .birdId(1L).location("Lake").dateTime(LocalDateTime.of(2024, 5, 8, 10, 0)).build();
+
+    @Benchmark
+    public SightingDto fromEntity() {
+        return sightingService.fromEntity(sighting);
+    }
+
+    @Benchmark
+    public Sighting toEntity() {
+        return sightingService.toEntity(createSightingDto);
+    }
+}
@@ -0,0 +1,77 @@
+package com.spirent.birdapp.sighting;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spirent.birdapp.SmileConfig;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Jackson serialization of a sighting list response as JSON or Smile, plain or gzipped, with the same ObjectMapper
+ * settings Spring MVC uses. The payload size of every combination is printed once during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class SightingSerializationBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    private int size;
+    @Param({"JSON", "SMILE"})
+    private String format;
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    private ObjectMapper objectMapper;
+    private List<SightingDto> sightings;
+
+    @Setup
+    public void setup() throws IOException {
+        objectMapper = "SMILE".equals(format)
+                ? SmileConfig.smileObjectMapper(Jackson2ObjectMapperBuilder.json())
+                : Jackson2ObjectMapperBuilder.json().build();
+        sightings = new ArrayList<>(size);
+        var start = LocalDateTime.of(2024, 5, 8, 0, 0);
+        for (int i = 0; i < size; i++) {
+            sightings.add(new SightingDto((long) i, "Bird " + i % 100, "Location " + i % 1000, start.plusMinutes(i), null, null));
+        }
+
+        var payload = new ByteArrayOutputStream();
+        write(payload);
+        System.out.printf("%n%s%s, %d sightings: %d bytes, %.1f bytes per sighting%n", format, gzip ? " + gzip" : "",
+                size, payload.size(), (double) payload.size() / size);
+    }
+
+    @Benchmark
+    public void writeList() throws IOException {
+        write(OutputStream.nullOutputStream());
+    }
+
+    private void write(OutputStream outputStream) throws IOException {
+        if (!gzip) {
+            objectMapper.writeValue(outputStream, sightings);
+            return;
+        }
+        // the ObjectMapper closes the stream it writes to, which finishes the gzip stream
+        objectMapper.writeValue(new GZIPOutputStream(outputStream, 8192), sightings);
+    }
+}
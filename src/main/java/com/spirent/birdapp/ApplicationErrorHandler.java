@@ -1,8 +1,14 @@
 package com.spirent.birdapp;
 
 import com.mysql.cj.jdbc.exceptions.CommunicationsException;
+import com.spirent.birdapp.shard.BucketMovingException;
+import com.spirent.birdapp.shard.NotShardedException;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.sql.SQLNonTransientConnectionException;
+import lombok.AllArgsConstructor;
 import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.CannotGetJdbcConnectionException;
@@ -10,7 +16,9 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
 @ControllerAdvice
+@AllArgsConstructor
 public class ApplicationErrorHandler {
+    private final MeterRegistry meterRegistry;
 
     @ExceptionHandler({
             DataAccessResourceFailureException.class,
@@ -19,7 +27,34 @@ public class ApplicationErrorHandler {
             SQLNonTransientConnectionException.class
     })
     public ResponseEntity<String> handleDatabaseExceptions(Exception ex) {
+        meterRegistry.counter("birdapp.db.errors", "exception", ex.getClass().getSimpleName()).increment();
         return new ResponseEntity<>("An error occurred while accessing the database: " + ex.getMessage(),
                 HttpStatus.INTERNAL_SERVER_ERROR);
     }
+
+    /**
+     * Another request changed the same bird or sighting since it was read, the client can retry.
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleConcurrentUpdate(OptimisticLockingFailureException ex) {
+        return new ResponseEntity<>("The resource was changed concurrently, please retry", HttpStatus.CONFLICT);
+    }
+
+    /**
+     * The bucket of the sighting is being moved to another shard, the client can retry shortly.
+     */
+    @ExceptionHandler(BucketMovingException.class)
+    public ResponseEntity<String> handleBucketMoving(BucketMovingException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ex.getMessage());
+    }
+
+    /**
+     * The endpoint is not available with the 'sharding' profile.
+     */
+    @ExceptionHandler(NotShardedException.class)
+    public ResponseEntity<String> handleNotSharded(NotShardedException ex) {
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.NOT_IMPLEMENTED);
+    }
 }
@@ -0,0 +1,46 @@
+package com.spirent.birdapp;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Arrays;
+import java.util.Collection;
+import lombok.AllArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records the number of rows returned by every repository method that returns a collection, as the
+ * 'birdapp.repository.rows' distribution tagged with the repository and method. Spring Boot already times the
+ * same calls as 'spring.data.repository.invocations'.
+ */
+@Aspect
+@Component
+@AllArgsConstructor
+public class RepositoryRowCountAspect {
+    private final MeterRegistry meterRegistry;
+
+    @Around("execution(java.util.Collection+ *(..)) && target(org.springframework.data.repository.Repository)")
+    public Object recordRowCount(ProceedingJoinPoint joinPoint) throws Throwable {
+        var result = joinPoint.proceed();
+        if (result instanceof Collection<?> rows) {
+            DistributionSummary.builder("birdapp.repository.rows")
+                    .baseUnit("rows")
+                    .tag("repository", repositoryName(joinPoint.getTarget()))
+                    .tag("method", joinPoint.getSignature().getName())
+                    .register(meterRegistry)
+                    .record(rows.size());
+        }
+        return result;
+    }
+
+    private static String repositoryName(Object repository) {
+        return Arrays.stream(repository.getClass().getInterfaces())
+                .filter(Repository.class::isAssignableFrom)
+                .findFirst()
+                .map(Class::getSimpleName)
+                .orElseGet(() -> repository.getClass().getSimpleName());
+    }
+}
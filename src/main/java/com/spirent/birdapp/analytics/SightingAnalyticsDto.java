@@ -0,0 +1,26 @@
+package com.spirent.birdapp.analytics;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class SightingAnalyticsDto {
+    public enum GroupBy {
+        BIRD,
+        LOCATION
+    }
+
+    private GroupBy groupBy;
+    /**
+     * Number of matching sightings, in all groups.
+     */
+    private long total;
+    /**
+     * The groups with the most sightings, most first.
+     */
+    private List<SightingCountDto> groups;
+}
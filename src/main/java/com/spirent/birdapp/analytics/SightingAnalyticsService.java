@@ -0,0 +1,201 @@
+package com.spirent.birdapp.analytics;
+
+import com.spirent.birdapp.shard.Shards;
+import com.spirent.birdapp.sighting.Sighting;
+import io.micrometer.core.annotation.Timed;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Range and group-by queries over an in-memory {@link SightingColumnStore} copy of the 'sighting' table. Like the
+ * search index, it is loaded from the database on startup and kept up to date by the write paths of the services,
+ * which report every change once its transaction has committed.
+ */
+@Service
+@Timed("birdapp.service")
+@Slf4j
+public class SightingAnalyticsService {
+    static final int MAX_GROUPS = 1000;
+    private static final int LOAD_CHUNK_SIZE = 10_000;
+    private static final String SELECT_ALL = "SELECT s.id, s.bird_id, b.name, s.location, s.date_time "
+            + "FROM sighting s JOIN bird b ON b.id = s.bird_id";
+    // a bucket being moved is on two shards, but owned by one of them except for the moment of the switch
+    private static final String SELECT_SHARD = SELECT_ALL + " JOIN owned_bucket o ON o.bucket = s.bucket";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Optional<Shards> shards;
+    private final SightingColumnStore store = new SightingColumnStore();
+
+    /**
+     * @param shards with the 'sharding' profile, where the sightings are loaded from
+     */
+    public SightingAnalyticsService(JdbcTemplate jdbcTemplate, Optional<Shards> shards) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+    }
+
+    /**
+     * Loads all sightings, streaming them from the database in chunks. Writes that happen meanwhile are applied
+     * on top and win over the loaded rows, see {@link SightingColumnStore#beginLoad()}.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        store.beginLoad();
+        try {
+            if (shards.isPresent()) {
+                // a sighting seen twice while its bucket is switched replaces its first copy
+                shards.get().all().forEach(shard -> load(shard.jdbcTemplate(), SELECT_SHARD));
+            } else {
+                load(jdbcTemplate, SELECT_ALL);
+            }
+        } finally {
+            store.endLoad();
+        }
+        log.info("Loaded {} sightings for analytics in {} ms", store.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * The sightings need their id and the id and name of their bird.
+     */
+    public void sightingsSaved(Collection<Sighting> sightings) {
+        var rows = sightings.stream()
+                .map(sighting -> new SightingColumnStore.Row(sighting.getId(), sighting.getBird().getId(),
+                        sighting.getBird().getName(), sighting.getLocation(), sighting.getDateTime()))
+                .toList();
+        afterCommit(() -> store.save(rows));
+    }
+
+    public void sightingSaved(long id, long birdId, String birdName, String location, LocalDateTime dateTime) {
+        var row = new SightingColumnStore.Row(id, birdId, birdName, location, dateTime);
+        afterCommit(() -> store.save(List.of(row)));
+    }
+
+    public void sightingDeleted(long id) {
+        afterCommit(() -> store.delete(List.of(id)));
+    }
+
+    public void birdRenamed(long birdId, String name) {
+        afterCommit(() -> store.renameBird(birdId, name));
+    }
+
+    /**
+     * The bird's sightings are deleted with it.
+     */
+    public void birdDeleted(long birdId) {
+        afterCommit(() -> store.deleteBird(birdId));
+    }
+
+    public void sightingsExpiredBefore(LocalDate date) {
+        afterCommit(() -> store.deleteBefore(date.atStartOfDay()));
+    }
+
+    /**
+     * Counts the sightings in {@code [from, to)} per bird or location, returning the groups with the most
+     * sightings. All filters are optional.
+     */
+    public SightingAnalyticsDto analyze(SightingAnalyticsDto.GroupBy groupBy, LocalDateTime from, LocalDateTime to,
+            String birdName, String location, int limit) {
+        var byBird = groupBy == SightingAnalyticsDto.GroupBy.BIRD;
+        var counts = byBird
+                ? store.countByBird(from, to, location)
+                : store.countByLocation(from, to, birdName);
+        // a filter on the grouped column selects a single group instead of being checked on every row
+        var group = byBird ? birdName : location;
+        List<Integer> codes;
+        long total;
+        if (group == null) {
+            codes = top(counts.counts(), Math.max(1, Math.min(limit, MAX_GROUPS)));
+            total = counts.total();
+        } else {
+            int code = byBird ? store.findBird(group) : store.findLocation(group);
+            total = code < 0 || code >= counts.counts().length ? 0 : counts.counts()[code];
+            codes = total == 0 ? List.of() : List.of(code);
+        }
+        var groups = codes.stream()
+                .map(code -> byBird
+                        ? new SightingCountDto(store.birdId(code), store.birdName(code), counts.counts()[code])
+                        : new SightingCountDto(null, store.location(code), counts.counts()[code]))
+                .toList();
+        return SightingAnalyticsDto.builder()
+                .groupBy(groupBy)
+                .total(total)
+                .groups(groups)
+                .build();
+    }
+
+    /**
+     * Returns the codes of the {@code limit} largest non-zero counts, largest first and by code on ties.
+     */
+    static List<Integer> top(long[] counts, int limit) {
+        Comparator<Integer> byCount = Comparator.<Integer>comparingLong(code -> counts[code])
+                .thenComparing(Comparator.reverseOrder());
+        var top = new PriorityQueue<>(byCount);
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0 && (top.size() < limit || byCount.compare(code, top.peek()) > 0)) {
+                top.add(code);
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+        }
+        var codes = new ArrayList<>(top);
+        codes.sort(byCount.reversed());
+        return codes;
+    }
+
+    /**
+     * Applies the update once the current transaction has committed, so that rolled back writes never reach the
+     * store. Without a transaction it is applied right away.
+     */
+    private static void afterCommit(Runnable update) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update.run();
+            }
+        });
+    }
+
+    private void load(JdbcTemplate jdbcTemplate, String sql) {
+        var chunk = new ArrayList<SightingColumnStore.Row>(LOAD_CHUNK_SIZE);
+        jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(sql);
+            // Integer.MIN_VALUE makes the MySQL driver stream rows; other drivers reject it, so e.g. H2, which
+            // the benchmarks boot on, fetches in chunks
+            statement.setFetchSize(isMySql(connection) ? Integer.MIN_VALUE : LOAD_CHUNK_SIZE);
+            return statement;
+        }, row -> {
+            chunk.add(new SightingColumnStore.Row(row.getLong(1), row.getLong(2), row.getString(3),
+                    row.getString(4), row.getObject(5, LocalDateTime.class)));
+            if (chunk.size() == LOAD_CHUNK_SIZE) {
+                store.load(chunk);
+                chunk.clear();
+            }
+        });
+        store.load(chunk);
+    }
+
+    private static boolean isMySql(Connection connection) throws SQLException {
+        return "MySQL".equals(connection.getMetaData().getDatabaseProductName());
+    }
+}
@@ -0,0 +1,20 @@
+package com.spirent.birdapp.analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class SightingCountDto {
+    /**
+     * Only set for birds.
+     */
+    private Long birdId;
+    /**
+     * The bird name, or the location.
+     */
+    private String name;
+    private long count;
+}
@@ -1,14 +1,19 @@
 package com.spirent.birdapp.bird;
 
 import com.spirent.birdapp.sighting.Sighting;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import lombok.AllArgsConstructor;
@@ -16,24 +21,54 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.UpdateTimestamp;
 
 @Entity
-@Table(name = "bird")
+@Table(name = "bird", indexes = {
+        @Index(name = "uk_bird_name", columnList = "name", unique = true),
+        @Index(name = "idx_bird_color_name", columnList = "color, name")
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @Setter
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
 public class Bird {
+    /**
+     * Characters of 'bird.name'.
+     */
+    public static final int MAX_NAME_LENGTH = 255;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
+    @Column(length = MAX_NAME_LENGTH)
     private String name;
     private String color;
     private double weight;
     private double height;
 
-    @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
+    /**
+     * Incremented on every update through JPA, which fails if the row was changed since it was read.
+     */
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+    @UpdateTimestamp
+    @ColumnDefault("CURRENT_TIMESTAMP(6)")
+    private LocalDateTime updatedAt;
+
+    /**
+     * Inverse side of {@link Sighting#getBird()}: the association lives in the sighting.bird_id column only.
+     */
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    @OneToMany(mappedBy = "bird", cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
     private List<Sighting> sightings = new ArrayList<>();
 
 }
@@ -0,0 +1,164 @@
+package com.spirent.birdapp.bird;
+
+import com.spirent.birdapp.bulk.BulkColumn;
+import com.spirent.birdapp.bulk.BulkFormat;
+import com.spirent.birdapp.bulk.BulkImportResultDto;
+import com.spirent.birdapp.bulk.RowReader;
+import com.spirent.birdapp.change.ChangeEventDto;
+import com.spirent.birdapp.change.ChangeEvents;
+import com.spirent.birdapp.etag.TableVersions;
+import com.spirent.birdapp.search.SearchService;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import lombok.AllArgsConstructor;
+import org.hibernate.Cache;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static com.spirent.birdapp.bird.BirdCache.BIRD_LISTS;
+import static com.spirent.birdapp.bulk.BulkColumn.Type.DOUBLE;
+import static com.spirent.birdapp.bulk.BulkColumn.Type.LONG;
+import static com.spirent.birdapp.bulk.BulkColumn.Type.STRING;
+
+/**
+ * Imports and exports the bird table as CSV or columnar files with plain JDBC, bypassing the persistence context.
+ * Exports read from a streaming cursor and imports insert chunk by chunk, so neither holds the whole table in memory.
+ */
+@Service
+@Timed("birdapp.service")
+@AllArgsConstructor
+public class BirdBulkService {
+    static final List<BulkColumn> COLUMNS = List.of(
+            new BulkColumn("id", LONG),
+            new BulkColumn("name", STRING),
+            new BulkColumn("color", STRING),
+            new BulkColumn("weight", DOUBLE),
+            new BulkColumn("height", DOUBLE));
+    static final int CHUNK_SIZE = 1000;
+    private static final String SELECT_ALL = "SELECT id, name, color, weight, height FROM bird ORDER BY id";
+    // names taken meanwhile by a concurrent writer are skipped instead of failing the chunk
+    private static final String INSERT = "INSERT INTO bird (name, color, weight, height) VALUES (?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE id = id";
+    private static final String SELECT_NAMES = "SELECT name FROM bird WHERE name IN (:names)";
+    private static final String SELECT_BY_NAMES = "SELECT id, name, color, weight, height FROM bird WHERE name IN (:names)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final SearchService searchService;
+    private final TableVersions tableVersions;
+    private final ChangeEvents changeEvents;
+    private final EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Writes every bird to the stream. A fetch size of {@link Integer#MIN_VALUE} makes the MySQL driver stream
+     * the result set row by row instead of buffering it.
+     */
+    public void exportBirds(BulkFormat format, OutputStream outputStream) throws IOException {
+        try (var writer = format.writer(outputStream, COLUMNS)) {
+            jdbcTemplate.query(connection -> {
+                var statement = connection.prepareStatement(SELECT_ALL);
+                statement.setFetchSize(Integer.MIN_VALUE);
+                return statement;
+            }, resultSet -> {
+                try {
+                    writer.write(new Object[]{
+                            resultSet.getLong(1),
+                            resultSet.getString(2),
+                            resultSet.getString(3),
+                            resultSet.getDouble(4),
+                            resultSet.getDouble(5)});
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Inserts the birds of the stream in chunks of {@link #CHUNK_SIZE}, one transaction and one JDBC batch per
+     * chunk. With 'rewriteBatchedStatements' the driver sends every batch as multi-row INSERTs. Ids in the file
+     * are ignored. Rows without a name, or with a name that is taken or appears earlier in the file, are rejected,
+     * so an export can be imported again.
+     */
+    @CacheEvict(cacheNames = BIRD_LISTS, allEntries = true)
+    public BulkImportResultDto importBirds(BulkFormat format, InputStream inputStream) throws IOException {
+        long imported = 0;
+        long rejected = 0;
+        try (RowReader reader = format.reader(inputStream, COLUMNS)) {
+            var chunk = new ArrayList<Object[]>(CHUNK_SIZE);
+            Object[] row;
+            while ((row = reader.read()) != null) {
+                if (row[1] == null) {
+                    rejected++;
+                    continue;
+                }
+                chunk.add(new Object[]{row[1], row[2], valueOrZero(row[3]), valueOrZero(row[4])});
+                if (chunk.size() == CHUNK_SIZE) {
+                    int inserted = insertChunk(chunk);
+                    imported += inserted;
+                    rejected += chunk.size() - inserted;
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                int inserted = insertChunk(chunk);
+                imported += inserted;
+                rejected += chunk.size() - inserted;
+            }
+        } finally {
+            // the cached results of BirdRepository#findAllBirds do not know about the new rows
+            entityManagerFactory.getCache().unwrap(Cache.class).evictQueryRegions();
+        }
+        return BulkImportResultDto.builder()
+                .imported(imported)
+                .rejected(rejected)
+                .build();
+    }
+
+    /**
+     * @return the number of birds inserted, the other rows have a name that is taken or repeated
+     */
+    private int insertChunk(List<Object[]> chunk) {
+        return transactionTemplate.execute(status -> {
+            // like the unique key, which uses the case-insensitive collation of the column
+            var taken = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            taken.addAll(namedParameterJdbcTemplate.queryForList(SELECT_NAMES,
+                    new MapSqlParameterSource("names", chunk.stream().map(row -> row[0]).toList()), String.class));
+            var rows = chunk.stream().filter(row -> taken.add((String) row[0])).toList();
+            if (rows.isEmpty()) {
+                return 0;
+            }
+            jdbcTemplate.batchUpdate(INSERT, rows);
+            tableVersions.bump(TableVersions.BIRD);
+            // batch inserts do not return the generated ids
+            var names = rows.stream().map(row -> row[0]).toList();
+            var birds = namedParameterJdbcTemplate.query(SELECT_BY_NAMES, new MapSqlParameterSource("names", names),
+                    (row, rowNumber) -> BirdDto.builder()
+                            .id(row.getLong(1))
+                            .name(row.getString(2))
+                            .color(row.getString(3))
+                            .weight(row.getDouble(4))
+                            .height(row.getDouble(5))
+                            .build());
+            birds.forEach(bird -> searchService.indexBird(bird.getId(), bird.getName(), bird.getColor()));
+            changeEvents.recordAll(ChangeEventDto.Entity.BIRD, ChangeEventDto.Operation.CREATED, birds, BirdDto::getId);
+            return rows.size();
+        });
+    }
+
+    private static Object valueOrZero(Object value) {
+        return value == null ? 0.0 : value;
+    }
+}
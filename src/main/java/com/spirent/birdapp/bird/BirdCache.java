@@ -0,0 +1,140 @@
+package com.spirent.birdapp.bird;
+
+import com.spirent.birdapp.change.ChangeEventDto;
+import com.spirent.birdapp.change.ChangeEventRelay;
+import com.spirent.birdapp.change.ChangeEvents;
+import com.spirent.birdapp.etag.TableVersions;
+import com.spirent.birdapp.search.SearchService;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+import lombok.AllArgsConstructor;
+import org.hibernate.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+/**
+ * Read-through cache in front of {@link BirdRepository} for the bird lookups done on every sighting write.
+ * Cached birds are detached entities shared between requests, so they must only be read or referenced,
+ * never modified.
+ * <p>
+ * Birds changed through this instance are evicted right away. Those changed through another one are evicted once
+ * the {@link ChangeEventRelay} publishes the change.
+ */
+@Component
+@AllArgsConstructor
+public class BirdCache {
+    public static final String BIRDS_BY_ID = "birdsById";
+    public static final String BIRDS_BY_NAME = "birdsByName";
+    public static final String BIRD_LISTS = "birdLists";
+    static final int LOCK_STRIPES = 64;
+
+    private final BirdRepository birdRepository;
+    private final CacheManager cacheManager;
+    private final SearchService searchService;
+    private final TableVersions tableVersions;
+    private final TransactionTemplate transactionTemplate;
+    private final ChangeEvents changeEvents;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ChangeEventRelay changeEventRelay;
+    private final ReentrantLock[] nameLocks = IntStream.range(0, LOCK_STRIPES)
+            .mapToObj(i -> new ReentrantLock())
+            .toArray(ReentrantLock[]::new);
+
+    @PostConstruct
+    public void start() {
+        changeEventRelay.addListener(this::onChanges);
+    }
+
+    @Cacheable(cacheNames = BIRDS_BY_ID, unless = "#result == null")
+    public Optional<Bird> findById(Long id) {
+        return birdRepository.findById(id);
+    }
+
+    @Cacheable(cacheNames = BIRDS_BY_NAME, unless = "#result == null")
+    public Optional<Bird> findByName(String name) {
+        return birdRepository.findByName(name);
+    }
+
+    /**
+     * Returns the bird with the given name, creating it if there is none. Cached names cost no database round
+     * trip. Otherwise callers in this instance asking for the same name wait for each other on a lock stripe, so
+     * only the first one goes to the database. Across instances the unique key on 'bird.name' decides: the upsert
+     * inserts the bird exactly once and returns the existing id to everybody else.
+     * <p>
+     * Must be called outside a transaction. The upsert then commits at once and holds no lock on the bird row
+     * afterwards, and a bird created by another instance meanwhile is visible to the read that follows.
+     * <p>
+     * The upsert cannot tell an insert from an existing bird, so two instances creating the same bird at once both
+     * record it as created. The events carry the whole bird, so the second one changes nothing for a subscriber.
+     */
+    public Bird findOrCreateByName(String name) {
+        Assert.state(!TransactionSynchronizationManager.isActualTransactionActive(),
+                "Birds must be created outside a transaction");
+        var cache = Objects.requireNonNull(cacheManager.getCache(BIRDS_BY_NAME));
+        var bird = cache.get(name, Bird.class);
+        if (bird != null) {
+            return bird;
+        }
+        var lock = nameLocks[Math.floorMod(name.hashCode(), LOCK_STRIPES)];
+        lock.lock();
+        try {
+            bird = cache.get(name, Bird.class);
+            if (bird == null) {
+                bird = birdRepository.findByName(name)
+                        .orElseGet(() -> createByName(name));
+                cache.put(name, bird);
+            }
+            return bird;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops every cached bird, like the evictions of {@link BirdService} do when a bird changes.
+     */
+    public void evictAll() {
+        Objects.requireNonNull(cacheManager.getCache(BIRDS_BY_ID)).clear();
+        Objects.requireNonNull(cacheManager.getCache(BIRDS_BY_NAME)).clear();
+    }
+
+    /**
+     * Created birds are left alone, a name or id is only cached once its bird exists.
+     */
+    private void onChanges(List<ChangeEventDto> events) {
+        if (events.stream().anyMatch(event -> event.getEntity() == ChangeEventDto.Entity.BIRD
+                && event.getOperation() != ChangeEventDto.Operation.CREATED)) {
+            evictAll();
+        }
+    }
+
+    private Bird createByName(String name) {
+        var bird = transactionTemplate.execute(status -> {
+            var id = birdRepository.upsertByName(name);
+            tableVersions.bump(TableVersions.BIRD);
+            var createdBird = birdRepository.findById(id).orElseThrow();
+            searchService.indexBird(createdBird.getId(), createdBird.getName(), createdBird.getColor());
+            changeEvents.record(ChangeEventDto.Entity.BIRD, id, ChangeEventDto.Operation.CREATED, BirdDto.builder()
+                    .id(id)
+                    .name(createdBird.getName())
+                    .color(createdBird.getColor())
+                    .weight(createdBird.getWeight())
+                    .height(createdBird.getHeight())
+                    .build());
+            return createdBird;
+        });
+        // the upsert bypasses Hibernate, so the cached results of BirdRepository#findAllBirds do not know the bird
+        entityManagerFactory.getCache().unwrap(Cache.class).evictQueryRegions();
+        Objects.requireNonNull(cacheManager.getCache(BIRD_LISTS)).clear();
+        return bird;
+    }
+}
@@ -0,0 +1,43 @@
+package com.spirent.birdapp.bird;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.support.CompositeCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static com.spirent.birdapp.bird.BirdCache.BIRDS_BY_ID;
+import static com.spirent.birdapp.bird.BirdCache.BIRDS_BY_NAME;
+import static com.spirent.birdapp.bird.BirdCache.BIRD_LISTS;
+
+@Configuration
+@EnableCaching
+public class BirdCacheConfig {
+
+    /**
+     * Caffeine caches with statistics enabled, which the actuator publishes as cache.gets, cache.puts and
+     * cache.evictions metrics. Without near-cache mode the list cache is not registered, so it falls back
+     * to a no-op cache.
+     */
+    @Bean
+    public CacheManager cacheManager(BirdCacheProperties properties) {
+        var caffeineCacheManager = new CaffeineCacheManager();
+        caffeineCacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .recordStats());
+        var cacheNames = new ArrayList<>(List.of(BIRDS_BY_ID, BIRDS_BY_NAME));
+        if (properties.isNearCache()) {
+            cacheNames.add(BIRD_LISTS);
+        }
+        caffeineCacheManager.setCacheNames(cacheNames);
+
+        var cacheManager = new CompositeCacheManager(caffeineCacheManager);
+        cacheManager.setFallbackToNoOpCache(true);
+        return cacheManager;
+    }
+}
@@ -0,0 +1,22 @@
+package com.spirent.birdapp.bird;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "bird-app.bird-cache")
+public class BirdCacheProperties {
+    /**
+     * Maximum number of entries kept in each bird cache.
+     */
+    private long maximumSize = 10_000;
+    /**
+     * How long an entry is served from the cache before it is read from the database again.
+     */
+    private Duration expireAfterWrite = Duration.ofMinutes(10);
+    /**
+     * Whether the complete result lists of GET /birds are cached as well, per (name, color) filter.
+     */
+    private boolean nearCache = true;
+}
@@ -6,40 +6,60 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import com.spirent.birdapp.bulk.BulkFormat;
+import com.spirent.birdapp.bulk.BulkImportResultDto;
+import com.spirent.birdapp.etag.TableVersions;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import lombok.AllArgsConstructor;
 import lombok.NonNull;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/birds")
 @AllArgsConstructor
 public class BirdController {
     private final BirdService birdService;
+    private final BirdBulkService birdBulkService;
+    private final TableVersions tableVersions;
 
-    @Operation(summary = "Returns all birds matching the given criteria")
+    @Operation(summary = "Returns all birds matching the given criteria",
+            description = "Supports If-None-Match and If-Modified-Since with the ETag and Last-Modified of the response")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Found the bird",
                     content = {
                             @Content(mediaType = "application/json",
                                     schema = @Schema(implementation = BirdDto.class))
                     }),
+            @ApiResponse(responseCode = "304", description = "No bird changed since the given ETag or date",
+                    content = @Content),
             @ApiResponse(responseCode = "404", description = "Bird not found",
                     content = @Content)
     })
 
     @GetMapping()
     public ResponseEntity<List<BirdDto>> getBird(@RequestParam(required = false) String name,
-            @RequestParam(required = false) String color) {
+            @RequestParam(required = false) String color, WebRequest request) {
+        if (tableVersions.checkNotModified(request, TableVersions.BIRD)) {
+            return null;
+        }
         return birdService.getBirds(name, color)
                 .map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
@@ -75,6 +95,31 @@ public class BirdController {
                 .orElseGet(() -> ResponseEntity.status(HttpStatus.BAD_REQUEST).build());
     }
 
+    @Operation(summary = "Export all birds as CSV or in the columnar format",
+            description = "The format is chosen by the Accept header and defaults to CSV")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Streaming the birds",
+                    content = { @Content(mediaType = BulkFormat.CSV_VALUE),
+                            @Content(mediaType = BulkFormat.COLUMNAR_VALUE)})})
+    @GetMapping(value = "/export", produces = {BulkFormat.CSV_VALUE, BulkFormat.COLUMNAR_VALUE})
+    public ResponseEntity<StreamingResponseBody> exportBirds(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        var format = BulkFormat.fromMediaTypes(accept);
+        StreamingResponseBody body = outputStream -> birdBulkService.exportBirds(format, outputStream);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(format.getMediaType())).body(body);
+    }
+
+    @Operation(summary = "Import birds from CSV or the columnar format",
+            description = "The format is chosen by the Content-Type header. The columns are the ones of the export, ids are ignored")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Birds imported",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = BulkImportResultDto.class))})})
+    @PostMapping(value = "/import", consumes = {BulkFormat.CSV_VALUE, BulkFormat.COLUMNAR_VALUE})
+    public BulkImportResultDto importBirds(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) throws IOException {
+        return birdBulkService.importBirds(BulkFormat.fromMediaTypes(contentType), body);
+    }
+
     @Operation(summary = "Delete a bird")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "204", description = "Bird deleted",
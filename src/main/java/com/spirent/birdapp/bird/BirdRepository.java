@@ -1,16 +1,27 @@
 package com.spirent.birdapp.bird;
 
+import jakarta.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+
 @Repository
-public interface BirdRepository extends JpaRepository<Bird, Long> {
+public interface BirdRepository extends JpaRepository<Bird, Long>, BirdRepositoryCustom {
 
     Optional<Bird> findByName(String name);
 
+    List<Bird> findByNameIn(Collection<String> names);
+
+    /**
+     * Goes through the Hibernate query cache when the second-level cache is enabled (the 'l2-cache' profile).
+     */
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     @Query("SELECT b FROM Bird b WHERE (:name IS NULL OR b.name = :name) AND (:color IS NULL OR b.color = :color)")
     List<Bird> findAllBirds(String name, String color);
 }
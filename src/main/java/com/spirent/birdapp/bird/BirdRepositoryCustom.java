@@ -0,0 +1,22 @@
+package com.spirent.birdapp.bird;
+
+/**
+ * Queries of {@link BirdRepository} that need plain JDBC, implemented in {@link BirdRepositoryCustomImpl}.
+ */
+public interface BirdRepositoryCustom {
+    /**
+     * Creates a bird with the given name unless there is one, in one statement that relies on the unique key on
+     * 'bird.name'. Either way, LAST_INSERT_ID() on the same connection returns the id of the bird afterwards.
+     * Shared with the reactive stack.
+     */
+    String UPSERT_BY_NAME = "INSERT INTO bird (name, weight, height) VALUES (?, 0, 0) "
+            + "ON DUPLICATE KEY UPDATE id = LAST_INSERT_ID(id)";
+
+    /**
+     * Runs {@link #UPSERT_BY_NAME}. Outside a transaction it commits at once, so no lock on the bird row is held
+     * afterwards.
+     *
+     * @return the id of the new or existing bird
+     */
+    long upsertByName(String name);
+}
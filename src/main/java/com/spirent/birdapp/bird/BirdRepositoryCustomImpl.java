@@ -0,0 +1,27 @@
+package com.spirent.birdapp.bird;
+
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@AllArgsConstructor
+class BirdRepositoryCustomImpl implements BirdRepositoryCustom {
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public long upsertByName(String name) {
+        // LAST_INSERT_ID() is per connection, so both statements must run on the same one
+        Long id = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try (var upsert = connection.prepareStatement(UPSERT_BY_NAME);
+                 var select = connection.createStatement()) {
+                upsert.setString(1, name);
+                upsert.executeUpdate();
+                try (var resultSet = select.executeQuery("SELECT LAST_INSERT_ID()")) {
+                    resultSet.next();
+                    return resultSet.getLong(1);
+                }
+            }
+        });
+        return id;
+    }
+}
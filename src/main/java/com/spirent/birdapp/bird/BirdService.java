@@ -1,21 +1,53 @@
 package com.spirent.birdapp.bird;
 
-import jakarta.transaction.Transactional;
+import com.spirent.birdapp.analytics.SightingAnalyticsService;
+import com.spirent.birdapp.change.ChangeEventDto;
+import com.spirent.birdapp.change.ChangeEvents;
+import com.spirent.birdapp.etag.TableVersions;
+import com.spirent.birdapp.search.SearchService;
+import io.micrometer.core.annotation.Timed;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Consumer;
 import lombok.AllArgsConstructor;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import static com.spirent.birdapp.bird.BirdCache.BIRDS_BY_ID;
+import static com.spirent.birdapp.bird.BirdCache.BIRDS_BY_NAME;
+import static com.spirent.birdapp.bird.BirdCache.BIRD_LISTS;
 import static java.util.stream.Collectors.toList;
 
 @Service
+@Timed("birdapp.service")
 @AllArgsConstructor
 public class BirdService {
     private final BirdRepository birdRepository;
+    private final SearchService searchService;
+    private final TableVersions tableVersions;
+    private final SightingAnalyticsService sightingAnalyticsService;
+    private final TransactionTemplate transactionTemplate;
+    private final ChangeEvents changeEvents;
+    private final CacheManager cacheManager;
 
+    /**
+     * Lists in the near cache are keyed by the version of the 'bird' table, read in the same transaction as the list.
+     * An instance that a write on another instance did not evict, or that refilled its cache just before an evict,
+     * thus never serves an old list for the current ETag.
+     */
+    @Transactional(readOnly = true)
     public Optional<List<BirdDto>> getBirds(String name, String color) {
+        var key = new SimpleKey(tableVersions.current(TableVersions.BIRD).etag(), name, color);
+        return Objects.requireNonNull(cacheManager.getCache(BIRD_LISTS)).get(key, () -> findBirds(name, color));
+    }
 
+    private Optional<List<BirdDto>> findBirds(String name, String color) {
         var allBirds = birdRepository.findAllBirds(name, color);
         if (allBirds.isEmpty()) {
             return Optional.empty();
@@ -25,15 +57,32 @@ public class BirdService {
                 .collect(toList()));
     }
 
+    /**
+     * Completes empty if a bird with the same name exists. The constraint violation rolls the transaction back, so
+     * it is caught outside of it.
+     */
+    @CacheEvict(cacheNames = BIRD_LISTS, allEntries = true)
     public Optional<BirdDto> addBird(CreateBirdDto bird) {
-        var savedBird = birdRepository.save(toEntity(bird));
-        return Optional.of(fromEntity(savedBird));
+        try {
+            return transactionTemplate.execute(status -> {
+                var savedBird = birdRepository.save(toEntity(bird));
+                tableVersions.bump(TableVersions.BIRD);
+                searchService.indexBird(savedBird.getId(), savedBird.getName(), savedBird.getColor());
+                var savedBirdDto = fromEntity(savedBird);
+                changeEvents.record(ChangeEventDto.Entity.BIRD, savedBird.getId(), ChangeEventDto.Operation.CREATED,
+                        savedBirdDto);
+                return Optional.of(savedBirdDto);
+            });
+        } catch (DataIntegrityViolationException e) {
+            return Optional.empty();
+        }
     }
 
     @Transactional
+    @CacheEvict(cacheNames = {BIRDS_BY_ID, BIRDS_BY_NAME, BIRD_LISTS}, allEntries = true)
     public Optional<?> updateBird(BirdDto bird) {
         var existingBird = birdRepository.findById(bird.getId());
-        if (existingBird.isEmpty()) {
+        if (existingBird.isEmpty() || isNameTakenByAnotherBird(bird)) {
             return Optional.empty();
         }
         return existingBird
@@ -42,10 +91,23 @@ public class BirdService {
                     updateIfNotNull(entity::setColor, bird.getColor());
                     updateIfNotNull(entity::setWeight, bird.getWeight());
                     updateIfNotNull(entity::setHeight, bird.getHeight());
-                    return fromEntity(birdRepository.save(entity));
+                    var savedBird = birdRepository.save(entity);
+                    tableVersions.bump(TableVersions.BIRD);
+                    searchService.indexBird(savedBird.getId(), savedBird.getName(), savedBird.getColor());
+                    sightingAnalyticsService.birdRenamed(savedBird.getId(), savedBird.getName());
+                    var savedBirdDto = fromEntity(savedBird);
+                    changeEvents.record(ChangeEventDto.Entity.BIRD, savedBird.getId(), ChangeEventDto.Operation.UPDATED,
+                            savedBirdDto);
+                    return savedBirdDto;
                 });
     }
 
+    private boolean isNameTakenByAnotherBird(BirdDto bird) {
+        return bird.getName() != null && birdRepository.findByName(bird.getName())
+                .filter(sameName -> !sameName.getId().equals(bird.getId()))
+                .isPresent();
+    }
+
     private <T> void updateIfNotNull(Consumer<T> setter, T value) {
         if (value != null) {
             setter.accept(value);
@@ -53,16 +115,24 @@ public class BirdService {
     }
 
     @Transactional
+    @CacheEvict(cacheNames = {BIRDS_BY_ID, BIRDS_BY_NAME, BIRD_LISTS}, allEntries = true)
     public Optional<Long> deleteBird(Long birdId) {
         var bird = birdRepository.findById(birdId);
         if (bird.isEmpty()) {
             return Optional.empty();
         }
         birdRepository.deleteById(birdId);
+        // always bird before sighting, so that two transactions never wait for each other's counters
+        tableVersions.bump(TableVersions.BIRD);
+        tableVersions.bump(TableVersions.SIGHTING);
+        searchService.removeBird(birdId);
+        sightingAnalyticsService.birdDeleted(birdId);
+        // also stands for the deleted sightings of the bird
+        changeEvents.record(ChangeEventDto.Entity.BIRD, birdId, ChangeEventDto.Operation.DELETED, null);
         return Optional.of(birdId);
     }
 
-    private Bird toEntity(CreateBirdDto birdDto) {
+    Bird toEntity(CreateBirdDto birdDto) {
         return Bird.builder()
                 .name(birdDto.getName())
                 .color(birdDto.getColor())
@@ -71,7 +141,7 @@ public class BirdService {
                 .build();
     }
 
-    private BirdDto fromEntity(Bird bird) {
+    BirdDto fromEntity(Bird bird) {
         return BirdDto.builder()
                 .id(bird.getId())
                 .name(bird.getName())
@@ -0,0 +1,15 @@
+package com.spirent.birdapp.bulk;
+
+/**
+ * One column of an import or export. Values are {@link Long}, {@link Double}, {@link String} or
+ * {@link java.time.LocalDateTime} depending on the type, or {@code null}.
+ */
+public record BulkColumn(String name, Type type) {
+
+    public enum Type {
+        LONG,
+        DOUBLE,
+        STRING,
+        DATETIME
+    }
+}
@@ -0,0 +1,43 @@
+package com.spirent.birdapp.bulk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * File formats of the bulk import and export endpoints, selected by media type.
+ */
+public enum BulkFormat {
+    CSV(BulkFormat.CSV_VALUE),
+    COLUMNAR(BulkFormat.COLUMNAR_VALUE);
+
+    public static final String CSV_VALUE = "text/csv";
+    public static final String COLUMNAR_VALUE = "application/vnd.birdapp.columnar";
+
+    private final String mediaType;
+
+    BulkFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    /**
+     * @param mediaTypes an Accept or Content-Type header, may be {@code null}
+     * @return {@link #COLUMNAR} if the header names it, otherwise {@link #CSV}
+     */
+    public static BulkFormat fromMediaTypes(String mediaTypes) {
+        return mediaTypes != null && mediaTypes.contains(COLUMNAR_VALUE) ? COLUMNAR : CSV;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public RowWriter writer(OutputStream out, List<BulkColumn> columns) throws IOException {
+        return this == CSV ? CsvRows.writer(out, columns) : ColumnarRows.writer(out, columns);
+    }
+
+    public RowReader reader(InputStream in, List<BulkColumn> columns) throws IOException {
+        return this == CSV ? CsvRows.reader(in, columns) : ColumnarRows.reader(in, columns);
+    }
+}
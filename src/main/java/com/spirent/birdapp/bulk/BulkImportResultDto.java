@@ -0,0 +1,16 @@
+package com.spirent.birdapp.bulk;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class BulkImportResultDto {
+    private long imported;
+    /**
+     * Rows skipped because a required value was missing, referenced an unknown bird or named a bird that exists.
+     */
+    private long rejected;
+}
@@ -0,0 +1,314 @@
+package com.spirent.birdapp.bulk;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A compact binary format that stores rows in column-wise groups, in the spirit of Parquet row groups.
+ *
+ * <pre>
+ * file      := "BCOL" version:u8 columnCount:varint (name:utf type:u8)* group* 0:varint
+ * group     := rowCount:varint column*
+ * column    := nullBitmap:byte[(rowCount + 7) / 8] values
+ * LONG      := zigzag varint delta to the previous non-null value of the group
+ * DATETIME  := zigzag varint delta of the UTC epoch second, then nano:varint
+ * DOUBLE    := 8 bytes
+ * STRING    := dictionarySize:varint utf* then one dictionary index:varint per value
+ * </pre>
+ *
+ * Delta and dictionary encoding make sorted ids, timestamps and repeated names or locations a few bytes each.
+ */
+final class ColumnarRows {
+    static final int ROW_GROUP_SIZE = 8192;
+    private static final byte[] MAGIC = {'B', 'C', 'O', 'L'};
+    private static final int VERSION = 1;
+
+    private ColumnarRows() {
+    }
+
+    static RowWriter writer(OutputStream out, List<BulkColumn> columns) throws IOException {
+        var data = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        data.write(MAGIC);
+        data.writeByte(VERSION);
+        writeVarint(data, columns.size());
+        for (var column : columns) {
+            data.writeUTF(column.name());
+            data.writeByte(column.type().ordinal());
+        }
+        return new GroupWriter(data, columns);
+    }
+
+    static RowReader reader(InputStream in, List<BulkColumn> columns) throws IOException {
+        var data = new DataInputStream(new BufferedInputStream(in, 64 * 1024));
+        var magic = new byte[MAGIC.length];
+        data.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC) || data.readUnsignedByte() != VERSION) {
+            throw new IllegalArgumentException("Not a bird app columnar file");
+        }
+        var expected = new HashMap<String, Integer>();
+        for (int i = 0; i < columns.size(); i++) {
+            expected.put(columns.get(i).name(), i);
+        }
+        int fileColumnCount = (int) readVarint(data);
+        var fileTypes = new BulkColumn.Type[fileColumnCount];
+        var targets = new int[fileColumnCount];
+        for (int i = 0; i < fileColumnCount; i++) {
+            var name = data.readUTF();
+            fileTypes[i] = BulkColumn.Type.values()[data.readUnsignedByte()];
+            Integer target = expected.get(name);
+            if (target != null && columns.get(target).type() != fileTypes[i]) {
+                throw new IllegalArgumentException("Column " + name + " must be of type " + columns.get(target).type());
+            }
+            targets[i] = target == null ? -1 : target;
+        }
+        return new GroupReader(data, columns.size(), fileTypes, targets);
+    }
+
+    private static final class GroupWriter implements RowWriter {
+        private final DataOutputStream out;
+        private final List<BulkColumn> columns;
+        private final Object[][] group;
+        private int rows;
+
+        GroupWriter(DataOutputStream out, List<BulkColumn> columns) {
+            this.out = out;
+            this.columns = columns;
+            this.group = new Object[ROW_GROUP_SIZE][];
+        }
+
+        @Override
+        public void write(Object[] row) throws IOException {
+            group[rows++] = row;
+            if (rows == ROW_GROUP_SIZE) {
+                flushGroup();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flushGroup();
+            writeVarint(out, 0);
+            out.flush();
+            out.close();
+        }
+
+        private void flushGroup() throws IOException {
+            if (rows == 0) {
+                return;
+            }
+            writeVarint(out, rows);
+            for (int c = 0; c < columns.size(); c++) {
+                writeColumn(c, columns.get(c).type());
+            }
+            Arrays.fill(group, 0, rows, null);
+            rows = 0;
+        }
+
+        private void writeColumn(int c, BulkColumn.Type type) throws IOException {
+            var bitmap = new byte[(rows + 7) / 8];
+            for (int r = 0; r < rows; r++) {
+                if (group[r][c] == null) {
+                    bitmap[r >> 3] |= (byte) (1 << (r & 7));
+                }
+            }
+            out.write(bitmap);
+            switch (type) {
+                case LONG -> {
+                    long previous = 0;
+                    for (int r = 0; r < rows; r++) {
+                        if (group[r][c] != null) {
+                            long value = ((Number) group[r][c]).longValue();
+                            writeZigzag(out, value - previous);
+                            previous = value;
+                        }
+                    }
+                }
+                case DATETIME -> {
+                    long previous = 0;
+                    for (int r = 0; r < rows; r++) {
+                        if (group[r][c] instanceof LocalDateTime dateTime) {
+                            long seconds = dateTime.toEpochSecond(ZoneOffset.UTC);
+                            writeZigzag(out, seconds - previous);
+                            writeVarint(out, dateTime.getNano());
+                            previous = seconds;
+                        }
+                    }
+                }
+                case DOUBLE -> {
+                    for (int r = 0; r < rows; r++) {
+                        if (group[r][c] != null) {
+                            out.writeDouble(((Number) group[r][c]).doubleValue());
+                        }
+                    }
+                }
+                case STRING -> {
+                    var dictionary = new HashMap<String, Integer>();
+                    var indexes = new int[rows];
+                    for (int r = 0; r < rows; r++) {
+                        if (group[r][c] != null) {
+                            indexes[r] = dictionary.computeIfAbsent(group[r][c].toString(), k -> dictionary.size());
+                        }
+                    }
+                    var entries = new String[dictionary.size()];
+                    dictionary.forEach((value, index) -> entries[index] = value);
+                    writeVarint(out, entries.length);
+                    for (var entry : entries) {
+                        out.writeUTF(entry);
+                    }
+                    for (int r = 0; r < rows; r++) {
+                        if (group[r][c] != null) {
+                            writeVarint(out, indexes[r]);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class GroupReader implements RowReader {
+        private final DataInputStream in;
+        private final int width;
+        private final BulkColumn.Type[] fileTypes;
+        private final int[] targets;
+        private Object[][] group = new Object[0][];
+        private int next;
+        private boolean finished;
+
+        GroupReader(DataInputStream in, int width, BulkColumn.Type[] fileTypes, int[] targets) {
+            this.in = in;
+            this.width = width;
+            this.fileTypes = fileTypes;
+            this.targets = targets;
+        }
+
+        @Override
+        public Object[] read() throws IOException {
+            while (next == group.length) {
+                if (finished || !readGroup()) {
+                    return null;
+                }
+            }
+            var row = group[next];
+            group[next++] = null;
+            return row;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private boolean readGroup() throws IOException {
+            int rows = (int) readVarint(in);
+            if (rows == 0) {
+                finished = true;
+                return false;
+            }
+            if (rows > ROW_GROUP_SIZE) {
+                throw new IllegalArgumentException("Row group of " + rows + " rows exceeds " + ROW_GROUP_SIZE);
+            }
+            group = new Object[rows][width];
+            next = 0;
+            for (int c = 0; c < fileTypes.length; c++) {
+                readColumn(rows, fileTypes[c], targets[c]);
+            }
+            return true;
+        }
+
+        private void readColumn(int rows, BulkColumn.Type type, int target) throws IOException {
+            var bitmap = new byte[(rows + 7) / 8];
+            in.readFully(bitmap);
+            switch (type) {
+                case LONG -> {
+                    long previous = 0;
+                    for (int r = 0; r < rows; r++) {
+                        if (!isNull(bitmap, r)) {
+                            previous += readZigzag(in);
+                            set(r, target, previous);
+                        }
+                    }
+                }
+                case DATETIME -> {
+                    long previous = 0;
+                    for (int r = 0; r < rows; r++) {
+                        if (!isNull(bitmap, r)) {
+                            previous += readZigzag(in);
+                            int nano = (int) readVarint(in);
+                            set(r, target, LocalDateTime.ofEpochSecond(previous, nano, ZoneOffset.UTC));
+                        }
+                    }
+                }
+                case DOUBLE -> {
+                    for (int r = 0; r < rows; r++) {
+                        if (!isNull(bitmap, r)) {
+                            set(r, target, in.readDouble());
+                        }
+                    }
+                }
+                case STRING -> {
+                    int size = (int) readVarint(in);
+                    List<String> dictionary = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        dictionary.add(in.readUTF());
+                    }
+                    for (int r = 0; r < rows; r++) {
+                        if (!isNull(bitmap, r)) {
+                            set(r, target, dictionary.get((int) readVarint(in)));
+                        }
+                    }
+                }
+            }
+        }
+
+        private void set(int row, int target, Object value) {
+            if (target >= 0) {
+                group[row][target] = value;
+            }
+        }
+
+        private static boolean isNull(byte[] bitmap, int row) {
+            return (bitmap[row >> 3] & (1 << (row & 7))) != 0;
+        }
+    }
+
+    private static void writeZigzag(DataOutputStream out, long value) throws IOException {
+        writeVarint(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static long readZigzag(DataInputStream in) throws IOException {
+        long value = readVarint(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarint(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new EOFException("Malformed varint");
+    }
+}
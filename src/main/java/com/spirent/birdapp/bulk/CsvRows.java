@@ -0,0 +1,81 @@
+package com.spirent.birdapp.bulk;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CSV with a header line. Dates are ISO-8601 and empty fields are {@code null}. Columns are matched by header
+ * name when reading, so their order and any extra columns do not matter. Both directions are streamed.
+ */
+final class CsvRows {
+    private static final CsvMapper CSV_MAPPER = new CsvMapper();
+
+    private CsvRows() {
+    }
+
+    static RowWriter writer(OutputStream out, List<BulkColumn> columns) throws IOException {
+        var schema = CsvSchema.builder().setUseHeader(true);
+        columns.forEach(column -> schema.addColumn(column.name()));
+        var sequence = CSV_MAPPER.writer(schema.build()).writeValues(out);
+        return new RowWriter() {
+            @Override
+            public void write(Object[] row) throws IOException {
+                var values = new Object[row.length];
+                for (int i = 0; i < row.length; i++) {
+                    // array elements that are null would be skipped instead of written as empty fields
+                    values[i] = row[i] == null ? "" : row[i] instanceof LocalDateTime dateTime ? dateTime.toString() : row[i];
+                }
+                sequence.write(values);
+            }
+
+            @Override
+            public void close() throws IOException {
+                sequence.close();
+            }
+        };
+    }
+
+    static RowReader reader(InputStream in, List<BulkColumn> columns) throws IOException {
+        MappingIterator<Map<String, String>> records = CSV_MAPPER.readerFor(Map.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .readValues(in);
+        return new RowReader() {
+            @Override
+            public Object[] read() {
+                if (!records.hasNext()) {
+                    return null;
+                }
+                var record = records.next();
+                var row = new Object[columns.size()];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = parse(record.get(columns.get(i).name()), columns.get(i).type());
+                }
+                return row;
+            }
+
+            @Override
+            public void close() throws IOException {
+                records.close();
+            }
+        };
+    }
+
+    private static Object parse(String value, BulkColumn.Type type) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        return switch (type) {
+            case LONG -> Long.valueOf(value);
+            case DOUBLE -> Double.valueOf(value);
+            case STRING -> value;
+            case DATETIME -> LocalDateTime.parse(value);
+        };
+    }
+}
@@ -0,0 +1,11 @@
+package com.spirent.birdapp.bulk;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+public interface RowReader extends Closeable {
+    /**
+     * @return the values of the next row in column order, or {@code null} once all rows have been read
+     */
+    Object[] read() throws IOException;
+}
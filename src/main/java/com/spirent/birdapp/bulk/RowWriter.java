@@ -0,0 +1,11 @@
+package com.spirent.birdapp.bulk;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+public interface RowWriter extends Closeable {
+    /**
+     * @param row one value per column, in column order
+     */
+    void write(Object[] row) throws IOException;
+}
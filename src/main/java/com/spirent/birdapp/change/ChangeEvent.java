@@ -0,0 +1,38 @@
+package com.spirent.birdapp.change;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One row of the 'change_event' outbox, see {@link ChangeEvents}. Only written with plain SQL, the mapping makes
+ * Hibernate create the table where Liquibase does not run.
+ */
+@Entity
+@Table(name = "change_event")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(nullable = false, length = 16)
+    private String entity;
+    private long entityId;
+    @Column(nullable = false, length = 16)
+    private String operation;
+    @Column(columnDefinition = "TEXT")
+    private String data;
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
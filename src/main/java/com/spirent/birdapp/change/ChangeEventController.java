@@ -0,0 +1,92 @@
+package com.spirent.birdapp.change;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Not available with the 'sharding' profile, whose sighting writes on the shards record no change events.
+ */
+@RestController
+@Profile("!reactive & !sharding")
+@RequestMapping("/changes")
+@AllArgsConstructor
+public class ChangeEventController {
+    static final String LAST_EVENT_ID = "Last-Event-ID";
+
+    private final ChangeEventRelay changeEventRelay;
+    private final ChangeEventProperties properties;
+
+    @Operation(summary = "Stream the changes of birds and sightings as server-sent events",
+            description = "Every 'change' event carries its position as the event id. A client resumes after the last "
+                    + "event it got with the Last-Event-ID header, which browsers send on reconnect, or with 'after'. "
+                    + "Without either the stream starts with the next change. If the changes after the requested "
+                    + "position have already been deleted, a 'reset' event with the current position comes first")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Streaming the changes",
+                    content = { @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE,
+                            schema = @Schema(implementation = ChangeEventDto.class))})})
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamChanges(
+            @Parameter(description = "Id of the last event received") @RequestHeader(value = LAST_EVENT_ID, required = false) Long lastEventId,
+            @Parameter(description = "Id of the last event received, if the header is not set") @RequestParam(required = false) Long after) {
+        long position = lastEventId != null ? lastEventId : after != null ? after : changeEventRelay.position();
+        // no timeout, the stream lasts until the client goes away
+        var emitter = new SseEmitter(-1L);
+        // a virtual thread per subscriber, which waits for the relay without holding a platform thread
+        var subscriber = Thread.ofVirtual().name("changes-subscriber").unstarted(() -> send(emitter, position));
+        emitter.onCompletion(subscriber::interrupt);
+        emitter.onError(e -> subscriber.interrupt());
+        subscriber.start();
+        return ResponseEntity.ok()
+                .header("X-Accel-Buffering", "no")
+                .body(emitter);
+    }
+
+    private void send(SseEmitter emitter, long after) {
+        try {
+            if (changeEventRelay.isExpired(after)) {
+                after = changeEventRelay.position();
+                emitter.send(SseEmitter.event().name("reset").id(Long.toString(after)).data(after));
+            }
+            while (true) {
+                var events = changeEventRelay.await(after, properties.getBatchSize(), properties.getHeartbeat());
+                if (events.isEmpty()) {
+                    emitter.send(SseEmitter.event().comment("keep-alive"));
+                    continue;
+                }
+                // one write and flush per batch
+                var batch = new LinkedHashSet<ResponseBodyEmitter.DataWithMediaType>();
+                for (var event : events) {
+                    batch.addAll(SseEmitter.event()
+                            .id(Long.toString(event.getId()))
+                            .name("change")
+                            .data(event, MediaType.APPLICATION_JSON)
+                            .build());
+                }
+                emitter.send(batch);
+                after = events.get(events.size() - 1).getId();
+            }
+        } catch (IOException | IllegalStateException | InterruptedException e) {
+            // the client went away and the emitter is completed
+        } catch (RuntimeException e) {
+            emitter.completeWithError(e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.spirent.birdapp.change;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * A committed change of a bird or sighting. {@code data} is the bird or sighting after the change, as returned by
+ * the REST API, and is absent for deletions. Deleting a bird also deletes its sightings, without an event per
+ * sighting.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+public class ChangeEventDto {
+    /**
+     * Position of the event in the stream, increasing in publication order but not necessarily contiguous.
+     */
+    private long id;
+    private Entity entity;
+    private long entityId;
+    private Operation operation;
+    @JsonRawValue
+    private String data;
+    private LocalDateTime time;
+
+    public enum Entity {
+        BIRD,
+        SIGHTING
+    }
+
+    public enum Operation {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
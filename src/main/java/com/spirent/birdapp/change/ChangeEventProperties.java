@@ -0,0 +1,35 @@
+package com.spirent.birdapp.change;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "bird-app.change-events")
+public class ChangeEventProperties {
+    /**
+     * Pause between two reads of the outbox. Changes committed by this instance are published without waiting.
+     */
+    private Duration pollInterval = Duration.ofMillis(200);
+    /**
+     * Maximum number of events read from the outbox or sent to a subscriber at once.
+     */
+    private int batchSize = 500;
+    /**
+     * Time to wait for a missing event id before it is skipped. Ids are taken when a transaction writes its event
+     * but become visible when it commits, so a gap is either a transaction still running or one rolled back.
+     */
+    private Duration gapTimeout = Duration.ofSeconds(10);
+    /**
+     * Number of recent events kept in memory. Subscribers further behind are served from the database.
+     */
+    private int bufferSize = 10000;
+    /**
+     * Interval of the keep-alive comments sent to idle subscribers.
+     */
+    private Duration heartbeat = Duration.ofSeconds(15);
+    /**
+     * Age after which events are deleted from the outbox. Subscribers that fall further behind have to start over.
+     */
+    private Duration retention = Duration.ofDays(7);
+}
@@ -0,0 +1,331 @@
+package com.spirent.birdapp.change;
+
+import jakarta.annotation.PreDestroy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the events of the 'change_event' outbox in id order. A background thread reads the committed events
+ * after the current {@link #position()}, every {@link ChangeEventProperties#getPollInterval()} and right after
+ * this instance committed a change, and keeps the last {@link ChangeEventProperties#getBufferSize()} of them in
+ * memory for the subscribers. Every instance relays the whole outbox on its own, so subscribers get the changes
+ * made through any instance.
+ * <p>
+ * An id that is missing is waited for up to {@link ChangeEventProperties#getGapTimeout()}, because the transaction
+ * that took it may still commit, and only skipped after that. Waiting keeps the published order equal to the id
+ * order, so a subscriber resuming after an id misses nothing.
+ * <p>
+ * Waiters block on a {@link ReentrantLock} rather than a monitor, which does not pin virtual threads.
+ */
+@Slf4j
+@Component
+public class ChangeEventRelay {
+    static final String SELECT_AFTER = "SELECT id, entity, entity_id, operation, data, created_at FROM change_event "
+            + "WHERE id > ? AND id <= ? ORDER BY id LIMIT ?";
+    static final String SELECT_LAST_ID = "SELECT MAX(id) FROM change_event";
+    static final String SELECT_FIRST_ID = "SELECT MIN(id) FROM change_event";
+    static final String DELETE_BEFORE = "DELETE FROM change_event WHERE created_at < ? LIMIT 10000";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ChangeEventProperties properties;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+    private final Condition pollRequested = lock.newCondition();
+    private final List<Consumer<List<ChangeEventDto>>> listeners = new CopyOnWriteArrayList<>();
+    private final ChangeEventDto[] recent;
+    private int recentStart;
+    private int recentSize;
+    /**
+     * Id of the last event dropped from {@link #recent}, every later published event is still in it.
+     */
+    private long droppedThrough;
+    private volatile long position;
+    private boolean wokenUp;
+    private long gapAt;
+    private long gapSince;
+    private Thread poller;
+    private volatile boolean running;
+
+    public ChangeEventRelay(JdbcTemplate jdbcTemplate, ChangeEventProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.recent = new ChangeEventDto[properties.getBufferSize()];
+    }
+
+    /**
+     * Starts at the last event in the outbox. Older events are still served by {@link #read(long, int)}.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        initialize();
+        running = true;
+        poller = Thread.ofPlatform().name("change-event-relay").daemon().start(this::run);
+    }
+
+    void initialize() {
+        long last = Objects.requireNonNullElse(jdbcTemplate.queryForObject(SELECT_LAST_ID, Long.class), 0L);
+        lock.lock();
+        try {
+            position = last;
+            droppedThrough = last;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (poller != null) {
+            poller.interrupt();
+            poller.join();
+        }
+    }
+
+    /**
+     * Id of the last published event. Every published event up to it can be read, unless it is older than the
+     * retention.
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * Hands every batch of published events to the listener, on the thread of the relay. Listeners must not block,
+     * or they hold up the publication of the following events.
+     */
+    public void addListener(Consumer<List<ChangeEventDto>> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Makes the relay read the outbox now instead of at the next poll.
+     */
+    public void wakeUp() {
+        lock.lock();
+        try {
+            wokenUp = true;
+            pollRequested.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code max} published events after {@code after}, in id order. Recent events are served from
+     * memory, older ones from the database.
+     */
+    public List<ChangeEventDto> read(long after, int max) {
+        long until;
+        lock.lock();
+        try {
+            if (after >= droppedThrough) {
+                return readRecent(after, max);
+            }
+            until = position;
+        } finally {
+            lock.unlock();
+        }
+        return jdbcTemplate.query(SELECT_AFTER, ChangeEventRelay::toEvent, after, until, max);
+    }
+
+    /**
+     * Same as {@link #read(long, int)}, but waits up to {@code timeout} for an event after {@code after} to be
+     * published. Returns an empty list on timeout.
+     */
+    public List<ChangeEventDto> await(long after, int max, Duration timeout) throws InterruptedException {
+        lock.lock();
+        try {
+            long nanos = timeout.toNanos();
+            while (position <= after && nanos > 0) {
+                nanos = published.awaitNanos(nanos);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return read(after, max);
+    }
+
+    /**
+     * Tells if events after {@code after} have already been deleted by the retention, so that a subscriber resuming
+     * there would miss changes. A position of 0 reads from the oldest event there is and never expires.
+     */
+    public boolean isExpired(long after) {
+        if (after <= 0 || after >= droppedThrough()) {
+            return false;
+        }
+        var first = jdbcTemplate.queryForObject(SELECT_FIRST_ID, Long.class);
+        return first == null ? after < position : first > after + 1;
+    }
+
+    /**
+     * Deletes the events older than {@link ChangeEventProperties#getRetention()}, in small transactions.
+     */
+    @Scheduled(cron = "${bird-app.change-events.cleanup-cron:0 30 3 * * *}")
+    public void deleteExpired() {
+        var cutoff = Timestamp.valueOf(LocalDateTime.now().minus(properties.getRetention()));
+        long deleted = 0;
+        int count;
+        do {
+            count = jdbcTemplate.update(DELETE_BEFORE, cutoff);
+            deleted += count;
+        } while (count > 0);
+        log.info("Deleted {} change events older than {}", deleted, cutoff);
+    }
+
+    private void run() {
+        while (running) {
+            boolean more = false;
+            try {
+                more = poll();
+            } catch (RuntimeException e) {
+                log.warn("Reading the change event outbox failed", e);
+            }
+            lock.lock();
+            try {
+                if (!more && !wokenUp) {
+                    pollRequested.await(properties.getPollInterval().toNanos(), TimeUnit.NANOSECONDS);
+                }
+                wokenUp = false;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Publishes the next committed events, up to the first gap that is not timed out yet.
+     *
+     * @return whether a full batch was published and more events may be waiting
+     */
+    boolean poll() {
+        long from = position;
+        var events = jdbcTemplate.query(SELECT_AFTER, ChangeEventRelay::toEvent, from, Long.MAX_VALUE,
+                properties.getBatchSize());
+        var publishable = new ArrayList<ChangeEventDto>(events.size());
+        long last = from;
+        for (var event : events) {
+            if (event.getId() != last + 1 && !gapTimedOut(last + 1)) {
+                break;
+            }
+            if (event.getId() != last + 1) {
+                log.warn("Skipping change events {} to {}, they did not commit within {}", last + 1,
+                        event.getId() - 1, properties.getGapTimeout());
+            }
+            publishable.add(event);
+            last = event.getId();
+        }
+        if (!publishable.isEmpty()) {
+            publish(publishable);
+            notifyListeners(publishable);
+        }
+        return events.size() == properties.getBatchSize() && publishable.size() == events.size();
+    }
+
+    /**
+     * Starts the timeout of the gap at {@code id} when it is first seen.
+     */
+    private boolean gapTimedOut(long id) {
+        long now = System.nanoTime();
+        if (gapAt != id) {
+            gapAt = id;
+            gapSince = now;
+        }
+        return now - gapSince >= properties.getGapTimeout().toNanos();
+    }
+
+    private void publish(List<ChangeEventDto> events) {
+        lock.lock();
+        try {
+            for (var event : events) {
+                if (recentSize == recent.length) {
+                    droppedThrough = recent[recentStart].getId();
+                    recent[recentStart] = event;
+                    recentStart = (recentStart + 1) % recent.length;
+                } else {
+                    recent[(recentStart + recentSize) % recent.length] = event;
+                    recentSize++;
+                }
+            }
+            position = events.get(events.size() - 1).getId();
+            published.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void notifyListeners(List<ChangeEventDto> events) {
+        for (var listener : listeners) {
+            try {
+                listener.accept(events);
+            } catch (RuntimeException e) {
+                log.warn("A change event listener failed", e);
+            }
+        }
+    }
+
+    /**
+     * Must hold the lock.
+     */
+    private List<ChangeEventDto> readRecent(long after, int max) {
+        // binary search for the first event after 'after'
+        int low = 0;
+        int high = recentSize;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (recentAt(middle).getId() <= after) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        var events = new ArrayList<ChangeEventDto>(Math.min(max, recentSize - low));
+        for (int i = low; i < recentSize && events.size() < max; i++) {
+            events.add(recentAt(i));
+        }
+        return events;
+    }
+
+    private ChangeEventDto recentAt(int index) {
+        return recent[(recentStart + index) % recent.length];
+    }
+
+    private long droppedThrough() {
+        lock.lock();
+        try {
+            return droppedThrough;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static ChangeEventDto toEvent(ResultSet row, int rowNumber) throws SQLException {
+        return ChangeEventDto.builder()
+                .id(row.getLong(1))
+                .entity(ChangeEventDto.Entity.valueOf(row.getString(2)))
+                .entityId(row.getLong(3))
+                .operation(ChangeEventDto.Operation.valueOf(row.getString(4)))
+                .data(row.getString(5))
+                .time(row.getObject(6, LocalDateTime.class))
+                .build();
+    }
+}
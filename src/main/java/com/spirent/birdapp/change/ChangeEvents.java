@@ -0,0 +1,101 @@
+package com.spirent.birdapp.change;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.function.ToLongFunction;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+/**
+ * Writes change events to the 'change_event' outbox in the transaction of the change itself, so an event is
+ * published by the {@link ChangeEventRelay} if and only if its change commits.
+ */
+@Component
+public class ChangeEvents {
+    public static final String INSERT = "INSERT INTO change_event (entity, entity_id, operation, data, created_at) "
+            + "VALUES (?, ?, ?, ?, ?)";
+    /**
+     * {@link #INSERT} with named parameters, for R2DBC.
+     */
+    public static final String INSERT_NAMED = "INSERT INTO change_event (entity, entity_id, operation, data, created_at) "
+            + "VALUES (:entity, :entityId, :operation, :data, :createdAt)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ChangeEventRelay changeEventRelay;
+
+    public ChangeEvents(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, ChangeEventRelay changeEventRelay) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.changeEventRelay = changeEventRelay;
+    }
+
+    /**
+     * Must be called in the transaction of the change.
+     *
+     * @param data the bird or sighting after the change, {@code null} for deletions
+     */
+    public void record(ChangeEventDto.Entity entity, long entityId, ChangeEventDto.Operation operation, Object data) {
+        assertTransaction();
+        jdbcTemplate.update(INSERT, parameters(entity, entityId, operation, data));
+        wakeUpRelayAfterCommit();
+    }
+
+    /**
+     * Same as {@link #record} for many changes of the same kind, sent as one JDBC batch.
+     */
+    public <T> void recordAll(ChangeEventDto.Entity entity, ChangeEventDto.Operation operation, Collection<T> data,
+            ToLongFunction<T> entityId) {
+        if (data.isEmpty()) {
+            return;
+        }
+        assertTransaction();
+        var parameters = new ArrayList<Object[]>(data.size());
+        for (var item : data) {
+            parameters.add(parameters(entity, entityId.applyAsLong(item), operation, item));
+        }
+        jdbcTemplate.batchUpdate(INSERT, parameters);
+        wakeUpRelayAfterCommit();
+    }
+
+    private Object[] parameters(ChangeEventDto.Entity entity, long entityId, ChangeEventDto.Operation operation,
+            Object data) {
+        return new Object[]{entity.name(), entityId, operation.name(), toJson(data),
+                Timestamp.valueOf(LocalDateTime.now())};
+    }
+
+    /**
+     * Returns the data of an event as stored in the outbox.
+     */
+    public String toJson(Object data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Change event data cannot be serialized", e);
+        }
+    }
+
+    private static void assertTransaction() {
+        Assert.state(TransactionSynchronizationManager.isActualTransactionActive(),
+                "Change events must be recorded in the transaction of the change");
+    }
+
+    private void wakeUpRelayAfterCommit() {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                changeEventRelay.wakeUp();
+            }
+        });
+    }
+}
@@ -0,0 +1,67 @@
+package com.spirent.birdapp.etag;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Validators of a collection read from some tables: an ETag made of the versions of the tables, and the time of
+ * the last write to any of them. {@code lastModified} is {@code null} if the tables were never written, or if the
+ * second of the last write is not over yet: HTTP dates have whole seconds, so a client holding that date could not
+ * tell a later write in the same second apart and would get a wrong 304. Such responses rely on the ETag alone.
+ * <p>
+ * The ETag is weak: the same version is served as JSON or Smile, gzipped or not, so the bytes differ between
+ * representations. A strong ETag would also keep the server from compressing the response.
+ */
+public record CollectionVersion(String etag, Instant lastModified) {
+
+    /**
+     * One row of {@link TableVersions#SELECT_ALL}.
+     */
+    public record TableState(long version, LocalDateTime updatedAt) {
+    }
+
+    public static CollectionVersion of(Map<String, TableState> states, String... tables) {
+        return of(states, Instant.now(), tables);
+    }
+
+    /**
+     * @param now current time, a last write in its second is left out
+     */
+    public static CollectionVersion of(Map<String, TableState> states, Instant now, String... tables) {
+        var etag = Arrays.stream(tables)
+                .map(table -> table + Objects.requireNonNullElse(states.get(table), new TableState(0, null)).version())
+                .collect(Collectors.joining(".", "W/\"", "\""));
+        var lastModified = Arrays.stream(tables)
+                .map(states::get)
+                .filter(Objects::nonNull)
+                .map(TableState::updatedAt)
+                .filter(Objects::nonNull)
+                .max(LocalDateTime::compareTo)
+                .map(updatedAt -> updatedAt.atZone(ZoneId.systemDefault()).toInstant())
+                .filter(updatedAt -> updatedAt.truncatedTo(ChronoUnit.SECONDS).plusSeconds(1).compareTo(now) <= 0)
+                .orElse(null);
+        return new CollectionVersion(etag, lastModified);
+    }
+
+    /**
+     * For {@link org.springframework.web.context.request.WebRequest#checkNotModified(String, long)}.
+     */
+    public long lastModifiedMillis() {
+        return lastModified == null ? -1 : lastModified.toEpochMilli();
+    }
+
+    public void addTo(HttpHeaders headers) {
+        headers.setETag(etag);
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (lastModified != null) {
+            headers.setLastModified(lastModified);
+        }
+    }
+}
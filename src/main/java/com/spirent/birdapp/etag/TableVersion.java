@@ -0,0 +1,27 @@
+package com.spirent.birdapp.etag;
+
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One stripe of the write counter of a table, see {@link TableVersions}. Only written with plain SQL, the
+ * mapping makes Hibernate create the table where Liquibase does not run.
+ */
+@Entity
+@Table(name = "table_version")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TableVersion {
+    @EmbeddedId
+    private TableVersionId id;
+    private long version;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,16 @@
+package com.spirent.birdapp.etag;
+
+import jakarta.persistence.Embeddable;
+import java.io.Serializable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TableVersionId implements Serializable {
+    private String tableName;
+    private int stripe;
+}
@@ -0,0 +1,86 @@
+package com.spirent.birdapp.etag;
+
+import java.util.HashMap;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Write counters of the 'bird' and 'sighting' tables, behind the ETags of the collection endpoints. Every write
+ * bumps the counter of the tables it changes in its own transaction, so a reader never sees the new version
+ * before the new rows. Checking whether a collection changed then costs one read of a few rows instead of
+ * querying and serializing the collection.
+ * <p>
+ * Each table has {@link #STRIPES} counter rows and a version is their sum, so concurrent writers rarely wait for
+ * the same row lock. A thread always bumps the same stripe, so a transaction never locks two stripes of a table.
+ */
+@Component
+@AllArgsConstructor
+public class TableVersions {
+    public static final String BIRD = "bird";
+    public static final String SIGHTING = "sighting";
+    public static final int STRIPES = 16;
+    /**
+     * Parameters: table name, stripe.
+     */
+    public static final String BUMP = "INSERT INTO table_version (table_name, stripe, version, updated_at) "
+            + "VALUES (?, ?, 1, CURRENT_TIMESTAMP(3)) "
+            + "ON DUPLICATE KEY UPDATE version = version + 1, updated_at = CURRENT_TIMESTAMP(3)";
+    /**
+     * Columns: table name, version, time of the last write.
+     */
+    public static final String SELECT_ALL = "SELECT table_name, CAST(SUM(version) AS SIGNED), MAX(updated_at) "
+            + "FROM table_version GROUP BY table_name";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Bumps the version of the table in the current transaction, or right away without one.
+     */
+    public void bump(String table) {
+        jdbcTemplate.update(BUMP, table, stripe());
+    }
+
+    public CollectionVersion current(String... tables) {
+        return CollectionVersion.of(states(jdbcTemplate), tables);
+    }
+
+    /**
+     * Checks the request's If-None-Match and If-Modified-Since headers against the current version of the tables
+     * and sets the ETag and Last-Modified headers of the response. Must be called before the collection is read,
+     * so that a write in between gives the response an older version, never a newer one. The read-only transaction
+     * reads the version from the same database as the collection when reads go to replicas.
+     *
+     * @return {@code true} if the client's copy is current and the handler should return {@code null}, which
+     * Spring answers with 304
+     */
+    @Transactional(readOnly = true)
+    public boolean checkNotModified(WebRequest request, String... tables) {
+        var version = current(tables);
+        if (request instanceof ServletWebRequest servletRequest && servletRequest.getResponse() != null) {
+            servletRequest.getResponse().addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        return request.checkNotModified(version.etag(), version.lastModifiedMillis());
+    }
+
+    /**
+     * Reads the state of every table from the 'table_version' table of the template's database.
+     */
+    public static Map<String, CollectionVersion.TableState> states(JdbcTemplate jdbcTemplate) {
+        var states = new HashMap<String, CollectionVersion.TableState>();
+        jdbcTemplate.query(SELECT_ALL, row -> {
+            states.put(row.getString(1), new CollectionVersion.TableState(row.getLong(2),
+                    row.getTimestamp(3) == null ? null : row.getTimestamp(3).toLocalDateTime()));
+        });
+        return states;
+    }
+
+    public static int stripe() {
+        return (int) (Thread.currentThread().threadId() % STRIPES);
+    }
+}
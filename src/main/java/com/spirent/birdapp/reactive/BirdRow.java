@@ -0,0 +1,28 @@
+package com.spirent.birdapp.reactive;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * R2DBC mapping of the 'bird' table, the reactive counterpart of {@link com.spirent.birdapp.bird.Bird}.
+ */
+@Table("bird")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BirdRow {
+    @Id
+    private Long id;
+    private String name;
+    private String color;
+    private Double weight;
+    private Double height;
+    @Version
+    private Long version;
+}
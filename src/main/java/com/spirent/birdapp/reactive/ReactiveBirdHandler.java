@@ -0,0 +1,56 @@
+package com.spirent.birdapp.reactive;
+
+import com.spirent.birdapp.bird.BirdDto;
+import com.spirent.birdapp.bird.CreateBirdDto;
+import com.spirent.birdapp.etag.TableVersions;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * Serves '/birds' in the 'reactive' profile, with the same contract as {@link com.spirent.birdapp.bird.BirdController}.
+ */
+@Component
+@Profile("reactive")
+@AllArgsConstructor
+public class ReactiveBirdHandler {
+    private final ReactiveBirdService birdService;
+    private final ReactiveTableVersions tableVersions;
+
+    public Mono<ServerResponse> getBirds(ServerRequest request) {
+        return tableVersions.ifModified(request, version -> birdService
+                        .getBirds(request.queryParam("name").orElse(null), request.queryParam("color").orElse(null))
+                        .flatMap(birds -> ServerResponse.ok().headers(version::addTo).bodyValue(birds))
+                        .switchIfEmpty(ServerResponse.status(HttpStatus.NOT_FOUND).build()),
+                TableVersions.BIRD);
+    }
+
+    public Mono<ServerResponse> addBird(ServerRequest request) {
+        var returnResource = ReactiveRoutes.returnResource(request);
+        return request.bodyToMono(CreateBirdDto.class)
+                .flatMap(birdService::addBird)
+                .flatMap(savedBird -> ReactiveRoutes.ok(savedBird, returnResource))
+                .switchIfEmpty(ServerResponse.status(HttpStatus.BAD_REQUEST).build());
+    }
+
+    public Mono<ServerResponse> updateBird(ServerRequest request) {
+        var returnResource = ReactiveRoutes.returnResource(request);
+        return request.bodyToMono(BirdDto.class)
+                .flatMap(birdService::updateBird)
+                .flatMap(updatedBird -> ReactiveRoutes.ok(updatedBird, returnResource))
+                .switchIfEmpty(ServerResponse.status(HttpStatus.BAD_REQUEST).build())
+                .onErrorResume(OptimisticLockingFailureException.class, ReactiveRoutes::conflict);
+    }
+
+    public Mono<ServerResponse> deleteBird(ServerRequest request) {
+        return request.bodyToMono(Long.class)
+                .flatMap(birdService::deleteBird)
+                .flatMap(birdId -> ServerResponse.noContent().build())
+                .switchIfEmpty(ServerResponse.status(HttpStatus.NOT_FOUND).build());
+    }
+}
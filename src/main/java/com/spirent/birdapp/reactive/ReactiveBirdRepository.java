@@ -0,0 +1,16 @@
+package com.spirent.birdapp.reactive;
+
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface ReactiveBirdRepository extends R2dbcRepository<BirdRow, Long> {
+
+    Mono<BirdRow> findFirstByName(String name);
+
+    @Query("SELECT * FROM bird WHERE (:name IS NULL OR name = :name) AND (:color IS NULL OR color = :color)")
+    Flux<BirdRow> findAllBirds(String name, String color);
+}
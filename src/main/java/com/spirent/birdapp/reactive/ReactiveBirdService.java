@@ -0,0 +1,117 @@
+package com.spirent.birdapp.reactive;
+
+import com.spirent.birdapp.analytics.SightingAnalyticsService;
+import com.spirent.birdapp.bird.BirdDto;
+import com.spirent.birdapp.bird.CreateBirdDto;
+import com.spirent.birdapp.change.ChangeEventDto;
+import com.spirent.birdapp.etag.TableVersions;
+import com.spirent.birdapp.search.SearchService;
+import java.util.List;
+import java.util.function.Consumer;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link com.spirent.birdapp.bird.BirdService}, with the same semantics.
+ */
+@Service
+@Profile("reactive")
+@AllArgsConstructor
+public class ReactiveBirdService {
+    private final ReactiveBirdRepository birdRepository;
+    private final ReactiveSightingRepository sightingRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final SearchService searchService;
+    private final ReactiveTableVersions tableVersions;
+    private final SightingAnalyticsService sightingAnalyticsService;
+    private final ReactiveChangeEvents changeEvents;
+
+    /**
+     * Completes empty when no bird matches.
+     */
+    public Mono<List<BirdDto>> getBirds(String name, String color) {
+        return birdRepository.findAllBirds(name, color)
+                .map(ReactiveBirdService::fromRow)
+                .collectList()
+                .filter(birds -> !birds.isEmpty());
+    }
+
+    public Mono<BirdDto> addBird(CreateBirdDto bird) {
+        return birdRepository.save(BirdRow.builder()
+                        .name(bird.getName())
+                        .color(bird.getColor())
+                        .weight(bird.getWeight())
+                        .height(bird.getHeight())
+                        .build())
+                .map(ReactiveBirdService::fromRow)
+                .flatMap(saved -> tableVersions.bump(TableVersions.BIRD)
+                        .then(changeEvents.record(ChangeEventDto.Entity.BIRD, saved.getId(),
+                                ChangeEventDto.Operation.CREATED, saved))
+                        .thenReturn(saved))
+                .as(transactionalOperator::transactional)
+                .doOnNext(this::index)
+                // a bird with the same name exists
+                .onErrorResume(DataIntegrityViolationException.class, e -> Mono.empty());
+    }
+
+    public Mono<BirdDto> updateBird(BirdDto bird) {
+        return birdRepository.findById(bird.getId())
+                .flatMap(row -> {
+                    updateIfNotNull(row::setName, bird.getName());
+                    updateIfNotNull(row::setColor, bird.getColor());
+                    updateIfNotNull(row::setWeight, bird.getWeight());
+                    updateIfNotNull(row::setHeight, bird.getHeight());
+                    return birdRepository.save(row)
+                            .map(ReactiveBirdService::fromRow)
+                            .flatMap(saved -> tableVersions.bump(TableVersions.BIRD)
+                                    .then(changeEvents.record(ChangeEventDto.Entity.BIRD, saved.getId(),
+                                            ChangeEventDto.Operation.UPDATED, saved))
+                                    .thenReturn(saved))
+                            .as(transactionalOperator::transactional);
+                })
+                .doOnNext(this::index)
+                .doOnNext(saved -> sightingAnalyticsService.birdRenamed(saved.getId(), saved.getName()))
+                .onErrorResume(DataIntegrityViolationException.class, e -> Mono.empty());
+    }
+
+    /**
+     * Deletes the sightings of the bird first: the partitioned 'sighting' table has no foreign key to cascade from.
+     */
+    public Mono<Long> deleteBird(Long birdId) {
+        return birdRepository.findById(birdId)
+                .flatMap(row -> sightingRepository.deleteByBirdId(birdId)
+                        .then(birdRepository.deleteById(birdId))
+                        .then(tableVersions.bump(TableVersions.BIRD))
+                        .then(tableVersions.bump(TableVersions.SIGHTING))
+                        .then(changeEvents.record(ChangeEventDto.Entity.BIRD, birdId, ChangeEventDto.Operation.DELETED,
+                                null))
+                        .thenReturn(birdId))
+                .as(transactionalOperator::transactional)
+                .doOnNext(searchService::removeBird)
+                .doOnNext(sightingAnalyticsService::birdDeleted);
+    }
+
+    private void index(BirdDto bird) {
+        searchService.indexBird(bird.getId(), bird.getName(), bird.getColor());
+    }
+
+    private static <T> void updateIfNotNull(Consumer<T> setter, T value) {
+        if (value != null) {
+            setter.accept(value);
+        }
+    }
+
+    static BirdDto fromRow(BirdRow bird) {
+        return BirdDto.builder()
+                .id(bird.getId())
+                .name(bird.getName())
+                .color(bird.getColor())
+                .weight(bird.getWeight())
+                .height(bird.getHeight())
+                .build();
+    }
+}
@@ -0,0 +1,53 @@
+package com.spirent.birdapp.reactive;
+
+import com.spirent.birdapp.change.ChangeEventDto;
+import com.spirent.birdapp.change.ChangeEventRelay;
+import com.spirent.birdapp.change.ChangeEvents;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link ChangeEvents}, writing to the same outbox.
+ */
+@Component
+@Profile("reactive")
+@AllArgsConstructor
+public class ReactiveChangeEvents {
+    private final DatabaseClient databaseClient;
+    private final ChangeEvents changeEvents;
+    private final ChangeEventRelay changeEventRelay;
+
+    /**
+     * Must be part of the transaction of the change, fails with a
+     * {@link org.springframework.transaction.NoTransactionException} otherwise.
+     *
+     * @param data the bird or sighting after the change, {@code null} for deletions
+     */
+    public Mono<Void> record(ChangeEventDto.Entity entity, long entityId, ChangeEventDto.Operation operation,
+            Object data) {
+        var json = changeEvents.toJson(data);
+        var insert = databaseClient.sql(ChangeEvents.INSERT_NAMED)
+                .bind("entity", entity.name())
+                .bind("entityId", entityId)
+                .bind("operation", operation.name())
+                .bind("createdAt", LocalDateTime.now());
+        insert = json == null ? insert.bindNull("data", String.class) : insert.bind("data", json);
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .flatMap(synchronizationManager -> {
+                    synchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public Mono<Void> afterCommit() {
+                            return Mono.fromRunnable(changeEventRelay::wakeUp);
+                        }
+                    });
+                    return Mono.empty();
+                })
+                .then(insert.then());
+    }
+}
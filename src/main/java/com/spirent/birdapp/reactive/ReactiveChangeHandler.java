@@ -0,0 +1,86 @@
+package com.spirent.birdapp.reactive;
+
+import com.spirent.birdapp.change.ChangeEventDto;
+import com.spirent.birdapp.change.ChangeEventProperties;
+import com.spirent.birdapp.change.ChangeEventRelay;
+import jakarta.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Same stream as {@link com.spirent.birdapp.change.ChangeEventController}. Waiting for the relay blocks, so every
+ * wait runs on a virtual thread of its own, which costs little even with many subscribers.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveChangeHandler {
+    private final ChangeEventRelay changeEventRelay;
+    private final ChangeEventProperties properties;
+    private final Scheduler waiters = Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(),
+            "changes-subscriber");
+
+    public ReactiveChangeHandler(ChangeEventRelay changeEventRelay, ChangeEventProperties properties) {
+        this.changeEventRelay = changeEventRelay;
+        this.properties = properties;
+    }
+
+    @PreDestroy
+    public void stop() {
+        waiters.dispose();
+    }
+
+    public Mono<ServerResponse> streamChanges(ServerRequest request) {
+        var start = request.headers().header("Last-Event-ID").stream().findFirst()
+                .or(() -> request.queryParam("after"))
+                .map(Long::parseLong)
+                .orElseGet(changeEventRelay::position);
+        var events = Mono.fromCallable(() -> changeEventRelay.isExpired(start))
+                .subscribeOn(waiters)
+                .flatMapMany(expired -> {
+                    var position = new AtomicLong(expired ? changeEventRelay.position() : start);
+                    var changes = Mono.fromCallable(() -> changeEventRelay.await(position.get(),
+                                    properties.getBatchSize(), properties.getHeartbeat()))
+                            .subscribeOn(waiters)
+                            .repeat()
+                            .doOnNext(batch -> {
+                                if (!batch.isEmpty()) {
+                                    position.set(batch.get(batch.size() - 1).getId());
+                                }
+                            })
+                            .concatMapIterable(ReactiveChangeHandler::toServerSentEvents);
+                    return expired ? changes.startWith(ServerSentEvent.builder()
+                            .event("reset")
+                            .id(Long.toString(position.get()))
+                            .data(position.get())
+                            .build()) : changes;
+                });
+        return ServerResponse.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .header("X-Accel-Buffering", "no")
+                .body(events, ServerSentEvent.class);
+    }
+
+    private static List<ServerSentEvent<Object>> toServerSentEvents(List<ChangeEventDto> batch) {
+        if (batch.isEmpty()) {
+            return List.of(ServerSentEvent.builder().comment("keep-alive").build());
+        }
+        return batch.stream()
+                .map(event -> ServerSentEvent.<Object>builder()
+                        .id(Long.toString(event.getId()))
+                        .event("change")
+                        .data(event)
+                        .build())
+                .toList();
+    }
+}
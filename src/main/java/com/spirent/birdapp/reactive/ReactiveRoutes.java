@@ -0,0 +1,100 @@
+package com.spirent.birdapp.reactive;
+
+import com.spirent.birdapp.SmileConfig;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+
+/**
+ * Maps the same paths as the MVC controllers onto the reactive handlers. Only one of the two stacks is
+ * active at a time, selected by the 'reactive' profile.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveRoutes {
+
+    @Bean
+    public RouterFunction<ServerResponse> birdRoutes(ReactiveBirdHandler handler) {
+        return RouterFunctions.route()
+                .path("/birds", builder -> builder
+                        .GET("", handler::getBirds)
+                        .POST("/update", handler::updateBird)
+                        .POST("", handler::addBird)
+                        .DELETE("", handler::deleteBird))
+                .build();
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> sightingRoutes(ReactiveSightingHandler handler) {
+        return RouterFunctions.route()
+                .path("/sightings", builder -> builder
+                        .GET("", handler::getAllSightings)
+                        .GET("/page", handler::getSightingsPage)
+                        .GET("/stream", handler::streamAllSightings)
+                        .GET("/stats", handler::getSightingStats)
+                        .POST("/stats/rebuild", handler::rebuildSightingStats)
+                        .GET("/analytics", handler::getSightingAnalytics)
+                        .GET("/live", handler::subscribeToSightings)
+                        .GET("/near", handler::getSightingsNear)
+                        .GET("/within", handler::getSightingsWithin)
+                        .GET("/location/{location}", handler::getAllSightingsByLocation)
+                        .GET("/birdname/{birdName}", handler::getAllSightingsByBirdName)
+                        .GET("/datetime/{startDateTime}/{endDateTime}", handler::getAllSightingsByDateTimeBetween)
+                        .POST("/batch", RequestPredicates.contentType(MediaType.APPLICATION_JSON, MediaType.APPLICATION_NDJSON),
+                                handler::addSightings)
+                        .POST("/update", handler::updateSighting)
+                        .POST("", handler::addSighting)
+                        .DELETE("", handler::deleteSighting))
+                .build();
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> searchRoutes(ReactiveSearchHandler handler) {
+        return RouterFunctions.route()
+                .GET("/search", handler::search)
+                .build();
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> changeRoutes(ReactiveChangeHandler handler) {
+        return RouterFunctions.route()
+                .GET("/changes", handler::streamChanges)
+                .build();
+    }
+
+    static boolean returnResource(ServerRequest request) {
+        return request.queryParam("returnResource")
+                .map(Boolean::parseBoolean)
+                .orElseThrow(() -> new ServerWebInputException("Required parameter 'returnResource' is not present"));
+    }
+
+    static Mono<ServerResponse> ok(Object resource, boolean returnResource) {
+        return returnResource ? ServerResponse.ok().bodyValue(resource) : ServerResponse.ok().build();
+    }
+
+    /**
+     * JSON unless the client asks for Smile, like the message converters of the MVC controllers choose.
+     */
+    static MediaType contentType(ServerRequest request) {
+        return request.headers().accept().stream().anyMatch(mediaType -> mediaType.equalsTypeAndSubtype(SmileConfig.SMILE))
+                ? SmileConfig.SMILE
+                : MediaType.APPLICATION_JSON;
+    }
+
+    /**
+     * Same answer as {@link com.spirent.birdapp.ApplicationErrorHandler} gives for a concurrent update.
+     */
+    static Mono<ServerResponse> conflict(OptimisticLockingFailureException e) {
+        return ServerResponse.status(HttpStatus.CONFLICT).bodyValue("The resource was changed concurrently, please retry");
+    }
+}
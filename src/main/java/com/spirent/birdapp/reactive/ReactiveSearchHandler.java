@@ -0,0 +1,30 @@
+package com.spirent.birdapp.reactive;
+
+import com.spirent.birdapp.search.SearchResultDto;
+import com.spirent.birdapp.search.SearchService;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+
+/**
+ * Searches the same in-memory index as the MVC stack. The index lives on the heap, so searching does not block
+ * on I/O and runs on the event loop.
+ */
+@Component
+@Profile("reactive")
+@AllArgsConstructor
+public class ReactiveSearchHandler {
+    private final SearchService searchService;
+
+    public Mono<ServerResponse> search(ServerRequest request) {
+        var text = request.queryParam("q")
+                .orElseThrow(() -> new ServerWebInputException("Required parameter 'q' is not present"));
+        var type = request.queryParam("type").map(SearchResultDto.Type::valueOf).orElse(null);
+        var limit = request.queryParam("limit").map(Integer::parseInt).orElse(20);
+        return ServerResponse.ok().bodyValue(searchService.search(text, type, limit));
+    }
+}
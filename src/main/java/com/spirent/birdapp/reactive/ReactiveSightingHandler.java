@@ -0,0 +1,232 @@
+package com.spirent.birdapp.reactive;
+
+import com.spirent.birdapp.analytics.SightingAnalyticsDto;
+import com.spirent.birdapp.analytics.SightingAnalyticsService;
+import com.spirent.birdapp.etag.TableVersions;
+import com.spirent.birdapp.sighting.CreateSightingDto;
+import com.spirent.birdapp.sighting.SightingBatchResultDto;
+import com.spirent.birdapp.sighting.SightingDto;
+import com.spirent.birdapp.sighting.SightingStatsDto;
+import com.spirent.birdapp.sighting.SightingSubscriber;
+import com.spirent.birdapp.sighting.SightingSubscriptionProperties;
+import com.spirent.birdapp.sighting.SightingSubscriptions;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Serves '/sightings' in the 'reactive' profile, with the same contract as
+ * {@link com.spirent.birdapp.sighting.SightingController}.
+ */
+@Component
+@Profile("reactive")
+@AllArgsConstructor
+public class ReactiveSightingHandler {
+    private static final String[] TABLES = {TableVersions.BIRD, TableVersions.SIGHTING};
+
+    private final ReactiveSightingService sightingService;
+    private final ReactiveTableVersions tableVersions;
+    private final SightingAnalyticsService sightingAnalyticsService;
+    private final SightingSubscriptions sightingSubscriptions;
+    private final SightingSubscriptionProperties sightingSubscriptionProperties;
+    /**
+     * Waiting for new sightings blocks, every wait runs on a virtual thread of its own.
+     */
+    private final Scheduler subscriberThreads = Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(),
+            "sightings-subscriber");
+
+    @PreDestroy
+    public void stop() {
+        subscriberThreads.dispose();
+    }
+
+    public Mono<ServerResponse> getAllSightings(ServerRequest request) {
+        return tableVersions.ifModified(request, version -> ServerResponse.ok().headers(version::addTo)
+                .contentType(ReactiveRoutes.contentType(request))
+                .body(sightingService.getAllSightings(), SightingDto.class), TABLES);
+    }
+
+    public Mono<ServerResponse> getSightingsPage(ServerRequest request) {
+        var cursor = request.queryParam("cursor").map(Long::valueOf).orElse(null);
+        var size = request.queryParam("size").map(Integer::parseInt).orElse(100);
+        return tableVersions.ifModified(request, version -> sightingService.getSightingsPage(cursor, size)
+                .flatMap(page -> ServerResponse.ok().headers(version::addTo).bodyValue(page)), TABLES);
+    }
+
+    /**
+     * Rows are pulled from the database only as fast as the client reads them.
+     */
+    public Mono<ServerResponse> streamAllSightings(ServerRequest request) {
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_NDJSON)
+                .body(sightingService.getAllSightings(), SightingDto.class);
+    }
+
+    public Mono<ServerResponse> getSightingStats(ServerRequest request) {
+        var from = request.queryParam("from").map(LocalDate::parse).orElse(null);
+        var to = request.queryParam("to").map(LocalDate::parse).orElse(null);
+        return ServerResponse.ok().contentType(ReactiveRoutes.contentType(request))
+                .body(sightingService.getStats(request.queryParam("birdName").orElse(null),
+                        request.queryParam("location").orElse(null), from, to), SightingStatsDto.class);
+    }
+
+    /**
+     * The in-memory scan does not block, so it runs on the event loop.
+     */
+    public Mono<ServerResponse> getSightingAnalytics(ServerRequest request) {
+        var groupBy = request.queryParam("groupBy").map(SightingAnalyticsDto.GroupBy::valueOf)
+                .orElse(SightingAnalyticsDto.GroupBy.BIRD);
+        var from = request.queryParam("from").map(LocalDateTime::parse).orElse(null);
+        var to = request.queryParam("to").map(LocalDateTime::parse).orElse(null);
+        var limit = request.queryParam("limit").map(Integer::parseInt).orElse(10);
+        return ServerResponse.ok().contentType(ReactiveRoutes.contentType(request))
+                .bodyValue(sightingAnalyticsService.analyze(groupBy, from, to, request.queryParam("birdName").orElse(null),
+                        request.queryParam("location").orElse(null), limit));
+    }
+
+    public Mono<ServerResponse> subscribeToSightings(ServerRequest request) {
+        var from = request.queryParam("from").map(LocalDateTime::parse).orElse(null);
+        var to = request.queryParam("to").map(LocalDateTime::parse).orElse(null);
+        var subscriber = sightingSubscriptions.subscribe(request.queryParam("birdName").orElse(null),
+                request.queryParam("location").orElse(null), from, to);
+        if (subscriber.isEmpty()) {
+            return ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "10").build();
+        }
+        var sightings = Mono.fromCallable(() -> subscriber.get().take(sightingSubscriptionProperties.getBufferSize(),
+                        sightingSubscriptionProperties.getHeartbeat()))
+                .subscribeOn(subscriberThreads)
+                .repeat(() -> !subscriber.get().isOverflowed())
+                .concatMapIterable(batch -> toServerSentEvents(subscriber.get(), batch))
+                .doFinally(signal -> sightingSubscriptions.unsubscribe(subscriber.get()));
+        return ServerResponse.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .header("X-Accel-Buffering", "no")
+                .body(sightings, ServerSentEvent.class);
+    }
+
+    private static List<ServerSentEvent<String>> toServerSentEvents(SightingSubscriber subscriber,
+            List<SightingSubscriber.LiveSighting> batch) {
+        if (subscriber.isOverflowed()) {
+            return List.of(ServerSentEvent.builder("Dropped for falling behind").event("overflow").build());
+        }
+        if (batch.isEmpty()) {
+            return List.of(ServerSentEvent.<String>builder().comment("keep-alive").build());
+        }
+        return batch.stream()
+                .map(sighting -> ServerSentEvent.builder(sighting.json()).event("sighting").build())
+                .toList();
+    }
+
+    public Mono<ServerResponse> rebuildSightingStats(ServerRequest request) {
+        return sightingService.rebuildStats()
+                .flatMap(groups -> ServerResponse.ok().bodyValue(groups));
+    }
+
+    public Mono<ServerResponse> getSightingsNear(ServerRequest request) {
+        var latitude = doubleParam(request, "lat");
+        var longitude = doubleParam(request, "lon");
+        var radius = doubleParam(request, "radius");
+        return tableVersions.ifModified(request, version -> sightingService.getSightingsNear(latitude, longitude, radius)
+                .flatMap(sightings -> ServerResponse.ok().headers(version::addTo)
+                        .contentType(ReactiveRoutes.contentType(request)).body(sightings, SightingDto.class))
+                .switchIfEmpty(ServerResponse.status(HttpStatus.BAD_REQUEST).build()), TABLES);
+    }
+
+    public Mono<ServerResponse> getSightingsWithin(ServerRequest request) {
+        var minLatitude = doubleParam(request, "minLat");
+        var minLongitude = doubleParam(request, "minLon");
+        var maxLatitude = doubleParam(request, "maxLat");
+        var maxLongitude = doubleParam(request, "maxLon");
+        return tableVersions.ifModified(request, version -> sightingService
+                .getSightingsWithin(minLatitude, minLongitude, maxLatitude, maxLongitude)
+                .flatMap(sightings -> ServerResponse.ok().headers(version::addTo)
+                        .contentType(ReactiveRoutes.contentType(request)).body(sightings, SightingDto.class))
+                .switchIfEmpty(ServerResponse.status(HttpStatus.BAD_REQUEST).build()), TABLES);
+    }
+
+    public Mono<ServerResponse> getAllSightingsByLocation(ServerRequest request) {
+        return tableVersions.ifModified(request, version -> ServerResponse.ok().headers(version::addTo)
+                .contentType(ReactiveRoutes.contentType(request))
+                .body(sightingService.getAllSightingsByLocation(request.pathVariable("location")), SightingDto.class), TABLES);
+    }
+
+    public Mono<ServerResponse> getAllSightingsByBirdName(ServerRequest request) {
+        return tableVersions.ifModified(request, version -> ServerResponse.ok().headers(version::addTo)
+                .contentType(ReactiveRoutes.contentType(request))
+                .body(sightingService.getAllSightingsByBirdName(request.pathVariable("birdName")), SightingDto.class), TABLES);
+    }
+
+    public Mono<ServerResponse> getAllSightingsByDateTimeBetween(ServerRequest request) {
+        var startDateTime = LocalDate.parse(request.pathVariable("startDateTime")).atStartOfDay();
+        var endDateTime = LocalDate.parse(request.pathVariable("endDateTime")).atStartOfDay();
+        return tableVersions.ifModified(request, version -> ServerResponse.ok().headers(version::addTo)
+                .contentType(ReactiveRoutes.contentType(request))
+                .body(sightingService.getAllSightingsByDateTimeBetween(startDateTime, endDateTime), SightingDto.class), TABLES);
+    }
+
+    public Mono<ServerResponse> addSighting(ServerRequest request) {
+        var returnResource = ReactiveRoutes.returnResource(request);
+        return request.bodyToMono(CreateSightingDto.class)
+                .flatMap(sightingService::addSighting)
+                .flatMap(savedSighting -> ReactiveRoutes.ok(savedSighting, returnResource))
+                .switchIfEmpty(ServerResponse.status(HttpStatus.BAD_REQUEST).build());
+    }
+
+    /**
+     * Accepts a JSON array or newline-delimited JSON. Sightings are inserted one by one as they are decoded,
+     * each in its own transaction, and a failure only marks that sighting as failed.
+     */
+    public Mono<ServerResponse> addSightings(ServerRequest request) {
+        var results = request.bodyToFlux(CreateSightingDto.class)
+                .index()
+                .concatMap(sighting -> sightingService.addSighting(sighting.getT2())
+                        .map(saved -> SightingBatchResultDto.builder()
+                                .index(sighting.getT1().intValue())
+                                .status(SightingBatchResultDto.Status.CREATED)
+                                .sightingId(saved.getId())
+                                .build())
+                        .onErrorResume(e -> Mono.just(SightingBatchResultDto.builder()
+                                .index(sighting.getT1().intValue())
+                                .status(SightingBatchResultDto.Status.FAILED)
+                                .error(e.getMessage())
+                                .build())));
+        return ServerResponse.ok().contentType(ReactiveRoutes.contentType(request)).body(results, SightingBatchResultDto.class);
+    }
+
+    public Mono<ServerResponse> updateSighting(ServerRequest request) {
+        var returnResource = ReactiveRoutes.returnResource(request);
+        return request.bodyToMono(SightingDto.class)
+                .flatMap(sightingService::updateSighting)
+                .flatMap(updatedSighting -> ReactiveRoutes.ok(updatedSighting, returnResource))
+                .switchIfEmpty(ServerResponse.status(HttpStatus.BAD_REQUEST).build())
+                .onErrorResume(OptimisticLockingFailureException.class, ReactiveRoutes::conflict);
+    }
+
+    public Mono<ServerResponse> deleteSighting(ServerRequest request) {
+        return request.bodyToMono(Long.class)
+                .flatMap(sightingService::deleteSighting)
+                .flatMap(sightingId -> ServerResponse.noContent().build())
+                .switchIfEmpty(ServerResponse.status(HttpStatus.NOT_FOUND).build());
+    }
+
+    private static double doubleParam(ServerRequest request, String name) {
+        return request.queryParam(name)
+                .map(Double::parseDouble)
+                .orElseThrow(() -> new ServerWebInputException("Required parameter '" + name + "' is not present"));
+    }
+}
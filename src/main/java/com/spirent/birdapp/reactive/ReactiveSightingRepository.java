@@ -0,0 +1,52 @@
+package com.spirent.birdapp.reactive;
+
+import com.spirent.birdapp.sighting.SightingDto;
+import com.spirent.birdapp.sighting.SightingStatsDto;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reads project straight into {@link SightingDto}, with the same single join on bird as
+ * {@link com.spirent.birdapp.sighting.SightingRepository}. Rows are emitted as the database returns them,
+ * at the pace the subscriber requests them.
+ */
+@Repository
+public interface ReactiveSightingRepository extends R2dbcRepository<SightingRow, Long> {
+    String SELECT_SIGHTING_DTO = "SELECT s.id, b.name AS bird_name, s.location, s.date_time, s.latitude, s.longitude "
+            + "FROM sighting s JOIN bird b ON b.id = s.bird_id";
+
+    @Query(SELECT_SIGHTING_DTO + " ORDER BY s.id")
+    Flux<SightingDto> findAllSightings();
+
+    @Query(SELECT_SIGHTING_DTO + " WHERE b.name = :name")
+    Flux<SightingDto> findByBirdName(String name);
+
+    @Query(SELECT_SIGHTING_DTO + " WHERE s.location = :location")
+    Flux<SightingDto> findByLocation(String location);
+
+    @Query(SELECT_SIGHTING_DTO + " WHERE s.date_time BETWEEN :startDateTime AND :endDateTime")
+    Flux<SightingDto> findByDateTimeBetween(LocalDateTime startDateTime, LocalDateTime endDateTime);
+
+    @Query(SELECT_SIGHTING_DTO + " WHERE s.geohash BETWEEN :fromGeohash AND :toGeohash ORDER BY s.geohash, s.id")
+    Flux<SightingDto> findByGeohashBetween(String fromGeohash, String toGeohash);
+
+    @Query(SELECT_SIGHTING_DTO + " WHERE s.id > :afterId ORDER BY s.id LIMIT :limit")
+    Flux<SightingDto> findPageAfter(long afterId, int limit);
+
+    Mono<Long> deleteByBirdId(Long birdId);
+
+    @Query("SELECT b.name AS bird_name, s.location, s.sighting_date AS day, s.sighting_count AS count "
+            + "FROM sighting_stats s JOIN bird b ON b.id = s.bird_id "
+            + "WHERE s.sighting_count > 0 "
+            + "AND (:birdName IS NULL OR b.name = :birdName) "
+            + "AND (:location IS NULL OR s.location = :location) "
+            + "AND (:from IS NULL OR s.sighting_date >= :from) "
+            + "AND (:to IS NULL OR s.sighting_date <= :to) "
+            + "ORDER BY s.sighting_date, b.name, s.location")
+    Flux<SightingStatsDto> findStats(String birdName, String location, LocalDate from, LocalDate to);
+}
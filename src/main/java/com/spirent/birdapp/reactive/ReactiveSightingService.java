@@ -0,0 +1,310 @@
+package com.spirent.birdapp.reactive;
+
+import com.spirent.birdapp.analytics.SightingAnalyticsService;
+import com.spirent.birdapp.bird.BirdRepository;
+import com.spirent.birdapp.change.ChangeEventDto;
+import com.spirent.birdapp.etag.TableVersions;
+import com.spirent.birdapp.search.SearchService;
+import com.spirent.birdapp.sighting.CreateSightingDto;
+import com.spirent.birdapp.sighting.GeoBox;
+import com.spirent.birdapp.sighting.Geohash;
+import com.spirent.birdapp.sighting.Sighting;
+import com.spirent.birdapp.sighting.SightingDto;
+import com.spirent.birdapp.sighting.SightingPageDto;
+import com.spirent.birdapp.sighting.SightingStatsDto;
+import com.spirent.birdapp.sighting.SightingStatsId;
+import com.spirent.birdapp.sighting.SightingStatsRepository;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link com.spirent.birdapp.sighting.SightingService}, with the same semantics.
+ * Writes run through an explicit {@link TransactionalOperator}: the JPA and R2DBC transaction managers are both
+ * present in the 'reactive' profile, so {@code @Transactional} could not tell them apart.
+ */
+@Service
+@Profile("reactive")
+@AllArgsConstructor
+public class ReactiveSightingService {
+    static final int MAX_PAGE_SIZE = 1000;
+    private static final IdBlock NO_IDS = new IdBlock(new AtomicLong(), 0);
+
+    /**
+     * Ids from {@code next} up to {@code end}, exclusive.
+     */
+    private record IdBlock(AtomicLong next, long end) {
+    }
+
+    private final ReactiveSightingRepository sightingRepository;
+    private final ReactiveBirdRepository birdRepository;
+    private final R2dbcEntityTemplate entityTemplate;
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final SearchService searchService;
+    private final ReactiveTableVersions tableVersions;
+    private final SightingAnalyticsService sightingAnalyticsService;
+    private final ReactiveChangeEvents changeEvents;
+    /**
+     * The block ids are taken from, or its reservation while one is in flight, which callers share.
+     */
+    private final AtomicReference<Mono<IdBlock>> idBlock = new AtomicReference<>(Mono.just(NO_IDS));
+
+    public Flux<SightingDto> getAllSightings() {
+        return sightingRepository.findAllSightings();
+    }
+
+    public Mono<SightingPageDto> getSightingsPage(Long cursor, int size) {
+        var pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        return sightingRepository.findPageAfter(cursor == null ? 0L : cursor, pageSize)
+                .collectList()
+                .map(sightings -> SightingPageDto.builder()
+                        .sightings(sightings)
+                        .nextCursor(sightings.size() == pageSize ? sightings.get(sightings.size() - 1).getId() : null)
+                        .build());
+    }
+
+    public Flux<SightingDto> getAllSightingsByLocation(String location) {
+        return sightingRepository.findByLocation(location);
+    }
+
+    public Flux<SightingDto> getAllSightingsByBirdName(String birdName) {
+        return sightingRepository.findByBirdName(birdName);
+    }
+
+    public Flux<SightingDto> getAllSightingsByDateTimeBetween(LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        return sightingRepository.findByDateTimeBetween(startDateTime, endDateTime);
+    }
+
+    /**
+     * Same as {@link com.spirent.birdapp.sighting.SightingService#getSightingsWithin}, completes empty if the box
+     * is invalid.
+     */
+    public Mono<Flux<SightingDto>> getSightingsWithin(double minLatitude, double minLongitude,
+            double maxLatitude, double maxLongitude) {
+        return Mono.justOrEmpty(GeoBox.of(minLatitude, minLongitude, maxLatitude, maxLongitude)
+                .map(box -> findInBox(box, sighting -> box.contains(sighting.getLatitude(), sighting.getLongitude()))));
+    }
+
+    /**
+     * Same as {@link com.spirent.birdapp.sighting.SightingService#getSightingsNear}, completes empty if the point
+     * or radius is invalid.
+     */
+    public Mono<Flux<SightingDto>> getSightingsNear(double latitude, double longitude, double radius) {
+        return Mono.justOrEmpty(GeoBox.around(latitude, longitude, radius)
+                .map(box -> findInBox(box, sighting -> GeoBox.distance(latitude, longitude,
+                        sighting.getLatitude(), sighting.getLongitude()) <= radius)));
+    }
+
+    private Flux<SightingDto> findInBox(GeoBox box, Predicate<SightingDto> filter) {
+        return Flux.fromIterable(Geohash.cover(box))
+                .concatMap(range -> sightingRepository.findByGeohashBetween(range.from(), range.to()))
+                .filter(filter);
+    }
+
+    public Mono<SightingDto> addSighting(CreateSightingDto sightingDto) {
+        if (!Sighting.isValidLocation(sightingDto.getLatitude(), sightingDto.getLongitude())) {
+            return Mono.empty();
+        }
+        return Mono.justOrEmpty(sightingDto.getBirdId())
+                .flatMap(birdRepository::findById)
+                .switchIfEmpty(Mono.defer(() -> findOrCreateBird(sightingDto.getBirdName())))
+                .flatMap(bird -> nextSightingId()
+                        .flatMap(id -> entityTemplate.insert(SightingRow.builder()
+                                        .id(id)
+                                        .birdId(bird.getId())
+                                        .location(sightingDto.getLocation())
+                                        .dateTime(sightingDto.getDateTime())
+                                        .latitude(sightingDto.getLatitude())
+                                        .longitude(sightingDto.getLongitude())
+                                        .geohash(geohash(sightingDto.getLatitude(), sightingDto.getLongitude()))
+                                        .build())
+                                .flatMap(sighting -> {
+                                    var saved = fromRow(sighting, bird);
+                                    return recordStats(Map.of(statsId(sighting), 1L))
+                                            .then(tableVersions.bump(TableVersions.SIGHTING))
+                                            .then(changeEvents.record(ChangeEventDto.Entity.SIGHTING, saved.getId(),
+                                                    ChangeEventDto.Operation.CREATED, saved))
+                                            .thenReturn(saved);
+                                })
+                                .as(transactionalOperator::transactional)
+                                .doOnNext(saved -> recordAnalytics(saved, bird))))
+                .doOnNext(this::indexLocation);
+    }
+
+    public Mono<SightingDto> updateSighting(SightingDto sightingDto) {
+        if (!Sighting.isValidLocation(sightingDto.getLatitude(), sightingDto.getLongitude())) {
+            return Mono.empty();
+        }
+        return sightingRepository.findById(sightingDto.getId())
+                .flatMap(sighting -> findOrCreateBird(sightingDto.getBirdName())
+                        .flatMap(bird -> {
+                            var statsBefore = statsId(sighting);
+                            sighting.setBirdId(bird.getId());
+                            sighting.setLocation(sightingDto.getLocation());
+                            sighting.setDateTime(sightingDto.getDateTime());
+                            sighting.setLatitude(sightingDto.getLatitude());
+                            sighting.setLongitude(sightingDto.getLongitude());
+                            sighting.setGeohash(geohash(sightingDto.getLatitude(), sightingDto.getLongitude()));
+                            var statsAfter = statsId(sighting);
+                            var statsDeltas = statsBefore.equals(statsAfter)
+                                    ? Map.<SightingStatsId, Long>of()
+                                    : Map.of(statsBefore, -1L, statsAfter, 1L);
+                            return sightingRepository.save(sighting)
+                                    .map(saved -> fromRow(saved, bird))
+                                    .flatMap(saved -> recordStats(statsDeltas)
+                                            .then(tableVersions.bump(TableVersions.SIGHTING))
+                                            .then(changeEvents.record(ChangeEventDto.Entity.SIGHTING, saved.getId(),
+                                                    ChangeEventDto.Operation.UPDATED, saved))
+                                            .thenReturn(saved))
+                                    .as(transactionalOperator::transactional)
+                                    .doOnNext(saved -> recordAnalytics(saved, bird));
+                        }))
+                .doOnNext(this::indexLocation);
+    }
+
+    public Mono<Long> deleteSighting(Long sightingId) {
+        return sightingRepository.findById(sightingId)
+                .flatMap(sighting -> sightingRepository.deleteById(sightingId)
+                        .then(recordStats(Map.of(statsId(sighting), -1L)))
+                        .then(tableVersions.bump(TableVersions.SIGHTING))
+                        .then(changeEvents.record(ChangeEventDto.Entity.SIGHTING, sightingId,
+                                ChangeEventDto.Operation.DELETED, null))
+                        .thenReturn(sightingId))
+                .as(transactionalOperator::transactional)
+                .doOnNext(sightingAnalyticsService::sightingDeleted);
+    }
+
+    public Flux<SightingStatsDto> getStats(String birdName, String location, LocalDate from, LocalDate to) {
+        return sightingRepository.findStats(birdName, location, from, to);
+    }
+
+    /**
+     * Recomputes the whole rollup, like {@link com.spirent.birdapp.sighting.SightingStatsService#rebuild()}.
+     */
+    public Mono<Long> rebuildStats() {
+        return databaseClient.sql(SightingStatsRepository.DELETE_ALL).then()
+                .then(databaseClient.sql(SightingStatsRepository.INSERT_ALL).fetch().rowsUpdated())
+                .as(transactionalOperator::transactional);
+    }
+
+    /**
+     * Same upserts as {@link com.spirent.birdapp.sighting.SightingStatsService}, applied in key order within the
+     * transaction of the sighting write.
+     */
+    private Mono<Void> recordStats(Map<SightingStatsId, Long> deltas) {
+        return Flux.fromIterable(new TreeMap<>(deltas).entrySet())
+                .concatMap(delta -> databaseClient.sql(SightingStatsRepository.UPSERT)
+                        .bind("birdId", delta.getKey().getBirdId())
+                        .bind("location", delta.getKey().getLocation())
+                        .bind("sightingDate", delta.getKey().getSightingDate())
+                        .bind("delta", delta.getValue())
+                        .then())
+                .then();
+    }
+
+    private static String geohash(Double latitude, Double longitude) {
+        return latitude == null ? null : Geohash.encode(latitude, longitude);
+    }
+
+    private static SightingStatsId statsId(SightingRow sighting) {
+        return new SightingStatsId(sighting.getBirdId(), sighting.getLocation(), sighting.getDateTime().toLocalDate());
+    }
+
+    /**
+     * Takes the next id of the current block, reserving a new one once it is used up, like
+     * {@link com.spirent.birdapp.shard.ShardedSightingStore} does on top of
+     * {@link com.spirent.birdapp.sighting.SightingIdAllocator}. Ids left in the block when the application stops
+     * are skipped.
+     */
+    private Mono<Long> nextSightingId() {
+        return Mono.defer(() -> {
+            var current = idBlock.get();
+            return current.flatMap(block -> {
+                long id = block.next().getAndIncrement();
+                if (id < block.end()) {
+                    return Mono.just(id);
+                }
+                // the first caller to find the block used up installs the reservation, the others wait for it
+                idBlock.compareAndSet(current, reserveIdBlock()
+                        .cache(reserved -> Duration.ofMillis(Long.MAX_VALUE), error -> Duration.ZERO, () -> Duration.ZERO));
+                return nextSightingId();
+            });
+        });
+    }
+
+    /**
+     * Reserves a block of ids from the same 'sighting_seq' table Hibernate's pooled generator uses. The value read
+     * is the top of the reserved block, so reactive inserts never collide with the blocks handed out to the JPA
+     * side. It runs outside the insert transaction so that the row lock on 'sighting_seq' is released immediately.
+     */
+    private Mono<IdBlock> reserveIdBlock() {
+        return databaseClient.inConnection(connection -> Mono.from(connection
+                        .createStatement("UPDATE sighting_seq SET next_val = LAST_INSERT_ID(next_val) + "
+                                + Sighting.ID_ALLOCATION_SIZE)
+                        .execute())
+                .flatMap(result -> Mono.from(result.getRowsUpdated()))
+                .then(Mono.from(connection.createStatement("SELECT CAST(LAST_INSERT_ID() AS SIGNED)").execute()))
+                .flatMap(result -> Mono.from(result.map(row -> row.get(0, Long.class)))))
+                .map(top -> new IdBlock(new AtomicLong(top - Sighting.ID_ALLOCATION_SIZE + 1), top + 1));
+    }
+
+    /**
+     * Same upsert as {@link com.spirent.birdapp.bird.BirdCache#findOrCreateByName(String)}, without the in-process
+     * memo and locks, which would block the event loop. Runs in a transaction of its own, before the sighting
+     * transaction. Completes empty without a name.
+     */
+    private Mono<BirdRow> findOrCreateBird(String name) {
+        if (name == null) {
+            return Mono.empty();
+        }
+        return birdRepository.findFirstByName(name)
+                .switchIfEmpty(Mono.defer(() -> databaseClient.inConnection(connection -> Mono.from(connection
+                                .createStatement(BirdRepository.UPSERT_BY_NAME)
+                                .bind(0, name)
+                                .execute())
+                        .flatMap(result -> Mono.from(result.getRowsUpdated()))
+                        .then(Mono.from(connection.createStatement("SELECT CAST(LAST_INSERT_ID() AS SIGNED)").execute()))
+                        .flatMap(result -> Mono.from(result.map(row -> row.get(0, Long.class)))))
+                        .flatMap(id -> tableVersions.bump(TableVersions.BIRD).thenReturn(id))
+                        .flatMap(birdRepository::findById)
+                        .flatMap(bird -> changeEvents.record(ChangeEventDto.Entity.BIRD, bird.getId(),
+                                ChangeEventDto.Operation.CREATED, ReactiveBirdService.fromRow(bird)).thenReturn(bird))
+                        .as(transactionalOperator::transactional)
+                        .doOnNext(bird -> searchService.indexBird(bird.getId(), bird.getName(), bird.getColor()))));
+    }
+
+    private void indexLocation(SightingDto sighting) {
+        searchService.indexLocations(Collections.singletonList(sighting.getLocation()));
+    }
+
+    private void recordAnalytics(SightingDto sighting, BirdRow bird) {
+        sightingAnalyticsService.sightingSaved(sighting.getId(), bird.getId(), bird.getName(), sighting.getLocation(),
+                sighting.getDateTime());
+    }
+
+    private static SightingDto fromRow(SightingRow sighting, BirdRow bird) {
+        return SightingDto.builder()
+                .id(sighting.getId())
+                .birdName(bird.getName())
+                .location(sighting.getLocation())
+                .dateTime(sighting.getDateTime())
+                .latitude(sighting.getLatitude())
+                .longitude(sighting.getLongitude())
+                .build();
+    }
+}
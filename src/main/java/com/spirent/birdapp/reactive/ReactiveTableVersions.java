@@ -0,0 +1,56 @@
+package com.spirent.birdapp.reactive;
+
+import com.spirent.birdapp.etag.CollectionVersion;
+import com.spirent.birdapp.etag.TableVersions;
+import java.time.LocalDateTime;
+import java.util.function.Function;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link TableVersions}, on the same 'table_version' counters.
+ */
+@Component
+@Profile("reactive")
+@AllArgsConstructor
+public class ReactiveTableVersions {
+    private final DatabaseClient databaseClient;
+
+    /**
+     * Bumps the version of the table in the transaction of the subscriber, or right away without one.
+     */
+    public Mono<Void> bump(String table) {
+        return databaseClient.sql(TableVersions.BUMP)
+                .bind(0, table)
+                .bind(1, TableVersions.stripe())
+                .then();
+    }
+
+    public Mono<CollectionVersion> current(String... tables) {
+        return databaseClient.sql(TableVersions.SELECT_ALL)
+                .map(row -> new Object[]{row.get(0, String.class),
+                        new CollectionVersion.TableState(row.get(1, Long.class), row.get(2, LocalDateTime.class))})
+                .all()
+                .collectMap(state -> (String) state[0], state -> (CollectionVersion.TableState) state[1])
+                .map(states -> CollectionVersion.of(states, tables));
+    }
+
+    /**
+     * Answers 304 if the client's copy of the tables is current, and the response otherwise. Like
+     * {@link TableVersions#checkNotModified}, the version is read before the collection.
+     *
+     * @param response builds the full response, it should add the validators with {@link CollectionVersion#addTo}
+     */
+    public Mono<ServerResponse> ifModified(ServerRequest request, Function<CollectionVersion, Mono<ServerResponse>> response,
+            String... tables) {
+        return current(tables).flatMap(version -> (version.lastModified() == null
+                        ? request.checkNotModified(version.etag())
+                        : request.checkNotModified(version.lastModified(), version.etag()))
+                .switchIfEmpty(Mono.defer(() -> response.apply(version))));
+    }
+}
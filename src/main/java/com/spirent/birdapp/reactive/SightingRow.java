@@ -0,0 +1,31 @@
+package com.spirent.birdapp.reactive;
+
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * R2DBC mapping of the 'sighting' table, the reactive counterpart of {@link com.spirent.birdapp.sighting.Sighting}.
+ */
+@Table("sighting")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SightingRow {
+    @Id
+    private Long id;
+    private Long birdId;
+    private String location;
+    private LocalDateTime dateTime;
+    private Double latitude;
+    private Double longitude;
+    private String geohash;
+    @Version
+    private Long version;
+}
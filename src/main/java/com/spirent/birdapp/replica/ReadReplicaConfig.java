@@ -0,0 +1,76 @@
+package com.spirent.birdapp.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import javax.sql.DataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Opt-in read replicas for the servlet stack. The usual 'spring.datasource' becomes the primary, and the DataSource
+ * used by JPA and the JdbcTemplates routes read-only transactions to the replicas in 'bird-app.read-replicas', see
+ * {@link ReplicaRoutingDataSource}. The 'reactive' profile reads through R2DBC and always uses the primary.
+ */
+@Configuration
+@Profile("read-replicas & !reactive")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaMonitor replicaMonitor(HikariDataSource primaryDataSource, ReadReplicaProperties properties,
+            MeterRegistry meterRegistry) {
+        var replicas = new ArrayList<ReplicaStatus>();
+        for (var replica : properties.getReplicas()) {
+            var name = replica.getName() != null ? replica.getName() : "replica-" + (replicas.size() + 1);
+            replicas.add(new ReplicaStatus(name, replicaDataSource(name, replica, properties, meterRegistry)));
+        }
+        return new ReplicaMonitor(primaryDataSource, replicas, properties, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaMonitor replicaMonitor,
+            ReadReplicaProperties properties, MeterRegistry meterRegistry) {
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primaryDataSource,
+                replicaMonitor.getReplicas(), properties, meterRegistry, ReplicaMonitor::currentMicros));
+    }
+
+    /**
+     * Once the maximum lag has passed, every usable replica has the client's writes.
+     */
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(ReadReplicaProperties properties) {
+        return new ReadYourWritesFilter(properties.getMaxLag().plus(properties.getCheckInterval()));
+    }
+
+    /**
+     * The pool starts with the first connection and even without one, so an unreachable replica does not stop
+     * the application.
+     */
+    private static HikariDataSource replicaDataSource(String name, ReadReplicaProperties.Replica replica,
+            ReadReplicaProperties properties, MeterRegistry meterRegistry) {
+        var dataSource = new HikariDataSource();
+        dataSource.setPoolName(name);
+        dataSource.setJdbcUrl(replica.getUrl());
+        dataSource.setUsername(replica.getUsername());
+        dataSource.setPassword(replica.getPassword());
+        dataSource.setReadOnly(true);
+        dataSource.setMaximumPoolSize(properties.getMaximumPoolSize());
+        dataSource.setConnectionTimeout(properties.getConnectionTimeout().toMillis());
+        dataSource.setInitializationFailTimeout(-1);
+        dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return dataSource;
+    }
+}
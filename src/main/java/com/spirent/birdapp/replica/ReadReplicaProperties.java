@@ -0,0 +1,56 @@
+package com.spirent.birdapp.replica;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "bird-app.read-replicas")
+public class ReadReplicaProperties {
+    /**
+     * Databases replicating the primary, including its 'replica_heartbeat' table. Reads go to the primary while
+     * none of them is usable.
+     */
+    private List<Replica> replicas = new ArrayList<>();
+    /**
+     * How a read-only transaction picks one of the usable replicas.
+     */
+    private Selection selection = Selection.ROUND_ROBIN;
+    /**
+     * Interval of the heartbeats written to the primary and read back from the replicas.
+     */
+    private Duration checkInterval = Duration.ofSeconds(1);
+    /**
+     * Replicas whose last heartbeat is older than this are not read from. Should be a few check intervals.
+     */
+    private Duration maxLag = Duration.ofSeconds(5);
+    /**
+     * Time to wait for a connection to a replica, also the longest a check of an unreachable replica takes.
+     */
+    private Duration connectionTimeout = Duration.ofSeconds(2);
+    /**
+     * Connection pool size of each replica.
+     */
+    private int maximumPoolSize = 20;
+
+    public enum Selection {
+        ROUND_ROBIN,
+        /**
+         * The replica answering the heartbeat check fastest, on average.
+         */
+        LEAST_LATENCY
+    }
+
+    @Data
+    public static class Replica {
+        /**
+         * Names the replica in logs and metrics, defaults to 'replica-' and its position in the list.
+         */
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+    }
+}
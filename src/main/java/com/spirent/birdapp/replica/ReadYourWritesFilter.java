@@ -0,0 +1,104 @@
+package com.spirent.birdapp.replica;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Duration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Gives the client of a request that committed a write a cookie with the time of its last write, see
+ * {@link ReplicaRoutingDataSource#LAST_WRITE}. The reads of the client's next requests only go to replicas that
+ * have caught up with that time, so a client always sees its own writes. The cookie expires once every usable
+ * replica must have caught up.
+ * <p>
+ * A handler may commit several transactions, so the cookie is added just before the response is committed.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    public static final String COOKIE = "birdapp-last-write";
+
+    private final Duration maxAge;
+
+    public ReadYourWritesFilter(Duration maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        var cookieResponse = new CookieResponse(request, response);
+        try {
+            filterChain.doFilter(request, cookieResponse);
+        } finally {
+            cookieResponse.addCookie();
+        }
+    }
+
+    private class CookieResponse extends HttpServletResponseWrapper {
+        private final HttpServletRequest request;
+        private boolean added;
+
+        CookieResponse(HttpServletRequest request, HttpServletResponse response) {
+            super(response);
+            this.request = request;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addCookie();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addCookie();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addCookie();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            addCookie();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            addCookie();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            addCookie();
+            super.sendRedirect(location);
+        }
+
+        void addCookie() {
+            if (added || isCommitted()
+                    || !(request.getAttribute(ReplicaRoutingDataSource.LAST_WRITE) instanceof Long lastWrite)) {
+                return;
+            }
+            added = true;
+            addHeader(HttpHeaders.SET_COOKIE, ResponseCookie.from(COOKIE, lastWrite.toString())
+                    .maxAge(maxAge)
+                    .path("/")
+                    .httpOnly(true)
+                    .sameSite("Lax")
+                    .build()
+                    .toString());
+        }
+    }
+}
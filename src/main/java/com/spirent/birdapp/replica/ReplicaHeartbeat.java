@@ -0,0 +1,25 @@
+package com.spirent.birdapp.replica;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * The single row of 'replica_heartbeat', see {@link ReplicaMonitor}. Only written with plain SQL, the mapping makes
+ * Hibernate create the table where Liquibase does not run.
+ */
+@Entity
+@Table(name = "replica_heartbeat")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplicaHeartbeat {
+    @Id
+    private int id;
+    private long beat;
+}
@@ -0,0 +1,146 @@
+package com.spirent.birdapp.replica;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Measures how far the read replicas are behind the primary. Every check interval it writes the current time to
+ * the 'replica_heartbeat' row of the primary and reads the row back from every replica. A replica returns the last
+ * heartbeat it has applied, and since replicas apply transactions in commit order, it also has every transaction
+ * committed before that heartbeat was written. A replica that cannot be read is down until a check succeeds again.
+ * Each replica is checked by its own thread, so an unreachable one does not delay the others.
+ * <p>
+ * Every instance writes heartbeats and the row keeps the latest, so the clocks of the instances should agree to
+ * well within the maximum lag.
+ */
+@Slf4j
+public class ReplicaMonitor {
+    /**
+     * Parameters: the time of the heartbeat.
+     */
+    public static final String BEAT = "INSERT INTO replica_heartbeat (id, beat) VALUES (1, ?) "
+            + "ON DUPLICATE KEY UPDATE beat = GREATEST(beat, VALUES(beat))";
+    public static final String SELECT_BEAT = "SELECT beat FROM replica_heartbeat WHERE id = 1";
+
+    private final JdbcTemplate primary;
+    private final List<ReplicaStatus> replicas;
+    private final Map<ReplicaStatus, JdbcTemplate> replicaTemplates = new HashMap<>();
+    private final ReadReplicaProperties properties;
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+
+    public ReplicaMonitor(DataSource primary, List<ReplicaStatus> replicas, ReadReplicaProperties properties,
+            MeterRegistry meterRegistry) {
+        this.primary = new JdbcTemplate(primary);
+        this.replicas = List.copyOf(replicas);
+        this.properties = properties;
+        for (var replica : replicas) {
+            var jdbcTemplate = new JdbcTemplate(replica.getDataSource());
+            jdbcTemplate.setQueryTimeout((int) Math.max(1, properties.getConnectionTimeout().toSeconds()));
+            replicaTemplates.put(replica, jdbcTemplate);
+            Gauge.builder("birdapp.replica.lag", replica,
+                            status -> status.getBeat() == 0 ? Double.NaN : (currentMicros() - status.getBeat()) / 1e6)
+                    .description("Age of the last heartbeat found on the read replica")
+                    .baseUnit("seconds")
+                    .tag("replica", replica.getName())
+                    .register(meterRegistry);
+            Gauge.builder("birdapp.replica.up", replica, status -> status.isUp() ? 1 : 0)
+                    .description("Whether the last check of the read replica succeeded")
+                    .tag("replica", replica.getName())
+                    .register(meterRegistry);
+        }
+    }
+
+    public List<ReplicaStatus> getReplicas() {
+        return replicas;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        threads.add(Thread.ofPlatform().name("replica-heartbeat").daemon().start(() -> repeat(this::beat)));
+        for (var replica : replicas) {
+            threads.add(Thread.ofPlatform().name("replica-monitor-" + replica.getName()).daemon()
+                    .start(() -> repeat(() -> check(replica))));
+        }
+    }
+
+    /**
+     * Also closes the connection pools of the replicas.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (var thread : threads) {
+            thread.interrupt();
+        }
+        for (var thread : threads) {
+            thread.join();
+        }
+        for (var replica : replicas) {
+            if (replica.getDataSource() instanceof Closeable closeable) {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    log.warn("Could not close the connections to replica {}", replica.getName(), e);
+                }
+            }
+        }
+    }
+
+    public void beat() {
+        try {
+            primary.update(BEAT, currentMicros());
+        } catch (DataAccessException e) {
+            log.warn("Could not write the replica heartbeat: {}", e.getMessage());
+        }
+    }
+
+    public void check(ReplicaStatus replica) {
+        long start = System.nanoTime();
+        try {
+            long beat = replicaTemplates.get(replica).queryForObject(SELECT_BEAT, Long.class);
+            if (!replica.isUp()) {
+                log.info("Reading from replica {}", replica.getName());
+            }
+            replica.checked(beat, System.nanoTime() - start);
+        } catch (DataAccessException e) {
+            if (replica.unreachable()) {
+                log.warn("Replica {} cannot be read, reading from the others: {}", replica.getName(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * The clock of the heartbeats and writes.
+     */
+    public static long currentMicros() {
+        var now = Instant.now();
+        return now.getEpochSecond() * 1_000_000 + now.getNano() / 1000;
+    }
+
+    private void repeat(Runnable task) {
+        while (running) {
+            task.run();
+            try {
+                Thread.sleep(properties.getCheckInterval());
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
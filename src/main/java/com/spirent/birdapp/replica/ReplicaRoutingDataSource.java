@@ -0,0 +1,153 @@
+package com.spirent.birdapp.replica;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.util.WebUtils;
+
+/**
+ * Hands out connections of a read replica to read-only transactions and of the primary to everything else. A
+ * replica is only used if the {@link ReplicaMonitor} found it up and at most the maximum lag behind, otherwise the
+ * read goes to the primary.
+ * <p>
+ * Within an HTTP request all read-only transactions use the same database, so a collection is never older than
+ * the ETag read before it. Once a transaction of the request has committed, its remaining reads go to the primary,
+ * and so do the reads of later requests carrying the {@link ReadYourWritesFilter} cookie until a replica has
+ * caught up with the write.
+ * <p>
+ * Must be wrapped in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the transaction
+ * managers take the connection when a transaction begins, before it is marked read-only.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    public static final String PRIMARY = "primary";
+    /**
+     * Request attribute holding the time of the last write committed by the request, in microseconds since the
+     * epoch.
+     */
+    public static final String LAST_WRITE = ReplicaRoutingDataSource.class.getName() + ".LAST_WRITE";
+    private static final String ROUTE = ReplicaRoutingDataSource.class.getName() + ".ROUTE";
+
+    private final List<ReplicaStatus> replicas;
+    private final ReadReplicaProperties properties;
+    private final LongSupplier clock;
+    private final Map<String, ReplicaStatus> replicasByName = new HashMap<>();
+    private final Map<String, Counter> reads = new HashMap<>();
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param clock time in microseconds since the epoch, see {@link ReplicaMonitor#currentMicros()}
+     */
+    public ReplicaRoutingDataSource(DataSource primary, List<ReplicaStatus> replicas, ReadReplicaProperties properties,
+            MeterRegistry meterRegistry, LongSupplier clock) {
+        this.replicas = List.copyOf(replicas);
+        this.properties = properties;
+        this.clock = clock;
+        var targets = new HashMap<Object, Object>();
+        targets.put(PRIMARY, primary);
+        reads.put(PRIMARY, readCounter(PRIMARY, meterRegistry));
+        for (var replica : replicas) {
+            targets.put(replica.getName(), replica.getDataSource());
+            replicasByName.put(replica.getName(), replica);
+            reads.put(replica.getName(), readCounter(replica.getName(), meterRegistry));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        var request = RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes
+                ? attributes
+                : null;
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (request != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        request.setAttribute(LAST_WRITE, clock.getAsLong(), RequestAttributes.SCOPE_REQUEST);
+                        request.setAttribute(ROUTE, PRIMARY, RequestAttributes.SCOPE_REQUEST);
+                    }
+                });
+            }
+            return PRIMARY;
+        }
+        if (request == null) {
+            return count(select(Long.MIN_VALUE));
+        }
+        var route = (String) request.getAttribute(ROUTE, RequestAttributes.SCOPE_REQUEST);
+        // a replica going down mid-request is replaced by the primary, which is never older
+        if (route == null || !PRIMARY.equals(route) && !replicasByName.get(route).isUp()) {
+            route = route == null ? select(lastWrite(request)) : PRIMARY;
+            request.setAttribute(ROUTE, route, RequestAttributes.SCOPE_REQUEST);
+        }
+        return count(route);
+    }
+
+    /**
+     * Returns the name of a replica that has every write committed up to {@code writtenAt}, or {@link #PRIMARY}.
+     */
+    String select(long writtenAt) {
+        long now = clock.getAsLong();
+        long maxLag = properties.getMaxLag().toNanos() / 1000;
+        ReplicaStatus selected = null;
+        if (properties.getSelection() == ReadReplicaProperties.Selection.ROUND_ROBIN) {
+            int start = next.getAndIncrement();
+            for (int i = 0; i < replicas.size() && selected == null; i++) {
+                var replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+                if (replica.isUsable(now, maxLag, writtenAt)) {
+                    selected = replica;
+                }
+            }
+        } else {
+            for (var replica : replicas) {
+                if (replica.isUsable(now, maxLag, writtenAt)
+                        && (selected == null || replica.getLatencyNanos() < selected.getLatencyNanos())) {
+                    selected = replica;
+                }
+            }
+        }
+        return selected == null ? PRIMARY : selected.getName();
+    }
+
+    /**
+     * The last write of the request itself or, from the cookie, of an earlier request of the client.
+     */
+    private static long lastWrite(ServletRequestAttributes request) {
+        if (request.getAttribute(LAST_WRITE, RequestAttributes.SCOPE_REQUEST) instanceof Long lastWrite) {
+            return lastWrite;
+        }
+        var cookie = WebUtils.getCookie(request.getRequest(), ReadYourWritesFilter.COOKIE);
+        if (cookie != null) {
+            try {
+                return Long.parseLong(cookie.getValue());
+            } catch (NumberFormatException e) {
+                // not ours, ignored
+            }
+        }
+        return Long.MIN_VALUE;
+    }
+
+    private String count(String route) {
+        reads.get(route).increment();
+        return route;
+    }
+
+    private static Counter readCounter(String target, MeterRegistry meterRegistry) {
+        return Counter.builder("birdapp.replica.reads")
+                .description("Read-only transactions per database they were routed to")
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,57 @@
+package com.spirent.birdapp.replica;
+
+import javax.sql.DataSource;
+import lombok.Getter;
+
+/**
+ * What the {@link ReplicaMonitor} last saw of a read replica. Written by the monitor and read by the
+ * {@link ReplicaRoutingDataSource} for every read-only transaction, so the state is volatile.
+ */
+@Getter
+public class ReplicaStatus {
+    private static final double LATENCY_WEIGHT = 0.2;
+
+    private final String name;
+    private final DataSource dataSource;
+    private volatile boolean up;
+    /**
+     * Time of the last heartbeat found on the replica, in microseconds since the epoch.
+     */
+    private volatile long beat;
+    /**
+     * Moving average of the time a check took.
+     */
+    private volatile double latencyNanos;
+
+    public ReplicaStatus(String name, DataSource dataSource) {
+        this.name = name;
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Records a successful check, which found the heartbeat {@code beat} and took {@code latencyNanos}.
+     */
+    public void checked(long beat, long latencyNanos) {
+        this.latencyNanos = up ? this.latencyNanos + LATENCY_WEIGHT * (latencyNanos - this.latencyNanos) : latencyNanos;
+        this.beat = beat;
+        this.up = true;
+    }
+
+    /**
+     * @return {@code true} if the replica was up until now
+     */
+    public boolean unreachable() {
+        var wasUp = up;
+        up = false;
+        return wasUp;
+    }
+
+    /**
+     * A replica can be read if it is up, at most {@code maxLag} behind at {@code now} and has replicated every
+     * transaction committed up to {@code writtenAt}. All times are in microseconds since the epoch.
+     */
+    public boolean isUsable(long now, long maxLag, long writtenAt) {
+        var beat = this.beat;
+        return up && now - beat <= maxLag && beat > writtenAt;
+    }
+}
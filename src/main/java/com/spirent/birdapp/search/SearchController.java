@@ -0,0 +1,38 @@
+package com.spirent.birdapp.search;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@Profile("!reactive")
+@RequestMapping("/search")
+@AllArgsConstructor
+public class SearchController {
+
+    private final SearchService searchService;
+
+    @Operation(summary = "Search bird names, bird colors and sighting locations",
+            description = "Every word has to match a field exactly, as a prefix or with a typo. Best matches first")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Found the matches",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = SearchResultDto.class, type = "array"))})})
+    @GetMapping
+    public List<SearchResultDto> search(
+            @Parameter(description = "The words to search for") @RequestParam String q,
+            @Parameter(description = "Only return birds or only locations") @RequestParam(required = false) SearchResultDto.Type type,
+            @Parameter(description = "At most 100") @RequestParam(defaultValue = "20") int limit) {
+        return searchService.search(q, type, limit);
+    }
+}
@@ -0,0 +1,27 @@
+package com.spirent.birdapp.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class SearchResultDto {
+    public enum Type {
+        BIRD,
+        LOCATION
+    }
+
+    private Type type;
+    /**
+     * Only set for birds.
+     */
+    private Long birdId;
+    /**
+     * The bird name, or the location.
+     */
+    private String name;
+    private String color;
+    private float score;
+}
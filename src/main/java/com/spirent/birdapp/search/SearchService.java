@@ -0,0 +1,302 @@
+package com.spirent.birdapp.search;
+
+import com.spirent.birdapp.shard.Shards;
+import io.micrometer.core.annotation.Timed;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * In-memory Lucene index over bird names and colors and the distinct sighting locations. It is rebuilt from the
+ * database on startup and kept up to date by the write paths of the services, which report every change once its
+ * transaction has committed. Searches see changes as soon as they are applied, without a Lucene commit.
+ */
+@Service
+@Timed("birdapp.service")
+@Slf4j
+public class SearchService implements DisposableBean {
+    static final int MAX_RESULTS = 100;
+    static final int MAX_TERMS = 10;
+    private static final String KEY = "key";
+    private static final String TYPE = "type";
+    private static final String BIRD_ID = "birdId";
+    private static final String NAME = "name";
+    private static final String COLOR = "color";
+    private static final String LOCATION = "location";
+    /**
+     * Searched fields and their weight. Within a field, an exact term scores above a prefix and a prefix above a
+     * fuzzy match.
+     */
+    private static final Map<String, Float> FIELD_BOOSTS = Map.of(NAME, 3f, LOCATION, 2f, COLOR, 1f);
+    private static final String SELECT_BIRDS = "SELECT id, name, color FROM bird";
+    // the statistics rollup has one row per bird, location and day, far fewer than 'sighting'
+    private static final String SELECT_LOCATIONS = "SELECT DISTINCT location FROM sighting_stats WHERE sighting_count > 0";
+    // shards keep no rollup, their 'sighting' table has an index on the location
+    private static final String SELECT_SHARD_LOCATIONS = "SELECT DISTINCT location FROM sighting";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Optional<Shards> shards;
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final ByteBuffersDirectory directory = new ByteBuffersDirectory();
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    /**
+     * Locations are never removed from the index, so every location only has to be added once.
+     */
+    private final Set<String> indexedLocations = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param shards with the 'sharding' profile, where the locations are read from
+     */
+    public SearchService(JdbcTemplate jdbcTemplate, Optional<Shards> shards) throws IOException {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer));
+        this.searcherManager = new SearcherManager(writer, null);
+    }
+
+    /**
+     * Indexes all birds and locations. Writes that happen meanwhile are applied on top, and since every document
+     * is replaced by its key, the order does not matter.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        var birds = new AtomicInteger();
+        jdbcTemplate.query(SELECT_BIRDS, row -> {
+            long id = row.getLong(1);
+            var name = row.getString(2);
+            var color = row.getString(3);
+            apply(() -> updateBird(id, name, color));
+            birds.incrementAndGet();
+        });
+        var locations = new AtomicInteger();
+        RowCallbackHandler locationHandler = row -> {
+            var location = row.getString(1);
+            apply(() -> addLocation(location));
+            locations.incrementAndGet();
+        };
+        if (shards.isPresent()) {
+            shards.get().all().forEach(shard -> shard.jdbcTemplate().query(SELECT_SHARD_LOCATIONS, locationHandler));
+        } else {
+            jdbcTemplate.query(SELECT_LOCATIONS, locationHandler);
+        }
+        refresh();
+        log.info("Indexed {} birds and {} locations for search in {} ms", birds, locations,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public void indexBird(long id, String name, String color) {
+        afterCommit(() -> updateBird(id, name, color));
+    }
+
+    public void removeBird(long id) {
+        afterCommit(() -> writer.deleteDocuments(new Term(KEY, birdKey(id))));
+    }
+
+    public void indexLocations(Collection<String> locations) {
+        var copy = new ArrayList<>(locations);
+        afterCommit(() -> {
+            for (var location : copy) {
+                addLocation(location);
+            }
+        });
+    }
+
+    /**
+     * Returns the best matches for every term of the text in any field, best first. A term matches exactly, as a
+     * prefix, or with up to two typos.
+     *
+     * @param type only return results of this type, {@code null} for all
+     */
+    public List<SearchResultDto> search(String text, SearchResultDto.Type type, int limit) {
+        var query = toQuery(text, type);
+        if (query == null) {
+            return List.of();
+        }
+        try {
+            searcherManager.maybeRefresh();
+            var searcher = searcherManager.acquire();
+            try {
+                var hits = searcher.search(query, Math.max(1, Math.min(limit, MAX_RESULTS)));
+                var storedFields = searcher.storedFields();
+                var results = new ArrayList<SearchResultDto>(hits.scoreDocs.length);
+                for (var hit : hits.scoreDocs) {
+                    var document = storedFields.document(hit.doc);
+                    var resultType = SearchResultDto.Type.valueOf(document.get(TYPE));
+                    var birdId = document.getField(BIRD_ID);
+                    results.add(SearchResultDto.builder()
+                            .type(resultType)
+                            .birdId(birdId == null ? null : birdId.numericValue().longValue())
+                            .name(document.get(resultType == SearchResultDto.Type.BIRD ? NAME : LOCATION))
+                            .color(document.get(COLOR))
+                            .score(hit.score)
+                            .build());
+                }
+                return results;
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    private Query toQuery(String text, SearchResultDto.Type type) {
+        var terms = analyze(text);
+        if (terms.isEmpty()) {
+            return null;
+        }
+        var query = new BooleanQuery.Builder();
+        for (var term : terms) {
+            var alternatives = new BooleanQuery.Builder();
+            for (var field : FIELD_BOOSTS.entrySet()) {
+                var fieldTerm = new Term(field.getKey(), term);
+                alternatives.add(new BoostQuery(new TermQuery(fieldTerm), field.getValue() * 4), BooleanClause.Occur.SHOULD);
+                alternatives.add(new BoostQuery(new PrefixQuery(fieldTerm), field.getValue() * 2), BooleanClause.Occur.SHOULD);
+                if (term.length() >= 3) {
+                    alternatives.add(new BoostQuery(new FuzzyQuery(fieldTerm, term.length() > 5 ? 2 : 1), field.getValue()),
+                            BooleanClause.Occur.SHOULD);
+                }
+            }
+            query.add(alternatives.build(), BooleanClause.Occur.MUST);
+        }
+        if (type != null) {
+            query.add(new TermQuery(new Term(TYPE, type.name())), BooleanClause.Occur.FILTER);
+        }
+        return query.build();
+    }
+
+    /**
+     * Splits the text into lower case terms the same way the indexed fields are, keeping the first
+     * {@link #MAX_TERMS} distinct ones.
+     */
+    private List<String> analyze(String text) {
+        var terms = new LinkedHashMap<String, Boolean>();
+        if (text == null) {
+            return List.of();
+        }
+        try (var tokens = analyzer.tokenStream(NAME, text)) {
+            var term = tokens.addAttribute(CharTermAttribute.class);
+            tokens.reset();
+            while (tokens.incrementToken() && terms.size() < MAX_TERMS) {
+                terms.put(term.toString(), Boolean.TRUE);
+            }
+            tokens.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return List.copyOf(terms.keySet());
+    }
+
+    private void updateBird(long id, String name, String color) throws IOException {
+        var document = new Document();
+        document.add(new StringField(KEY, birdKey(id), Field.Store.NO));
+        document.add(new StringField(TYPE, SearchResultDto.Type.BIRD.name(), Field.Store.YES));
+        document.add(new StoredField(BIRD_ID, id));
+        if (name != null) {
+            document.add(new TextField(NAME, name, Field.Store.YES));
+        }
+        if (color != null) {
+            document.add(new TextField(COLOR, color, Field.Store.YES));
+        }
+        writer.updateDocument(new Term(KEY, birdKey(id)), document);
+    }
+
+    private void addLocation(String location) throws IOException {
+        if (location == null || !indexedLocations.add(location)) {
+            return;
+        }
+        var document = new Document();
+        document.add(new StringField(KEY, LOCATION + ":" + location, Field.Store.NO));
+        document.add(new StringField(TYPE, SearchResultDto.Type.LOCATION.name(), Field.Store.YES));
+        document.add(new TextField(LOCATION, location, Field.Store.YES));
+        writer.updateDocument(new Term(KEY, LOCATION + ":" + location), document);
+    }
+
+    private static String birdKey(long id) {
+        return "bird:" + id;
+    }
+
+    private void refresh() {
+        try {
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Applies the update once the current transaction has committed, so that rolled back writes never reach the
+     * index. Without a transaction it is applied right away.
+     */
+    private void afterCommit(IndexUpdate update) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(update);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(update);
+            }
+        });
+    }
+
+    private static void apply(IndexUpdate update) {
+        try {
+            update.apply();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface IndexUpdate {
+        void apply() throws IOException;
+    }
+}
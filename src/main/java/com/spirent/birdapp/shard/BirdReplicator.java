@@ -0,0 +1,142 @@
+package com.spirent.birdapp.shard;
+
+import com.spirent.birdapp.change.ChangeEventDto;
+import com.spirent.birdapp.change.ChangeEventRelay;
+import jakarta.annotation.PreDestroy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Keeps the 'bird' table of every shard a copy of the primary's, so sightings can be joined with their bird on the
+ * shard. On startup it copies all birds, then it follows the bird changes of the {@link ChangeEventRelay}: a
+ * created or updated bird is copied again, a deleted one is deleted from every shard with its sightings, like on
+ * the primary. Storing a sighting adds its bird to the shard itself, so it never waits for the replication of a
+ * new bird.
+ * <p>
+ * Every instance replicates, which is idempotent. If the replicator falls behind the retention of the change
+ * events, it copies all birds again.
+ */
+@Slf4j
+public class BirdReplicator {
+    static final String SELECT_BIRDS = "SELECT id, name, color, weight, height FROM bird WHERE id > ? ORDER BY id "
+            + "LIMIT ?";
+    static final String SELECT_BIRD = "SELECT id, name, color, weight, height FROM bird WHERE id = ?";
+    /**
+     * Parameters: id, name, color, weight, height.
+     */
+    static final String UPSERT_BIRD = "INSERT INTO bird (id, name, color, weight, height) VALUES (?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE name = VALUES(name), color = VALUES(color), weight = VALUES(weight), "
+            + "height = VALUES(height)";
+    static final String DELETE_SIGHTINGS = "DELETE FROM sighting WHERE bird_id = ?";
+    static final String DELETE_BIRD = "DELETE FROM bird WHERE id = ?";
+    private static final int BATCH_SIZE = 1000;
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(1);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Shards shards;
+    private final ShardedSightingStore store;
+    private final ChangeEventRelay changeEventRelay;
+    private Thread thread;
+
+    public BirdReplicator(JdbcTemplate jdbcTemplate, Shards shards, ShardedSightingStore store,
+            ChangeEventRelay changeEventRelay) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        this.store = store;
+        this.changeEventRelay = changeEventRelay;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        thread = Thread.ofPlatform().name("bird-replicator").daemon().start(this::run);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (thread != null) {
+            thread.interrupt();
+            thread.join();
+        }
+    }
+
+    /**
+     * Copies all birds to every shard. Birds deleted before the copy stay on the shards until they are deleted
+     * again, which does no harm: sightings are only stored for existing birds.
+     *
+     * @return the number of birds copied to each shard
+     */
+    public int copyAll() {
+        int copied = 0;
+        long after = 0;
+        List<Object[]> birds;
+        do {
+            birds = jdbcTemplate.query(SELECT_BIRDS, BirdReplicator::toRow, after, BATCH_SIZE);
+            var batch = birds;
+            shards.onEach(shard -> shard.jdbcTemplate().batchUpdate(UPSERT_BIRD, batch));
+            copied += birds.size();
+            after = birds.isEmpty() ? after : (long) birds.get(birds.size() - 1)[0];
+        } while (birds.size() == BATCH_SIZE);
+        return copied;
+    }
+
+    void apply(List<ChangeEventDto> events) {
+        for (var event : events) {
+            if (event.getEntity() != ChangeEventDto.Entity.BIRD) {
+                continue;
+            }
+            long birdId = event.getEntityId();
+            if (event.getOperation() == ChangeEventDto.Operation.DELETED) {
+                shards.onEach(shard -> shard.transactionTemplate().execute(status -> {
+                    shard.jdbcTemplate().update(DELETE_SIGHTINGS, birdId);
+                    return shard.jdbcTemplate().update(DELETE_BIRD, birdId);
+                }));
+                store.forgetBird(birdId);
+            } else {
+                // the current state of the bird, which may be newer than the event
+                var bird = jdbcTemplate.query(SELECT_BIRD, BirdReplicator::toRow, birdId);
+                if (!bird.isEmpty()) {
+                    shards.onEach(shard -> shard.jdbcTemplate().batchUpdate(UPSERT_BIRD, bird));
+                }
+            }
+        }
+    }
+
+    private void run() {
+        long position = -1;
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                if (position < 0 || changeEventRelay.isExpired(position)) {
+                    position = changeEventRelay.position();
+                    long start = System.nanoTime();
+                    int copied = copyAll();
+                    log.info("Copied {} birds to the shards in {} ms", copied, (System.nanoTime() - start) / 1_000_000);
+                }
+                var events = changeEventRelay.await(position, BATCH_SIZE, Duration.ofSeconds(10));
+                if (!events.isEmpty()) {
+                    apply(events);
+                    position = events.get(events.size() - 1).getId();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (DataAccessException e) {
+                log.warn("Could not replicate the birds to the shards, retrying: {}", e.getMessage());
+                try {
+                    Thread.sleep(RETRY_DELAY);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static Object[] toRow(ResultSet row, int rowNum) throws SQLException {
+        return new Object[]{row.getLong(1), row.getString(2), row.getString(3), row.getDouble(4), row.getDouble(5)};
+    }
+}
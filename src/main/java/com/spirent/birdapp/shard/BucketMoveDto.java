@@ -0,0 +1,23 @@
+package com.spirent.birdapp.shard;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class BucketMoveDto {
+    private int bucket;
+    private String from;
+    private String to;
+    /**
+     * Sightings copied or deleted on the target, including those written during the move.
+     */
+    private long sightings;
+    /**
+     * How long writes to the bucket had to wait, in milliseconds.
+     */
+    private long frozenMillis;
+    private long durationMillis;
+}
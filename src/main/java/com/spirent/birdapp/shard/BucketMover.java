@@ -0,0 +1,283 @@
+package com.spirent.birdapp.shard;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Moves buckets to other shards while their sightings are being read and written:
+ * <ol>
+ *     <li>the sightings of the bucket are copied to the target, while they are still written on the source;</li>
+ *     <li>the bucket is frozen on the source, writes to it now wait, see {@link ShardedSightingStore};</li>
+ *     <li>the sightings written or deleted since they were copied are copied or deleted on the target;</li>
+ *     <li>the target takes ownership and the directory names it, so the waiting writes go to the target;</li>
+ *     <li>the source gives up ownership and deletes its copy of the sightings.</li>
+ * </ol>
+ * Copying compares the ids and update times of the sightings on both shards, so it only copies what changed and
+ * also finds deletions. Writes to the bucket only wait during steps 2 to 4, which copy little. Reads see the
+ * bucket on the source until step 4 and on both shards until step 5, where the merge drops the duplicates.
+ * <p>
+ * A move that fails before step 4 unfreezes the bucket and can be repeated. Moving a bucket to the shard that owns
+ * it repairs its ownership, should a move have stopped after that. An instance makes one move at a time, and moves
+ * should only be started from one instance at a time.
+ */
+@Slf4j
+public class BucketMover {
+    static final String SELECT_VERSIONS = "SELECT id, updated_at FROM sighting WHERE bucket = ? ORDER BY id";
+    static final String SELECT_ROWS = "SELECT s.id, s.bird_id, s.location, s.date_time, s.latitude, s.longitude, "
+            + "s.geohash, s.updated_at, b.name, b.color, b.weight, b.height "
+            + "FROM sighting s JOIN bird b ON b.id = s.bird_id WHERE s.bucket = ? AND s.id IN (%s)";
+    /**
+     * Parameters: id, bucket, bird id, location, date and time, latitude, longitude, geohash, update time.
+     */
+    static final String UPSERT = "INSERT INTO sighting "
+            + "(id, bucket, bird_id, location, date_time, latitude, longitude, geohash, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE bird_id = VALUES(bird_id), location = VALUES(location), "
+            + "date_time = VALUES(date_time), latitude = VALUES(latitude), longitude = VALUES(longitude), "
+            + "geohash = VALUES(geohash), updated_at = VALUES(updated_at)";
+    static final String DELETE = "DELETE FROM sighting WHERE id = ? AND bucket = ?";
+    static final String DELETE_BUCKET = "DELETE FROM sighting WHERE bucket = ? LIMIT ?";
+    static final String FREEZE = "UPDATE owned_bucket SET writable = FALSE WHERE bucket = ?";
+    static final String UNFREEZE = "UPDATE owned_bucket SET writable = TRUE WHERE bucket = ?";
+    static final String DISOWN = "DELETE FROM owned_bucket WHERE bucket = ?";
+    static final String REPAIR = "INSERT INTO owned_bucket (bucket, writable) VALUES (?, TRUE) "
+            + "ON DUPLICATE KEY UPDATE writable = TRUE";
+    static final String COUNT = "SELECT COUNT(*) FROM sighting s JOIN owned_bucket o ON o.bucket = s.bucket";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Shards shards;
+    private final ShardDirectory directory;
+    private final ShardProperties properties;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public BucketMover(JdbcTemplate jdbcTemplate, Shards shards, ShardDirectory directory,
+            ShardProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        this.directory = directory;
+        this.properties = properties;
+    }
+
+    public List<ShardDto> getShards() {
+        directory.reload();
+        var owners = directory.owners();
+        var counts = shards.onEach(shard -> shard.jdbcTemplate().queryForObject(COUNT, Long.class));
+        var result = new ArrayList<ShardDto>();
+        for (int i = 0; i < shards.names().size(); i++) {
+            var name = shards.names().get(i);
+            result.add(ShardDto.builder()
+                    .name(name)
+                    .buckets(Collections.frequency(owners, name))
+                    .sightings(counts.get(i))
+                    .build());
+        }
+        return result;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bucket or shard does not exist
+     * @throws IllegalStateException    if this instance is already moving a bucket, or the bucket was moved by
+     *                                  another one in the meantime
+     */
+    public BucketMoveDto move(int bucket, String to) {
+        if (bucket < 0 || bucket >= directory.buckets()) {
+            throw new IllegalArgumentException("Unknown bucket " + bucket);
+        }
+        var target = shards.get(to);
+        if (!lock.tryLock()) {
+            throw new IllegalStateException("Another bucket is being moved");
+        }
+        try {
+            directory.reload();
+            var source = shards.get(directory.shardOf(bucket));
+            if (source.equals(target)) {
+                return repair(bucket, target);
+            }
+            return move(bucket, source, target);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves buckets one at a time from the shards owning the most to those owning the fewest, until the numbers
+     * differ by at most one. Shards that were added get their share of buckets this way.
+     */
+    public List<BucketMoveDto> rebalance() {
+        directory.reload();
+        var moves = new ArrayList<BucketMoveDto>();
+        for (var move : plan(directory.owners(), shards.names())) {
+            moves.add(move(move.bucket(), move.to()));
+        }
+        return moves;
+    }
+
+    /**
+     * The moves that even out the number of buckets per shard, taking the highest buckets of the fullest shards.
+     *
+     * @param owners the owner of every bucket, indexed by bucket
+     */
+    public static List<Move> plan(List<String> owners, List<String> shards) {
+        var bucketsByShard = new LinkedHashMap<String, Deque<Integer>>();
+        shards.forEach(shard -> bucketsByShard.put(shard, new ArrayDeque<>()));
+        for (int bucket = 0; bucket < owners.size(); bucket++) {
+            bucketsByShard.computeIfAbsent(owners.get(bucket), shard -> new ArrayDeque<>()).addLast(bucket);
+        }
+        var moves = new ArrayList<Move>();
+        while (true) {
+            var fullest = Collections.max(bucketsByShard.entrySet(), Map.Entry.comparingByValue(
+                    (a, b) -> Integer.compare(a.size(), b.size())));
+            var emptiest = Collections.min(bucketsByShard.entrySet(), Map.Entry.comparingByValue(
+                    (a, b) -> Integer.compare(a.size(), b.size())));
+            if (fullest.getValue().size() - emptiest.getValue().size() <= 1) {
+                return moves;
+            }
+            int bucket = fullest.getValue().removeLast();
+            emptiest.getValue().addLast(bucket);
+            moves.add(new Move(bucket, fullest.getKey(), emptiest.getKey()));
+        }
+    }
+
+    private BucketMoveDto move(int bucket, Shard source, Shard target) {
+        long start = System.nanoTime();
+        // left over by an earlier move that failed
+        target.jdbcTemplate().update(DISOWN, bucket);
+        deleteBucket(target, bucket);
+
+        long copied = copy(bucket, source, target);
+        long frozen = System.nanoTime();
+        if (source.jdbcTemplate().update(FREEZE, bucket) == 0) {
+            throw new IllegalStateException("Shard " + source.name() + " does not own bucket " + bucket);
+        }
+        try {
+            copied += copy(bucket, source, target);
+            target.jdbcTemplate().update(ShardDirectory.OWN, bucket);
+            if (jdbcTemplate.update(ShardDirectory.MOVE, target.name(), bucket, source.name()) == 0) {
+                target.jdbcTemplate().update(DISOWN, bucket);
+                throw new IllegalStateException("Bucket " + bucket + " was moved concurrently");
+            }
+        } catch (RuntimeException e) {
+            source.jdbcTemplate().update(UNFREEZE, bucket);
+            throw e;
+        }
+        directory.reload();
+        source.jdbcTemplate().update(DISOWN, bucket);
+        long frozenNanos = System.nanoTime() - frozen;
+        deleteBucket(source, bucket);
+
+        log.info("Moved bucket {} from {} to {}, copying {} sightings, writes waited {} ms", bucket, source.name(),
+                target.name(), copied, frozenNanos / 1_000_000);
+        return BucketMoveDto.builder()
+                .bucket(bucket)
+                .from(source.name())
+                .to(target.name())
+                .sightings(copied)
+                .frozenMillis(frozenNanos / 1_000_000)
+                .durationMillis((System.nanoTime() - start) / 1_000_000)
+                .build();
+    }
+
+    /**
+     * Makes the target the only and writable owner of the bucket, and deletes the rows left on other shards.
+     */
+    private BucketMoveDto repair(int bucket, Shard owner) {
+        long start = System.nanoTime();
+        owner.jdbcTemplate().update(REPAIR, bucket);
+        for (var shard : shards.all()) {
+            if (!shard.equals(owner)) {
+                shard.jdbcTemplate().update(DISOWN, bucket);
+                deleteBucket(shard, bucket);
+            }
+        }
+        log.info("Repaired the ownership of bucket {} by {}", bucket, owner.name());
+        return BucketMoveDto.builder()
+                .bucket(bucket)
+                .from(owner.name())
+                .to(owner.name())
+                .durationMillis((System.nanoTime() - start) / 1_000_000)
+                .build();
+    }
+
+    /**
+     * Copies the sightings of the bucket that differ between the shards from the source to the target, and
+     * deletes those missing on the source from the target.
+     *
+     * @return the number of sightings copied or deleted
+     */
+    private long copy(int bucket, Shard source, Shard target) {
+        var sourceVersions = versions(source, bucket);
+        var targetVersions = versions(target, bucket);
+        var changed = new ArrayList<Long>();
+        sourceVersions.forEach((id, updatedAt) -> {
+            if (!Objects.equals(updatedAt, targetVersions.get(id))) {
+                changed.add(id);
+            }
+        });
+        var deleted = targetVersions.keySet().stream()
+                .filter(id -> !sourceVersions.containsKey(id))
+                .map(id -> new Object[]{id, bucket})
+                .toList();
+
+        int chunkSize = properties.getMoveChunkSize();
+        for (int from = 0; from < changed.size(); from += chunkSize) {
+            var ids = changed.subList(from, Math.min(from + chunkSize, changed.size()));
+            var sql = SELECT_ROWS.formatted(String.join(", ", Collections.nCopies(ids.size(), "?")));
+            var args = new ArrayList<Object>(ids.size() + 1);
+            args.add(bucket);
+            args.addAll(ids);
+            var birds = new LinkedHashMap<Long, Object[]>();
+            var rows = source.jdbcTemplate().query(sql, (row, rowNum) -> {
+                birds.putIfAbsent(row.getLong(2), new Object[]{row.getLong(2), row.getString(9), row.getString(10),
+                        row.getDouble(11), row.getDouble(12)});
+                return toRow(row, bucket);
+            }, args.toArray());
+            target.transactionTemplate().executeWithoutResult(status -> {
+                target.jdbcTemplate().batchUpdate(ShardedSightingStore.INSERT_BIRD, List.copyOf(birds.values()));
+                target.jdbcTemplate().batchUpdate(UPSERT, rows);
+            });
+        }
+        if (!deleted.isEmpty()) {
+            target.jdbcTemplate().batchUpdate(DELETE, deleted);
+        }
+        return changed.size() + deleted.size();
+    }
+
+    /**
+     * Deletes a chunk per statement, which keeps the transactions and the replication lag of the shard small.
+     */
+    private void deleteBucket(Shard shard, int bucket) {
+        int deleted;
+        do {
+            deleted = shard.jdbcTemplate().update(DELETE_BUCKET, bucket, properties.getMoveChunkSize());
+        } while (deleted > 0);
+    }
+
+    private static Map<Long, LocalDateTime> versions(Shard shard, int bucket) {
+        var versions = new LinkedHashMap<Long, LocalDateTime>();
+        shard.jdbcTemplate().query(SELECT_VERSIONS, row -> {
+            versions.put(row.getLong(1), row.getObject(2, LocalDateTime.class));
+        }, bucket);
+        return versions;
+    }
+
+    private static Object[] toRow(ResultSet row, int bucket) throws SQLException {
+        return new Object[]{row.getLong(1), bucket, row.getLong(2), row.getString(3),
+                row.getObject(4, LocalDateTime.class), row.getObject(5, Double.class), row.getObject(6, Double.class),
+                row.getString(7), row.getObject(8, LocalDateTime.class)};
+    }
+
+    public record Move(int bucket, String from, String to) {
+    }
+}
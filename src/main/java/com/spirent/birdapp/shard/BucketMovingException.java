@@ -0,0 +1,13 @@
+package com.spirent.birdapp.shard;
+
+import org.springframework.dao.TransientDataAccessException;
+
+/**
+ * A write waited longer than {@link ShardProperties#getMoveWait()} for a bucket being moved. The client can retry.
+ */
+public class BucketMovingException extends TransientDataAccessException {
+
+    public BucketMovingException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,11 @@
+package com.spirent.birdapp.shard;
+
+/**
+ * The operation works on data that stays on the primary and does not reflect the sightings on the shards.
+ */
+public class NotShardedException extends UnsupportedOperationException {
+
+    public NotShardedException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,18 @@
+package com.spirent.birdapp.shard;
+
+import javax.sql.DataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * One shard database. Its transactions are independent of those of the primary.
+ */
+public record Shard(String name, DataSource dataSource, JdbcTemplate jdbcTemplate,
+        TransactionTemplate transactionTemplate) {
+
+    public Shard(String name, DataSource dataSource) {
+        this(name, dataSource, new JdbcTemplate(dataSource),
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+    }
+}
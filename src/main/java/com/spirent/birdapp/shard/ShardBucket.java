@@ -0,0 +1,27 @@
+package com.spirent.birdapp.shard;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A row of the bucket directory, see {@link ShardDirectory}. Only written with plain SQL, the mapping makes
+ * Hibernate create the table where Liquibase does not run.
+ */
+@Entity
+@Table(name = "shard_bucket")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShardBucket {
+    @Id
+    private int bucket;
+    @Column(nullable = false, length = 64)
+    private String shard;
+}
@@ -0,0 +1,175 @@
+package com.spirent.birdapp.shard;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spirent.birdapp.analytics.SightingAnalyticsService;
+import com.spirent.birdapp.bird.BirdCache;
+import com.spirent.birdapp.bird.BirdRepository;
+import com.spirent.birdapp.change.ChangeEventRelay;
+import com.spirent.birdapp.change.ChangeEvents;
+import com.spirent.birdapp.search.SearchService;
+import com.spirent.birdapp.sighting.SightingBatchProperties;
+import com.spirent.birdapp.sighting.SightingIdAllocator;
+import com.spirent.birdapp.sighting.SightingIngestionProperties;
+import com.spirent.birdapp.sighting.SightingRepository;
+import com.spirent.birdapp.sighting.SightingStatsRepository;
+import com.spirent.birdapp.sighting.SightingStatsService;
+import com.spirent.birdapp.sighting.SightingSubscriptions;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import liquibase.exception.LiquibaseException;
+import liquibase.integration.spring.SpringLiquibase;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Opt-in sharding of the sightings for the servlet stack. Sightings are stored on the databases in
+ * 'bird-app.sharding', split by bird, while birds and everything else stay on 'spring.datasource', the primary.
+ * The sighting services are replaced by ones reading and writing the shards, see {@link ShardedSightingStore}.
+ * Bulk import and export and the statistics rollup only know the primary and answer 501. The schema of the shards
+ * is 'db/changelog/shard.xml', applied on startup.
+ */
+@Configuration
+@Profile("sharding & !reactive")
+public class ShardConfig {
+
+    /**
+     * Queued ingestion is rejected: the shard inserts commit apart from the transaction advancing the write-ahead
+     * log offset, so a replay after a failed commit would store acknowledged sightings twice.
+     */
+    @Bean
+    public Shards shards(ShardProperties properties, SightingIngestionProperties ingestionProperties,
+            MeterRegistry meterRegistry) {
+        if (ingestionProperties.getMode() == SightingIngestionProperties.Mode.QUEUED) {
+            throw new IllegalStateException("The 'sharding' profile does not support "
+                    + "bird-app.sighting-ingestion.mode=QUEUED");
+        }
+        var shards = new ArrayList<Shard>();
+        for (var shard : properties.getShards()) {
+            var name = shard.getName() != null ? shard.getName() : "shard-" + (shards.size() + 1);
+            var dataSource = shardDataSource(name, shard, properties, meterRegistry);
+            migrate(name, dataSource);
+            shards.add(new Shard(name, dataSource));
+        }
+        if (shards.isEmpty()) {
+            throw new IllegalStateException("The 'sharding' profile needs shards in bird-app.sharding.shards");
+        }
+        return new Shards(shards);
+    }
+
+    /**
+     * The directory table is created by Liquibase, or by Hibernate where Liquibase does not run.
+     */
+    @Bean
+    @DependsOn("entityManagerFactory")
+    public ShardDirectory shardDirectory(JdbcTemplate jdbcTemplate, Shards shards, ShardProperties properties) {
+        var directory = new ShardDirectory(jdbcTemplate, shards, properties.getBuckets());
+        directory.initialize();
+        return directory;
+    }
+
+    @Bean
+    public ShardedSightingStore shardedSightingStore(Shards shards, ShardDirectory shardDirectory,
+            SightingIdAllocator sightingIdAllocator, PlatformTransactionManager transactionManager,
+            ShardProperties properties, MeterRegistry meterRegistry) {
+        return new ShardedSightingStore(shards, shardDirectory, sightingIdAllocator, transactionManager,
+                properties, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public ShardedSightingService shardedSightingService(ShardedSightingStore store,
+            SightingRepository sightingRepository, BirdCache birdCache, SightingStatsService sightingStatsService,
+            TransactionTemplate transactionTemplate, SearchService searchService,
+            ShardedTableVersions tableVersions, SightingAnalyticsService sightingAnalyticsService,
+            ChangeEvents changeEvents, SightingSubscriptions sightingSubscriptions, ObjectMapper objectMapper) {
+        return new ShardedSightingService(store, sightingRepository, birdCache, sightingStatsService,
+                transactionTemplate, searchService, tableVersions, sightingAnalyticsService, changeEvents,
+                sightingSubscriptions, objectMapper);
+    }
+
+    @Bean
+    @Primary
+    public ShardedSightingBatchService shardedSightingBatchService(ShardedSightingStore store,
+            ShardedSightingService sightingService, SightingRepository sightingRepository,
+            BirdRepository birdRepository, BirdCache birdCache, SightingStatsService sightingStatsService,
+            TransactionTemplate transactionTemplate, SightingBatchProperties properties,
+            SearchService searchService, ShardedTableVersions tableVersions,
+            SightingAnalyticsService sightingAnalyticsService, ChangeEvents changeEvents) {
+        return new ShardedSightingBatchService(store, sightingService, sightingRepository, birdRepository,
+                birdCache, sightingStatsService, transactionTemplate, properties, searchService, tableVersions,
+                sightingAnalyticsService, changeEvents);
+    }
+
+    @Bean
+    @Primary
+    public ShardedSightingBulkService shardedSightingBulkService(JdbcTemplate jdbcTemplate,
+            NamedParameterJdbcTemplate namedParameterJdbcTemplate, TransactionTemplate transactionTemplate,
+            SightingIdAllocator sightingIdAllocator, SightingStatsService sightingStatsService,
+            EntityManagerFactory entityManagerFactory, SearchService searchService,
+            ShardedTableVersions tableVersions, SightingAnalyticsService sightingAnalyticsService,
+            ChangeEvents changeEvents) {
+        return new ShardedSightingBulkService(jdbcTemplate, namedParameterJdbcTemplate, transactionTemplate,
+                sightingIdAllocator, sightingStatsService, entityManagerFactory, searchService, tableVersions,
+                sightingAnalyticsService, changeEvents);
+    }
+
+    @Bean
+    @Primary
+    public ShardedSightingStatsService shardedSightingStatsService(SightingStatsRepository sightingStatsRepository) {
+        return new ShardedSightingStatsService(sightingStatsRepository);
+    }
+
+    @Bean
+    @Primary
+    public ShardedTableVersions shardedTableVersions(JdbcTemplate jdbcTemplate, Shards shards) {
+        return new ShardedTableVersions(jdbcTemplate, shards);
+    }
+
+    @Bean
+    public BirdReplicator birdReplicator(JdbcTemplate jdbcTemplate, Shards shards, ShardedSightingStore store,
+            ChangeEventRelay changeEventRelay) {
+        return new BirdReplicator(jdbcTemplate, shards, store, changeEventRelay);
+    }
+
+    @Bean
+    public BucketMover bucketMover(JdbcTemplate jdbcTemplate, Shards shards, ShardDirectory shardDirectory,
+            ShardProperties properties) {
+        return new BucketMover(jdbcTemplate, shards, shardDirectory, properties);
+    }
+
+    private static HikariDataSource shardDataSource(String name, ShardProperties.Shard shard,
+            ShardProperties properties, MeterRegistry meterRegistry) {
+        var dataSource = new HikariDataSource();
+        dataSource.setPoolName(name);
+        dataSource.setJdbcUrl(shard.getUrl());
+        dataSource.setUsername(shard.getUsername());
+        dataSource.setPassword(shard.getPassword());
+        dataSource.setMaximumPoolSize(properties.getMaximumPoolSize());
+        dataSource.setConnectionTimeout(properties.getConnectionTimeout().toMillis());
+        dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return dataSource;
+    }
+
+    private static void migrate(String name, HikariDataSource dataSource) {
+        var liquibase = new SpringLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setChangeLog("classpath:db/changelog/shard.xml");
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        try {
+            liquibase.afterPropertiesSet();
+        } catch (LiquibaseException e) {
+            throw new IllegalStateException("Could not create the schema of shard " + name, e);
+        }
+    }
+}
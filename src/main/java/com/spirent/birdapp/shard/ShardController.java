@@ -0,0 +1,79 @@
+package com.spirent.birdapp.shard;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@Profile("sharding & !reactive")
+@RequestMapping("/shards")
+@AllArgsConstructor
+public class ShardController {
+
+    private final BucketMover bucketMover;
+
+    @Operation(summary = "Get the shards with their number of buckets and sightings")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Found the shards",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ShardDto.class, type = "array"))})})
+    @GetMapping
+    public List<ShardDto> getShards() {
+        return bucketMover.getShards();
+    }
+
+    @Operation(summary = "Move a bucket of sightings to another shard",
+            description = "The sightings stay readable and writable, writes to the bucket wait while it is switched. "
+                    + "Moving a bucket to the shard owning it repairs its ownership after a failed move")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Bucket moved",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = BucketMoveDto.class))}),
+            @ApiResponse(responseCode = "400", description = "Unknown bucket or shard",
+                    content = @Content),
+            @ApiResponse(responseCode = "409", description = "Another move is running or the bucket was moved concurrently",
+                    content = @Content)})
+    @PostMapping("/buckets/{bucket}/move")
+    public ResponseEntity<?> moveBucket(
+            @PathVariable int bucket,
+            @Parameter(description = "Name of the target shard") @RequestParam String to) {
+        try {
+            return ResponseEntity.ok(bucketMover.move(bucket, to));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    @Operation(summary = "Move buckets until every shard owns the same number",
+            description = "Used after adding a shard. The buckets are moved one at a time")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Buckets moved",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = BucketMoveDto.class, type = "array"))}),
+            @ApiResponse(responseCode = "409", description = "Another move is running or a bucket was moved concurrently",
+                    content = @Content)})
+    @PostMapping("/rebalance")
+    public ResponseEntity<?> rebalance() {
+        try {
+            return ResponseEntity.ok(bucketMover.rebalance());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.spirent.birdapp.shard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Finds the shard of a bird in two steps: the bird id hashes to one of a fixed number of buckets, and the
+ * 'shard_bucket' table of the primary names the shard owning each bucket. Moving a bucket to another shard only
+ * changes the second step, see {@link BucketMover}.
+ * <p>
+ * Every instance keeps the table in memory. It is reloaded when a shard turns down a write for a bucket it no
+ * longer owns, so an instance learns about moves made by another one on its first write to a moved bucket.
+ */
+@Slf4j
+public class ShardDirectory {
+    public static final String SELECT_ALL = "SELECT bucket, shard FROM shard_bucket ORDER BY bucket";
+    /**
+     * Parameters: bucket, shard.
+     */
+    public static final String INSERT = "INSERT INTO shard_bucket (bucket, shard) VALUES (?, ?)";
+    /**
+     * Parameters: new shard, bucket, current shard. Updates nothing if the bucket was moved concurrently.
+     */
+    public static final String MOVE = "UPDATE shard_bucket SET shard = ? WHERE bucket = ? AND shard = ?";
+    /**
+     * Parameters: bucket.
+     */
+    public static final String OWN = "INSERT INTO owned_bucket (bucket, writable) VALUES (?, TRUE)";
+    public static final String SELECT_OWNED = "SELECT bucket FROM owned_bucket";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Shards shards;
+    private final int initialBuckets;
+    private volatile String[] owners;
+
+    public ShardDirectory(JdbcTemplate jdbcTemplate, Shards shards, int initialBuckets) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        this.initialBuckets = initialBuckets;
+    }
+
+    /**
+     * Reads the directory, creating it on the first start with the buckets spread evenly over the shards. Then
+     * gives every shard the ownership of its buckets that no shard owns yet, in case the first start failed
+     * halfway. A bucket being moved is always owned by at least one shard, so this never interferes with a move.
+     *
+     * @throws IllegalStateException if a bucket belongs to a shard that is not configured
+     */
+    public void initialize() {
+        if (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM shard_bucket", Integer.class) == 0) {
+            var names = shards.names();
+            var rows = new ArrayList<Object[]>(initialBuckets);
+            for (int bucket = 0; bucket < initialBuckets; bucket++) {
+                rows.add(new Object[]{bucket, names.get(bucket % names.size())});
+            }
+            try {
+                jdbcTemplate.batchUpdate(INSERT, rows);
+                log.info("Spread {} buckets over shards {}", initialBuckets, names);
+            } catch (DuplicateKeyException e) {
+                log.info("Another instance created the bucket directory");
+            }
+        }
+        reload();
+        for (var owner : owners) {
+            if (!shards.contains(owner)) {
+                throw new IllegalStateException("Shard " + owner + " owns buckets but is not configured");
+            }
+        }
+        if (owners.length != initialBuckets) {
+            log.warn("The directory has {} buckets, ignoring bird-app.sharding.buckets={}", owners.length,
+                    initialBuckets);
+        }
+
+        var owned = new HashSet<Integer>();
+        shards.onEach(shard -> shard.jdbcTemplate().queryForList(SELECT_OWNED, Integer.class)).forEach(owned::addAll);
+        for (var shard : shards.all()) {
+            var unowned = new ArrayList<Object[]>();
+            for (int bucket = 0; bucket < owners.length; bucket++) {
+                if (owners[bucket].equals(shard.name()) && !owned.contains(bucket)) {
+                    unowned.add(new Object[]{bucket});
+                }
+            }
+            if (!unowned.isEmpty()) {
+                shard.jdbcTemplate().batchUpdate(OWN, unowned);
+                log.info("Shard {} took ownership of {} buckets", shard.name(), unowned.size());
+            }
+        }
+    }
+
+    public void reload() {
+        var rows = jdbcTemplate.query(SELECT_ALL, (row, rowNum) -> row.getString(2));
+        owners = rows.toArray(String[]::new);
+    }
+
+    public int buckets() {
+        return owners.length;
+    }
+
+    /**
+     * Spreads consecutive ids, as handed out by the database, over all buckets.
+     */
+    public int bucketOf(long birdId) {
+        return Math.floorMod(Long.hashCode(birdId * 0x9E3779B97F4A7C15L), owners.length);
+    }
+
+    public String shardOf(int bucket) {
+        return owners[bucket];
+    }
+
+    /**
+     * The owner of every bucket, indexed by bucket.
+     */
+    public List<String> owners() {
+        return Arrays.asList(owners.clone());
+    }
+}
@@ -0,0 +1,17 @@
+package com.spirent.birdapp.shard;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class ShardDto {
+    private String name;
+    /**
+     * Number of buckets the shard owns according to the bucket directory.
+     */
+    private int buckets;
+    private long sightings;
+}
@@ -0,0 +1,54 @@
+package com.spirent.birdapp.shard;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "bird-app.sharding")
+public class ShardProperties {
+    /**
+     * Databases storing the sightings. Their order only matters for the first assignment of the buckets, later
+     * shards get buckets by moving them, see {@link BucketMover}. A shard that still owns buckets cannot be removed.
+     */
+    private List<Shard> shards = new ArrayList<>();
+    /**
+     * Number of buckets the birds are hashed to. Fixed once the bucket directory exists, so it should be well above
+     * the number of shards there will ever be.
+     */
+    private int buckets = 256;
+    /**
+     * Ids reserved at a time from the 'sighting_seq' table of the primary.
+     */
+    private int idBlockSize = 500;
+    /**
+     * How long a write waits for a bucket that is being moved before it fails.
+     */
+    private Duration moveWait = Duration.ofSeconds(10);
+    /**
+     * Sightings copied per statement when a bucket is moved.
+     */
+    private int moveChunkSize = 1000;
+    /**
+     * Time to wait for a connection to a shard.
+     */
+    private Duration connectionTimeout = Duration.ofSeconds(2);
+    /**
+     * Connection pool size of each shard.
+     */
+    private int maximumPoolSize = 20;
+
+    @Data
+    public static class Shard {
+        /**
+         * Names the shard in the bucket directory, logs and metrics, defaults to 'shard-' and its position in the
+         * list. Must not change while the shard owns buckets.
+         */
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+    }
+}
@@ -0,0 +1,88 @@
+package com.spirent.birdapp.shard;
+
+import com.spirent.birdapp.analytics.SightingAnalyticsService;
+import com.spirent.birdapp.bird.Bird;
+import com.spirent.birdapp.bird.BirdCache;
+import com.spirent.birdapp.bird.BirdRepository;
+import com.spirent.birdapp.change.ChangeEvents;
+import com.spirent.birdapp.etag.TableVersions;
+import com.spirent.birdapp.search.SearchService;
+import com.spirent.birdapp.sighting.CreateSightingDto;
+import com.spirent.birdapp.sighting.Sighting;
+import com.spirent.birdapp.sighting.SightingBatchProperties;
+import com.spirent.birdapp.sighting.SightingBatchResultDto;
+import com.spirent.birdapp.sighting.SightingBatchService;
+import com.spirent.birdapp.sighting.SightingRepository;
+import com.spirent.birdapp.sighting.SightingStatsService;
+import io.micrometer.core.annotation.Timed;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Inserts the chunks on the shards, one transaction per shard, see {@link ShardedSightingStore}. The transaction
+ * of the primary a chunk runs in only covers the birds created for it.
+ */
+@Timed("birdapp.service")
+public class ShardedSightingBatchService extends SightingBatchService {
+    private final ShardedSightingStore store;
+    private final ShardedSightingService sightingService;
+
+    public ShardedSightingBatchService(ShardedSightingStore store, ShardedSightingService sightingService,
+            SightingRepository sightingRepository, BirdRepository birdRepository, BirdCache birdCache,
+            SightingStatsService sightingStatsService, TransactionTemplate transactionTemplate,
+            SightingBatchProperties properties, SearchService searchService, TableVersions tableVersions,
+            SightingAnalyticsService sightingAnalyticsService, ChangeEvents changeEvents) {
+        super(sightingRepository, birdRepository, birdCache, sightingStatsService, transactionTemplate, properties,
+                searchService, tableVersions, sightingAnalyticsService, changeEvents);
+        this.store = store;
+        this.sightingService = sightingService;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<SightingBatchResultDto> insertChunk(List<CreateSightingDto> chunk, List<Bird> birds, int firstIndex) {
+        var results = new ArrayList<SightingBatchResultDto>(chunk.size());
+        var sightings = new ArrayList<CreateSightingDto>(chunk.size());
+        var sightingBirds = new ArrayList<Bird>(chunk.size());
+        var sightingIndexes = new ArrayList<Integer>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            var sightingDto = chunk.get(i);
+            var bird = birds.get(i);
+            if (bird == null) {
+                results.add(failed(firstIndex + i, "Either an existing birdId or a birdName is required"));
+            } else if (sightingDto.getLocation() == null || sightingDto.getDateTime() == null) {
+                results.add(failed(firstIndex + i, "location and dateTime are required"));
+            } else if (!Sighting.isValidLocation(sightingDto.getLatitude(), sightingDto.getLongitude())) {
+                results.add(failed(firstIndex + i, "latitude and longitude have to be given together and be in range"));
+            } else {
+                sightings.add(sightingDto);
+                sightingBirds.add(bird);
+                sightingIndexes.add(firstIndex + i);
+                results.add(null);
+            }
+        }
+
+        var savedSightings = store.insertAll(sightings, sightingBirds);
+        sightingService.added(savedSightings, sightingBirds.stream().map(Bird::getId).toList());
+        for (int i = 0; i < savedSightings.size(); i++) {
+            int index = sightingIndexes.get(i);
+            results.set(index - firstIndex, SightingBatchResultDto.builder()
+                    .index(index)
+                    .status(SightingBatchResultDto.Status.CREATED)
+                    .sightingId(savedSightings.get(i).getId())
+                    .build());
+        }
+        return results;
+    }
+
+    private static SightingBatchResultDto failed(int index, String error) {
+        return SightingBatchResultDto.builder()
+                .index(index)
+                .status(SightingBatchResultDto.Status.FAILED)
+                .error(error)
+                .build();
+    }
+}
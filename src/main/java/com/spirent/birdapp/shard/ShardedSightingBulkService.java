@@ -0,0 +1,44 @@
+package com.spirent.birdapp.shard;
+
+import com.spirent.birdapp.analytics.SightingAnalyticsService;
+import com.spirent.birdapp.bulk.BulkFormat;
+import com.spirent.birdapp.bulk.BulkImportResultDto;
+import com.spirent.birdapp.change.ChangeEvents;
+import com.spirent.birdapp.etag.TableVersions;
+import com.spirent.birdapp.search.SearchService;
+import com.spirent.birdapp.sighting.SightingBulkService;
+import com.spirent.birdapp.sighting.SightingIdAllocator;
+import com.spirent.birdapp.sighting.SightingStatsService;
+import jakarta.persistence.EntityManagerFactory;
+import java.io.InputStream;
+import java.io.OutputStream;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Bulk import and export work on the 'sighting' table of the primary, which holds no sightings once they are
+ * sharded, so both are refused instead of exporting nothing and importing rows no query returns.
+ */
+public class ShardedSightingBulkService extends SightingBulkService {
+
+    public ShardedSightingBulkService(JdbcTemplate jdbcTemplate,
+            NamedParameterJdbcTemplate namedParameterJdbcTemplate, TransactionTemplate transactionTemplate,
+            SightingIdAllocator sightingIdAllocator, SightingStatsService sightingStatsService,
+            EntityManagerFactory entityManagerFactory, SearchService searchService, TableVersions tableVersions,
+            SightingAnalyticsService sightingAnalyticsService, ChangeEvents changeEvents) {
+        super(jdbcTemplate, namedParameterJdbcTemplate, transactionTemplate, sightingIdAllocator,
+                sightingStatsService, entityManagerFactory, searchService, tableVersions, sightingAnalyticsService,
+                changeEvents);
+    }
+
+    @Override
+    public void exportSightings(BulkFormat format, OutputStream outputStream) {
+        throw new NotShardedException("Sightings cannot be exported with sharding");
+    }
+
+    @Override
+    public BulkImportResultDto importSightings(BulkFormat format, InputStream inputStream) {
+        throw new NotShardedException("Sightings cannot be imported with sharding");
+    }
+}
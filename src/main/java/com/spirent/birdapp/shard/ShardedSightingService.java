@@ -0,0 +1,189 @@
+package com.spirent.birdapp.shard;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spirent.birdapp.analytics.SightingAnalyticsService;
+import com.spirent.birdapp.bird.BirdCache;
+import com.spirent.birdapp.change.ChangeEvents;
+import com.spirent.birdapp.etag.TableVersions;
+import com.spirent.birdapp.search.SearchService;
+import com.spirent.birdapp.sighting.CreateSightingDto;
+import com.spirent.birdapp.sighting.Sighting;
+import com.spirent.birdapp.sighting.SightingDto;
+import com.spirent.birdapp.sighting.SightingPageDto;
+import com.spirent.birdapp.sighting.SightingRepository;
+import com.spirent.birdapp.sighting.SightingService;
+import com.spirent.birdapp.sighting.SightingStatsService;
+import com.spirent.birdapp.sighting.SightingSubscriber;
+import com.spirent.birdapp.sighting.SightingSubscriptions;
+import io.micrometer.core.annotation.Timed;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Reads and writes the sightings on the shards instead of the primary, see {@link ShardedSightingStore}. Writes
+ * do not touch the primary apart from creating birds and reserving ids. So they do not update the sighting
+ * statistics nor record change events, and new sightings are only published to the live subscribers of the
+ * instance that stored them.
+ */
+@Timed("birdapp.service")
+public class ShardedSightingService extends SightingService {
+    private static final int STREAM_PAGE_SIZE = 1000;
+
+    private final ShardedSightingStore store;
+    private final BirdCache birdCache;
+    private final SearchService searchService;
+    private final SightingAnalyticsService sightingAnalyticsService;
+    private final SightingSubscriptions sightingSubscriptions;
+    private final ObjectMapper objectMapper;
+
+    public ShardedSightingService(ShardedSightingStore store, SightingRepository sightingRepository,
+            BirdCache birdCache, SightingStatsService sightingStatsService, TransactionTemplate transactionTemplate,
+            SearchService searchService, TableVersions tableVersions,
+            SightingAnalyticsService sightingAnalyticsService, ChangeEvents changeEvents,
+            SightingSubscriptions sightingSubscriptions, ObjectMapper objectMapper) {
+        super(sightingRepository, birdCache, sightingStatsService, transactionTemplate, searchService, tableVersions,
+                sightingAnalyticsService, changeEvents);
+        this.store = store;
+        this.birdCache = birdCache;
+        this.searchService = searchService;
+        this.sightingAnalyticsService = sightingAnalyticsService;
+        this.sightingSubscriptions = sightingSubscriptions;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public List<SightingDto> getAllSightings() {
+        return store.findAll();
+    }
+
+    @Override
+    public SightingPageDto getSightingsPage(Long cursor, int size) {
+        var pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        var sightings = store.findPageAfter(cursor == null ? 0L : cursor, pageSize);
+        var nextCursor = sightings.size() == pageSize ? sightings.get(sightings.size() - 1).getId() : null;
+        return SightingPageDto.builder()
+                .sightings(sightings)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Reads the sightings a page at a time, so heap use does not grow with the number of sightings.
+     */
+    @Override
+    public void streamAllSightings(Consumer<SightingDto> consumer) {
+        long after = 0;
+        List<SightingDto> page;
+        do {
+            page = store.findPageAfter(after, STREAM_PAGE_SIZE);
+            page.forEach(consumer);
+            after = page.isEmpty() ? after : page.get(page.size() - 1).getId();
+        } while (page.size() == STREAM_PAGE_SIZE);
+    }
+
+    /**
+     * Ordered by id.
+     */
+    @Override
+    public List<SightingDto> getAllSightingsByLocation(String location) {
+        return store.findByLocation(location);
+    }
+
+    /**
+     * Reads only the shard of the bird, ordered by id.
+     */
+    @Override
+    public List<SightingDto> getAllSightingsByBirdName(String birdName) {
+        return birdCache.findByName(birdName)
+                .map(bird -> store.findByBird(bird.getId()))
+                .orElse(List.of());
+    }
+
+    /**
+     * Ordered by date and time, then id.
+     */
+    @Override
+    public List<SightingDto> getAllSightingsByDateTimeBetween(LocalDateTime startDateTime,
+            LocalDateTime endDateTime) {
+        return store.findByDateTimeBetween(startDateTime, endDateTime);
+    }
+
+    @Override
+    protected List<SightingDto> findByGeohashBetween(String from, String to) {
+        return store.findByGeohashBetween(from, to);
+    }
+
+    @Override
+    public Optional<SightingDto> addSighting(CreateSightingDto sightingDto) {
+        if (!Sighting.isValidLocation(sightingDto.getLatitude(), sightingDto.getLongitude())) {
+            return Optional.empty();
+        }
+        var bird = Optional.ofNullable(sightingDto.getBirdId())
+                .flatMap(birdCache::findById)
+                .or(() -> Optional.ofNullable(sightingDto.getBirdName()).map(birdCache::findOrCreateByName));
+        if (bird.isEmpty()) {
+            return Optional.empty();
+        }
+
+        var savedSighting = store.insertAll(List.of(sightingDto), List.of(bird.get())).get(0);
+        added(List.of(savedSighting), List.of(bird.get().getId()));
+        return Optional.of(savedSighting);
+    }
+
+    @Override
+    public Optional<SightingDto> updateSighting(SightingDto sightingDto) {
+        if (sightingDto.getId() == null || sightingDto.getBirdName() == null
+                || !Sighting.isValidLocation(sightingDto.getLatitude(), sightingDto.getLongitude())) {
+            return Optional.empty();
+        }
+        var bird = birdCache.findOrCreateByName(sightingDto.getBirdName());
+        var updatedSighting = store.update(sightingDto, bird);
+        updatedSighting.ifPresent(sighting -> saved(List.of(sighting), List.of(bird.getId())));
+        return updatedSighting;
+    }
+
+    @Override
+    public Optional<Long> deleteSighting(Long sightingId) {
+        if (sightingId == null || !store.delete(sightingId)) {
+            return Optional.empty();
+        }
+        sightingAnalyticsService.sightingDeleted(sightingId);
+        return Optional.of(sightingId);
+    }
+
+    /**
+     * Updates the in-memory indexes with new sightings and publishes them to the live subscribers.
+     *
+     * @param birdIds the id of the bird of every sighting
+     */
+    void added(List<SightingDto> sightings, List<Long> birdIds) {
+        saved(sightings, birdIds);
+        if (sightingSubscriptions.size() == 0) {
+            return;
+        }
+        for (var sighting : sightings) {
+            try {
+                sightingSubscriptions.publish(new SightingSubscriber.LiveSighting(sighting.getBirdName(),
+                        sighting.getLocation(), sighting.getDateTime(), objectMapper.writeValueAsString(sighting)));
+            } catch (JsonProcessingException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void saved(List<SightingDto> sightings, List<Long> birdIds) {
+        searchService.indexLocations(sightings.stream().map(SightingDto::getLocation).collect(toSet()));
+        for (int i = 0; i < sightings.size(); i++) {
+            var sighting = sightings.get(i);
+            sightingAnalyticsService.sightingSaved(sighting.getId(), birdIds.get(i), sighting.getBirdName(),
+                    sighting.getLocation(), sighting.getDateTime());
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.spirent.birdapp.shard;
+
+import com.spirent.birdapp.sighting.SightingStatsDto;
+import com.spirent.birdapp.sighting.SightingStatsRepository;
+import com.spirent.birdapp.sighting.SightingStatsService;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * The 'sighting_stats' rollup lives on the primary and is not updated by the writes on the shards, so it is
+ * neither served nor rebuilt.
+ */
+public class ShardedSightingStatsService extends SightingStatsService {
+
+    public ShardedSightingStatsService(SightingStatsRepository sightingStatsRepository) {
+        super(sightingStatsRepository);
+    }
+
+    @Override
+    public List<SightingStatsDto> getStats(String birdName, String location, LocalDate from, LocalDate to) {
+        throw new NotShardedException("Sighting statistics are not kept with sharding");
+    }
+
+    @Override
+    public int rebuild() {
+        throw new NotShardedException("Sighting statistics are not kept with sharding");
+    }
+
+    @Override
+    public void scheduledRebuild() {
+        // nothing to rebuild from
+    }
+}
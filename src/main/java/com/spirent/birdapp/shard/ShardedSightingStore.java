@@ -0,0 +1,422 @@
+package com.spirent.birdapp.shard;
+
+import com.spirent.birdapp.bird.Bird;
+import com.spirent.birdapp.etag.TableVersions;
+import com.spirent.birdapp.sighting.CreateSightingDto;
+import com.spirent.birdapp.sighting.Geohash;
+import com.spirent.birdapp.sighting.SightingDto;
+import com.spirent.birdapp.sighting.SightingIdAllocator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static java.util.stream.Collectors.groupingBy;
+
+/**
+ * Reads and writes the sightings on the shards. A sighting is stored on the shard owning the bucket of its bird,
+ * see {@link ShardDirectory}, so the sightings of a bird are read from one shard. Every other query runs on all
+ * shards in parallel, each returning its rows sorted, and the results are merged with {@link SortedMerge}.
+ * <p>
+ * A write locks the 'owned_bucket' rows of its buckets in the shard transaction and only goes ahead for the buckets
+ * the shard still owns and that are not frozen by a {@link BucketMover}. The others were moved: the directory is
+ * reloaded and their rows written again, to the new owner, for up to {@link ShardProperties#getMoveWait()}.
+ * Reads join 'owned_bucket', so they skip rows of buckets a shard does not own, like those being copied to it.
+ * <p>
+ * A write spanning several shards commits on each of them separately. If one fails, the others keep their rows.
+ */
+@Slf4j
+public class ShardedSightingStore {
+    static final String SELECT_DTO = "SELECT s.id, b.name, s.location, s.date_time, s.latitude, s.longitude "
+            + "FROM sighting s JOIN bird b ON b.id = s.bird_id JOIN owned_bucket o ON o.bucket = s.bucket ";
+    /**
+     * Parameters: id, bucket, bird id, location, date and time, latitude, longitude, geohash.
+     */
+    static final String INSERT = "INSERT INTO sighting "
+            + "(id, bucket, bird_id, location, date_time, latitude, longitude, geohash, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP(6))";
+    /**
+     * Parameters: bird id, location, date and time, latitude, longitude, geohash, id, bucket.
+     */
+    static final String UPDATE = "UPDATE sighting SET bird_id = ?, location = ?, date_time = ?, latitude = ?, "
+            + "longitude = ?, geohash = ?, updated_at = CURRENT_TIMESTAMP(6) WHERE id = ? AND bucket = ?";
+    /**
+     * Parameters: id, bucket.
+     */
+    static final String DELETE = "DELETE FROM sighting WHERE id = ? AND bucket = ?";
+    static final String SELECT_BUCKET = "SELECT s.bucket FROM sighting s "
+            + "JOIN owned_bucket o ON o.bucket = s.bucket WHERE s.id = ?";
+    /**
+     * Locks the ownership of the buckets against a move until the end of the transaction, without keeping other
+     * writers of the same buckets waiting.
+     */
+    static final String LOCK_BUCKETS = "SELECT bucket FROM owned_bucket WHERE bucket IN (%s) AND writable FOR SHARE";
+    static final String OWNS_BUCKET = "SELECT COUNT(*) FROM owned_bucket WHERE bucket = ?";
+    /**
+     * Adds the bird if it is missing, leaving a copy made by {@link BirdReplicator} alone: the bird passed in may
+     * be older than that copy. Parameters: id, name, color, weight, height.
+     */
+    static final String INSERT_BIRD = "INSERT INTO bird (id, name, color, weight, height) VALUES (?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE id = id";
+
+    private static final Comparator<SightingDto> BY_ID = Comparator.comparing(SightingDto::getId);
+    private static final Comparator<SightingDto> BY_DATE_TIME = Comparator.comparing(SightingDto::getDateTime)
+            .thenComparing(SightingDto::getId);
+    private static final Comparator<SightingDto> BY_GEOHASH = Comparator
+            .comparing((SightingDto sighting) -> Geohash.encode(sighting.getLatitude(), sighting.getLongitude()))
+            .thenComparing(SightingDto::getId);
+    private static final long RETRY_DELAY_MILLIS = 50;
+
+    private final Shards shards;
+    private final ShardDirectory directory;
+    private final SightingIdAllocator sightingIdAllocator;
+    private final TransactionTemplate idTransaction;
+    private final ShardProperties properties;
+    private final Counter retries;
+    /**
+     * Birds known to be on each shard, to skip adding them again.
+     */
+    private final Map<String, Set<Long>> birdsOnShard = new ConcurrentHashMap<>();
+    private final ReentrantLock idLock = new ReentrantLock();
+    private long nextId;
+    private long idBlockEnd;
+
+    public ShardedSightingStore(Shards shards, ShardDirectory directory, SightingIdAllocator sightingIdAllocator,
+            PlatformTransactionManager transactionManager, ShardProperties properties, MeterRegistry meterRegistry) {
+        this.shards = shards;
+        this.directory = directory;
+        this.sightingIdAllocator = sightingIdAllocator;
+        this.idTransaction = new TransactionTemplate(transactionManager);
+        this.idTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.properties = properties;
+        this.retries = Counter.builder("birdapp.shard.write.retries")
+                .description("Writes repeated because their bucket was moved")
+                .register(meterRegistry);
+        for (var shard : shards.all()) {
+            birdsOnShard.put(shard.name(), ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    public List<SightingDto> findAll() {
+        return scatter("ORDER BY s.id", BY_ID, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns {@code limit} sightings unless there are no more, so a short page always means the end. Rows of a
+     * bucket owned by two shards while it is switched count once. The merge is only complete up to the last id of
+     * the shards that returned every row asked for, so rows after it are read again in another round, until the
+     * page is full or every shard is exhausted.
+     */
+    public List<SightingDto> findPageAfter(long afterId, int limit) {
+        var sql = SELECT_DTO + "WHERE s.id > ? ORDER BY s.id LIMIT ?";
+        var page = new ArrayList<SightingDto>(limit);
+        long after = afterId;
+        while (page.size() < limit) {
+            long from = after;
+            int missing = limit - page.size();
+            var results = shards.onEach(shard -> shard.jdbcTemplate().query(sql, ShardedSightingStore::toDto, from,
+                    missing));
+            // a shard returning all rows asked for may have more, the merge is only complete up to its last one
+            long readUpTo = Long.MAX_VALUE;
+            for (var result : results) {
+                if (result.size() == missing) {
+                    readUpTo = Math.min(readUpTo, result.get(result.size() - 1).getId());
+                }
+            }
+            long complete = readUpTo;
+            SortedMerge.merge(results, BY_ID, SightingDto::getId, missing).stream()
+                    .filter(sighting -> sighting.getId() <= complete)
+                    .forEach(page::add);
+            if (complete == Long.MAX_VALUE) {
+                break;
+            }
+            after = complete;
+        }
+        return page;
+    }
+
+    public List<SightingDto> findByLocation(String location) {
+        return scatter("WHERE s.location = ? ORDER BY s.id", BY_ID, Integer.MAX_VALUE, location);
+    }
+
+    public List<SightingDto> findByDateTimeBetween(LocalDateTime from, LocalDateTime to) {
+        return scatter("WHERE s.date_time BETWEEN ? AND ? ORDER BY s.date_time, s.id", BY_DATE_TIME,
+                Integer.MAX_VALUE, from, to);
+    }
+
+    public List<SightingDto> findByGeohashBetween(String from, String to) {
+        return scatter("WHERE s.geohash BETWEEN ? AND ? ORDER BY s.geohash, s.id", BY_GEOHASH, Integer.MAX_VALUE,
+                from, to);
+    }
+
+    /**
+     * Reads the shard owning the bird's bucket, or all shards if the bucket has just been moved away from it.
+     */
+    public List<SightingDto> findByBird(long birdId) {
+        var sql = SELECT_DTO + "WHERE s.bird_id = ? ORDER BY s.id";
+        int bucket = directory.bucketOf(birdId);
+        var shard = shards.get(directory.shardOf(bucket));
+        var sightings = shard.transactionTemplate().execute(status ->
+                shard.jdbcTemplate().queryForObject(OWNS_BUCKET, Integer.class, bucket) == 0 ? null
+                        : shard.jdbcTemplate().query(sql, ShardedSightingStore::toDto, birdId));
+        if (sightings != null) {
+            return sightings;
+        }
+        directory.reload();
+        return scatter("WHERE s.bird_id = ? ORDER BY s.id", BY_ID, Integer.MAX_VALUE, birdId);
+    }
+
+    /**
+     * Stores the sightings with new ids, each with the bird at the same index.
+     *
+     * @return the stored sightings, in the same order
+     */
+    public List<SightingDto> insertAll(List<CreateSightingDto> sightings, List<Bird> birds) {
+        var ids = reserveIds(sightings.size());
+        var rows = new ArrayList<Row>(sightings.size());
+        for (int i = 0; i < sightings.size(); i++) {
+            var bird = birds.get(i);
+            rows.add(Row.of(ids[i], directory.bucketOf(bird.getId()), bird, sightings.get(i)));
+        }
+        write(rows.stream().collect(groupingBy(Row::bucket)), this::insert);
+        return rows.stream().map(Row::toDto).toList();
+    }
+
+    /**
+     * Changes the sighting, moving it to the bucket of its new bird if needed.
+     *
+     * @return the updated sighting, or empty if there is no sighting with its id
+     */
+    public Optional<SightingDto> update(SightingDto sighting, Bird bird) {
+        var currentBucket = findBucket(sighting.getId());
+        if (currentBucket.isEmpty()) {
+            return Optional.empty();
+        }
+        var row = Row.of(sighting.getId(), directory.bucketOf(bird.getId()), bird, sighting);
+        if (row.bucket() == currentBucket.get()) {
+            var updated = new AtomicBoolean();
+            write(Map.of(row.bucket(), List.of(row)), (shard, bucket, rows) -> {
+                addBirds(shard, rows);
+                updated.set(shard.jdbcTemplate().update(UPDATE, row.bird().getId(), row.location(), row.dateTime(),
+                        row.latitude(), row.longitude(), row.geohash(), row.id(), row.bucket()) > 0);
+            });
+            return updated.get() ? Optional.of(row.toDto()) : Optional.empty();
+        }
+        // until the delete, readers may see the old and the new copy; only results in id order have them next to
+        // each other, where the merge keeps one, the others may return both
+        write(Map.of(row.bucket(), List.of(row)), this::insert);
+        write(Map.of(currentBucket.get(), List.of(row.id())), this::delete);
+        return Optional.of(row.toDto());
+    }
+
+    public boolean delete(long id) {
+        var bucket = findBucket(id);
+        if (bucket.isEmpty()) {
+            return false;
+        }
+        var deleted = new AtomicBoolean();
+        write(Map.of(bucket.get(), List.of(id)),
+                (shard, owned, ids) -> deleted.set(shard.jdbcTemplate().update(DELETE, id, owned) > 0));
+        return deleted.get();
+    }
+
+    /**
+     * Makes the next sighting of the bird add it to the shards again, after {@link BirdReplicator} deleted it.
+     */
+    public void forgetBird(long birdId) {
+        birdsOnShard.values().forEach(birds -> birds.remove(birdId));
+    }
+
+    public void forgetBirds(String shard) {
+        birdsOnShard.get(shard).clear();
+    }
+
+    /**
+     * Adds the birds of the rows that may be missing on the shard, in the shard's current transaction. They are
+     * remembered as present once it commits.
+     */
+    void addBirds(Shard shard, Collection<Row> rows) {
+        var known = birdsOnShard.get(shard.name());
+        var birds = new LinkedHashMap<Long, Bird>();
+        rows.stream().map(Row::bird).filter(bird -> !known.contains(bird.getId()))
+                .forEach(bird -> birds.putIfAbsent(bird.getId(), bird));
+        if (birds.isEmpty()) {
+            return;
+        }
+        shard.jdbcTemplate().batchUpdate(INSERT_BIRD, birds.values().stream()
+                .map(bird -> new Object[]{bird.getId(), bird.getName(), bird.getColor(), bird.getWeight(),
+                        bird.getHeight()})
+                .toList());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                known.addAll(birds.keySet());
+            }
+        });
+    }
+
+    private void insert(Shard shard, int bucket, List<Row> rows) {
+        addBirds(shard, rows);
+        shard.jdbcTemplate().batchUpdate(INSERT, rows.stream()
+                .map(row -> new Object[]{row.id(), row.bucket(), row.bird().getId(), row.location(), row.dateTime(),
+                        row.latitude(), row.longitude(), row.geohash()})
+                .toList());
+    }
+
+    private void delete(Shard shard, int bucket, List<Long> ids) {
+        shard.jdbcTemplate().batchUpdate(DELETE, ids.stream().map(id -> new Object[]{id, bucket}).toList());
+    }
+
+    private Optional<Integer> findBucket(long id) {
+        return shards.onEach(shard -> shard.jdbcTemplate().queryForList(SELECT_BUCKET, Integer.class, id)).stream()
+                .flatMap(List::stream)
+                .findFirst();
+    }
+
+    /**
+     * Writes the items of every bucket on the shard owning it, one transaction per shard, with the shards written
+     * in parallel. Items of buckets that were moved are written again after reloading the directory.
+     */
+    private <T> void write(Map<Integer, List<T>> itemsByBucket, ShardWrite<T> write) {
+        var pending = new HashMap<>(itemsByBucket);
+        long deadline = System.nanoTime() + properties.getMoveWait().toNanos();
+        while (true) {
+            var bucketsByShard = pending.keySet().stream().collect(groupingBy(directory::shardOf));
+            var tasks = new ArrayList<Callable<List<Integer>>>();
+            bucketsByShard.forEach((shard, buckets) ->
+                    tasks.add(() -> writeOnShard(shards.get(shard), buckets, pending, write)));
+            shards.inParallel(tasks).forEach(written -> written.forEach(pending::remove));
+            if (pending.isEmpty()) {
+                return;
+            }
+            retries.increment();
+            if (System.nanoTime() > deadline) {
+                throw new BucketMovingException("Buckets " + pending.keySet() + " are being moved, please retry");
+            }
+            try {
+                Thread.sleep(RETRY_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BucketMovingException("Interrupted while waiting for buckets " + pending.keySet());
+            }
+            directory.reload();
+        }
+    }
+
+    /**
+     * @return the buckets that were written
+     */
+    private <T> List<Integer> writeOnShard(Shard shard, List<Integer> buckets, Map<Integer, List<T>> itemsByBucket,
+            ShardWrite<T> write) {
+        var sql = LOCK_BUCKETS.formatted(String.join(", ", Collections.nCopies(buckets.size(), "?")));
+        return shard.transactionTemplate().execute(status -> {
+            var writable = shard.jdbcTemplate().queryForList(sql, Integer.class, buckets.toArray());
+            if (writable.isEmpty()) {
+                return writable;
+            }
+            for (int bucket : writable) {
+                write.write(shard, bucket, itemsByBucket.get(bucket));
+            }
+            shard.jdbcTemplate().update(TableVersions.BUMP, TableVersions.SIGHTING, TableVersions.stripe());
+            return writable;
+        });
+    }
+
+    private List<SightingDto> scatter(String condition, Comparator<SightingDto> order, int limit, Object... args) {
+        var sql = SELECT_DTO + condition;
+        return SortedMerge.merge(shards.onEach(shard -> shard.jdbcTemplate().query(sql, ShardedSightingStore::toDto,
+                args)), order, SightingDto::getId, limit);
+    }
+
+    private long[] reserveIds(int count) {
+        var ids = new long[count];
+        idLock.lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                if (nextId == idBlockEnd) {
+                    int size = Math.max(count - i, properties.getIdBlockSize());
+                    // in a transaction of its own, so the sequence row is not locked until the caller commits
+                    long first = idTransaction.execute(status -> sightingIdAllocator.allocate(size));
+                    nextId = first;
+                    idBlockEnd = first + size;
+                }
+                ids[i] = nextId++;
+            }
+            return ids;
+        } finally {
+            idLock.unlock();
+        }
+    }
+
+    private static SightingDto toDto(ResultSet row, int rowNum) throws SQLException {
+        return SightingDto.builder()
+                .id(row.getLong(1))
+                .birdName(row.getString(2))
+                .location(row.getString(3))
+                .dateTime(row.getObject(4, LocalDateTime.class))
+                .latitude(row.getObject(5, Double.class))
+                .longitude(row.getObject(6, Double.class))
+                .build();
+    }
+
+    @FunctionalInterface
+    interface ShardWrite<T> {
+        /**
+         * Writes the items of one bucket, in the shard transaction that locked the bucket.
+         */
+        void write(Shard shard, int bucket, List<T> items);
+    }
+
+    /**
+     * A sighting as stored on a shard.
+     */
+    record Row(long id, int bucket, Bird bird, String location, LocalDateTime dateTime, Double latitude,
+            Double longitude) {
+
+        static Row of(long id, int bucket, Bird bird, CreateSightingDto sighting) {
+            return new Row(id, bucket, bird, sighting.getLocation(), sighting.getDateTime(), sighting.getLatitude(),
+                    sighting.getLongitude());
+        }
+
+        static Row of(long id, int bucket, Bird bird, SightingDto sighting) {
+            return new Row(id, bucket, bird, sighting.getLocation(), sighting.getDateTime(), sighting.getLatitude(),
+                    sighting.getLongitude());
+        }
+
+        String geohash() {
+            return latitude == null || longitude == null ? null : Geohash.encode(latitude, longitude);
+        }
+
+        SightingDto toDto() {
+            return SightingDto.builder()
+                    .id(id)
+                    .birdName(bird.getName())
+                    .location(location)
+                    .dateTime(dateTime)
+                    .latitude(latitude)
+                    .longitude(longitude)
+                    .build();
+        }
+    }
+}
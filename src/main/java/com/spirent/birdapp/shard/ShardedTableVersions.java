@@ -0,0 +1,36 @@
+package com.spirent.birdapp.shard;
+
+import com.spirent.birdapp.etag.CollectionVersion;
+import com.spirent.birdapp.etag.TableVersions;
+import java.time.LocalDateTime;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Sightings are written on the shards, which bump their own 'sighting' counters in the same transaction. The
+ * version of a table is the sum of its counters on the primary and all shards, and its last write the latest of
+ * theirs.
+ */
+public class ShardedTableVersions extends TableVersions {
+    private final JdbcTemplate jdbcTemplate;
+    private final Shards shards;
+
+    public ShardedTableVersions(JdbcTemplate jdbcTemplate, Shards shards) {
+        super(jdbcTemplate);
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+    }
+
+    @Override
+    public CollectionVersion current(String... tables) {
+        var states = states(jdbcTemplate);
+        for (var shardStates : shards.onEach(shard -> states(shard.jdbcTemplate()))) {
+            shardStates.forEach((table, state) -> states.merge(table, state, (a, b) ->
+                    new CollectionVersion.TableState(a.version() + b.version(), latest(a.updatedAt(), b.updatedAt()))));
+        }
+        return CollectionVersion.of(states, tables);
+    }
+
+    private static LocalDateTime latest(LocalDateTime a, LocalDateTime b) {
+        return a == null ? b : b == null || a.isAfter(b) ? a : b;
+    }
+}
@@ -0,0 +1,115 @@
+package com.spirent.birdapp.shard;
+
+import jakarta.annotation.PreDestroy;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The configured shards, and the virtual threads that query them in parallel. A query of all shards takes as long
+ * as the slowest shard instead of the sum of all of them.
+ */
+@Slf4j
+public class Shards {
+    private final Map<String, Shard> shards = new LinkedHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public Shards(List<Shard> shards) {
+        for (var shard : shards) {
+            if (this.shards.put(shard.name(), shard) != null) {
+                throw new IllegalArgumentException("Two shards are named " + shard.name());
+            }
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if there is no such shard
+     */
+    public Shard get(String name) {
+        var shard = shards.get(name);
+        if (shard == null) {
+            throw new IllegalArgumentException("Unknown shard " + name);
+        }
+        return shard;
+    }
+
+    public boolean contains(String name) {
+        return shards.containsKey(name);
+    }
+
+    public List<Shard> all() {
+        return List.copyOf(shards.values());
+    }
+
+    public List<String> names() {
+        return List.copyOf(shards.keySet());
+    }
+
+    /**
+     * Runs the query on every shard at the same time and returns the results in shard order.
+     */
+    public <T> List<T> onEach(Function<Shard, T> query) {
+        return inParallel(shards.values().stream().map(shard -> (Callable<T>) () -> query.apply(shard)).toList());
+    }
+
+    /**
+     * Runs the tasks at the same time and returns their results in task order. A single task runs on the calling
+     * thread. If a task fails, the others are cancelled and its exception is thrown.
+     */
+    public <T> List<T> inParallel(List<Callable<T>> tasks) {
+        if (tasks.size() == 1) {
+            try {
+                return List.of(tasks.get(0).call());
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        var futures = tasks.stream().map(executor::submit).toList();
+        var results = new ArrayList<T>(futures.size());
+        try {
+            for (var future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while querying the shards", e);
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * Also closes the connection pools of the shards.
+     */
+    @PreDestroy
+    public void close() {
+        executor.close();
+        for (var shard : shards.values()) {
+            if (shard.dataSource() instanceof Closeable closeable) {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    log.warn("Could not close the connections to shard {}", shard.name(), e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.spirent.birdapp.shard;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+
+/**
+ * Merges the sorted results of the shards into one sorted result.
+ */
+public final class SortedMerge {
+
+    private SortedMerge() {
+    }
+
+    /**
+     * K-way merge of lists sorted by {@code order}, in O(n log k) for k lists. Of elements with the same key only
+     * the first is kept: while a bucket is being switched to another shard both shards own it and return its rows.
+     * Duplicates compare equal, so they end up next to each other.
+     *
+     * @param limit the most elements to return
+     */
+    public static <T> List<T> merge(List<List<T>> lists, Comparator<? super T> order, Function<T, ?> key,
+            int limit) {
+        var positions = new int[lists.size()];
+        var heads = new PriorityQueue<Integer>(Math.max(1, lists.size()),
+                (a, b) -> order.compare(lists.get(a).get(positions[a]), lists.get(b).get(positions[b])));
+        int size = 0;
+        for (int i = 0; i < lists.size(); i++) {
+            size += lists.get(i).size();
+            if (!lists.get(i).isEmpty()) {
+                heads.add(i);
+            }
+        }
+        var merged = new ArrayList<T>(Math.min(size, limit));
+        Object lastKey = null;
+        while (!heads.isEmpty() && merged.size() < limit) {
+            int list = heads.poll();
+            var element = lists.get(list).get(positions[list]++);
+            var elementKey = key.apply(element);
+            if (merged.isEmpty() || !Objects.equals(elementKey, lastKey)) {
+                merged.add(element);
+                lastKey = elementKey;
+            }
+            if (positions[list] < lists.get(list).size()) {
+                heads.add(list);
+            }
+        }
+        return merged;
+    }
+}
@@ -11,4 +11,6 @@ public class CreateSightingDto {
     private String birdName;
     private String location;
     private LocalDateTime dateTime;
+    private Double latitude;
+    private Double longitude;
 }
@@ -0,0 +1,74 @@
+package com.spirent.birdapp.sighting;
+
+import java.util.Optional;
+
+/**
+ * A latitude/longitude rectangle in degrees. A box with {@code minLongitude > maxLongitude} crosses the
+ * antimeridian.
+ */
+public record GeoBox(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+    /**
+     * Mean earth radius in meters, used for all distances.
+     */
+    public static final double EARTH_RADIUS = 6_371_008.8;
+
+    /**
+     * Returns the box, or empty if a coordinate is out of range or the latitudes are reversed.
+     */
+    public static Optional<GeoBox> of(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+        if (!isValid(minLatitude, minLongitude) || !isValid(maxLatitude, maxLongitude) || minLatitude > maxLatitude) {
+            return Optional.empty();
+        }
+        return Optional.of(new GeoBox(minLatitude, minLongitude, maxLatitude, maxLongitude));
+    }
+
+    /**
+     * Returns the smallest box containing the circle of {@code radius} meters around the point, or empty if the
+     * point is out of range or the radius is not positive. Circles reaching a pole cover all longitudes.
+     */
+    public static Optional<GeoBox> around(double latitude, double longitude, double radius) {
+        if (!isValid(latitude, longitude) || !(radius > 0)) {
+            return Optional.empty();
+        }
+        double angle = radius / EARTH_RADIUS;
+        double minLatitude = latitude - Math.toDegrees(angle);
+        double maxLatitude = latitude + Math.toDegrees(angle);
+        double sinLongitude = Math.sin(Math.min(angle, Math.PI / 2)) / Math.cos(Math.toRadians(latitude));
+        if (minLatitude <= -90 || maxLatitude >= 90 || sinLongitude >= 1) {
+            return Optional.of(new GeoBox(Math.max(minLatitude, -90), -180, Math.min(maxLatitude, 90), 180));
+        }
+        double longitudeDelta = Math.toDegrees(Math.asin(sinLongitude));
+        double minLongitude = longitude - longitudeDelta;
+        double maxLongitude = longitude + longitudeDelta;
+        return Optional.of(new GeoBox(minLatitude, minLongitude < -180 ? minLongitude + 360 : minLongitude,
+                maxLatitude, maxLongitude > 180 ? maxLongitude - 360 : maxLongitude));
+    }
+
+    public static boolean isValid(double latitude, double longitude) {
+        return latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180;
+    }
+
+    /**
+     * Great-circle distance in meters (haversine formula).
+     */
+    public static double distance(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double latitudeDelta = Math.toRadians(latitude2 - latitude1);
+        double longitudeDelta = Math.toRadians(longitude2 - longitude1);
+        double a = Math.pow(Math.sin(latitudeDelta / 2), 2) + Math.cos(Math.toRadians(latitude1))
+                * Math.cos(Math.toRadians(latitude2)) * Math.pow(Math.sin(longitudeDelta / 2), 2);
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    public boolean crossesAntimeridian() {
+        return minLongitude > maxLongitude;
+    }
+
+    public boolean contains(double latitude, double longitude) {
+        if (latitude < minLatitude || latitude > maxLatitude) {
+            return false;
+        }
+        return crossesAntimeridian()
+                ? longitude >= minLongitude || longitude <= maxLongitude
+                : longitude >= minLongitude && longitude <= maxLongitude;
+    }
+}
@@ -0,0 +1,137 @@
+package com.spirent.birdapp.sighting;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Geohashes of sighting coordinates. A geohash interleaves the bits of the longitude and latitude cells of a point,
+ * so points that are close to each other share a prefix, and the cells under a prefix are one contiguous range of
+ * the 'sighting.geohash' index. This stands in for a SPATIAL index, which MySQL does not support on partitioned
+ * tables.
+ */
+public final class Geohash {
+    /**
+     * Length of the stored geohashes, cells of about 4 x 2 cm.
+     */
+    public static final int PRECISION = 12;
+    /**
+     * Most cells a query area is covered with. Finer cells read fewer rows outside the area but need more ranges.
+     */
+    static final int MAX_CELLS = 16;
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    /**
+     * Inclusive range of stored geohashes.
+     */
+    public record Range(String from, String to) {
+    }
+
+    private Geohash() {
+    }
+
+    public static String encode(double latitude, double longitude) {
+        return encode(latitude, longitude, PRECISION);
+    }
+
+    static String encode(double latitude, double longitude, int precision) {
+        return toBase32(interleave(latitudeCell(latitude, precision), longitudeCell(longitude, precision), precision),
+                precision, precision);
+    }
+
+    /**
+     * Returns the sorted, disjoint geohash ranges covering the box. The cells are the finest ones of which at most
+     * {@link #MAX_CELLS} cover the box, and cells that follow each other in geohash order are merged into one range.
+     */
+    public static List<Range> cover(GeoBox box) {
+        int precision = 1;
+        while (precision < PRECISION && cellCount(box, precision + 1) <= MAX_CELLS) {
+            precision++;
+        }
+
+        var cells = new ArrayList<Long>();
+        long minLatitudeCell = latitudeCell(box.minLatitude(), precision);
+        long maxLatitudeCell = latitudeCell(box.maxLatitude(), precision);
+        for (var longitudes : longitudeCells(box, precision)) {
+            for (long longitudeCell = longitudes[0]; longitudeCell <= longitudes[1]; longitudeCell++) {
+                for (long latitudeCell = minLatitudeCell; latitudeCell <= maxLatitudeCell; latitudeCell++) {
+                    cells.add(interleave(latitudeCell, longitudeCell, precision));
+                }
+            }
+        }
+        cells.sort(null);
+
+        var ranges = new ArrayList<Range>();
+        for (int first = 0, last = 0; first < cells.size(); first = ++last) {
+            while (last + 1 < cells.size() && cells.get(last + 1) == cells.get(last) + 1) {
+                last++;
+            }
+            ranges.add(new Range(toBase32(cells.get(first), precision, precision),
+                    toBase32(cells.get(last), precision, PRECISION)));
+        }
+        return ranges;
+    }
+
+    private static long cellCount(GeoBox box, int precision) {
+        long latitudeCells = latitudeCell(box.maxLatitude(), precision) - latitudeCell(box.minLatitude(), precision) + 1;
+        long longitudeCells = 0;
+        for (var longitudes : longitudeCells(box, precision)) {
+            longitudeCells += longitudes[1] - longitudes[0] + 1;
+        }
+        return latitudeCells * longitudeCells;
+    }
+
+    private static List<long[]> longitudeCells(GeoBox box, int precision) {
+        long minCell = longitudeCell(box.minLongitude(), precision);
+        long maxCell = longitudeCell(box.maxLongitude(), precision);
+        if (!box.crossesAntimeridian()) {
+            return List.of(new long[]{minCell, maxCell});
+        }
+        return List.of(new long[]{0, maxCell}, new long[]{minCell, (1L << longitudeBits(precision)) - 1});
+    }
+
+    private static long latitudeCell(double latitude, int precision) {
+        return cell(latitude + 90, 180, latitudeBits(precision));
+    }
+
+    private static long longitudeCell(double longitude, int precision) {
+        return cell(longitude + 180, 360, longitudeBits(precision));
+    }
+
+    private static long cell(double offset, double span, int bits) {
+        long cells = 1L << bits;
+        return Math.max(0, Math.min(cells - 1, (long) Math.floor(offset / span * cells)));
+    }
+
+    // the first bit of a geohash is a longitude bit, so longitudes get the extra bit of odd bit counts
+    private static int longitudeBits(int precision) {
+        return (5 * precision + 1) / 2;
+    }
+
+    private static int latitudeBits(int precision) {
+        return 5 * precision / 2;
+    }
+
+    private static long interleave(long latitudeCell, long longitudeCell, int precision) {
+        int latitudeBits = latitudeBits(precision);
+        int longitudeBits = longitudeBits(precision);
+        long value = 0;
+        for (int bit = 0; bit < 5 * precision; bit++) {
+            long source = bit % 2 == 0
+                    ? longitudeCell >>> (longitudeBits - 1 - bit / 2)
+                    : latitudeCell >>> (latitudeBits - 1 - bit / 2);
+            value = value << 1 | (source & 1);
+        }
+        return value;
+    }
+
+    /**
+     * Writes the {@code precision} characters of the value, padded with the last character to {@code length}.
+     */
+    private static String toBase32(long value, int precision, int length) {
+        var hash = new char[length];
+        for (int i = 0; i < length; i++) {
+            hash[i] = i < precision ? BASE32[(int) (value >>> 5 * (precision - 1 - i)) & 31] : BASE32[31];
+        }
+        return new String(hash);
+    }
+}
@@ -1,37 +1,117 @@
 package com.spirent.birdapp.sighting;
 
 import com.spirent.birdapp.bird.Bird;
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.Column;
+import jakarta.persistence.ConstraintMode;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
+import jakarta.persistence.ForeignKey;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import java.time.LocalDateTime;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.UpdateTimestamp;
 
 @Entity
-@Table(name = "sighting")
+@Table(name = "sighting", indexes = {
+        @Index(name = "idx_sighting_location_date_time", columnList = "location, date_time"),
+        @Index(name = "idx_sighting_date_time_bird", columnList = "date_time, bird_id"),
+        @Index(name = "idx_sighting_bird", columnList = "bird_id"),
+        @Index(name = "idx_sighting_geohash", columnList = "geohash")
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @Setter
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class Sighting {
+    /**
+     * Number of ids reserved per round-trip to the 'sighting_seq' table.
+     */
+    public static final int ID_ALLOCATION_SIZE = 50;
+    /**
+     * Characters of 'sighting.location'.
+     */
+    public static final int MAX_LOCATION_LENGTH = 255;
+
+    /**
+     * Ids are handed out in blocks by a pooled generator instead of IDENTITY, which lets Hibernate batch
+     * sighting inserts. MySQL has no sequences, so 'sighting_seq' is backed by a single-row table.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sighting_seq")
+    @SequenceGenerator(name = "sighting_seq", sequenceName = "sighting_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
+    @Column(length = MAX_LOCATION_LENGTH)
     private String location;
     private LocalDateTime dateTime;
+    private Double latitude;
+    private Double longitude;
+
+    /**
+     * Derived from the coordinates on every write, see {@link Geohash}. {@code null} for sightings without
+     * coordinates.
+     */
+    @Column(length = Geohash.PRECISION)
+    private String geohash;
+
+    /**
+     * Incremented on every update through JPA, which fails if the row was changed since it was read.
+     */
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+    @UpdateTimestamp
+    @ColumnDefault("CURRENT_TIMESTAMP(6)")
+    private LocalDateTime updatedAt;
 
+    /**
+     * No foreign key: 'sighting' is partitioned by month, and MySQL does not support foreign keys on
+     * partitioned tables.
+     */
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "bird_id", nullable = false)
+    @JoinColumn(name = "bird_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Bird bird;
+
+    @PrePersist
+    @PreUpdate
+    void updateGeohash() {
+        geohash = latitude == null || longitude == null ? null : Geohash.encode(latitude, longitude);
+    }
+
+    /**
+     * Coordinates are optional, but have to be given together and be in range.
+     */
+    public static boolean isValidLocation(Double latitude, Double longitude) {
+        return latitude == null ? longitude == null : longitude != null && GeoBox.isValid(latitude, longitude);
+    }
+
+    /**
+     * Tells if the value fits a VARCHAR column of the given length, which counts characters rather than UTF-16 units.
+     * A missing value fits.
+     */
+    public static boolean fits(String value, int length) {
+        return value == null || value.codePointCount(0, value.length()) <= length;
+    }
 }
 
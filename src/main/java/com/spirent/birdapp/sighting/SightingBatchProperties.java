@@ -0,0 +1,13 @@
+package com.spirent.birdapp.sighting;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "bird-app.sighting-batch")
+public class SightingBatchProperties {
+    /**
+     * Number of sightings inserted per transaction by {@link SightingBatchService}.
+     */
+    private int chunkSize = 500;
+}
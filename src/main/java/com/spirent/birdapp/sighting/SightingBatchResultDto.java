@@ -0,0 +1,21 @@
+package com.spirent.birdapp.sighting;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class SightingBatchResultDto {
+    /**
+     * Position of the sighting in the uploaded batch, starting at 0.
+     */
+    private int index;
+    private Status status;
+    private Long sightingId;
+    private String error;
+
+    public enum Status {
+        CREATED,
+        FAILED
+    }
+}
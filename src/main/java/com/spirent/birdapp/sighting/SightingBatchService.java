@@ -0,0 +1,198 @@
+package com.spirent.birdapp.sighting;
+
+import com.spirent.birdapp.analytics.SightingAnalyticsService;
+import com.spirent.birdapp.bird.Bird;
+import com.spirent.birdapp.bird.BirdCache;
+import com.spirent.birdapp.bird.BirdRepository;
+import com.spirent.birdapp.change.ChangeEventDto;
+import com.spirent.birdapp.change.ChangeEvents;
+import com.spirent.birdapp.etag.TableVersions;
+import com.spirent.birdapp.search.SearchService;
+import io.micrometer.core.annotation.Timed;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Inserts uploaded sightings in chunks of {@link SightingBatchProperties#getChunkSize()}, one transaction per chunk.
+ * The birds of a chunk are resolved with two queries, and the sightings themselves go out as JDBC batches.
+ * A failing chunk is rolled back on its own and reported per item, without affecting the other chunks. The cause is
+ * only logged, so that no SQL or driver message reaches the client.
+ */
+@Slf4j
+@Service
+@Timed("birdapp.service")
+@AllArgsConstructor
+public class SightingBatchService {
+    private final SightingRepository sightingRepository;
+    private final BirdRepository birdRepository;
+    private final BirdCache birdCache;
+    private final SightingStatsService sightingStatsService;
+    private final TransactionTemplate transactionTemplate;
+    private final SightingBatchProperties properties;
+    private final SearchService searchService;
+    private final TableVersions tableVersions;
+    private final SightingAnalyticsService sightingAnalyticsService;
+    private final ChangeEvents changeEvents;
+
+    public List<SightingBatchResultDto> addSightings(Iterator<CreateSightingDto> sightings) {
+        var results = new ArrayList<SightingBatchResultDto>();
+        var chunk = new ArrayList<CreateSightingDto>(properties.getChunkSize());
+        while (sightings.hasNext()) {
+            chunk.add(sightings.next());
+            if (chunk.size() == properties.getChunkSize()) {
+                results.addAll(addChunk(chunk, results.size()));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            results.addAll(addChunk(chunk, results.size()));
+        }
+        return results;
+    }
+
+    private List<SightingBatchResultDto> addChunk(List<CreateSightingDto> chunk, int firstIndex) {
+        try {
+            var birds = resolveBirds(chunk);
+            return transactionTemplate.execute(status -> insertChunk(chunk, birds, firstIndex));
+        } catch (RuntimeException e) {
+            log.warn("Saving the sightings {} to {} of a batch failed", firstIndex, firstIndex + chunk.size() - 1, e);
+            var results = new ArrayList<SightingBatchResultDto>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                results.add(failed(firstIndex + i, "Batch could not be saved"));
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Inserts one chunk in the current transaction. Sightings without a bird, location or date, with a location or
+     * bird name longer than its column, or with invalid coordinates, are reported as failed and skipped, any other
+     * error is thrown.
+     *
+     * @param birds      the result of {@link #resolveBirds(List)} for the chunk
+     * @param firstIndex index of the first sighting of the chunk in the whole upload
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<SightingBatchResultDto> insertChunk(List<CreateSightingDto> chunk, List<Bird> birds, int firstIndex) {
+        var results = new ArrayList<SightingBatchResultDto>(chunk.size());
+        var sightings = new ArrayList<Sighting>(chunk.size());
+        var sightingIndexes = new ArrayList<Integer>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            var sightingDto = chunk.get(i);
+            var bird = birds.get(i);
+            if (bird == null && !Sighting.fits(sightingDto.getBirdName(), Bird.MAX_NAME_LENGTH)) {
+                results.add(failed(firstIndex + i,
+                        "birdName can have at most " + Bird.MAX_NAME_LENGTH + " characters"));
+            } else if (bird == null) {
+                results.add(failed(firstIndex + i, "Either an existing birdId or a birdName is required"));
+            } else if (sightingDto.getLocation() == null || sightingDto.getDateTime() == null) {
+                results.add(failed(firstIndex + i, "location and dateTime are required"));
+            } else if (!Sighting.fits(sightingDto.getLocation(), Sighting.MAX_LOCATION_LENGTH)) {
+                results.add(failed(firstIndex + i,
+                        "location can have at most " + Sighting.MAX_LOCATION_LENGTH + " characters"));
+            } else if (!Sighting.isValidLocation(sightingDto.getLatitude(), sightingDto.getLongitude())) {
+                results.add(failed(firstIndex + i, "latitude and longitude have to be given together and be in range"));
+            } else {
+                sightings.add(Sighting.builder()
+                        .bird(bird)
+                        .location(sightingDto.getLocation())
+                        .dateTime(sightingDto.getDateTime())
+                        .latitude(sightingDto.getLatitude())
+                        .longitude(sightingDto.getLongitude())
+                        .build());
+                sightingIndexes.add(firstIndex + i);
+                results.add(null);
+            }
+        }
+
+        var savedSightings = sightingRepository.saveAll(sightings);
+        sightingStatsService.recordAdded(savedSightings);
+        if (!savedSightings.isEmpty()) {
+            tableVersions.bump(TableVersions.SIGHTING);
+        }
+        searchService.indexLocations(savedSightings.stream().map(Sighting::getLocation).collect(toSet()));
+        sightingAnalyticsService.sightingsSaved(savedSightings);
+        changeEvents.recordAll(ChangeEventDto.Entity.SIGHTING, ChangeEventDto.Operation.CREATED,
+                savedSightings.stream().map(SightingBatchService::toDto).toList(), SightingDto::getId);
+        for (int i = 0; i < savedSightings.size(); i++) {
+            int index = sightingIndexes.get(i);
+            results.set(index - firstIndex, SightingBatchResultDto.builder()
+                    .index(index)
+                    .status(SightingBatchResultDto.Status.CREATED)
+                    .sightingId(savedSightings.get(i).getId())
+                    .build());
+        }
+        return results;
+    }
+
+    /**
+     * Returns the bird of every sighting of the chunk, in chunk order, looked up by id first and then by name.
+     * Birds that are only known by name are created, once per distinct name. Unresolvable birds, including those
+     * with a name longer than its column, are {@code null}.
+     * Must be called outside a transaction, like {@link BirdCache#findOrCreateByName(String)}.
+     */
+    public List<Bird> resolveBirds(List<CreateSightingDto> chunk) {
+        var birdIds = chunk.stream()
+                .map(CreateSightingDto::getBirdId)
+                .filter(Objects::nonNull)
+                .collect(toSet());
+        var birdsById = birdRepository.findAllById(birdIds).stream()
+                .collect(toMap(Bird::getId, Function.identity()));
+
+        var birdNames = chunk.stream()
+                .filter(sighting -> !birdsById.containsKey(sighting.getBirdId()))
+                .map(CreateSightingDto::getBirdName)
+                .filter(Objects::nonNull)
+                .filter(name -> Sighting.fits(name, Bird.MAX_NAME_LENGTH))
+                .collect(toSet());
+        var birdsByName = new HashMap<String, Bird>();
+        if (!birdNames.isEmpty()) {
+            birdRepository.findByNameIn(birdNames).forEach(bird -> birdsByName.putIfAbsent(bird.getName(), bird));
+            birdNames.stream()
+                    .filter(name -> !birdsByName.containsKey(name))
+                    .forEach(name -> birdsByName.put(name, birdCache.findOrCreateByName(name)));
+        }
+
+        var birds = new ArrayList<Bird>(chunk.size());
+        for (var sighting : chunk) {
+            var bird = birdsById.get(sighting.getBirdId());
+            if (bird == null && sighting.getBirdName() != null) {
+                bird = birdsByName.get(sighting.getBirdName());
+            }
+            birds.add(bird);
+        }
+        return birds;
+    }
+
+    private static SightingDto toDto(Sighting sighting) {
+        return SightingDto.builder()
+                .id(sighting.getId())
+                .birdName(sighting.getBird().getName())
+                .location(sighting.getLocation())
+                .dateTime(sighting.getDateTime())
+                .latitude(sighting.getLatitude())
+                .longitude(sighting.getLongitude())
+                .build();
+    }
+
+    private static SightingBatchResultDto failed(int index, String error) {
+        return SightingBatchResultDto.builder()
+                .index(index)
+                .status(SightingBatchResultDto.Status.FAILED)
+                .error(error)
+                .build();
+    }
+}
@@ -0,0 +1,192 @@
+package com.spirent.birdapp.sighting;
+
+import com.spirent.birdapp.analytics.SightingAnalyticsService;
+import com.spirent.birdapp.bird.Bird;
+import com.spirent.birdapp.bulk.BulkColumn;
+import com.spirent.birdapp.bulk.BulkFormat;
+import com.spirent.birdapp.bulk.BulkImportResultDto;
+import com.spirent.birdapp.bulk.RowReader;
+import com.spirent.birdapp.change.ChangeEventDto;
+import com.spirent.birdapp.change.ChangeEvents;
+import com.spirent.birdapp.etag.TableVersions;
+import com.spirent.birdapp.search.SearchService;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import org.hibernate.Cache;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static com.spirent.birdapp.bulk.BulkColumn.Type.DATETIME;
+import static com.spirent.birdapp.bulk.BulkColumn.Type.DOUBLE;
+import static com.spirent.birdapp.bulk.BulkColumn.Type.LONG;
+import static com.spirent.birdapp.bulk.BulkColumn.Type.STRING;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Imports and exports the sighting table as CSV or columnar files with plain JDBC, bypassing the persistence
+ * context. Exports read from a streaming cursor and imports insert chunk by chunk, keeping the statistics rollup
+ * up to date in the same transaction.
+ */
+@Service
+@Timed("birdapp.service")
+@AllArgsConstructor
+public class SightingBulkService {
+    static final List<BulkColumn> COLUMNS = List.of(
+            new BulkColumn("id", LONG),
+            new BulkColumn("birdId", LONG),
+            new BulkColumn("location", STRING),
+            new BulkColumn("dateTime", DATETIME),
+            new BulkColumn("latitude", DOUBLE),
+            new BulkColumn("longitude", DOUBLE));
+    static final int CHUNK_SIZE = 1000;
+    private static final String SELECT_ALL = "SELECT id, bird_id, location, date_time, latitude, longitude FROM sighting ORDER BY id";
+    private static final String INSERT = "INSERT INTO sighting (id, bird_id, location, date_time, latitude, longitude, geohash) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_BIRD_NAMES = "SELECT id, name FROM bird WHERE id IN (:ids)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SightingIdAllocator sightingIdAllocator;
+    private final SightingStatsService sightingStatsService;
+    private final EntityManagerFactory entityManagerFactory;
+    private final SearchService searchService;
+    private final TableVersions tableVersions;
+    private final SightingAnalyticsService sightingAnalyticsService;
+    private final ChangeEvents changeEvents;
+
+    /**
+     * Writes every sighting to the stream. A fetch size of {@link Integer#MIN_VALUE} makes the MySQL driver stream
+     * the result set row by row instead of buffering it.
+     */
+    public void exportSightings(BulkFormat format, OutputStream outputStream) throws IOException {
+        try (var writer = format.writer(outputStream, COLUMNS)) {
+            jdbcTemplate.query(connection -> {
+                var statement = connection.prepareStatement(SELECT_ALL);
+                statement.setFetchSize(Integer.MIN_VALUE);
+                return statement;
+            }, resultSet -> {
+                try {
+                    writer.write(new Object[]{
+                            resultSet.getLong(1),
+                            resultSet.getLong(2),
+                            resultSet.getString(3),
+                            resultSet.getObject(4, LocalDateTime.class),
+                            resultSet.getObject(5, Double.class),
+                            resultSet.getObject(6, Double.class)});
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Inserts the sightings of the stream in chunks of {@link #CHUNK_SIZE}, one transaction and one JDBC batch per
+     * chunk. Ids in the file are ignored and new ones are reserved per chunk. Rows without a location or date, with a
+     * location longer than its column, with invalid coordinates or with an unknown bird, are rejected. Files without
+     * the coordinate columns are accepted.
+     */
+    public BulkImportResultDto importSightings(BulkFormat format, InputStream inputStream) throws IOException {
+        long imported = 0;
+        long rejected = 0;
+        try (RowReader reader = format.reader(inputStream, COLUMNS)) {
+            var chunk = new ArrayList<Object[]>(CHUNK_SIZE);
+            Object[] row;
+            while ((row = reader.read()) != null) {
+                if (row[1] == null || row[2] == null || row[3] == null
+                        || !Sighting.fits((String) row[2], Sighting.MAX_LOCATION_LENGTH)
+                        || !Sighting.isValidLocation((Double) row[4], (Double) row[5])) {
+                    rejected++;
+                    continue;
+                }
+                chunk.add(row);
+                if (chunk.size() == CHUNK_SIZE) {
+                    int inserted = insertChunk(chunk);
+                    imported += inserted;
+                    rejected += chunk.size() - inserted;
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                int inserted = insertChunk(chunk);
+                imported += inserted;
+                rejected += chunk.size() - inserted;
+            }
+        } finally {
+            // the cached Bird.sightings collections do not know about the new rows
+            entityManagerFactory.getCache().unwrap(Cache.class)
+                    .evictCollectionData(Bird.class.getName() + ".sightings");
+        }
+        return BulkImportResultDto.builder()
+                .imported(imported)
+                .rejected(rejected)
+                .build();
+    }
+
+    private int insertChunk(List<Object[]> chunk) {
+        var birdIds = chunk.stream().map(row -> row[1]).collect(toSet());
+        var birdNames = new HashMap<Long, String>();
+        namedParameterJdbcTemplate.query(SELECT_BIRD_NAMES, new MapSqlParameterSource("ids", birdIds), bird -> {
+            birdNames.put(bird.getLong(1), bird.getString(2));
+        });
+        var rows = chunk.stream()
+                .filter(row -> birdNames.containsKey((Long) row[1]))
+                .toList();
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        long nextId = sightingIdAllocator.allocate(rows.size());
+        var parameters = new ArrayList<Object[]>(rows.size());
+        var sightings = new ArrayList<Sighting>(rows.size());
+        for (var row : rows) {
+            var id = nextId++;
+            var dateTime = (LocalDateTime) row[3];
+            var geohash = row[4] == null ? null : Geohash.encode((Double) row[4], (Double) row[5]);
+            parameters.add(new Object[]{id, row[1], row[2], Timestamp.valueOf(dateTime), row[4], row[5], geohash});
+            sightings.add(Sighting.builder()
+                    .id(id)
+                    .bird(Bird.builder().id((Long) row[1]).name(birdNames.get((Long) row[1])).build())
+                    .location((String) row[2])
+                    .dateTime(dateTime)
+                    .latitude((Double) row[4])
+                    .longitude((Double) row[5])
+                    .build());
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT, parameters);
+            sightingStatsService.recordAdded(sightings);
+            tableVersions.bump(TableVersions.SIGHTING);
+            searchService.indexLocations(sightings.stream().map(Sighting::getLocation).collect(toSet()));
+            sightingAnalyticsService.sightingsSaved(sightings);
+            changeEvents.recordAll(ChangeEventDto.Entity.SIGHTING, ChangeEventDto.Operation.CREATED,
+                    sightings.stream().map(SightingBulkService::toDto).toList(), SightingDto::getId);
+        });
+        return rows.size();
+    }
+
+    private static SightingDto toDto(Sighting sighting) {
+        return SightingDto.builder()
+                .id(sighting.getId())
+                .birdName(sighting.getBird().getName())
+                .location(sighting.getLocation())
+                .dateTime(sighting.getDateTime())
+                .latitude(sighting.getLatitude())
+                .longitude(sighting.getLongitude())
+                .build();
+    }
+}
@@ -1,44 +1,297 @@
 package com.spirent.birdapp.sighting;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.spirent.birdapp.analytics.SightingAnalyticsDto;
+import com.spirent.birdapp.analytics.SightingAnalyticsService;
+import com.spirent.birdapp.bulk.BulkFormat;
+import com.spirent.birdapp.bulk.BulkImportResultDto;
+import com.spirent.birdapp.etag.TableVersions;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Optional;
 import lombok.AllArgsConstructor;
 import lombok.NonNull;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/sightings")
 @AllArgsConstructor
 public class SightingController {
+    /**
+     * Sightings are returned with the name of their bird, so renaming a bird changes them too.
+     */
+    private static final String[] TABLES = {TableVersions.BIRD, TableVersions.SIGHTING};
 
     private final SightingService sightingService;
+    private final SightingBatchService sightingBatchService;
+    private final SightingStatsService sightingStatsService;
+    private final SightingBulkService sightingBulkService;
+    private final Optional<SightingIngestionQueue> sightingIngestionQueue;
+    private final ObjectMapper objectMapper;
+    private final TableVersions tableVersions;
+    private final SightingAnalyticsService sightingAnalyticsService;
+    private final SightingSubscriptions sightingSubscriptions;
+    private final SightingSubscriptionProperties sightingSubscriptionProperties;
 
     @Operation(summary = "Get all sightings")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Found the sightings",
                     content = { @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = SightingDto.class, type = "array"))})})
+                            schema = @Schema(implementation = SightingDto.class, type = "array"))}),
+            @ApiResponse(responseCode = "304", description = "No sighting changed since the given ETag or date",
+                    content = @Content)})
     @GetMapping
-    public ResponseEntity<List<SightingDto>> getAllSightings() {
+    public ResponseEntity<List<SightingDto>> getAllSightings(WebRequest request) {
+        if (tableVersions.checkNotModified(request, TABLES)) {
+            return null;
+        }
         return ResponseEntity.ok().body(sightingService.getAllSightings());
     }
 
+    @Operation(summary = "Get one page of sightings, ordered by id")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Found the sightings",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = SightingPageDto.class))}),
+            @ApiResponse(responseCode = "304", description = "No sighting changed since the given ETag or date",
+                    content = @Content)})
+    @GetMapping("/page")
+    public SightingPageDto getSightingsPage(
+            @Parameter(description = "The nextCursor of the previous page, empty for the first page") @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "100") int size, WebRequest request) {
+        if (tableVersions.checkNotModified(request, TABLES)) {
+            return null;
+        }
+        return sightingService.getSightingsPage(cursor, size);
+    }
+
+    @Operation(summary = "Stream all sightings as newline-delimited JSON")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Streaming the sightings",
+                    content = { @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                            schema = @Schema(implementation = SightingDto.class))})})
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllSightings() {
+        StreamingResponseBody body = outputStream -> {
+            try (var writer = objectMapper.writer()
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                    .withRootValueSeparator("\n")
+                    .writeValues(outputStream)) {
+                sightingService.streamAllSightings(sighting -> write(writer, sighting));
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @Operation(summary = "Export all sightings as CSV or in the columnar format",
+            description = "The format is chosen by the Accept header and defaults to CSV")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Streaming the sightings",
+                    content = { @Content(mediaType = BulkFormat.CSV_VALUE),
+                            @Content(mediaType = BulkFormat.COLUMNAR_VALUE)})})
+    @GetMapping(value = "/export", produces = {BulkFormat.CSV_VALUE, BulkFormat.COLUMNAR_VALUE})
+    public ResponseEntity<StreamingResponseBody> exportSightings(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        var format = BulkFormat.fromMediaTypes(accept);
+        StreamingResponseBody body = outputStream -> sightingBulkService.exportSightings(format, outputStream);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(format.getMediaType())).body(body);
+    }
+
+    @Operation(summary = "Import sightings from CSV or the columnar format",
+            description = "The format is chosen by the Content-Type header. The columns are the ones of the export, ids are ignored")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Sightings imported",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = BulkImportResultDto.class))})})
+    @PostMapping(value = "/import", consumes = {BulkFormat.CSV_VALUE, BulkFormat.COLUMNAR_VALUE})
+    public BulkImportResultDto importSightings(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) throws IOException {
+        return sightingBulkService.importSightings(BulkFormat.fromMediaTypes(contentType), body);
+    }
+
+    @Operation(summary = "Get the number of sightings per bird, location and day",
+            description = "Served from a rollup that is updated with every sighting write. All filters are optional")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Found the statistics",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = SightingStatsDto.class, type = "array"))})})
+    @GetMapping("/stats")
+    public List<SightingStatsDto> getSightingStats(
+            @RequestParam(required = false) String birdName,
+            @RequestParam(required = false) String location,
+            @Parameter(description = "First day, inclusive") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Last day, inclusive") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return sightingStatsService.getStats(birdName, location, from, to);
+    }
+
+    @Operation(summary = "Rebuild the sighting statistics from all sightings",
+            description = "Returns the number of bird, location and day groups")
+    @PostMapping("/stats/rebuild")
+    public int rebuildSightingStats() {
+        return sightingStatsService.rebuild();
+    }
+
+    @Operation(summary = "Count sightings per bird or location",
+            description = "Scans an in-memory copy of the sightings, which follows the writes of this instance. "
+                    + "Returns the groups with the most sightings first. All filters are optional")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Counted the sightings",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = SightingAnalyticsDto.class))})})
+    @GetMapping("/analytics")
+    public SightingAnalyticsDto getSightingAnalytics(
+            @RequestParam(defaultValue = "BIRD") SightingAnalyticsDto.GroupBy groupBy,
+            @Parameter(description = "Inclusive") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Exclusive") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String birdName,
+            @RequestParam(required = false) String location,
+            @Parameter(description = "At most 1000 groups") @RequestParam(defaultValue = "10") int limit) {
+        return sightingAnalyticsService.analyze(groupBy, from, to, birdName, location, limit);
+    }
+
+    @Operation(summary = "Subscribe to new sightings as server-sent events",
+            description = "Every sighting created from now on that matches all given filters is sent as a 'sighting' "
+                    + "event, in commit order. A subscriber that falls too far behind gets an 'overflow' event and "
+                    + "the stream ends. There is no replay, a client that reconnects catches up with the GET endpoints")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Streaming the new sightings",
+                    content = { @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE,
+                            schema = @Schema(implementation = SightingDto.class))}),
+            @ApiResponse(responseCode = "503", description = "Too many subscribers",
+                    content = @Content)})
+    @GetMapping(value = "/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribeToSightings(
+            @RequestParam(required = false) String birdName,
+            @RequestParam(required = false) String location,
+            @Parameter(description = "Inclusive bound of the sighting time") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Exclusive bound of the sighting time") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        var subscriber = sightingSubscriptions.subscribe(birdName, location, from, to);
+        if (subscriber.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "10").build();
+        }
+        // no timeout, the stream lasts until the client goes away or falls behind
+        var emitter = new SseEmitter(-1L);
+        var sender = Thread.ofVirtual().name("sightings-subscriber").unstarted(() -> send(emitter, subscriber.get()));
+        emitter.onCompletion(() -> sightingSubscriptions.unsubscribe(subscriber.get()));
+        emitter.onError(e -> sightingSubscriptions.unsubscribe(subscriber.get()));
+        sender.start();
+        return ResponseEntity.ok()
+                .header("X-Accel-Buffering", "no")
+                .body(emitter);
+    }
+
+    private void send(SseEmitter emitter, SightingSubscriber subscriber) {
+        try {
+            while (true) {
+                var sightings = subscriber.take(sightingSubscriptionProperties.getBufferSize(),
+                        sightingSubscriptionProperties.getHeartbeat());
+                if (subscriber.isOverflowed()) {
+                    emitter.send(SseEmitter.event().name("overflow").data("Dropped for falling behind"));
+                    emitter.complete();
+                    return;
+                }
+                if (sightings.isEmpty()) {
+                    emitter.send(SseEmitter.event().comment("keep-alive"));
+                    continue;
+                }
+                // one write and flush for everything buffered
+                var batch = new LinkedHashSet<ResponseBodyEmitter.DataWithMediaType>();
+                for (var sighting : sightings) {
+                    batch.addAll(SseEmitter.event().name("sighting").data(sighting.json(), MediaType.APPLICATION_JSON).build());
+                }
+                emitter.send(batch);
+            }
+        } catch (IOException | IllegalStateException | InterruptedException e) {
+            // the client went away and the emitter is completed
+        } catch (RuntimeException e) {
+            emitter.completeWithError(e);
+        } finally {
+            sightingSubscriptions.unsubscribe(subscriber);
+        }
+    }
+
+    @Operation(summary = "Get sightings within a radius of a point",
+            description = "Only sightings with coordinates are returned, in the order of the geohash index")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Found the sightings",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = SightingDto.class, type = "array"))}),
+            @ApiResponse(responseCode = "400", description = "Invalid coordinates or radius",
+                    content = @Content),
+            @ApiResponse(responseCode = "304", description = "No sighting changed since the given ETag or date",
+                    content = @Content)})
+    @GetMapping("/near")
+    public ResponseEntity<List<SightingDto>> getSightingsNear(
+            @Parameter(description = "Latitude in degrees") @RequestParam double lat,
+            @Parameter(description = "Longitude in degrees") @RequestParam double lon,
+            @Parameter(description = "Radius in meters") @RequestParam double radius, WebRequest request) {
+        if (tableVersions.checkNotModified(request, TABLES)) {
+            return null;
+        }
+        return sightingService.getSightingsNear(lat, lon, radius)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.BAD_REQUEST).build());
+    }
+
+    @Operation(summary = "Get sightings inside a bounding box",
+            description = "Only sightings with coordinates are returned, in the order of the geohash index. "
+                    + "A box with minLon greater than maxLon crosses the antimeridian")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Found the sightings",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = SightingDto.class, type = "array"))}),
+            @ApiResponse(responseCode = "400", description = "Invalid coordinates",
+                    content = @Content),
+            @ApiResponse(responseCode = "304", description = "No sighting changed since the given ETag or date",
+                    content = @Content)})
+    @GetMapping("/within")
+    public ResponseEntity<List<SightingDto>> getSightingsWithin(
+            @RequestParam double minLat, @RequestParam double minLon,
+            @RequestParam double maxLat, @RequestParam double maxLon, WebRequest request) {
+        if (tableVersions.checkNotModified(request, TABLES)) {
+            return null;
+        }
+        return sightingService.getSightingsWithin(minLat, minLon, maxLat, maxLon)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.BAD_REQUEST).build());
+    }
+
     @Operation(summary = "Get sightings by location")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Found the sightings",
                     content = { @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = SightingDto.class, type = "array"))})})
+                            schema = @Schema(implementation = SightingDto.class, type = "array"))}),
+            @ApiResponse(responseCode = "304", description = "No sighting changed since the given ETag or date",
+                    content = @Content)})
     @GetMapping("/location/{location}")
-    public List<SightingDto> getAllSightingsByLocation(@PathVariable String location) {
+    public List<SightingDto> getAllSightingsByLocation(@PathVariable String location, WebRequest request) {
+        if (tableVersions.checkNotModified(request, TABLES)) {
+            return null;
+        }
         return sightingService.getAllSightingsByLocation(location);
     }
 
@@ -46,9 +299,14 @@ public class SightingController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Found the sightings",
                     content = { @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = SightingDto.class, type = "array"))})})
+                            schema = @Schema(implementation = SightingDto.class, type = "array"))}),
+            @ApiResponse(responseCode = "304", description = "No sighting changed since the given ETag or date",
+                    content = @Content)})
     @GetMapping("/birdname/{birdName}")
-    public ResponseEntity<List<SightingDto>> getAllSightingsByBirdName(@PathVariable String birdName) {
+    public ResponseEntity<List<SightingDto>> getAllSightingsByBirdName(@PathVariable String birdName, WebRequest request) {
+        if (tableVersions.checkNotModified(request, TABLES)) {
+            return null;
+        }
         return ResponseEntity.ok().body(sightingService.getAllSightingsByBirdName(birdName));
     }
 
@@ -56,30 +314,71 @@ public class SightingController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Found the sightings",
                     content = { @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = SightingDto.class, type = "array"))})})
+                            schema = @Schema(implementation = SightingDto.class, type = "array"))}),
+            @ApiResponse(responseCode = "304", description = "No sighting changed since the given ETag or date",
+                    content = @Content)})
     @GetMapping("/datetime/{startDateTime}/{endDateTime}")
     public List<SightingDto> getAllSightingsByDateTimeBetween(
             @PathVariable @DateTimeFormat(pattern = "yyy-MM-dd") LocalDateTime startDateTime,
-            @PathVariable @DateTimeFormat(pattern = "yyy-MM-dd") LocalDateTime endDateTime) {
+            @PathVariable @DateTimeFormat(pattern = "yyy-MM-dd") LocalDateTime endDateTime, WebRequest request) {
+        if (tableVersions.checkNotModified(request, TABLES)) {
+            return null;
+        }
         return sightingService.getAllSightingsByDateTimeBetween(startDateTime, endDateTime);
     }
 
-    @Operation(summary = "Add a new sighting")
+    @Operation(summary = "Add a new sighting",
+            description = "With 'bird-app.sighting-ingestion.mode: queued' the sighting is stored in the background "
+                    + "and the request is answered with 202 as soon as it is durable, without returning the resource")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Sighting added",
                     content = { @Content(mediaType = "application/json",
                             schema = @Schema(implementation = SightingDto.class))}),
+            @ApiResponse(responseCode = "202", description = "Sighting accepted for storing",
+                    content = @Content),
             @ApiResponse(responseCode = "400", description = "Invalid input",
+                    content = @Content),
+            @ApiResponse(responseCode = "503", description = "Too many sightings waiting to be stored",
                     content = @Content)})
     @PostMapping
     public ResponseEntity<?> addSighting(
             @RequestBody CreateSightingDto sighting,
-            @Parameter(description = "Specifies if the updated resource should be returned") @RequestParam Boolean returnResource) {
+            @Parameter(description = "Specifies if the updated resource should be returned") @RequestParam Boolean returnResource) throws IOException {
+        if (sightingIngestionQueue.isPresent()) {
+            return switch (sightingIngestionQueue.get().enqueue(sighting)) {
+                case ACCEPTED -> ResponseEntity.accepted().build();
+                case INVALID -> ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+                case QUEUE_FULL -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+            };
+        }
         return sightingService.addSighting(sighting)
                 .map(savedSighting -> returnResource ? ResponseEntity.ok(savedSighting) : ResponseEntity.ok().build())
                 .orElseGet(() -> ResponseEntity.status(HttpStatus.BAD_REQUEST).build());
     }
 
+    @Operation(summary = "Add a batch of sightings sent as a JSON array")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed, see the result of every sighting",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = SightingBatchResultDto.class, type = "array"))})})
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<SightingBatchResultDto> addSightings(@RequestBody List<CreateSightingDto> sightings) {
+        return sightingBatchService.addSightings(sightings.iterator());
+    }
+
+    @Operation(summary = "Add a batch of sightings sent as newline-delimited JSON",
+            description = "The body is parsed while it is being inserted, so arbitrarily large uploads are supported")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed, see the result of every sighting",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = SightingBatchResultDto.class, type = "array"))})})
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public List<SightingBatchResultDto> addSightingStream(InputStream body) throws IOException {
+        try (MappingIterator<CreateSightingDto> sightings = objectMapper.readerFor(CreateSightingDto.class).readValues(body)) {
+            return sightingBatchService.addSightings(sightings);
+        }
+    }
+
     @Operation(summary = "Update a sighting")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Sighting updated",
@@ -108,4 +407,12 @@ public class SightingController {
                 .map(sighting -> ResponseEntity.noContent().build())
                 .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
     }
+
+    private static void write(SequenceWriter writer, SightingDto sighting) {
+        try {
+            writer.write(sighting);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
@@ -1,16 +1,20 @@
 package com.spirent.birdapp.sighting;
 
 import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NonNull;
 
 @Data
 @Builder
+@AllArgsConstructor
 public class SightingDto {
     private Long id;
     @NonNull
     private String birdName;
     private String location;
     private LocalDateTime dateTime;
+    private Double latitude;
+    private Double longitude;
 }
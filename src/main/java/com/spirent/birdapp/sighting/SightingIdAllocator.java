@@ -0,0 +1,44 @@
+package com.spirent.birdapp.sighting;
+
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reserves sighting ids for inserts that bypass Hibernate, from the same 'sighting_seq' table as the pooled
+ * generator of {@link Sighting#getId()}. Blocks are multiples of {@link Sighting#ID_ALLOCATION_SIZE}, so both
+ * hand out disjoint ranges.
+ */
+@Component
+@AllArgsConstructor
+public class SightingIdAllocator {
+    private static final String INCREMENT = "UPDATE sighting_seq SET next_val = LAST_INSERT_ID(next_val) + ?";
+    private static final String LAST_VALUE = "SELECT LAST_INSERT_ID()";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Must be called outside a transaction, so the increment is committed at once and does not serialize
+     * concurrent writers on the sequence row.
+     *
+     * @return the first of at least {@code count} consecutive ids
+     */
+    public long allocate(int count) {
+        int blocks = Math.max(1, (count + Sighting.ID_ALLOCATION_SIZE - 1) / Sighting.ID_ALLOCATION_SIZE);
+        // LAST_INSERT_ID() is per connection, so both statements must run on the same one
+        Long previous = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try (var update = connection.prepareStatement(INCREMENT);
+                 var select = connection.createStatement()) {
+                update.setLong(1, (long) blocks * Sighting.ID_ALLOCATION_SIZE);
+                update.executeUpdate();
+                try (var resultSet = select.executeQuery(LAST_VALUE)) {
+                    resultSet.next();
+                    return resultSet.getLong(1);
+                }
+            }
+        });
+        // the pooled optimizer owns (value - allocationSize, value] for a read value, so the block starts after it
+        return previous - Sighting.ID_ALLOCATION_SIZE + 1;
+    }
+}
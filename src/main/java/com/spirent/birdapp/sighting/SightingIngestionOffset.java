@@ -0,0 +1,25 @@
+package com.spirent.birdapp.sighting;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Sequence number of the last {@link SightingWriteAheadLog} record stored in 'sighting'. It is written in the
+ * same transaction as the sightings, so records are never stored twice when the log is replayed.
+ */
+@Entity
+@Table(name = "sighting_ingestion_offset")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SightingIngestionOffset {
+    @Id
+    private String walId;
+    private long lastSequence;
+}
@@ -0,0 +1,8 @@
+package com.spirent.birdapp.sighting;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SightingIngestionOffsetRepository extends JpaRepository<SightingIngestionOffset, String> {
+}
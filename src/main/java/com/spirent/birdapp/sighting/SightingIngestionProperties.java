@@ -0,0 +1,45 @@
+package com.spirent.birdapp.sighting;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@Data
+@ConfigurationProperties(prefix = "bird-app.sighting-ingestion")
+public class SightingIngestionProperties {
+    private Mode mode = Mode.SYNC;
+    /**
+     * Directory of the {@link SightingWriteAheadLog}. Must be on a local disk that survives restarts.
+     */
+    private Path walDirectory = Path.of("sighting-wal");
+    private DataSize walSegmentSize = DataSize.ofMegabytes(64);
+    /**
+     * Number of accepted sightings not yet stored, above which POST /sightings answers 503.
+     */
+    private int queueCapacity = 10000;
+    /**
+     * Maximum number of sightings stored per transaction.
+     */
+    private int maxBatchSize = 500;
+    /**
+     * Pause before a batch that failed to be stored is retried.
+     */
+    private Duration retryBackoff = Duration.ofSeconds(1);
+    /**
+     * Time given to store the queued sightings on shutdown. The rest is stored after the next start.
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(30);
+
+    public enum Mode {
+        /**
+         * POST /sightings stores the sighting before answering 200.
+         */
+        SYNC,
+        /**
+         * POST /sightings writes the sighting to the write-ahead log and answers 202, a background thread stores it.
+         */
+        QUEUED
+    }
+}
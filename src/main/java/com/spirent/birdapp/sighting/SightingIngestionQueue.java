@@ -0,0 +1,248 @@
+package com.spirent.birdapp.sighting;
+
+import com.spirent.birdapp.bird.Bird;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Write-behind ingestion of single sightings. {@link #enqueue(CreateSightingDto)} appends the sighting to the
+ * {@link SightingWriteAheadLog}, waits for the fsync and hands it to a background thread, which stores queued
+ * sightings in batches of up to {@link SightingIngestionProperties#getMaxBatchSize()}, one transaction per batch.
+ * Every batch also advances the {@link SightingIngestionOffset} of the log, so that after a crash exactly the
+ * records that were acknowledged but not yet stored are replayed.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "bird-app.sighting-ingestion", name = "mode", havingValue = "QUEUED")
+public class SightingIngestionQueue {
+    private final SightingBatchService sightingBatchService;
+    private final SightingIngestionOffsetRepository offsetRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final SightingIngestionProperties properties;
+    private final BlockingQueue<Entry> queue;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Timer lag;
+    private final DistributionSummary batchSize;
+    private final MeterRegistry meterRegistry;
+    private SightingWriteAheadLog wal;
+    private Semaphore capacity;
+    private Thread batcher;
+    private volatile boolean running;
+
+    public enum Result {
+        ACCEPTED,
+        /**
+         * The sighting has no location, no date or neither a bird id nor a bird name, or a location or bird name
+         * longer than its column.
+         */
+        INVALID,
+        QUEUE_FULL
+    }
+
+    private record Entry(long sequence, CreateSightingDto sighting, long enqueuedAt) {
+    }
+
+    public SightingIngestionQueue(SightingBatchService sightingBatchService,
+            SightingIngestionOffsetRepository offsetRepository,
+            TransactionTemplate transactionTemplate,
+            SightingIngestionProperties properties,
+            MeterRegistry meterRegistry) {
+        this.sightingBatchService = sightingBatchService;
+        this.offsetRepository = offsetRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.lag = Timer.builder("birdapp.sighting.ingestion.lag")
+                .description("Time from accepting a sighting to storing it")
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("birdapp.sighting.ingestion.batch.size")
+                .description("Sightings stored per transaction")
+                .register(meterRegistry);
+        Gauge.builder("birdapp.sighting.ingestion.queue.depth", queue, BlockingQueue::size)
+                .description("Sightings accepted but not yet stored")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        wal = new SightingWriteAheadLog(properties.getWalDirectory(), properties.getWalSegmentSize().toBytes());
+        long committedSequence = offsetRepository.findById(wal.getId())
+                .map(SightingIngestionOffset::getLastSequence)
+                .orElse(0L);
+        var recovered = wal.recover(committedSequence);
+        if (!recovered.isEmpty()) {
+            log.info("Replaying {} sightings from the write-ahead log in {}", recovered.size(), properties.getWalDirectory());
+        }
+        // replayed sightings count against the capacity, which may start out negative
+        capacity = new Semaphore(properties.getQueueCapacity() - recovered.size());
+        running = true;
+        batcher = Thread.ofPlatform().name("sighting-ingestion").start(() -> run(recovered));
+    }
+
+    /**
+     * Returns {@link Result#ACCEPTED} once the sighting is durable in the write-ahead log.
+     */
+    public Result enqueue(CreateSightingDto sighting) throws IOException {
+        if (sighting.getLocation() == null || sighting.getDateTime() == null
+                || (sighting.getBirdId() == null && sighting.getBirdName() == null)
+                || !Sighting.isValidLocation(sighting.getLatitude(), sighting.getLongitude())
+                // the database would never accept these, and the write-ahead log only takes strings below 64 KB
+                || !Sighting.fits(sighting.getLocation(), Sighting.MAX_LOCATION_LENGTH)
+                || !Sighting.fits(sighting.getBirdName(), Bird.MAX_NAME_LENGTH)) {
+            return Result.INVALID;
+        }
+        if (!running || !capacity.tryAcquire()) {
+            return Result.QUEUE_FULL;
+        }
+        long sequence;
+        // the queue must be in sequence order, or a stored batch could move the offset past a queued sighting
+        appendLock.lock();
+        try {
+            sequence = wal.append(sighting);
+            queue.add(new Entry(sequence, sighting, System.nanoTime()));
+        } catch (IOException | RuntimeException e) {
+            capacity.release();
+            throw e;
+        } finally {
+            appendLock.unlock();
+        }
+        wal.sync(sequence);
+        return Result.ACCEPTED;
+    }
+
+    /**
+     * Stores what can be stored within {@link SightingIngestionProperties#getShutdownTimeout()}.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        running = false;
+        if (!batcher.join(properties.getShutdownTimeout())) {
+            log.warn("{} queued sightings are left in the write-ahead log for the next start", queue.size());
+            batcher.interrupt();
+            batcher.join();
+        }
+        wal.close();
+    }
+
+    private void run(List<SightingWriteAheadLog.Record> recovered) {
+        try {
+            var batch = new ArrayList<Entry>(properties.getMaxBatchSize());
+            for (var record : recovered) {
+                batch.add(new Entry(record.sequence(), record.sighting(), System.nanoTime()));
+                if (batch.size() == properties.getMaxBatchSize()) {
+                    store(batch);
+                }
+            }
+            store(batch);
+            while (running || !queue.isEmpty()) {
+                var first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, properties.getMaxBatchSize() - 1);
+                    store(batch);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stores and clears the batch. Sightings that cannot be stored at all, because their bird id is unknown and
+     * they have no bird name or because the database rejects them, are logged and dropped.
+     */
+    private void store(List<Entry> batch) throws InterruptedException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (!tryStore(batch)) {
+            // one sighting the database rejects fails every attempt of its batch, so each is stored on its own
+            for (var entry : batch) {
+                if (!tryStore(List.of(entry))) {
+                    drop(entry.sequence(), "rejected by the database");
+                    advanceOffset(entry.sequence());
+                }
+            }
+        }
+        long now = System.nanoTime();
+        batch.forEach(entry -> lag.record(now - entry.enqueuedAt(), TimeUnit.NANOSECONDS));
+        batchSize.record(batch.size());
+        try {
+            wal.truncate(batch.get(batch.size() - 1).sequence());
+        } catch (IOException e) {
+            log.warn("Could not delete stored write-ahead log segments", e);
+        }
+        capacity.release(batch.size());
+        batch.clear();
+    }
+
+    /**
+     * Stores the entries and advances the offset past them in one transaction, retrying until it succeeds.
+     *
+     * @return {@code false} if the database rejected the entries with a {@link DataIntegrityViolationException},
+     * which no retry fixes
+     */
+    private boolean tryStore(List<Entry> entries) throws InterruptedException {
+        var sightings = entries.stream().map(Entry::sighting).toList();
+        long lastSequence = entries.get(entries.size() - 1).sequence();
+        while (true) {
+            try {
+                var birds = sightingBatchService.resolveBirds(sightings);
+                var results = transactionTemplate.execute(status -> {
+                    var chunkResults = sightingBatchService.insertChunk(sightings, birds, 0);
+                    offsetRepository.save(new SightingIngestionOffset(wal.getId(), lastSequence));
+                    return chunkResults;
+                });
+                results.stream()
+                        .filter(result -> result.getStatus() == SightingBatchResultDto.Status.FAILED)
+                        .forEach(result -> drop(entries.get(result.getIndex()).sequence(), result.getError()));
+                return true;
+            } catch (DataIntegrityViolationException e) {
+                log.warn("The database rejected {} queued sightings", entries.size(), e);
+                return false;
+            } catch (RuntimeException e) {
+                log.warn("Storing {} queued sightings failed, retrying in {}", entries.size(), properties.getRetryBackoff(), e);
+                Thread.sleep(properties.getRetryBackoff());
+            }
+        }
+    }
+
+    /**
+     * Moves the offset past a dropped sighting, retrying until it succeeds.
+     */
+    private void advanceOffset(long sequence) throws InterruptedException {
+        while (true) {
+            try {
+                transactionTemplate.execute(status ->
+                        offsetRepository.save(new SightingIngestionOffset(wal.getId(), sequence)));
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Saving the ingestion offset failed, retrying in {}", properties.getRetryBackoff(), e);
+                Thread.sleep(properties.getRetryBackoff());
+            }
+        }
+    }
+
+    private void drop(long sequence, String error) {
+        meterRegistry.counter("birdapp.sighting.ingestion.dropped").increment();
+        log.warn("Dropping queued sighting {}: {}", sequence, error);
+    }
+}
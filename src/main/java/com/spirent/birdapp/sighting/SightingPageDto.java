@@ -0,0 +1,16 @@
+package com.spirent.birdapp.sighting;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class SightingPageDto {
+    private List<SightingDto> sightings;
+    /**
+     * Id of the last sighting in this page, to be passed back as the {@code cursor} of the next request.
+     * It is {@code null} once the last page has been reached.
+     */
+    private Long nextCursor;
+}
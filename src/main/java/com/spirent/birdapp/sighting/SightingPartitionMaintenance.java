@@ -0,0 +1,178 @@
+package com.spirent.birdapp.sighting;
+
+import com.spirent.birdapp.analytics.SightingAnalyticsService;
+import com.spirent.birdapp.etag.TableVersions;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps the monthly RANGE partitions of 'sighting' in shape: partitions for the next
+ * {@link SightingPartitionProperties#getMonthsAhead()} months are split off the 'p_future' catch-all before
+ * any row lands in them, and partitions older than {@link SightingPartitionProperties#getRetentionMonths()} are
+ * archived or dropped, together with their 'sighting_stats' groups. Runs on startup and then daily.
+ * <p>
+ * Every instance runs the job, so it holds a named lock of the database meanwhile, and an instance that finds the
+ * lock taken skips its run. The partitions are only read once the lock is held, and a run that failed halfway is
+ * completed by the next one.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "bird-app.sighting-partitions", name = "enabled", matchIfMissing = true)
+@AllArgsConstructor
+public class SightingPartitionMaintenance {
+    static final String FUTURE_PARTITION = "p_future";
+    static final String LOCK_NAME = "birdapp.sighting_partitions";
+    private static final String GET_LOCK = "SELECT GET_LOCK(?, 0)";
+    private static final String RELEASE_LOCK = "SELECT RELEASE_LOCK(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SightingPartitionProperties properties;
+    private final TableVersions tableVersions;
+    private final SightingAnalyticsService sightingAnalyticsService;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * A failure is only logged, the application starts anyway and the scheduled run tries again.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void maintainPartitionsOnStartup() {
+        try {
+            maintainPartitions();
+        } catch (RuntimeException e) {
+            log.error("Maintaining the sighting partitions failed, retrying on the next scheduled run", e);
+        }
+    }
+
+    @Scheduled(cron = "${bird-app.sighting-partitions.cron:0 0 3 * * *}")
+    public void maintainPartitions() {
+        maintainPartitions(LocalDate.now());
+    }
+
+    /**
+     * The lock belongs to the connection that took it. The transaction keeps every statement on that connection,
+     * while each DDL statement still commits on its own.
+     */
+    public void maintainPartitions(LocalDate today) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!Objects.equals(jdbcTemplate.queryForObject(GET_LOCK, Integer.class, LOCK_NAME), 1)) {
+                log.info("Skipping the sighting partition maintenance, another instance is running it");
+                return;
+            }
+            try {
+                maintainLockedPartitions(today);
+            } finally {
+                jdbcTemplate.queryForObject(RELEASE_LOCK, Integer.class, LOCK_NAME);
+            }
+        });
+    }
+
+    private void maintainLockedPartitions(LocalDate today) {
+        var partitions = findPartitions();
+        if (partitions.isEmpty()) {
+            return;
+        }
+        var currentMonth = today.withDayOfMonth(1);
+        createPartitions(partitions, currentMonth.plusMonths(properties.getMonthsAhead() + 1L));
+        if (properties.getRetentionMonths() > 0) {
+            expirePartitions(partitions, currentMonth.minusMonths(properties.getRetentionMonths()));
+        }
+    }
+
+    /**
+     * Adds one partition per month from the upper bound of the last bounded partition up to {@code until}.
+     */
+    private void createPartitions(List<Partition> partitions, LocalDate until) {
+        var hasFuturePartition = partitions.stream().anyMatch(partition -> partition.upperBound() == null);
+        var from = partitions.stream()
+                .map(Partition::upperBound)
+                .filter(Objects::nonNull)
+                .reduce((first, second) -> second)
+                .orElse(until);
+        for (var month = from; month.isBefore(until); month = month.plusMonths(1)) {
+            var partition = "PARTITION p%d%02d VALUES LESS THAN ('%s')"
+                    .formatted(month.getYear(), month.getMonthValue(), month.plusMonths(1));
+            if (hasFuturePartition) {
+                jdbcTemplate.execute("ALTER TABLE sighting REORGANIZE PARTITION " + FUTURE_PARTITION + " INTO ("
+                        + partition + ", PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN (MAXVALUE))");
+            } else {
+                jdbcTemplate.execute("ALTER TABLE sighting ADD PARTITION (" + partition + ")");
+            }
+        }
+    }
+
+    /**
+     * Removes every partition that only holds rows before {@code cutoff}.
+     */
+    private void expirePartitions(List<Partition> partitions, LocalDate cutoff) {
+        LocalDate expiredUntil = null;
+        for (var partition : partitions) {
+            if (partition.upperBound() == null || partition.upperBound().isAfter(cutoff)) {
+                continue;
+            }
+            if (properties.getRetentionAction() == SightingPartitionProperties.RetentionAction.ARCHIVE) {
+                var archive = "sighting_archive_" + partition.name();
+                // a failed run may have left the archive behind at any of these steps
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + archive + " LIKE sighting");
+                if (isPartitioned(archive)) {
+                    jdbcTemplate.execute("ALTER TABLE " + archive + " REMOVE PARTITIONING");
+                }
+                // an archive with rows already got them from the partition, exchanging again would swap them back
+                if (isEmpty(archive)) {
+                    jdbcTemplate.execute("ALTER TABLE sighting EXCHANGE PARTITION " + partition.name()
+                            + " WITH TABLE " + archive);
+                }
+            }
+            jdbcTemplate.execute("ALTER TABLE sighting DROP PARTITION " + partition.name());
+            expiredUntil = partition.upperBound();
+        }
+        if (expiredUntil != null) {
+            jdbcTemplate.update("DELETE FROM sighting_stats WHERE sighting_date < ?", expiredUntil);
+            tableVersions.bump(TableVersions.SIGHTING);
+            sightingAnalyticsService.sightingsExpiredBefore(expiredUntil);
+        }
+    }
+
+    private boolean isPartitioned(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.PARTITIONS "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL",
+                Integer.class, table) > 0;
+    }
+
+    private boolean isEmpty(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (SELECT 1 FROM " + table + " LIMIT 1) AS first_row",
+                Integer.class) == 0;
+    }
+
+    private List<Partition> findPartitions() {
+        return jdbcTemplate.query("SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'sighting' AND PARTITION_NAME IS NOT NULL "
+                + "ORDER BY PARTITION_ORDINAL_POSITION", SightingPartitionMaintenance::toPartition);
+    }
+
+    /**
+     * RANGE COLUMNS bounds are reported as a quoted datetime literal, or MAXVALUE for the catch-all.
+     */
+    private static Partition toPartition(ResultSet row, int rowNum) throws SQLException {
+        var description = row.getString("PARTITION_DESCRIPTION");
+        var upperBound = "MAXVALUE".equals(description) ? null : LocalDate.parse(description.substring(1, 11));
+        return new Partition(row.getString("PARTITION_NAME"), upperBound);
+    }
+
+    /**
+     * @param upperBound exclusive upper bound, {@code null} for MAXVALUE
+     */
+    record Partition(String name, LocalDate upperBound) {
+    }
+}
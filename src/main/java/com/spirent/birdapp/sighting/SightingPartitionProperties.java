@@ -0,0 +1,30 @@
+package com.spirent.birdapp.sighting;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "bird-app.sighting-partitions")
+public class SightingPartitionProperties {
+    /**
+     * Whether {@link SightingPartitionMaintenance} runs. Off where 'sighting' is not a partitioned MySQL table.
+     */
+    private boolean enabled = true;
+    /**
+     * Number of monthly partitions kept ready after the current month.
+     */
+    private int monthsAhead = 3;
+    /**
+     * Number of past months kept besides the current one. 0 keeps every partition.
+     */
+    private int retentionMonths = 0;
+    private RetentionAction retentionAction = RetentionAction.ARCHIVE;
+
+    public enum RetentionAction {
+        /**
+         * Moves the rows of an expired partition to its own 'sighting_archive_&lt;partition&gt;' table.
+         */
+        ARCHIVE,
+        DROP
+    }
+}
@@ -1,15 +1,54 @@
 package com.spirent.birdapp.sighting;
 
+import jakarta.persistence.QueryHint;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
+/**
+ * Read queries project straight into {@link SightingDto} with a single join on the bird table, so listing
+ * sightings never loads {@link Sighting} entities or triggers a lazy bird lookup per row.
+ */
 @Repository
 public interface SightingRepository extends JpaRepository<Sighting, Long> {
-    List<Sighting> findByBirdName(String name);
+    String SELECT_SIGHTING_DTO = "SELECT new com.spirent.birdapp.sighting.SightingDto(s.id, b.name, s.location, s.dateTime, "
+            + "s.latitude, s.longitude) "
+            + "FROM Sighting s JOIN s.bird b";
+
+    @Query(SELECT_SIGHTING_DTO)
+    List<SightingDto> findAllSightings();
+
+    @Query(SELECT_SIGHTING_DTO + " WHERE b.name = :name")
+    List<SightingDto> findByBirdName(String name);
+
+    @Query(SELECT_SIGHTING_DTO + " WHERE s.location = :location")
+    List<SightingDto> findByLocation(String location);
+
+    @Query(SELECT_SIGHTING_DTO + " WHERE s.dateTime BETWEEN :startDateTime AND :endDateTime")
+    List<SightingDto> findByDateTimeBetween(LocalDateTime startDateTime, LocalDateTime endDateTime);
+
+    /**
+     * Reads one contiguous range of the geohash index, in index order. See {@link Geohash#cover(GeoBox)}.
+     */
+    @Query(SELECT_SIGHTING_DTO + " WHERE s.geohash BETWEEN :fromGeohash AND :toGeohash ORDER BY s.geohash, s.id")
+    List<SightingDto> findByGeohashBetween(String fromGeohash, String toGeohash);
 
-    List<Sighting> findByLocation(String location);
+    @Query(SELECT_SIGHTING_DTO + " WHERE s.id > :afterId ORDER BY s.id")
+    List<SightingDto> findPageAfter(Long afterId, Limit limit);
 
-    List<Sighting> findByDateTimeBetween(LocalDateTime startDateTime, LocalDateTime endDateTime);
+    /**
+     * Streams every sighting in id order. A fetch size of {@link Integer#MIN_VALUE} makes the MySQL driver
+     * stream rows one by one instead of buffering the whole result set, so the caller has to consume the
+     * stream inside a transaction and close it.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query(SELECT_SIGHTING_DTO + " ORDER BY s.id")
+    Stream<SightingDto> streamAll();
 }
@@ -1,77 +1,222 @@
 package com.spirent.birdapp.sighting;
 
+import com.spirent.birdapp.analytics.SightingAnalyticsService;
 import com.spirent.birdapp.bird.Bird;
-import com.spirent.birdapp.bird.BirdRepository;
-import jakarta.transaction.Transactional;
+import com.spirent.birdapp.bird.BirdCache;
+import com.spirent.birdapp.change.ChangeEventDto;
+import com.spirent.birdapp.change.ChangeEvents;
+import com.spirent.birdapp.etag.TableVersions;
+import com.spirent.birdapp.search.SearchService;
+import io.micrometer.core.annotation.Timed;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import lombok.AllArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
-
-import static java.util.stream.Collectors.toList;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
+@Timed("birdapp.service")
 @AllArgsConstructor
 public class SightingService {
+    public static final int MAX_PAGE_SIZE = 1000;
+
     private final SightingRepository sightingRepository;
-    private final BirdRepository birdRepository;
+    private final BirdCache birdCache;
+    private final SightingStatsService sightingStatsService;
+    private final TransactionTemplate transactionTemplate;
+    private final SearchService searchService;
+    private final TableVersions tableVersions;
+    private final SightingAnalyticsService sightingAnalyticsService;
+    private final ChangeEvents changeEvents;
 
+    @Transactional(readOnly = true)
     public List<SightingDto> getAllSightings() {
-        return sightingRepository.findAll().stream()
-                .map(this::fromEntity)
-                .collect(toList());
+        return sightingRepository.findAllSightings();
+    }
+
+    @Transactional(readOnly = true)
+    public SightingPageDto getSightingsPage(Long cursor, int size) {
+        var pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        var sightings = sightingRepository.findPageAfter(cursor == null ? 0L : cursor, Limit.of(pageSize));
+        var nextCursor = sightings.size() == pageSize ? sightings.get(sightings.size() - 1).getId() : null;
+        return SightingPageDto.builder()
+                .sightings(sightings)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Hands every sighting to the consumer one at a time. Rows are projected into DTOs, so nothing is kept
+     * in the persistence context and heap use does not grow with the size of the table.
+     */
+    @Transactional(readOnly = true)
+    public void streamAllSightings(Consumer<SightingDto> consumer) {
+        try (var sightings = sightingRepository.streamAll()) {
+            sightings.forEach(consumer);
+        }
     }
 
+    @Transactional(readOnly = true)
     public List<SightingDto> getAllSightingsByLocation(String location) {
-        return sightingRepository.findByLocation(location).stream()
-                .map(this::fromEntity)
-                .collect(toList());
+        return sightingRepository.findByLocation(location);
     }
 
+    @Transactional(readOnly = true)
     public List<SightingDto> getAllSightingsByBirdName(String birdName) {
-        return sightingRepository.findByBirdName(birdName).stream()
-                .map(this::fromEntity)
-                .collect(toList());
+        return sightingRepository.findByBirdName(birdName);
     }
 
+    @Transactional(readOnly = true)
     public List<SightingDto> getAllSightingsByDateTimeBetween(LocalDateTime startDateTime, LocalDateTime endDateTime) {
-        return sightingRepository.findByDateTimeBetween(startDateTime, endDateTime).stream()
-                .map(this::fromEntity)
-                .collect(toList());
+        return sightingRepository.findByDateTimeBetween(startDateTime, endDateTime);
     }
 
-    @Transactional
-    public Optional<SightingDto> addSighting(CreateSightingDto sightingDto) {
-        var bird = birdRepository.findById(sightingDto.getBirdId())
-                .orElseGet(() -> birdRepository.save(Bird.builder()
-                        .name(sightingDto.getBirdName()).build()));
+    /**
+     * Returns the sightings with coordinates inside the box, in geohash order, or empty if the box is invalid.
+     */
+    @Transactional(readOnly = true)
+    public Optional<List<SightingDto>> getSightingsWithin(double minLatitude, double minLongitude,
+            double maxLatitude, double maxLongitude) {
+        return GeoBox.of(minLatitude, minLongitude, maxLatitude, maxLongitude)
+                .map(box -> findInBox(box, sighting -> box.contains(sighting.getLatitude(), sighting.getLongitude())));
+    }
 
-        var sighting = toEntity(sightingDto);
-        sighting.setBird(bird);
-        var savedSighting = sightingRepository.save(sighting);
+    /**
+     * Returns the sightings at most {@code radius} meters from the point, in geohash order, or empty if the point or
+     * radius is invalid.
+     */
+    @Transactional(readOnly = true)
+    public Optional<List<SightingDto>> getSightingsNear(double latitude, double longitude, double radius) {
+        return GeoBox.around(latitude, longitude, radius)
+                .map(box -> findInBox(box, sighting -> GeoBox.distance(latitude, longitude,
+                        sighting.getLatitude(), sighting.getLongitude()) <= radius));
+    }
 
-        return Optional.of(fromEntity(savedSighting));
+    /**
+     * Reads the geohash ranges covering the box one after the other and drops the sightings of the covering cells
+     * that do not match the filter.
+     */
+    private List<SightingDto> findInBox(GeoBox box, Predicate<SightingDto> filter) {
+        var sightings = new ArrayList<SightingDto>();
+        for (var range : Geohash.cover(box)) {
+            findByGeohashBetween(range.from(), range.to()).stream()
+                    .filter(filter)
+                    .forEach(sightings::add);
+        }
+        return sightings;
+    }
+
+    /**
+     * The sightings with a geohash in the inclusive range, ordered by geohash and id.
+     */
+    protected List<SightingDto> findByGeohashBetween(String from, String to) {
+        return sightingRepository.findByGeohashBetween(from, to);
+    }
+
+    /**
+     * The bird is looked up or created before the transaction, see {@link BirdCache#findOrCreateByName(String)}.
+     */
+    public Optional<SightingDto> addSighting(CreateSightingDto sightingDto) {
+        if (!Sighting.isValidLocation(sightingDto.getLatitude(), sightingDto.getLongitude())) {
+            return Optional.empty();
+        }
+        return withBird(() -> Optional.ofNullable(sightingDto.getBirdId())
+                        .flatMap(birdCache::findById)
+                        .or(() -> Optional.ofNullable(sightingDto.getBirdName()).map(birdCache::findOrCreateByName)),
+                bird -> insert(sightingDto, bird));
+    }
+
+    private Optional<SightingDto> insert(CreateSightingDto sightingDto, Bird bird) {
+        return transactionTemplate.execute(status -> {
+            var sighting = toEntity(sightingDto);
+            sighting.setBird(bird);
+            var savedSighting = sightingRepository.save(sighting);
+            sightingStatsService.recordAdded(List.of(savedSighting));
+            tableVersions.bump(TableVersions.SIGHTING);
+            searchService.indexLocations(Collections.singletonList(savedSighting.getLocation()));
+            sightingAnalyticsService.sightingsSaved(List.of(savedSighting));
+            var savedSightingDto = fromEntity(savedSighting);
+            changeEvents.record(ChangeEventDto.Entity.SIGHTING, savedSighting.getId(), ChangeEventDto.Operation.CREATED,
+                    savedSightingDto);
+            return Optional.of(savedSightingDto);
+        });
     }
 
-    @Transactional
     public Optional<SightingDto> updateSighting(SightingDto sightingDto) {
         var existingSighting = sightingRepository.findById(sightingDto.getId());
 
-        if (existingSighting.isEmpty()) {
+        if (existingSighting.isEmpty() || sightingDto.getBirdName() == null
+                || !Sighting.isValidLocation(sightingDto.getLatitude(), sightingDto.getLongitude())) {
             return Optional.empty();
         }
 
-        var bird = birdRepository.findByName(sightingDto.getBirdName())
-                .orElseGet(() -> birdRepository.save(Bird.builder()
-                        .name(sightingDto.getBirdName()).build()));
+        return withBird(() -> Optional.of(birdCache.findOrCreateByName(sightingDto.getBirdName())),
+                bird -> update(sightingDto, bird));
+    }
+
+    /**
+     * Reads the sighting again in the transaction, so that a retry of {@link #withBird} starts from the stored
+     * state instead of the one changed by the rolled back attempt.
+     */
+    private Optional<SightingDto> update(SightingDto sightingDto, Bird bird) {
+        return transactionTemplate.execute(status -> {
+            var existingSighting = sightingRepository.findById(sightingDto.getId());
+            if (existingSighting.isEmpty()) {
+                return Optional.<SightingDto>empty();
+            }
+            var sighting = existingSighting.get();
+            var statsBefore = SightingStatsId.of(sighting);
+            sighting.setBird(bird);
+            sighting.setLocation(sightingDto.getLocation());
+            sighting.setDateTime(sightingDto.getDateTime());
+            sighting.setLatitude(sightingDto.getLatitude());
+            sighting.setLongitude(sightingDto.getLongitude());
+            var updatedSighting = sightingRepository.save(sighting);
+            sightingStatsService.recordMoved(statsBefore, SightingStatsId.of(updatedSighting));
+            tableVersions.bump(TableVersions.SIGHTING);
+            searchService.indexLocations(Collections.singletonList(updatedSighting.getLocation()));
+            sightingAnalyticsService.sightingsSaved(List.of(updatedSighting));
+            var updatedSightingDto = fromEntity(updatedSighting);
+            changeEvents.record(ChangeEventDto.Entity.SIGHTING, updatedSighting.getId(),
+                    ChangeEventDto.Operation.UPDATED, updatedSightingDto);
+            return Optional.of(updatedSightingDto);
+        });
+    }
 
-        var sighting = existingSighting.get();
-        sighting.setBird(bird);
-        sighting.setLocation(sightingDto.getLocation());
-        sighting.setDateTime(sightingDto.getDateTime());
-        var updatedSighting = sightingRepository.save(sighting);
-        return Optional.of(fromEntity(updatedSighting));
+    /**
+     * Runs the write with the bird {@code findBird} returns, completing empty if there is none. A bird deleted
+     * through another instance can still be cached here until the change event relay evicts it, and the write then
+     * fails on the foreign key of 'sighting_stats'. The cached birds are then dropped and the write is retried once
+     * with the bird found again, which creates a bird given by name anew.
+     */
+    private Optional<SightingDto> withBird(Supplier<Optional<Bird>> findBird,
+            Function<Bird, Optional<SightingDto>> write) {
+        var bird = findBird.get();
+        if (bird.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            return write.apply(bird.get());
+        } catch (DataIntegrityViolationException e) {
+            birdCache.evictAll();
+            var currentBird = findBird.get();
+            if (currentBird.isPresent() && Objects.equals(currentBird.get().getId(), bird.get().getId())) {
+                // the bird was current, so the violation has another cause
+                throw e;
+            }
+            return currentBird.flatMap(write);
+        }
     }
 
     @Transactional
@@ -81,23 +226,31 @@ public class SightingService {
             return Optional.empty();
         }
         sightingRepository.deleteById(sightingId);
+        sightingStatsService.recordRemoved(sighting.get());
+        tableVersions.bump(TableVersions.SIGHTING);
+        sightingAnalyticsService.sightingDeleted(sightingId);
+        changeEvents.record(ChangeEventDto.Entity.SIGHTING, sightingId, ChangeEventDto.Operation.DELETED, null);
         return Optional.of(sightingId);
     }
 
-    private Sighting toEntity(CreateSightingDto sightingDto) {
+    Sighting toEntity(CreateSightingDto sightingDto) {
         return Sighting.builder()
                 .bird(Bird.builder().build())
                 .location(sightingDto.getLocation())
                 .dateTime(sightingDto.getDateTime())
+                .latitude(sightingDto.getLatitude())
+                .longitude(sightingDto.getLongitude())
                 .build();
     }
 
-    private SightingDto fromEntity(Sighting sighting) {
+    SightingDto fromEntity(Sighting sighting) {
         return SightingDto.builder()
                 .id(sighting.getId())
                 .birdName(sighting.getBird().getName())
                 .location(sighting.getLocation())
                 .dateTime(sighting.getDateTime())
+                .latitude(sighting.getLatitude())
+                .longitude(sighting.getLongitude())
                 .build();
     }
 }
@@ -0,0 +1,25 @@
+package com.spirent.birdapp.sighting;
+
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Number of sightings of one bird at one location on one day. Rows are only ever changed through the
+ * upserts of {@link SightingStatsRepository}, never by saving this entity.
+ */
+@Entity
+@Table(name = "sighting_stats")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SightingStats {
+    @EmbeddedId
+    private SightingStatsId id;
+    private long sightingCount;
+}
@@ -0,0 +1,16 @@
+package com.spirent.birdapp.sighting;
+
+import java.time.LocalDate;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class SightingStatsDto {
+    private String birdName;
+    private String location;
+    private LocalDate day;
+    private long count;
+}
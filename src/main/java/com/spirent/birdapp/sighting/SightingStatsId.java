@@ -0,0 +1,33 @@
+package com.spirent.birdapp.sighting;
+
+import jakarta.persistence.Embeddable;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Comparator;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SightingStatsId implements Serializable, Comparable<SightingStatsId> {
+    private static final Comparator<SightingStatsId> ORDER = Comparator.comparing(SightingStatsId::getBirdId)
+            .thenComparing(SightingStatsId::getLocation)
+            .thenComparing(SightingStatsId::getSightingDate);
+
+    private Long birdId;
+    private String location;
+    private LocalDate sightingDate;
+
+    public static SightingStatsId of(Sighting sighting) {
+        return new SightingStatsId(sighting.getBird().getId(), sighting.getLocation(),
+                sighting.getDateTime().toLocalDate());
+    }
+
+    @Override
+    public int compareTo(SightingStatsId other) {
+        return ORDER.compare(this, other);
+    }
+}
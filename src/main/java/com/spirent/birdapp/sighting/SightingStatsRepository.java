@@ -0,0 +1,51 @@
+package com.spirent.birdapp.sighting;
+
+import java.time.LocalDate;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SightingStatsRepository extends JpaRepository<SightingStats, SightingStatsId> {
+    /**
+     * Adds {@code delta} to one group, creating it if needed. The statements are shared with the reactive stack,
+     * which binds the same named parameters.
+     */
+    String UPSERT = "INSERT INTO sighting_stats (bird_id, location, sighting_date, sighting_count) "
+            + "VALUES (:birdId, :location, :sightingDate, :delta) "
+            + "ON DUPLICATE KEY UPDATE sighting_count = sighting_count + :delta";
+    String DELETE_ALL = "DELETE FROM sighting_stats";
+    String INSERT_ALL = "INSERT INTO sighting_stats (bird_id, location, sighting_date, sighting_count) "
+            + "SELECT bird_id, location, CAST(date_time AS DATE), COUNT(*) FROM sighting "
+            + "GROUP BY bird_id, location, CAST(date_time AS DATE)";
+
+    @Modifying
+    @Query(value = UPSERT, nativeQuery = true)
+    void upsert(Long birdId, String location, LocalDate sightingDate, long delta);
+
+    /**
+     * Reads one row per group, so the cost depends on the number of groups and not on the number of sightings.
+     */
+    @Query("SELECT new com.spirent.birdapp.sighting.SightingStatsDto(b.name, s.id.location, s.id.sightingDate, s.sightingCount) "
+            + "FROM SightingStats s JOIN Bird b ON b.id = s.id.birdId "
+            + "WHERE s.sightingCount > 0 "
+            + "AND (:birdName IS NULL OR b.name = :birdName) "
+            + "AND (:location IS NULL OR s.id.location = :location) "
+            + "AND (:from IS NULL OR s.id.sightingDate >= :from) "
+            + "AND (:to IS NULL OR s.id.sightingDate <= :to) "
+            + "ORDER BY s.id.sightingDate, b.name, s.id.location")
+    List<SightingStatsDto> findStats(String birdName, String location, LocalDate from, LocalDate to);
+
+    @Modifying
+    @Query(value = DELETE_ALL, nativeQuery = true)
+    void deleteAllStats();
+
+    /**
+     * Recomputes every group from the sighting table and returns the number of groups.
+     */
+    @Modifying
+    @Query(value = INSERT_ALL, nativeQuery = true)
+    int insertAllStats();
+}
@@ -0,0 +1,75 @@
+package com.spirent.birdapp.sighting;
+
+import io.micrometer.core.annotation.Timed;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import lombok.AllArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Maintains the 'sighting_stats' rollup. The record methods join the transaction of the sighting write that
+ * calls them, so the counters commit or roll back together with the sightings. Groups are always updated in
+ * key order, which keeps two writers touching the same groups from deadlocking on each other.
+ */
+@Service
+@Timed("birdapp.service")
+@AllArgsConstructor
+public class SightingStatsService {
+    private final SightingStatsRepository sightingStatsRepository;
+
+    public List<SightingStatsDto> getStats(String birdName, String location, LocalDate from, LocalDate to) {
+        return sightingStatsRepository.findStats(birdName, location, from, to);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAdded(Collection<Sighting> sightings) {
+        var deltas = new TreeMap<SightingStatsId, Long>();
+        sightings.forEach(sighting -> deltas.merge(SightingStatsId.of(sighting), 1L, Long::sum));
+        apply(deltas);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordMoved(SightingStatsId from, SightingStatsId to) {
+        if (from.equals(to)) {
+            return;
+        }
+        apply(new TreeMap<>(Map.of(from, -1L, to, 1L)));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordRemoved(Sighting sighting) {
+        apply(Map.of(SightingStatsId.of(sighting), -1L));
+    }
+
+    /**
+     * Recomputes the whole rollup from the sighting table, for backfills and to repair drift. Sightings written
+     * while it runs may be counted twice or not at all until the next rebuild.
+     *
+     * @return the number of groups
+     */
+    @Transactional
+    public int rebuild() {
+        sightingStatsRepository.deleteAllStats();
+        return sightingStatsRepository.insertAllStats();
+    }
+
+    /**
+     * Disabled unless 'bird-app.sighting-stats.rebuild-cron' is set.
+     */
+    @Scheduled(cron = "${bird-app.sighting-stats.rebuild-cron:-}")
+    @Transactional
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    private void apply(Map<SightingStatsId, Long> deltas) {
+        deltas.forEach((id, delta) ->
+                sightingStatsRepository.upsert(id.getBirdId(), id.getLocation(), id.getSightingDate(), delta));
+    }
+}
@@ -0,0 +1,143 @@
+package com.spirent.birdapp.sighting;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A subscriber of GET /sightings/live: its filter and a bounded buffer of the matching sightings not sent yet. The
+ * dispatching thread appends to the buffer and the thread sending to the client takes from it, without locks on
+ * either side. When the buffer is full the subscriber has fallen too far behind and is dropped.
+ */
+public class SightingSubscriber {
+    private final String birdName;
+    private final String location;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final int capacity;
+    private final ConcurrentLinkedQueue<LiveSighting> buffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile boolean overflowed;
+    private volatile Thread consumer;
+
+    /**
+     * A new sighting as sent to the subscribers, with the fields the filters look at.
+     *
+     * @param json the sighting as returned by the REST API
+     */
+    public record LiveSighting(String birdName, String location, LocalDateTime dateTime, String json) {
+    }
+
+    /**
+     * All filters are optional.
+     *
+     * @param from inclusive lower bound of the sighting time
+     * @param to   exclusive upper bound of the sighting time
+     */
+    SightingSubscriber(String birdName, String location, LocalDateTime from, LocalDateTime to, int capacity) {
+        this.birdName = birdName;
+        this.location = location;
+        this.from = from;
+        this.to = to;
+        this.capacity = capacity;
+    }
+
+    String getBirdName() {
+        return birdName;
+    }
+
+    String getLocation() {
+        return location;
+    }
+
+    boolean matches(LiveSighting sighting) {
+        if (birdName != null && !birdName.equals(sighting.birdName())
+                || location != null && !location.equals(sighting.location())) {
+            return false;
+        }
+        if (from == null && to == null) {
+            return true;
+        }
+        return sighting.dateTime() != null
+                && (from == null || !sighting.dateTime().isBefore(from))
+                && (to == null || sighting.dateTime().isBefore(to));
+    }
+
+    /**
+     * Appends the sighting unless the buffer is full.
+     *
+     * @return false if the buffer is full and the subscriber has to be dropped
+     */
+    boolean offer(LiveSighting sighting) {
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            overflowed = true;
+            wakeUp();
+            return false;
+        }
+        buffer.add(sighting);
+        wakeUp();
+        return true;
+    }
+
+    /**
+     * Returns up to {@code max} buffered sightings, waiting up to {@code timeout} for the first one. Returns an empty
+     * list on timeout, once the subscriber is closed and once it overflowed. Only called by one thread at a time.
+     */
+    public List<LiveSighting> take(int max, Duration timeout) throws InterruptedException {
+        // publish the waiting thread before looking at the buffer, so an offer in between unparks it
+        consumer = Thread.currentThread();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (buffer.isEmpty() && !overflowed && !closed.get()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return List.of();
+            }
+            LockSupport.parkNanos(this, remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        if (overflowed || closed.get()) {
+            return List.of();
+        }
+        var sightings = new ArrayList<LiveSighting>(Math.min(max, size.get()));
+        LiveSighting sighting;
+        while (sightings.size() < max && (sighting = buffer.poll()) != null) {
+            sightings.add(sighting);
+        }
+        size.addAndGet(-sightings.size());
+        return sightings;
+    }
+
+    /**
+     * Tells if the subscriber was dropped because its buffer was full.
+     */
+    public boolean isOverflowed() {
+        return overflowed;
+    }
+
+    /**
+     * @return false if it was closed already
+     */
+    boolean close() {
+        if (!closed.compareAndSet(false, true)) {
+            return false;
+        }
+        wakeUp();
+        return true;
+    }
+
+    private void wakeUp() {
+        var thread = consumer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.spirent.birdapp.sighting;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "bird-app.sighting-subscriptions")
+public class SightingSubscriptionProperties {
+    /**
+     * Number of subscribers of GET /sightings/live, above which new subscriptions are answered with 503.
+     */
+    private int maxSubscribers = 50000;
+    /**
+     * Number of sightings buffered per subscriber. A subscriber that falls further behind is dropped.
+     */
+    private int bufferSize = 256;
+    /**
+     * Interval of the keep-alive comments sent to idle subscribers.
+     */
+    private Duration heartbeat = Duration.ofSeconds(15);
+}
@@ -0,0 +1,164 @@
+package com.spirent.birdapp.sighting;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spirent.birdapp.change.ChangeEventDto;
+import com.spirent.birdapp.change.ChangeEventRelay;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fans new sightings out to the subscribers of GET /sightings/live. The sightings come from the
+ * {@link ChangeEventRelay}, so subscribers see the sightings created through any instance, once committed.
+ * <p>
+ * Subscribers are indexed by the bird name of their filter, or by the location if they have no bird name, so a
+ * sighting is only matched against the subscribers of its bird, those of its location and those without either
+ * filter. Dispatching reads the index without locking and never waits for a subscriber: one whose buffer is full
+ * is dropped and told so, and has to subscribe again.
+ */
+@Slf4j
+@Component
+public class SightingSubscriptions {
+    private final ObjectMapper objectMapper;
+    private final SightingSubscriptionProperties properties;
+    private final ConcurrentMap<String, Set<SightingSubscriber>> byBirdName = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<SightingSubscriber>> byLocation = new ConcurrentHashMap<>();
+    private final Set<SightingSubscriber> unfiltered = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final Counter dropped;
+
+    public SightingSubscriptions(ChangeEventRelay changeEventRelay, ObjectMapper objectMapper,
+            SightingSubscriptionProperties properties, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.dropped = Counter.builder("birdapp.sighting.subscribers.dropped")
+                .description("Subscribers of live sightings dropped for falling behind")
+                .register(meterRegistry);
+        Gauge.builder("birdapp.sighting.subscribers", subscribers, AtomicInteger::get)
+                .description("Subscribers of live sightings")
+                .register(meterRegistry);
+        changeEventRelay.addListener(this::onChanges);
+    }
+
+    /**
+     * Completes empty if there are {@link SightingSubscriptionProperties#getMaxSubscribers()} subscribers already.
+     * All filters are optional, see {@link SightingSubscriber#SightingSubscriber}.
+     */
+    public Optional<SightingSubscriber> subscribe(String birdName, String location, LocalDateTime from,
+            LocalDateTime to) {
+        if (subscribers.incrementAndGet() > properties.getMaxSubscribers()) {
+            subscribers.decrementAndGet();
+            return Optional.empty();
+        }
+        var subscriber = new SightingSubscriber(birdName, location, from, to, properties.getBufferSize());
+        if (birdName != null) {
+            add(byBirdName, birdName, subscriber);
+        } else if (location != null) {
+            add(byLocation, location, subscriber);
+        } else {
+            unfiltered.add(subscriber);
+        }
+        return Optional.of(subscriber);
+    }
+
+    /**
+     * Idempotent.
+     */
+    public void unsubscribe(SightingSubscriber subscriber) {
+        if (!subscriber.close()) {
+            return;
+        }
+        if (subscriber.getBirdName() != null) {
+            remove(byBirdName, subscriber.getBirdName(), subscriber);
+        } else if (subscriber.getLocation() != null) {
+            remove(byLocation, subscriber.getLocation(), subscriber);
+        } else {
+            unfiltered.remove(subscriber);
+        }
+        subscribers.decrementAndGet();
+    }
+
+    public int size() {
+        return subscribers.get();
+    }
+
+    /**
+     * Hands the sighting to every matching subscriber.
+     */
+    public void publish(SightingSubscriber.LiveSighting sighting) {
+        if (sighting.birdName() != null) {
+            dispatch(byBirdName.get(sighting.birdName()), sighting);
+        }
+        if (sighting.location() != null) {
+            dispatch(byLocation.get(sighting.location()), sighting);
+        }
+        dispatch(unfiltered, sighting);
+    }
+
+    void onChanges(List<ChangeEventDto> events) {
+        if (subscribers.get() == 0) {
+            return;
+        }
+        for (var event : events) {
+            if (event.getEntity() == ChangeEventDto.Entity.SIGHTING
+                    && event.getOperation() == ChangeEventDto.Operation.CREATED) {
+                publish(toLiveSighting(event.getData()));
+            }
+        }
+    }
+
+    private void dispatch(Set<SightingSubscriber> subscribers, SightingSubscriber.LiveSighting sighting) {
+        if (subscribers == null) {
+            return;
+        }
+        for (var subscriber : subscribers) {
+            if (subscriber.matches(sighting) && !subscriber.offer(sighting)) {
+                // removing while iterating is safe, the key sets are weakly consistent
+                unsubscribe(subscriber);
+                dropped.increment();
+            }
+        }
+    }
+
+    private SightingSubscriber.LiveSighting toLiveSighting(String json) {
+        try {
+            var sighting = objectMapper.readTree(json);
+            var dateTime = sighting.path("dateTime");
+            return new SightingSubscriber.LiveSighting(
+                    sighting.path("birdName").textValue(),
+                    sighting.path("location").textValue(),
+                    dateTime.isTextual() ? LocalDateTime.parse(dateTime.textValue()) : null,
+                    json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Invalid sighting in change event: " + json, e);
+        }
+    }
+
+    private static void add(ConcurrentMap<String, Set<SightingSubscriber>> index, String key,
+            SightingSubscriber subscriber) {
+        // compute() locks the key, so an empty set is never removed while a subscriber is added to it
+        index.compute(key, (ignored, subscribers) -> {
+            var set = subscribers == null ? ConcurrentHashMap.<SightingSubscriber>newKeySet() : subscribers;
+            set.add(subscriber);
+            return set;
+        });
+    }
+
+    private static void remove(ConcurrentMap<String, Set<SightingSubscriber>> index, String key,
+            SightingSubscriber subscriber) {
+        index.computeIfPresent(key, (ignored, subscribers) -> {
+            subscribers.remove(subscriber);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+}
@@ -0,0 +1,261 @@
+package com.spirent.birdapp.sighting;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only log of accepted sightings, split into segment files named after their first sequence number.
+ * <pre>
+ * record := length:int sequence:long payload:byte[length] crc32c(sequence, payload):int
+ * payload := flags:byte [birdId:long] [birdName:utf] location:utf epochSecond:long nano:int
+ * </pre>
+ * A record is durable once {@link #sync(long)} returned for its sequence number. Concurrent callers share one
+ * fsync. A record torn by a crash is detected by its length or checksum and cut off when the log is reopened.
+ */
+@Slf4j
+public class SightingWriteAheadLog implements AutoCloseable {
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final String ID_FILE = "wal.id";
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+    private static final int HAS_BIRD_ID = 1;
+    private static final int HAS_BIRD_NAME = 2;
+    private static final int HAS_COORDINATES = 4;
+
+    private final Path directory;
+    private final long segmentSize;
+    private final String id;
+    private final List<Segment> segments = new ArrayList<>();
+    private List<Record> unrecovered = new ArrayList<>();
+    private final Object syncLock = new Object();
+    private FileChannel channel;
+    private long lastSequence;
+    private volatile long syncedSequence;
+
+    public record Record(long sequence, CreateSightingDto sighting) {
+    }
+
+    private record Segment(long firstSequence, Path path) {
+    }
+
+    /**
+     * Opens the log in {@code directory}, creating it if needed. The records found are kept for {@link #recover(long)}.
+     */
+    public SightingWriteAheadLog(Path directory, long segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        var idFile = directory.resolve(ID_FILE);
+        if (!Files.exists(idFile)) {
+            Files.writeString(idFile, UUID.randomUUID().toString());
+        }
+        id = Files.readString(idFile).trim();
+
+        try (var files = Files.list(directory)) {
+            files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .map(path -> new Segment(Long.parseLong(path.getFileName().toString().replace(SEGMENT_SUFFIX, "")), path))
+                    .sorted((first, second) -> Long.compare(first.firstSequence(), second.firstSequence()))
+                    .forEach(segments::add);
+        }
+        for (int i = 0; i < segments.size(); i++) {
+            readSegment(segments.get(i), i == segments.size() - 1);
+        }
+        syncedSequence = lastSequence;
+        if (segments.isEmpty()) {
+            openSegment(lastSequence + 1);
+        } else {
+            channel = FileChannel.open(segments.get(segments.size() - 1).path(), StandardOpenOption.WRITE);
+            channel.position(channel.size());
+        }
+    }
+
+    /**
+     * Identifies this log across restarts, so that its committed sequence number can be stored elsewhere.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Hands out the records found on opening that come after {@code committedSequence}, in sequence order, and
+     * deletes the segments before them. Can only be called once.
+     */
+    public List<Record> recover(long committedSequence) throws IOException {
+        var records = unrecovered.stream()
+                .filter(record -> record.sequence() > committedSequence)
+                .toList();
+        unrecovered = List.of();
+        truncate(committedSequence);
+        return records;
+    }
+
+    /**
+     * Writes the sighting to the current segment without waiting for the disk.
+     *
+     * @return its sequence number, to be passed to {@link #sync(long)}
+     */
+    public synchronized long append(CreateSightingDto sighting) throws IOException {
+        long sequence = lastSequence + 1;
+        var payload = encode(sighting);
+        var buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length + Integer.BYTES);
+        buffer.putInt(payload.length).putLong(sequence).put(payload).putInt(checksum(sequence, payload, payload.length));
+        if (channel.position() > 0 && channel.position() + buffer.capacity() > segmentSize) {
+            channel.force(false);
+            channel.close();
+            openSegment(sequence);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        lastSequence = sequence;
+        return sequence;
+    }
+
+    /**
+     * Returns once the record with the given sequence number and all records before it are on disk.
+     */
+    public void sync(long sequence) throws IOException {
+        if (syncedSequence >= sequence) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (syncedSequence >= sequence) {
+                return;
+            }
+            FileChannel current;
+            long upTo;
+            synchronized (this) {
+                current = channel;
+                upTo = lastSequence;
+            }
+            try {
+                current.force(false);
+            } catch (ClosedChannelException e) {
+                // the segment was rolled over, which forced it before closing
+            }
+            syncedSequence = upTo;
+        }
+    }
+
+    /**
+     * Deletes the segments that only hold records up to {@code committedSequence}.
+     */
+    public synchronized void truncate(long committedSequence) throws IOException {
+        while (segments.size() > 1 && segments.get(1).firstSequence() - 1 <= committedSequence) {
+            Files.delete(segments.remove(0).path());
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.force(false);
+        channel.close();
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        var segment = new Segment(firstSequence, directory.resolve("%020d%s".formatted(firstSequence, SEGMENT_SUFFIX)));
+        channel = FileChannel.open(segment.path(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        segments.add(segment);
+    }
+
+    private void readSegment(Segment segment, boolean last) throws IOException {
+        // an empty segment still fixes the sequence numbers of the segments deleted before it
+        lastSequence = Math.max(lastSequence, segment.firstSequence() - 1);
+        var bytes = ByteBuffer.wrap(Files.readAllBytes(segment.path()));
+        while (bytes.remaining() >= HEADER_SIZE) {
+            int start = bytes.position();
+            int length = bytes.getInt();
+            long sequence = bytes.getLong();
+            if (length < 0 || bytes.remaining() < length + Integer.BYTES) {
+                bytes.position(start);
+                break;
+            }
+            var payload = new byte[length];
+            bytes.get(payload);
+            if (bytes.getInt() != checksum(sequence, payload, length)) {
+                bytes.position(start);
+                break;
+            }
+            lastSequence = sequence;
+            unrecovered.add(new Record(sequence, decode(payload)));
+        }
+        if (bytes.hasRemaining()) {
+            if (!last) {
+                throw new IOException("Corrupt record at offset " + bytes.position() + " of " + segment.path());
+            }
+            log.warn("Cutting off a torn record at offset {} of {}", bytes.position(), segment.path());
+            try (var file = FileChannel.open(segment.path(), StandardOpenOption.WRITE)) {
+                file.truncate(bytes.position());
+                file.force(false);
+            }
+        }
+    }
+
+    private static int checksum(long sequence, byte[] payload, int length) {
+        var crc = new CRC32C();
+        crc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, sequence));
+        crc.update(payload, 0, length);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] encode(CreateSightingDto sighting) {
+        try {
+            var bytes = new ByteArrayOutputStream(64);
+            var out = new DataOutputStream(bytes);
+            out.writeByte((sighting.getBirdId() != null ? HAS_BIRD_ID : 0) | (sighting.getBirdName() != null ? HAS_BIRD_NAME : 0)
+                    | (sighting.getLatitude() != null ? HAS_COORDINATES : 0));
+            if (sighting.getBirdId() != null) {
+                out.writeLong(sighting.getBirdId());
+            }
+            if (sighting.getBirdName() != null) {
+                out.writeUTF(sighting.getBirdName());
+            }
+            out.writeUTF(sighting.getLocation());
+            out.writeLong(sighting.getDateTime().toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(sighting.getDateTime().getNano());
+            if (sighting.getLatitude() != null) {
+                out.writeDouble(sighting.getLatitude());
+                out.writeDouble(sighting.getLongitude());
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static CreateSightingDto decode(byte[] payload) throws IOException {
+        var in = new DataInputStream(new ByteArrayInputStream(payload));
+        int flags = in.readByte();
+        var birdId = (flags & HAS_BIRD_ID) != 0 ? in.readLong() : null;
+        var birdName = (flags & HAS_BIRD_NAME) != 0 ? in.readUTF() : null;
+        var location = in.readUTF();
+        var dateTime = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+        var latitude = (flags & HAS_COORDINATES) != 0 ? in.readDouble() : null;
+        var longitude = (flags & HAS_COORDINATES) != 0 ? in.readDouble() : null;
+        return CreateSightingDto.builder()
+                .birdId(birdId)
+                .birdName(birdName)
+                .location(location)
+                .dateTime(dateTime)
+                .latitude(latitude)
+                .longitude(longitude)
+                .build();
+    }
+}
@@ -0,0 +1,45 @@
+-- Schema of a shard in the 'sharding' profile, see ShardConfig.
+
+-- Copy of the birds of the primary, kept by BirdReplicator. Names are not unique, a rename may arrive before the
+-- rename of the bird that had the name before.
+CREATE TABLE bird (
+    id BIGINT NOT NULL PRIMARY KEY,
+    name VARCHAR(255),
+    color VARCHAR(255),
+    weight DOUBLE NOT NULL,
+    height DOUBLE NOT NULL
+);
+
+-- The sightings of the buckets the shard owns, and briefly of those being moved to or from it. Ids are unique
+-- across all shards and the primary. Every write sets updated_at, which BucketMover compares to find changes.
+CREATE TABLE sighting (
+    id BIGINT NOT NULL PRIMARY KEY,
+    bucket INT NOT NULL,
+    bird_id BIGINT NOT NULL,
+    location VARCHAR(255),
+    date_time DATETIME(6),
+    latitude DOUBLE,
+    longitude DOUBLE,
+    geohash VARCHAR(12),
+    updated_at DATETIME(6) NOT NULL
+);
+CREATE INDEX idx_sighting_bucket ON sighting (bucket, id);
+CREATE INDEX idx_sighting_bird ON sighting (bird_id, id);
+CREATE INDEX idx_sighting_location ON sighting (location, id);
+CREATE INDEX idx_sighting_date_time ON sighting (date_time, id);
+CREATE INDEX idx_sighting_geohash ON sighting (geohash, id);
+
+-- The buckets the shard owns. Writes lock their bucket's row, and only write while it exists and is writable.
+CREATE TABLE owned_bucket (
+    bucket INT NOT NULL PRIMARY KEY,
+    writable BOOLEAN NOT NULL
+);
+
+-- Write counters of the sightings on the shard, see TableVersions and ShardedTableVersions.
+CREATE TABLE table_version (
+    table_name VARCHAR(64) NOT NULL,
+    stripe INT NOT NULL,
+    version BIGINT NOT NULL,
+    updated_at DATETIME(3) NULL,
+    PRIMARY KEY (table_name, stripe)
+);
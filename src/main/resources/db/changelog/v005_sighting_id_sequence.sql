@@ -0,0 +1,10 @@
+-- MySQL has no sequences, so Hibernate emulates 'sighting_seq' with a single-row table.
+-- The pooled optimizer hands out the 50 ids up to the stored value, so start 50 above the current maximum.
+CREATE TABLE sighting_seq
+(
+    next_val BIGINT
+);
+
+INSERT INTO sighting_seq (next_val)
+SELECT COALESCE(MAX(id), 0) + 50
+FROM sighting;
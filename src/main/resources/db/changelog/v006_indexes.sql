@@ -0,0 +1,8 @@
+-- bird: findByName / findAllBirds by name, findAllBirds by color (with or without a name)
+CREATE INDEX idx_bird_name ON bird (name);
+CREATE INDEX idx_bird_color_name ON bird (color, name);
+
+-- sighting: findByLocation returns its rows in date order, findByDateTimeBetween joins on bird_id from the index.
+-- findByBirdName is served by the index MySQL creates for the bird_id foreign key.
+CREATE INDEX idx_sighting_location_date_time ON sighting (location, date_time);
+CREATE INDEX idx_sighting_date_time_bird ON sighting (date_time, bird_id);
@@ -0,0 +1,2 @@
+-- Bird.sightings is now mapped by sighting.bird_id, nothing writes to this table anymore
+DROP TABLE IF EXISTS bird_sightings;
@@ -0,0 +1,18 @@
+-- Sightings per bird, location and day, kept up to date by every sighting write.
+-- Backfilled here from the existing sightings; POST /sightings/stats/rebuild does the same later on.
+CREATE TABLE sighting_stats
+(
+    bird_id        BIGINT       NOT NULL,
+    location       VARCHAR(255) NOT NULL,
+    sighting_date  DATE         NOT NULL,
+    sighting_count BIGINT       NOT NULL,
+    PRIMARY KEY (bird_id, location, sighting_date),
+    CONSTRAINT fk_sighting_stats_bird FOREIGN KEY (bird_id) REFERENCES bird (id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_sighting_stats_location_date ON sighting_stats (location, sighting_date);
+
+INSERT INTO sighting_stats (bird_id, location, sighting_date, sighting_count)
+SELECT bird_id, location, DATE(date_time), COUNT(*)
+FROM sighting
+GROUP BY bird_id, location, DATE(date_time);
@@ -0,0 +1,27 @@
+-- Partitions 'sighting' by month on date_time so that date range queries only read the months they cover.
+-- MySQL does not allow foreign keys on partitioned tables, so the bird_id foreign key is replaced by a plain index;
+-- sightings are deleted together with their bird by the application instead of ON DELETE CASCADE.
+ALTER TABLE sighting DROP FOREIGN KEY fk_sighting_bird;
+CREATE INDEX idx_sighting_bird ON sighting (bird_id);
+DROP INDEX fk_sighting_bird ON sighting;
+
+-- Every unique key of a partitioned table has to contain the partitioning column.
+ALTER TABLE sighting DROP PRIMARY KEY, ADD PRIMARY KEY (id, date_time);
+
+-- Months after 2024 are split off p_future by SightingPartitionMaintenance, which keeps a few months ahead.
+ALTER TABLE sighting PARTITION BY RANGE COLUMNS (date_time) (
+    PARTITION p_history VALUES LESS THAN ('2024-01-01'),
+    PARTITION p202401 VALUES LESS THAN ('2024-02-01'),
+    PARTITION p202402 VALUES LESS THAN ('2024-03-01'),
+    PARTITION p202403 VALUES LESS THAN ('2024-04-01'),
+    PARTITION p202404 VALUES LESS THAN ('2024-05-01'),
+    PARTITION p202405 VALUES LESS THAN ('2024-06-01'),
+    PARTITION p202406 VALUES LESS THAN ('2024-07-01'),
+    PARTITION p202407 VALUES LESS THAN ('2024-08-01'),
+    PARTITION p202408 VALUES LESS THAN ('2024-09-01'),
+    PARTITION p202409 VALUES LESS THAN ('2024-10-01'),
+    PARTITION p202410 VALUES LESS THAN ('2024-11-01'),
+    PARTITION p202411 VALUES LESS THAN ('2024-12-01'),
+    PARTITION p202412 VALUES LESS THAN ('2025-01-01'),
+    PARTITION p_future VALUES LESS THAN (MAXVALUE)
+);
@@ -0,0 +1,6 @@
+-- Last write-ahead log record stored by the queued ingestion mode of POST /sightings, per log directory.
+CREATE TABLE sighting_ingestion_offset
+(
+    wal_id        VARCHAR(36) NOT NULL PRIMARY KEY,
+    last_sequence BIGINT      NOT NULL
+);
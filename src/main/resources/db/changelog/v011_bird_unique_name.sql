@@ -0,0 +1,24 @@
+-- Bird names become unique, so that concurrent sighting writes can create a missing bird with one upsert.
+-- Duplicates created before are merged into the bird with the lowest id first.
+CREATE TEMPORARY TABLE bird_duplicate AS
+SELECT b.id AS duplicate_id, k.id AS kept_id
+FROM bird b
+         JOIN (SELECT name, MIN(id) AS id FROM bird GROUP BY name HAVING COUNT(*) > 1) k
+              ON k.name = b.name AND k.id <> b.id;
+
+UPDATE sighting s JOIN bird_duplicate d ON d.duplicate_id = s.bird_id
+SET s.bird_id = d.kept_id;
+
+DELETE b FROM bird b JOIN bird_duplicate d ON d.duplicate_id = b.id;
+
+DROP TEMPORARY TABLE bird_duplicate;
+
+-- The merged sightings are counted under the kept bird, the rows of the deleted birds are gone by ON DELETE CASCADE.
+DELETE FROM sighting_stats;
+INSERT INTO sighting_stats (bird_id, location, sighting_date, sighting_count)
+SELECT bird_id, location, DATE(date_time), COUNT(*)
+FROM sighting
+GROUP BY bird_id, location, DATE(date_time);
+
+DROP INDEX idx_bird_name ON bird;
+CREATE UNIQUE INDEX uk_bird_name ON bird (name);
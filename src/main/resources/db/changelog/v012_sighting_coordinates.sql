@@ -0,0 +1,9 @@
+-- Optional coordinates of a sighting. MySQL does not support SPATIAL indexes on partitioned tables, so radius and
+-- bounding box queries run on a geohash of the coordinates instead: every cell of the area is one range of
+-- idx_sighting_geohash. Geohashes only use digits and lower case letters, ascii_bin keeps the index small and
+-- compares them byte by byte.
+ALTER TABLE sighting
+    ADD COLUMN latitude DOUBLE NULL,
+    ADD COLUMN longitude DOUBLE NULL,
+    ADD COLUMN geohash VARCHAR(12) CHARACTER SET ascii COLLATE ascii_bin NULL;
+CREATE INDEX idx_sighting_geohash ON sighting (geohash);
@@ -0,0 +1,20 @@
+-- Optimistic locking and last change time of every bird and sighting. Writes that bypass JPA keep the defaults.
+ALTER TABLE bird
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN updated_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6);
+ALTER TABLE sighting
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN updated_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6);
+
+-- Striped write counters per table, see TableVersions. All stripes exist up front, so bumping a counter only ever
+-- updates a row and never takes the gap locks of an insert.
+CREATE TABLE table_version (
+    table_name VARCHAR(64) NOT NULL,
+    stripe INT NOT NULL,
+    version BIGINT NOT NULL,
+    updated_at DATETIME(3) NULL,
+    PRIMARY KEY (table_name, stripe)
+);
+INSERT INTO table_version (table_name, stripe, version)
+WITH RECURSIVE stripes (stripe) AS (SELECT 0 UNION ALL SELECT stripe + 1 FROM stripes WHERE stripe < 15)
+SELECT name, stripe, 0 FROM (SELECT 'bird' AS name UNION ALL SELECT 'sighting') tables CROSS JOIN stripes;
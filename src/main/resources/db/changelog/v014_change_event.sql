@@ -0,0 +1,11 @@
+-- Transactional outbox of bird and sighting changes, see ChangeEvents. The auto-increment id is the position of an
+-- event in the stream, the relay publishes events in id order.
+CREATE TABLE change_event (
+    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    entity VARCHAR(16) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    operation VARCHAR(16) NOT NULL,
+    data TEXT NULL,
+    created_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    INDEX change_event_created_at (created_at)
+);
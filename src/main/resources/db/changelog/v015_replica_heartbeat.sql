@@ -0,0 +1,6 @@
+-- Heartbeat of the primary, written by every instance in the 'read-replicas' profile and read back from the read
+-- replicas to measure how far behind they are, see ReplicaMonitor. beat is in microseconds since the epoch.
+CREATE TABLE replica_heartbeat (
+    id INT NOT NULL PRIMARY KEY,
+    beat BIGINT NOT NULL
+);
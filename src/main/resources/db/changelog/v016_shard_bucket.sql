@@ -0,0 +1,6 @@
+-- Owner of every bucket of sightings in the 'sharding' profile, see ShardDirectory. Filled on the first start with
+-- the profile and changed when a bucket is moved to another shard.
+CREATE TABLE shard_bucket (
+    bucket INT NOT NULL PRIMARY KEY,
+    shard VARCHAR(64) NOT NULL
+);
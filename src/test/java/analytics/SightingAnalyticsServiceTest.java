@@ -0,0 +1,170 @@
+package analytics;
+
+import com.spirent.birdapp.analytics.SightingAnalyticsDto;
+import com.spirent.birdapp.analytics.SightingAnalyticsService;
+import com.spirent.birdapp.analytics.SightingCountDto;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static com.spirent.birdapp.analytics.SightingAnalyticsDto.GroupBy.BIRD;
+import static com.spirent.birdapp.analytics.SightingAnalyticsDto.GroupBy.LOCATION;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class SightingAnalyticsServiceTest {
+    private static final LocalDateTime MAY = LocalDateTime.of(2024, 5, 1, 0, 0);
+    private static final LocalDateTime JUNE = LocalDateTime.of(2024, 6, 1, 0, 0);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private SightingAnalyticsService sightingAnalyticsService;
+
+    @BeforeEach
+    public void setUp() {
+        sightingAnalyticsService = new SightingAnalyticsService(jdbcTemplate, Optional.empty());
+        sightingAnalyticsService.sightingSaved(1L, 10L, "Sparrow", "Hyde Park", MAY.plusDays(1));
+        sightingAnalyticsService.sightingSaved(2L, 10L, "Sparrow", "Sparrow Lake", MAY.plusDays(2));
+        sightingAnalyticsService.sightingSaved(3L, 11L, "Robin", "Hyde Park", MAY.plusDays(3));
+        sightingAnalyticsService.sightingSaved(4L, 10L, "Sparrow", "Hyde Park", JUNE.plusDays(1));
+        sightingAnalyticsService.sightingSaved(5L, 12L, "Magpie", "Hyde Park", MAY.minusDays(1));
+    }
+
+    @Test
+    public void analyze_countsPerBirdInTheRange_mostFirst() {
+        //When
+        var result = sightingAnalyticsService.analyze(BIRD, MAY, JUNE, null, null, 10);
+        //Then
+        assertEquals(3, result.getTotal());
+        assertThat(result.getGroups()).containsExactly(new SightingCountDto(10L, "Sparrow", 2),
+                new SightingCountDto(11L, "Robin", 1));
+    }
+
+    @Test
+    public void analyze_withoutRange_countsAllSightingsUpToTheLimit() {
+        //When
+        var result = sightingAnalyticsService.analyze(LOCATION, null, null, null, null, 1);
+        //Then
+        assertEquals(5, result.getTotal());
+        assertThat(result.getGroups()).containsExactly(new SightingCountDto(null, "Hyde Park", 4));
+    }
+
+    @Test
+    public void analyze_filtersByTheOtherColumnAndSelectsTheGroupOfTheSameColumn() {
+        assertThat(sightingAnalyticsService.analyze(LOCATION, MAY, JUNE, "Sparrow", null, 10).getGroups())
+                .containsExactly(new SightingCountDto(null, "Hyde Park", 1), new SightingCountDto(null, "Sparrow Lake", 1));
+        assertThat(sightingAnalyticsService.analyze(BIRD, null, null, null, "Hyde Park", 10).getGroups())
+                .extracting(SightingCountDto::getName).containsExactly("Sparrow", "Robin", "Magpie");
+
+        var robin = sightingAnalyticsService.analyze(BIRD, null, null, "Robin", "Hyde Park", 10);
+        assertEquals(1, robin.getTotal());
+        assertThat(robin.getGroups()).containsExactly(new SightingCountDto(11L, "Robin", 1));
+        assertEquals(0, sightingAnalyticsService.analyze(BIRD, null, null, "Owl", null, 10).getTotal());
+        assertEquals(0, sightingAnalyticsService.analyze(BIRD, null, null, null, "Nowhere", 10).getTotal());
+    }
+
+    @Test
+    public void sightingSaved_withAnExistingId_replacesTheSighting() {
+        //When
+        sightingAnalyticsService.sightingSaved(2L, 11L, "Robin", "Sparrow Lake", JUNE.plusDays(2));
+        //Then
+        assertThat(sightingAnalyticsService.analyze(BIRD, JUNE, null, null, null, 10).getGroups())
+                .containsExactly(new SightingCountDto(10L, "Sparrow", 1), new SightingCountDto(11L, "Robin", 1));
+        assertEquals(5, sightingAnalyticsService.analyze(BIRD, null, null, null, null, 10).getTotal());
+    }
+
+    @Test
+    public void deletesAndRenames_areApplied() {
+        //When
+        sightingAnalyticsService.sightingDeleted(1L);
+        sightingAnalyticsService.birdDeleted(12L);
+        sightingAnalyticsService.birdRenamed(11L, "European Robin");
+        sightingAnalyticsService.sightingsExpiredBefore(LocalDate.of(2024, 5, 4));
+        //Then
+        var result = sightingAnalyticsService.analyze(BIRD, null, null, null, null, 10);
+        assertEquals(2, result.getTotal());
+        assertThat(result.getGroups()).containsExactly(new SightingCountDto(10L, "Sparrow", 1),
+                new SightingCountDto(11L, "European Robin", 1));
+        assertEquals(0, sightingAnalyticsService.analyze(BIRD, null, null, "Robin", null, 10).getTotal());
+    }
+
+    @Test
+    public void manyUpdatesAndDeletes_keepTheCountsAcrossCompactions() {
+        //Given
+        for (long id = 100; id < 20_100; id++) {
+            sightingAnalyticsService.sightingSaved(id, 20L + id % 3, "Bird " + id % 3, "Lake " + id % 7,
+                    MAY.plusMinutes(id));
+        }
+        //When
+        for (long id = 100; id < 20_100; id += 2) {
+            sightingAnalyticsService.sightingDeleted(id);
+        }
+        for (long id = 101; id < 10_100; id += 2) {
+            sightingAnalyticsService.sightingSaved(id, 30L, "Owl", "Lake 0", JUNE.plusMinutes(id));
+        }
+        //Then
+        assertEquals(10_005, sightingAnalyticsService.analyze(BIRD, null, null, null, null, 10).getTotal());
+        assertThat(sightingAnalyticsService.analyze(BIRD, JUNE, null, null, null, 10).getGroups())
+                .containsExactly(new SightingCountDto(30L, "Owl", 5000), new SightingCountDto(10L, "Sparrow", 1));
+        assertEquals(5003, sightingAnalyticsService.analyze(LOCATION, MAY, JUNE, null, null, 10).getTotal());
+    }
+
+    @Test
+    public void sightingSaved_inATransaction_waitsForTheCommit() {
+        //Given
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            //When
+            sightingAnalyticsService.sightingSaved(6L, 13L, "Blackbird", "Hyde Park", MAY);
+            //Then
+            assertEquals(0, sightingAnalyticsService.analyze(BIRD, null, null, "Blackbird", null, 10).getTotal());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertEquals(1, sightingAnalyticsService.analyze(BIRD, null, null, "Blackbird", null, 10).getTotal());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void rebuild_loadsTheDatabaseWithoutUndoingConcurrentWrites() throws Exception {
+        //Given
+        var row = mock(ResultSet.class);
+        when(row.getLong(1)).thenReturn(7L, 8L);
+        when(row.getLong(2)).thenReturn(14L);
+        when(row.getString(3)).thenReturn("Heron");
+        when(row.getString(4)).thenReturn("Canal");
+        when(row.getObject(5, LocalDateTime.class)).thenReturn(MAY);
+        doAnswer(invocation -> {
+            var handler = invocation.<RowCallbackHandler>getArgument(1);
+            handler.processRow(row);
+            // committed after the load read sighting 8
+            sightingAnalyticsService.sightingSaved(8L, 14L, "Heron", "Harbour", MAY);
+            handler.processRow(row);
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+        //When
+        sightingAnalyticsService.rebuild();
+        //Then
+        var result = sightingAnalyticsService.analyze(LOCATION, null, null, null, null, 10);
+        assertEquals(2, result.getTotal());
+        assertThat(result.getGroups()).extracting(SightingCountDto::getName).containsExactlyInAnyOrder("Canal", "Harbour");
+        assertEquals(SightingAnalyticsDto.GroupBy.LOCATION, result.getGroupBy());
+    }
+}
@@ -0,0 +1,193 @@
+package bird;
+
+import com.spirent.birdapp.bird.Bird;
+import com.spirent.birdapp.bird.BirdCache;
+import com.spirent.birdapp.bird.BirdRepository;
+import com.spirent.birdapp.change.ChangeEventDto;
+import com.spirent.birdapp.change.ChangeEventRelay;
+import com.spirent.birdapp.change.ChangeEvents;
+import com.spirent.birdapp.etag.TableVersions;
+import com.spirent.birdapp.search.SearchService;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import org.hibernate.Cache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static com.spirent.birdapp.bird.BirdCache.BIRDS_BY_ID;
+import static com.spirent.birdapp.bird.BirdCache.BIRDS_BY_NAME;
+import static com.spirent.birdapp.bird.BirdCache.BIRD_LISTS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class BirdCacheTest {
+    private static final int WRITERS = 400;
+    private static final int NAMES = 20;
+
+    @Mock
+    private BirdRepository birdRepository;
+    @Mock
+    private SearchService searchService;
+    @Mock
+    private TableVersions tableVersions;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private ChangeEvents changeEvents;
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+    @Mock
+    private jakarta.persistence.Cache jpaCache;
+    @Mock
+    private Cache hibernateCache;
+    @Mock
+    private ChangeEventRelay changeEventRelay;
+
+    private BirdCache birdCache;
+    private final Map<String, Bird> birdsByName = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> upserts = new ConcurrentHashMap<>();
+
+    /**
+     * Backs the repository with a map that behaves like 'bird' with its unique key on the name.
+     */
+    @BeforeEach
+    public void setUp() {
+        birdCache = new BirdCache(birdRepository, new ConcurrentMapCacheManager(BIRDS_BY_ID, BIRDS_BY_NAME, BIRD_LISTS),
+                searchService, tableVersions, transactionTemplate, changeEvents, entityManagerFactory, changeEventRelay);
+        lenient().when(entityManagerFactory.getCache()).thenReturn(jpaCache);
+        lenient().when(jpaCache.unwrap(Cache.class)).thenReturn(hibernateCache);
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        var ids = new AtomicLong();
+        lenient().when(birdRepository.findByName(anyString())).thenAnswer(invocation ->
+                Optional.ofNullable(birdsByName.get(invocation.<String>getArgument(0))));
+        lenient().when(birdRepository.upsertByName(anyString())).thenAnswer(invocation -> {
+            String name = invocation.getArgument(0);
+            upserts.computeIfAbsent(name, key -> new AtomicInteger()).incrementAndGet();
+            return birdsByName.computeIfAbsent(name, key -> Bird.builder().id(ids.incrementAndGet()).name(key).build()).getId();
+        });
+        lenient().when(birdRepository.findById(anyLong())).thenAnswer(invocation -> birdsByName.values().stream()
+                .filter(bird -> bird.getId().equals(invocation.getArgument(0)))
+                .findFirst());
+    }
+
+    @Test
+    public void findOrCreateByName_underConcurrentWriters_createsEveryBirdOnce() throws Exception {
+        //Given
+        var start = new CountDownLatch(1);
+        var results = new ArrayList<Future<Bird>>(WRITERS);
+
+        //When
+        try (var executor = Executors.newFixedThreadPool(WRITERS)) {
+            for (int i = 0; i < WRITERS; i++) {
+                var name = "bird " + i % NAMES;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return birdCache.findOrCreateByName(name);
+                }));
+            }
+            start.countDown();
+        }
+
+        //Then
+        assertEquals(NAMES, birdsByName.size());
+        upserts.forEach((name, count) -> assertEquals(1, count.get(), name));
+        for (int i = 0; i < WRITERS; i++) {
+            assertSame(birdsByName.get("bird " + i % NAMES), results.get(i).get());
+        }
+    }
+
+    @Test
+    public void findOrCreateByName_whenNameIsCached_skipsTheDatabase() {
+        //Given
+        var sparrow = birdCache.findOrCreateByName("sparrow");
+
+        //When
+        var result = birdCache.findOrCreateByName("sparrow");
+
+        //Then
+        assertSame(sparrow, result);
+        assertEquals(1, upserts.get("sparrow").get());
+    }
+
+    @Test
+    public void findOrCreateByName_whenBirdIsCreated_evictsTheQueryCache() {
+        //When
+        birdCache.findOrCreateByName("sparrow");
+
+        //Then
+        verify(hibernateCache).evictQueryRegions();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void findOrCreateByName_afterABirdWasDeletedElsewhere_looksTheNameUpAgain() {
+        //Given
+        birdCache.start();
+        var listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(changeEventRelay).addListener(listener.capture());
+        birdCache.findOrCreateByName("sparrow");
+        birdsByName.remove("sparrow");
+
+        //When
+        listener.getValue().accept(List.of(ChangeEventDto.builder()
+                .entity(ChangeEventDto.Entity.BIRD)
+                .entityId(1)
+                .operation(ChangeEventDto.Operation.DELETED)
+                .build()));
+        var result = birdCache.findOrCreateByName("sparrow");
+
+        //Then
+        assertEquals(2L, result.getId());
+        assertEquals(2, upserts.get("sparrow").get());
+    }
+
+    @Test
+    public void findOrCreateByName_whenBirdExists_doesNotUpsert() {
+        //Given
+        birdsByName.put("crow", Bird.builder().id(7L).name("crow").build());
+
+        //When
+        var result = birdCache.findOrCreateByName("crow");
+
+        //Then
+        assertEquals(7L, result.getId());
+        verify(birdRepository, never()).upsertByName(anyString());
+    }
+
+    @Test
+    public void findOrCreateByName_insideATransaction_isRejected() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertThrows(IllegalStateException.class, () -> birdCache.findOrCreateByName("sparrow"));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package bird;
 
+import com.spirent.birdapp.SmileConfig;
 import com.spirent.birdapp.bird.BirdDto;
 import com.spirent.birdapp.bird.CreateBirdDto;
+import com.spirent.birdapp.bulk.BulkFormat;
+import com.spirent.birdapp.bulk.BulkImportResultDto;
 import java.util.List;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,9 +15,12 @@ import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.DynamicPropertyRegistry;
@@ -91,6 +97,27 @@ public class BirdControllerE2ETest {
         assertThat(body.size()).isEqualTo(3);
     }
 
+    @Test
+    public void testGetBirdAsSmile() throws Exception {
+        //Given
+        var headers = new HttpHeaders();
+        headers.setAccept(List.of(SmileConfig.SMILE));
+
+        //When
+        ResponseEntity<byte[]> response = restTemplate.exchange(
+                "http://localhost:" + port + "/birds",
+                HttpMethod.GET,
+                new HttpEntity<>(headers),
+                byte[].class);
+
+        //Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType()).isEqualTo(SmileConfig.SMILE);
+        var body = SmileConfig.smileObjectMapper(Jackson2ObjectMapperBuilder.json())
+                .readValue(response.getBody(), BirdDto[].class);
+        assertThat(body).extracting(BirdDto::getName).containsExactlyInAnyOrder("Bird 1", "Bird 2", "Bird 3");
+    }
+
     @Test
     public void testAddBirdWithReturnResource() {
         // Given
@@ -196,6 +223,33 @@ public class BirdControllerE2ETest {
         assertThat(body.size()).isEqualTo(2);
     }
 
+    @Test
+    public void importBirds_ofAnExport_rejectsTheTakenNames() {
+        //Given
+        var headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.parseMediaType(BulkFormat.CSV_VALUE)));
+        var export = restTemplate.exchange("http://localhost:" + port + "/birds/export", HttpMethod.GET,
+                new HttpEntity<>(headers), String.class).getBody();
+        var file = export + ",Bird 4,Black,1.0,1.0\n,bird 4,White,1.0,1.0\n";
+
+        //When
+        var result = importBirds(file);
+
+        //Then
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(result.getBody().getImported()).isEqualTo(1);
+        assertThat(result.getBody().getRejected()).isEqualTo(4);
+        assertThat(jdbcTemplate.queryForList("SELECT name FROM bird ORDER BY name", String.class))
+                .containsExactly("Bird 1", "Bird 2", "Bird 3", "Bird 4");
+    }
+
+    private ResponseEntity<BulkImportResultDto> importBirds(String csv) {
+        var headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(BulkFormat.CSV_VALUE));
+        return restTemplate.postForEntity("http://localhost:" + port + "/birds/import", new HttpEntity<>(csv, headers),
+                BulkImportResultDto.class);
+    }
+
     private static CreateBirdDto createBirdDto() {
         return CreateBirdDto.builder()
                 .name("Test bird")
@@ -0,0 +1,107 @@
+package bird;
+
+import com.spirent.birdapp.bird.BirdDto;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.List;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures the latency of repeated GET /birds calls with the Hibernate second-level and query cache enabled
+ * (the 'l2-cache' profile) and the near-cache of the result lists disabled, so every call reaches Hibernate.
+ * The first call fills the query cache, the following ones are answered from it.
+ * Only runs when asked for: {@code mvn test -Dbenchmark=true}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        classes = com.spirent.birdapp.BirdAppApplication.class)
+@Testcontainers
+@ActiveProfiles({"test", "l2-cache"})
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class BirdReadBenchmarkE2ETest {
+    private static final int BIRDS = 500;
+    private static final int CALLS = 2_000;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Container
+    public static MySQLContainer<?> mySQLContainer = new MySQLContainer<>("mysql:latest")
+            .withDatabaseName("testdb");
+
+    @DynamicPropertySource
+    public static void registerPgProperties(DynamicPropertyRegistry registry) {
+        //override application.yaml
+        registry.add("spring.datasource.url", mySQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", mySQLContainer::getUsername);
+        registry.add("spring.datasource.password", mySQLContainer::getPassword);
+        registry.add("bird-app.bird-cache.near-cache", () -> "false");
+    }
+
+    @BeforeEach
+    public void setup() {
+        for (int id = 1; id <= BIRDS; id++) {
+            jdbcTemplate.update("INSERT INTO bird (id, name, color, height, weight) VALUES (?, ?, 'Red', 10.0, 20.0)",
+                    id, "Bird " + id);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.execute("DELETE FROM bird");
+    }
+
+    @Test
+    public void repeatedGetBirds() {
+        var latencies = new long[CALLS];
+        for (int i = 0; i < CALLS; i++) {
+            long start = System.nanoTime();
+            var response = restTemplate.exchange("http://localhost:" + port + "/birds", HttpMethod.GET, null,
+                    new ParameterizedTypeReference<List<BirdDto>>() {
+                    });
+            latencies[i] = System.nanoTime() - start;
+            assertThat(response.getBody()).hasSize(BIRDS);
+        }
+
+        System.out.printf("GET /birds, first call: %d us%n", latencies[0] / 1_000);
+        var warm = Arrays.copyOfRange(latencies, 1, CALLS);
+        Arrays.sort(warm);
+        System.out.printf("GET /birds, next %d calls: p50 %d us, p99 %d us%n", warm.length,
+                warm[warm.length / 2] / 1_000, warm[warm.length * 99 / 100] / 1_000);
+
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        System.out.printf("query cache: %d hits, %d misses%n",
+                statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount());
+        for (var region : statistics.getSecondLevelCacheRegionNames()) {
+            var regionStatistics = statistics.getDomainDataRegionStatistics(region);
+            System.out.printf("region %s: %d hits, %d misses, %d puts%n", region,
+                    regionStatistics.getHitCount(), regionStatistics.getMissCount(), regionStatistics.getPutCount());
+        }
+        assertThat(statistics.getQueryCacheHitCount()).isGreaterThan(0);
+    }
+}
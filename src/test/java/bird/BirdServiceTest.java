@@ -1,10 +1,16 @@
 package bird;
 
+import com.spirent.birdapp.analytics.SightingAnalyticsService;
 import com.spirent.birdapp.bird.Bird;
 import com.spirent.birdapp.bird.BirdDto;
 import com.spirent.birdapp.bird.BirdRepository;
 import com.spirent.birdapp.bird.BirdService;
 import com.spirent.birdapp.bird.CreateBirdDto;
+import com.spirent.birdapp.change.ChangeEventDto;
+import com.spirent.birdapp.change.ChangeEvents;
+import com.spirent.birdapp.etag.CollectionVersion;
+import com.spirent.birdapp.etag.TableVersions;
+import com.spirent.birdapp.search.SearchService;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -14,10 +20,18 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import static com.spirent.birdapp.bird.BirdCache.BIRD_LISTS;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.times;
@@ -28,6 +42,18 @@ import static org.mockito.Mockito.when;
 public class BirdServiceTest {
     @Mock
     private BirdRepository birdRepository;
+    @Mock
+    private SearchService searchService;
+    @Mock
+    private TableVersions tableVersions;
+    @Mock
+    private SightingAnalyticsService sightingAnalyticsService;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private ChangeEvents changeEvents;
+    @Spy
+    private CacheManager cacheManager = new ConcurrentMapCacheManager(BIRD_LISTS);
 
     @InjectMocks
     private BirdService birdService;
@@ -65,6 +91,7 @@ public class BirdServiceTest {
     @Test
     void getBirds_whenNoBirdsExist_returnsEmptyOptional() {
         // Given
+        when(tableVersions.current(TableVersions.BIRD)).thenReturn(new CollectionVersion("W/\"bird1\"", null));
         when(birdRepository.findAllBirds(null, null)).thenReturn(Collections.emptyList());
 
         // When
@@ -80,6 +107,7 @@ public class BirdServiceTest {
         Bird bird = new Bird();
         bird.setName("Sparrow");
         bird.setColor("Grey");
+        when(tableVersions.current(TableVersions.BIRD)).thenReturn(new CollectionVersion("W/\"bird1\"", null));
         when(birdRepository.findAllBirds(null, null)).thenReturn(Collections.singletonList(bird));
 
         // When
@@ -91,6 +119,27 @@ public class BirdServiceTest {
         assertEquals("Grey", result.get().get(0).getColor());
     }
 
+    @Test
+    void getBirds_readsTheListAgainOnceTheTableVersionChanged() {
+        // Given
+        when(tableVersions.current(TableVersions.BIRD)).thenReturn(
+                new CollectionVersion("W/\"bird1\"", null),
+                new CollectionVersion("W/\"bird1\"", null),
+                new CollectionVersion("W/\"bird2\"", null));
+        when(birdRepository.findAllBirds(null, "Grey")).thenReturn(List.of(bird), List.of(bird, bird));
+
+        // When
+        var first = birdService.getBirds(null, "Grey");
+        var cached = birdService.getBirds(null, "Grey");
+        var changed = birdService.getBirds(null, "Grey");
+
+        // Then
+        assertEquals(1, first.get().size());
+        assertEquals(1, cached.get().size());
+        assertEquals(2, changed.get().size());
+        verify(birdRepository, times(2)).findAllBirds(null, "Grey");
+    }
+
     @Test
     void addBird_whenBirdIsValid_savesAndReturnsBird() {
         // Given
@@ -110,18 +159,23 @@ public class BirdServiceTest {
                 .build();
 
         when(birdRepository.save(any(Bird.class))).thenReturn(bird);
+        runTransactions();
 
         // When
         var result = birdService.addBird(createBirdDto);
 
         // Then
         assertEquals(Optional.of(birdDto), result);
+        verify(searchService).indexBird(1L, "Sparrow", "Grey");
+        verify(tableVersions).bump(TableVersions.BIRD);
+        verify(changeEvents).record(ChangeEventDto.Entity.BIRD, 1L, ChangeEventDto.Operation.CREATED, birdDto);
     }
 
     @Test
     void addBird_whenRepositoryThrowsException_shouldPropagateException() {
         // Given
         when(birdRepository.save(any(Bird.class))).thenThrow(new RuntimeException());
+        runTransactions();
 
         //Then
         assertThrows(RuntimeException.class, () -> birdService.addBird(createBirdDto));
@@ -138,6 +192,34 @@ public class BirdServiceTest {
 
         // Then
         assertEquals(Optional.of(birdDto), result);
+        verify(changeEvents).record(ChangeEventDto.Entity.BIRD, 1L, ChangeEventDto.Operation.UPDATED, birdDto);
+    }
+
+    @Test
+    void addBird_whenNameIsTaken_returnsEmptyOptional() {
+        // Given
+        when(birdRepository.save(any(Bird.class))).thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+        runTransactions();
+
+        // When
+        var result = birdService.addBird(createBirdDto);
+
+        // Then
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void updateBird_whenNameIsTakenByAnotherBird_returnsEmptyOptional() {
+        // Given
+        when(birdRepository.findById(1L)).thenReturn(Optional.of(bird));
+        when(birdRepository.findByName("Sparrow")).thenReturn(Optional.of(Bird.builder().id(2L).name("Sparrow").build()));
+
+        // When
+        var result = birdService.updateBird(birdDto);
+
+        // Then
+        assertTrue(result.isEmpty());
+        verify(birdRepository, times(0)).save(any(Bird.class));
     }
 
     @Test
@@ -174,6 +256,11 @@ public class BirdServiceTest {
 
         // Then
         verify(birdRepository, times(1)).deleteById(birdId);
+        verify(searchService).removeBird(birdId);
+        verify(tableVersions).bump(TableVersions.BIRD);
+        verify(tableVersions).bump(TableVersions.SIGHTING);
+        verify(sightingAnalyticsService).birdDeleted(birdId);
+        verify(changeEvents).record(ChangeEventDto.Entity.BIRD, birdId, ChangeEventDto.Operation.DELETED, null);
         assertEquals(Optional.of(birdId), result);
     }
 
@@ -191,4 +278,8 @@ public class BirdServiceTest {
         assertEquals(Optional.empty(), result);
     }
 
+    private void runTransactions() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
 }
@@ -0,0 +1,128 @@
+package bird;
+
+import com.spirent.birdapp.bird.BirdRepository;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Hundreds of concurrent writers reference birds that do not exist yet, through POST /sightings and directly
+ * through the upsert that other application instances would run. Every bird must be created exactly once.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        classes = com.spirent.birdapp.BirdAppApplication.class)
+@Testcontainers
+@ActiveProfiles("test")
+public class BirdUpsertConcurrencyE2ETest {
+    private static final int WRITERS = 300;
+    private static final int NAMES = 10;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    BirdRepository birdRepository;
+
+    @Container
+    public static MySQLContainer<?> mySQLContainer = new MySQLContainer<>("mysql:latest")
+            .withDatabaseName("testdb");
+
+    @DynamicPropertySource
+    public static void registerPgProperties(DynamicPropertyRegistry registry) {
+        //override application.yaml
+        registry.add("spring.datasource.url", mySQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", mySQLContainer::getUsername);
+        registry.add("spring.datasource.password", mySQLContainer::getPassword);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.execute("DELETE FROM sighting_stats");
+        jdbcTemplate.execute("DELETE FROM sighting");
+        jdbcTemplate.execute("DELETE FROM bird");
+    }
+
+    @Test
+    public void concurrentSightingsOfNewBirds_createEveryBirdOnce() throws Exception {
+        //Given
+        var client = HttpClient.newHttpClient();
+        var start = new CountDownLatch(1);
+        var statuses = new ArrayList<Future<Integer>>(WRITERS);
+
+        //When
+        try (var executor = Executors.newFixedThreadPool(WRITERS)) {
+            for (int i = 0; i < WRITERS; i++) {
+                var body = "{\"birdName\":\"Upsert bird %d\",\"location\":\"Lake\",\"dateTime\":\"2024-05-08T10:%02d:00\"}"
+                        .formatted(i % NAMES, i % 60);
+                var request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/sightings?returnResource=false"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build();
+                statuses.add(executor.submit(() -> {
+                    start.await();
+                    return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                }));
+            }
+            start.countDown();
+        }
+
+        //Then
+        for (var status : statuses) {
+            assertThat(status.get()).isEqualTo(200);
+        }
+        assertThat(jdbcTemplate.queryForList("SELECT COUNT(*) FROM bird GROUP BY name", Long.class))
+                .hasSize(NAMES)
+                .containsOnly(1L);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sighting", Long.class)).isEqualTo(WRITERS);
+    }
+
+    @Test
+    public void concurrentUpsertsWithoutTheInProcessMemo_returnOneIdPerName() throws Exception {
+        //Given
+        var start = new CountDownLatch(1);
+        var ids = new ArrayList<Future<Long>>(WRITERS);
+
+        //When
+        try (var executor = Executors.newFixedThreadPool(WRITERS)) {
+            for (int i = 0; i < WRITERS; i++) {
+                var name = "Upsert bird " + i % NAMES;
+                ids.add(executor.submit(() -> {
+                    start.await();
+                    return birdRepository.upsertByName(name);
+                }));
+            }
+            start.countDown();
+        }
+
+        //Then
+        var distinctIds = new HashSet<Long>();
+        for (int i = 0; i < WRITERS; i++) {
+            distinctIds.add(ids.get(i).get());
+            assertThat(ids.get(i).get()).isEqualTo(ids.get(i % NAMES).get());
+        }
+        assertThat(distinctIds).hasSize(NAMES);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM bird", Long.class)).isEqualTo(NAMES);
+    }
+}
@@ -0,0 +1,139 @@
+package bulk;
+
+import com.spirent.birdapp.bulk.BulkColumn;
+import com.spirent.birdapp.bulk.BulkFormat;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import static com.spirent.birdapp.bulk.BulkColumn.Type.DATETIME;
+import static com.spirent.birdapp.bulk.BulkColumn.Type.DOUBLE;
+import static com.spirent.birdapp.bulk.BulkColumn.Type.LONG;
+import static com.spirent.birdapp.bulk.BulkColumn.Type.STRING;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BulkFormatTest {
+    private static final List<BulkColumn> COLUMNS = List.of(
+            new BulkColumn("id", LONG),
+            new BulkColumn("name", STRING),
+            new BulkColumn("weight", DOUBLE),
+            new BulkColumn("dateTime", DATETIME));
+    private static final LocalDateTime START = LocalDateTime.of(2024, 5, 8, 10, 15, 30, 123_000_000);
+
+    @ParameterizedTest
+    @EnumSource(BulkFormat.class)
+    public void roundTrip_returnsTheWrittenRowsAcrossRowGroups(BulkFormat format) throws IOException {
+        //Given
+        var rows = new ArrayList<Object[]>();
+        for (int i = 0; i < 20_000; i++) {
+            rows.add(new Object[]{
+                    (long) i * 3 - 5,
+                    i % 7 == 0 ? null : "bird " + i % 10,
+                    i % 5 == 0 ? null : i / 4.0,
+                    i % 11 == 0 ? null : START.minusMinutes(i)});
+        }
+
+        //When
+        var read = readAll(format, write(format, rows));
+
+        //Then
+        assertEquals(rows.size(), read.size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertArrayEquals(rows.get(i), read.get(i), "row " + i);
+        }
+    }
+
+    @Test
+    public void columnar_isSmallerThanCsvForRepetitiveData() throws IOException {
+        //Given
+        var rows = new ArrayList<Object[]>();
+        for (int i = 0; i < 10_000; i++) {
+            rows.add(new Object[]{(long) i, "Eurasian blue tit", 11.5, START.plusSeconds(i)});
+        }
+
+        //When
+        int csvSize = write(BulkFormat.CSV, rows).length;
+        int columnarSize = write(BulkFormat.COLUMNAR, rows).length;
+
+        //Then
+        assertTrue(columnarSize * 3 < csvSize, columnarSize + " bytes columnar, " + csvSize + " bytes CSV");
+    }
+
+    @Test
+    public void csvReader_matchesColumnsByHeaderName() throws IOException {
+        //Given
+        var csv = "name,extra,id,dateTime\nrobin,x,7,2024-05-08T10:15:30\nwren,y,,\n";
+
+        //When
+        var read = readAll(BulkFormat.CSV, csv.getBytes(StandardCharsets.UTF_8));
+
+        //Then
+        assertArrayEquals(new Object[]{7L, "robin", null, LocalDateTime.of(2024, 5, 8, 10, 15, 30)}, read.get(0));
+        assertArrayEquals(new Object[]{null, "wren", null, null}, read.get(1));
+    }
+
+    @Test
+    public void columnarReader_leavesMissingColumnsEmpty() throws IOException {
+        //Given
+        var file = write(BulkFormat.COLUMNAR, List.<Object[]>of(new Object[]{1L, "robin"}),
+                List.of(COLUMNS.get(0), COLUMNS.get(1)));
+
+        //When
+        var read = readAll(BulkFormat.COLUMNAR, file);
+
+        //Then
+        assertEquals(1, read.size());
+        assertArrayEquals(new Object[]{1L, "robin", null, null}, read.get(0));
+    }
+
+    @Test
+    public void columnarReader_rejectsOtherFiles() {
+        //Given
+        var file = "id,name\n1,robin\n".getBytes(StandardCharsets.UTF_8);
+
+        //When //Then
+        assertThrows(IllegalArgumentException.class, () -> readAll(BulkFormat.COLUMNAR, file));
+    }
+
+    @Test
+    public void fromMediaTypes_defaultsToCsv() {
+        assertEquals(BulkFormat.COLUMNAR, BulkFormat.fromMediaTypes(BulkFormat.COLUMNAR_VALUE));
+        assertEquals(BulkFormat.CSV, BulkFormat.fromMediaTypes("*/*"));
+        assertEquals(BulkFormat.CSV, BulkFormat.fromMediaTypes(null));
+    }
+
+    private static byte[] write(BulkFormat format, List<Object[]> rows) throws IOException {
+        return write(format, rows, COLUMNS);
+    }
+
+    private static byte[] write(BulkFormat format, List<Object[]> rows, List<BulkColumn> columns) throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (var writer = format.writer(out, columns)) {
+            for (var row : rows) {
+                writer.write(row);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static List<Object[]> readAll(BulkFormat format, byte[] file) throws IOException {
+        var rows = new ArrayList<Object[]>();
+        try (var reader = format.reader(new ByteArrayInputStream(file), COLUMNS)) {
+            Object[] row;
+            while ((row = reader.read()) != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,159 @@
+package change;
+
+import com.spirent.birdapp.change.ChangeEventDto;
+import com.spirent.birdapp.change.ChangeEventProperties;
+import com.spirent.birdapp.change.ChangeEventRelay;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+public class ChangeEventRelayTest {
+    private static final Duration WAIT = Duration.ofSeconds(5);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private final ChangeEventProperties properties = new ChangeEventProperties();
+    /**
+     * The committed rows of 'change_event', in id order.
+     */
+    private final List<ChangeEventDto> outbox = new CopyOnWriteArrayList<>();
+    private ChangeEventRelay relay;
+
+    @BeforeEach
+    public void setUp() {
+        properties.setPollInterval(Duration.ofMillis(20));
+        properties.setBufferSize(3);
+        lenient().when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any(), any())).thenAnswer(invocation -> {
+            long after = invocation.getArgument(2);
+            long until = invocation.getArgument(3);
+            int limit = invocation.getArgument(4);
+            return outbox.stream()
+                    .filter(event -> event.getId() > after && event.getId() <= until)
+                    .limit(limit)
+                    .toList();
+        });
+        lenient().when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenAnswer(invocation ->
+                outbox.isEmpty() ? null : invocation.<String>getArgument(0).contains("MAX")
+                        ? outbox.get(outbox.size() - 1).getId()
+                        : outbox.get(0).getId());
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        relay.stop();
+    }
+
+    @Test
+    public void await_returnsTheEventsCommittedAfterThePosition() throws Exception {
+        //Given
+        commit(1, 2);
+        start();
+        //When
+        commit(3, 4);
+        relay.wakeUp();
+        //Then
+        assertThat(ids(relay.await(2, 10, WAIT))).containsExactly(3L, 4L);
+        assertThat(ids(relay.await(3, 1, WAIT))).containsExactly(4L);
+        assertThat(relay.await(4, 10, Duration.ofMillis(50))).isEmpty();
+    }
+
+    @Test
+    public void read_servesEventsDroppedFromTheBufferFromTheDatabase() throws Exception {
+        //Given
+        start();
+        commit(1, 2, 3, 4, 5);
+        relay.wakeUp();
+        relay.await(4, 10, WAIT);
+        //When
+        outbox.removeIf(event -> event.getId() == 1);
+        //Then
+        assertThat(ids(relay.read(0, 10))).containsExactly(2L, 3L, 4L, 5L);
+        assertThat(ids(relay.read(2, 10))).containsExactly(3L, 4L, 5L);
+    }
+
+    @Test
+    public void poll_waitsForAMissingIdUntilTheGapTimesOut() throws Exception {
+        //Given
+        properties.setGapTimeout(Duration.ofHours(1));
+        start();
+        commit(1, 3);
+        //When
+        relay.wakeUp();
+        //Then
+        assertThat(ids(relay.await(0, 10, WAIT))).containsExactly(1L);
+        assertThat(relay.await(1, 10, Duration.ofMillis(200))).isEmpty();
+        commit(2);
+        assertThat(ids(relay.await(1, 10, WAIT))).containsExactly(2L, 3L);
+    }
+
+    @Test
+    public void poll_skipsAGapAfterTheTimeout() throws Exception {
+        //Given
+        properties.setGapTimeout(Duration.ofMillis(100));
+        start();
+        commit(1, 3);
+        //When
+        relay.wakeUp();
+        //Then
+        assertThat(ids(relay.await(1, 10, WAIT))).containsExactly(3L);
+        assertThat(ids(relay.read(0, 10))).containsExactly(1L, 3L);
+    }
+
+    @Test
+    public void isExpired_whenTheEventsAfterThePositionWereDeleted() throws Exception {
+        //Given
+        start();
+        commit(1, 2, 3, 4, 5, 6);
+        relay.wakeUp();
+        relay.await(5, 10, WAIT);
+        //When
+        outbox.removeIf(event -> event.getId() < 3);
+        //Then
+        assertTrue(relay.isExpired(1));
+        assertFalse(relay.isExpired(2));
+        assertFalse(relay.isExpired(0));
+        assertFalse(relay.isExpired(5));
+    }
+
+    private void start() {
+        relay = new ChangeEventRelay(jdbcTemplate, properties);
+        relay.start();
+    }
+
+    private void commit(long... ids) {
+        for (var id : ids) {
+            outbox.add(ChangeEventDto.builder()
+                    .id(id)
+                    .entity(ChangeEventDto.Entity.SIGHTING)
+                    .entityId(100 + id)
+                    .operation(ChangeEventDto.Operation.CREATED)
+                    .data("{}")
+                    .time(LocalDateTime.now())
+                    .build());
+        }
+        outbox.sort((first, second) -> Long.compare(first.getId(), second.getId()));
+    }
+
+    private static List<Long> ids(List<ChangeEventDto> events) {
+        return events.stream().map(ChangeEventDto::getId).toList();
+    }
+}
@@ -0,0 +1,64 @@
+package etag;
+
+import com.spirent.birdapp.etag.CollectionVersion;
+import com.spirent.birdapp.etag.CollectionVersion.TableState;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CollectionVersionTest {
+
+    @Test
+    public void of_joinsTheVersionsOfTheTablesInOrder() {
+        //Given
+        var states = Map.of("bird", new TableState(12, null), "sighting", new TableState(40, null));
+        //When
+        var version = CollectionVersion.of(states, "bird", "sighting");
+        //Then
+        assertThat(version.etag()).isEqualTo("W/\"bird12.sighting40\"");
+        assertThat(version.lastModified()).isNull();
+        assertThat(version.lastModifiedMillis()).isEqualTo(-1);
+    }
+
+    @Test
+    public void of_ignoresOtherTablesAndTakesTheLatestWrite() {
+        //Given
+        var birdWrite = LocalDateTime.of(2024, 5, 1, 10, 0);
+        var sightingWrite = LocalDateTime.of(2024, 5, 2, 10, 0);
+        var states = Map.of("bird", new TableState(3, birdWrite), "sighting", new TableState(7, sightingWrite));
+        //When
+        var birds = CollectionVersion.of(states, "bird");
+        var sightings = CollectionVersion.of(states, "bird", "sighting");
+        //Then
+        assertThat(birds.etag()).isEqualTo("W/\"bird3\"");
+        assertThat(birds.lastModified()).isEqualTo(birdWrite.atZone(ZoneId.systemDefault()).toInstant());
+        assertThat(sightings.lastModified()).isEqualTo(sightingWrite.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    @Test
+    public void of_leavesOutTheLastWriteUntilItsSecondIsOver() {
+        //Given
+        var write = LocalDateTime.of(2024, 5, 1, 10, 0, 0, 250_000_000);
+        var states = Map.of("bird", new TableState(3, write));
+        var writeSecond = write.withNano(0).atZone(ZoneId.systemDefault()).toInstant();
+        //When
+        var sameSecond = CollectionVersion.of(states, writeSecond.plusMillis(999), "bird");
+        var nextSecond = CollectionVersion.of(states, writeSecond.plusSeconds(1), "bird");
+        //Then
+        assertThat(sameSecond.etag()).isEqualTo("W/\"bird3\"");
+        assertThat(sameSecond.lastModified()).isNull();
+        assertThat(sameSecond.lastModifiedMillis()).isEqualTo(-1);
+        assertThat(nextSecond.lastModified()).isEqualTo(write.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    @Test
+    public void of_whenATableHasNoCounters_countsItAsVersionZero() {
+        //When
+        var version = CollectionVersion.of(Map.of(), "bird");
+        //Then
+        assertThat(version.etag()).isEqualTo("W/\"bird0\"");
+    }
+}
@@ -0,0 +1,116 @@
+package etag;
+
+import com.sun.management.OperatingSystemMXBean;
+import com.spirent.birdapp.etag.TableVersions;
+import java.lang.management.ManagementFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Polls GET /sightings over 20k sightings the way a client refreshing a view does, once without validators and
+ * once revalidating with If-None-Match, and prints the response bytes, latency and process CPU time of both.
+ * The CPU time includes the client, which runs in the same process and does less work for a 304 as well.
+ * Only runs when asked for: {@code mvn test -Dbenchmark=true}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        classes = com.spirent.birdapp.BirdAppApplication.class)
+@Testcontainers
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class ConditionalGetBenchmarkE2ETest {
+    private static final int SIGHTINGS = 20_000;
+    private static final int CALLS = 200;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    TableVersions tableVersions;
+
+    @Container
+    public static MySQLContainer<?> mySQLContainer = new MySQLContainer<>("mysql:latest")
+            .withDatabaseName("testdb");
+
+    @DynamicPropertySource
+    public static void registerPgProperties(DynamicPropertyRegistry registry) {
+        //override application.yaml
+        registry.add("spring.datasource.url", mySQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", mySQLContainer::getUsername);
+        registry.add("spring.datasource.password", mySQLContainer::getPassword);
+    }
+
+    @Test
+    public void pollSightings() {
+        jdbcTemplate.execute("INSERT INTO bird (id, name, color, height, weight) VALUES (1, 'Bird 1', 'Red', 10.0, 20.0)");
+        jdbcTemplate.execute((ConnectionCallback<Object>) connection -> {
+            try (var statement = connection.createStatement()) {
+                statement.execute("SET SESSION cte_max_recursion_depth = " + SIGHTINGS);
+                return statement.executeUpdate("INSERT INTO sighting (id, bird_id, location, date_time) "
+                        + "WITH RECURSIVE seq (n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < " + SIGHTINGS + ") "
+                        + "SELECT n, 1, CONCAT('Location ', n % 100), TIMESTAMP('2024-06-01') + INTERVAL n MINUTE FROM seq");
+            }
+        });
+        // the rows were written behind the services' back
+        tableVersions.bump(TableVersions.SIGHTING);
+
+        var etag = get(null).getHeaders().getETag();
+        var full = run("without validators", null);
+        var revalidated = run("with If-None-Match", etag);
+
+        System.out.printf("saved %.1f%% of the bytes and %.1f%% of the CPU time%n",
+                100.0 * (full[0] - revalidated[0]) / full[0], 100.0 * (full[1] - revalidated[1]) / full[1]);
+        assertThat(revalidated[0]).isZero();
+        assertThat(revalidated[1]).isLessThan(full[1]);
+    }
+
+    /**
+     * @return the response bytes and process CPU nanoseconds of all calls
+     */
+    private long[] run(String label, String etag) {
+        var os = (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        long bytes = 0;
+        long cpuStart = os.getProcessCpuTime();
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) {
+            var response = get(etag);
+            assertThat(response.getStatusCode()).isEqualTo(etag == null ? HttpStatus.OK : HttpStatus.NOT_MODIFIED);
+            bytes += response.getBody() == null ? 0 : response.getBody().length;
+        }
+        long cpu = os.getProcessCpuTime() - cpuStart;
+        System.out.printf("GET /sightings %s: %d calls, %d KiB, %d us per call, %d ms CPU%n", label, CALLS,
+                bytes / 1024, (System.nanoTime() - start) / CALLS / 1_000, cpu / 1_000_000);
+        return new long[]{bytes, cpu};
+    }
+
+    private ResponseEntity<byte[]> get(String etag) {
+        var headers = new HttpHeaders();
+        if (etag != null) {
+            headers.setIfNoneMatch(etag);
+        }
+        return restTemplate.exchange("http://localhost:" + port + "/sightings", HttpMethod.GET,
+                new HttpEntity<>(headers), byte[].class);
+    }
+}
@@ -0,0 +1,167 @@
+package etag;
+
+import com.spirent.birdapp.bird.CreateBirdDto;
+import com.spirent.birdapp.sighting.CreateSightingDto;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the ETag and Last-Modified validators of the bird and sighting collections against a real database:
+ * a repeated GET with the validators is answered with 304 until a write to one of the tables.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        classes = com.spirent.birdapp.BirdAppApplication.class)
+@Testcontainers
+@ActiveProfiles("test")
+public class ConditionalGetE2ETest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Container
+    public static MySQLContainer<?> mySQLContainer = new MySQLContainer<>("mysql:latest")
+            .withDatabaseName("testdb");
+
+    @DynamicPropertySource
+    public static void registerPgProperties(DynamicPropertyRegistry registry) {
+        //override application.yaml
+        registry.add("spring.datasource.url", mySQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", mySQLContainer::getUsername);
+        registry.add("spring.datasource.password", mySQLContainer::getPassword);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.execute("DELETE FROM sighting");
+        jdbcTemplate.execute("DELETE FROM sighting_stats");
+        jdbcTemplate.execute("DELETE FROM bird");
+    }
+
+    @Test
+    public void getBirds_withCurrentETag_returnsNotModifiedUntilABirdChanges() {
+        //Given
+        addBird("Robin");
+        var first = get("/birds", null);
+        var etag = first.getHeaders().getETag();
+
+        //When
+        var unchanged = get("/birds", etag);
+        addBird("Wren");
+        var changed = get("/birds", etag);
+
+        //Then
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(etag).startsWith("W/\"bird");
+        assertThat(first.getHeaders().getLastModified()).isPositive();
+        assertThat(unchanged.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(unchanged.getBody()).isNull();
+        assertThat(changed.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(changed.getHeaders().getETag()).isNotEqualTo(etag);
+        assertThat(changed.getBody()).contains("Wren");
+    }
+
+    @Test
+    public void getSightings_withCurrentETag_returnsNotModifiedUntilASightingOrBirdChanges() {
+        //Given
+        addSighting("Robin");
+        var etag = get("/sightings", null).getHeaders().getETag();
+
+        //When
+        var unchanged = get("/sightings", etag);
+        addSighting("Robin");
+        var afterSighting = get("/sightings", etag);
+        var afterSightingETag = afterSighting.getHeaders().getETag();
+        addBird("Wren");
+        var afterBird = get("/sightings", afterSightingETag);
+
+        //Then
+        assertThat(unchanged.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(afterSighting.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(afterBird.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    public void getBirds_inTheSecondOfTheLastWrite_leavesOutLastModified() {
+        //Given
+        addBird("Robin");
+
+        //When
+        var response = get("/birds", null);
+
+        //Then
+        assertThat(response.getHeaders().getETag()).isNotNull();
+        assertThat(response.getHeaders().getLastModified()).isEqualTo(-1);
+    }
+
+    @Test
+    public void getBirds_withCurrentLastModified_returnsNotModified() throws InterruptedException {
+        //Given the second of the last write is over
+        addBird("Robin");
+        Thread.sleep(1000);
+        var lastModified = get("/birds", null).getHeaders().getLastModified();
+        assertThat(lastModified).isPositive();
+        var headers = new HttpHeaders();
+        headers.setIfModifiedSince(lastModified);
+
+        //When
+        var response = restTemplate.exchange("http://localhost:" + port + "/birds", HttpMethod.GET,
+                new HttpEntity<>(headers), String.class);
+
+        //Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+    }
+
+    private ResponseEntity<String> get(String path, String etag) {
+        var headers = new HttpHeaders();
+        if (etag != null) {
+            headers.setIfNoneMatch(etag);
+        }
+        return restTemplate.exchange("http://localhost:" + port + path, HttpMethod.GET, new HttpEntity<>(headers),
+                String.class);
+    }
+
+    private void addBird(String name) {
+        var bird = CreateBirdDto.builder()
+                .name(name)
+                .color("Brown")
+                .weight(20.0)
+                .height(10.0)
+                .build();
+        assertThat(restTemplate.postForEntity("http://localhost:" + port + "/birds?returnResource=false", bird,
+                Void.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    private void addSighting(String birdName) {
+        var sighting = CreateSightingDto.builder()
+                .birdName(birdName)
+                .location("Park")
+                .dateTime(LocalDateTime.now().withNano(0))
+                .build();
+        assertThat(restTemplate.postForEntity("http://localhost:" + port + "/sightings?returnResource=false", sighting,
+                Void.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+}
@@ -0,0 +1,172 @@
+package replica;
+
+import com.spirent.birdapp.bird.CreateBirdDto;
+import com.spirent.birdapp.replica.ReplicaMonitor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the 'read-replicas' profile against two independent databases. The second one stands in for a replica: the
+ * test copies the schema to it and plays the replication by writing its rows and heartbeat, so it can tell from
+ * the answers which database served a read.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        classes = com.spirent.birdapp.BirdAppApplication.class,
+        properties = {"bird-app.bird-cache.near-cache=false", "bird-app.read-replicas.check-interval=100ms",
+                "bird-app.read-replicas.max-lag=1m"})
+@Testcontainers
+@ActiveProfiles({"test", "read-replicas"})
+public class ReadReplicaE2ETest {
+    private static final long MINUTE = 60_000_000L;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private JdbcTemplate replicaJdbcTemplate;
+
+    @Container
+    public static MySQLContainer<?> mySQLContainer = new MySQLContainer<>("mysql:latest")
+            .withDatabaseName("testdb");
+    @Container
+    public static MySQLContainer<?> replicaContainer = new MySQLContainer<>("mysql:latest")
+            .withDatabaseName("testdb");
+
+    @DynamicPropertySource
+    public static void registerPgProperties(DynamicPropertyRegistry registry) {
+        //override application.yaml and application-read-replicas.yaml
+        registry.add("spring.datasource.url", mySQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", mySQLContainer::getUsername);
+        registry.add("spring.datasource.password", mySQLContainer::getPassword);
+        registry.add("bird-app.read-replicas.replicas[0].name", () -> "replica");
+        registry.add("bird-app.read-replicas.replicas[0].url", replicaContainer::getJdbcUrl);
+        registry.add("bird-app.read-replicas.replicas[0].username", replicaContainer::getUsername);
+        registry.add("bird-app.read-replicas.replicas[0].password", replicaContainer::getPassword);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        replicaJdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(replicaContainer.getJdbcUrl(),
+                replicaContainer.getUsername(), replicaContainer.getPassword()));
+        for (var table : new String[]{"bird", "table_version", "replica_heartbeat"}) {
+            var createTable = jdbcTemplate.queryForObject("SHOW CREATE TABLE " + table,
+                    (row, rowNum) -> row.getString(2));
+            replicaJdbcTemplate.execute(createTable.replaceFirst("CREATE TABLE", "CREATE TABLE IF NOT EXISTS"));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.execute("DELETE FROM sighting");
+        jdbcTemplate.execute("DELETE FROM sighting_stats");
+        jdbcTemplate.execute("DELETE FROM bird");
+        replicaJdbcTemplate.execute("DELETE FROM bird");
+    }
+
+    @Test
+    public void getBirds_isServedByAReplicaThatIsUpToDate() throws Exception {
+        //Given
+        addBird("Wren");
+        replicate("Robin", ReplicaMonitor.currentMicros());
+
+        //When
+        var response = get("/birds", null);
+
+        //Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).contains("Robin").doesNotContain("Wren");
+    }
+
+    @Test
+    public void getBirds_fromALaggingReplica_isServedByThePrimary() throws Exception {
+        //Given
+        addBird("Wren");
+        replicate("Robin", ReplicaMonitor.currentMicros() - 10 * MINUTE);
+
+        //When
+        var lagging = get("/birds", null);
+        replicate("Robin", ReplicaMonitor.currentMicros());
+        var caughtUp = get("/birds", null);
+
+        //Then
+        assertThat(lagging.getBody()).contains("Wren").doesNotContain("Robin");
+        assertThat(caughtUp.getBody()).contains("Robin").doesNotContain("Wren");
+    }
+
+    @Test
+    public void getBirds_afterTheClientsOwnWrite_isServedByThePrimaryUntilTheReplicaCaughtUp() throws Exception {
+        //Given
+        replicate("Robin", ReplicaMonitor.currentMicros());
+        var cookie = addBird("Wren").getHeaders().getFirst(HttpHeaders.SET_COOKIE);
+
+        //When
+        var ownWrite = get("/birds", cookie);
+        var otherClient = get("/birds", null);
+        replicate("Wren", ReplicaMonitor.currentMicros());
+        var caughtUp = get("/birds", cookie);
+
+        //Then
+        assertThat(cookie).startsWith("birdapp-last-write=");
+        assertThat(ownWrite.getBody()).contains("Wren").doesNotContain("Robin");
+        assertThat(otherClient.getBody()).contains("Robin").doesNotContain("Wren");
+        assertThat(caughtUp.getBody()).contains("Robin").contains("Wren");
+    }
+
+    /**
+     * Adds the bird to the replica with the heartbeat {@code beat} and waits for the monitor to see it.
+     */
+    private void replicate(String birdName, long beat) throws InterruptedException {
+        replicaJdbcTemplate.update("INSERT INTO bird (name, color, weight, height, version) "
+                + "SELECT ?, 'Brown', 20, 10, 0 FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM bird WHERE name = ?)",
+                birdName, birdName);
+        replicaJdbcTemplate.update("INSERT INTO replica_heartbeat (id, beat) VALUES (1, ?) "
+                + "ON DUPLICATE KEY UPDATE beat = VALUES(beat)", beat);
+        Thread.sleep(500);
+    }
+
+    private ResponseEntity<String> get(String path, String cookie) {
+        var headers = new HttpHeaders();
+        if (cookie != null) {
+            headers.add(HttpHeaders.COOKIE, cookie.substring(0, cookie.indexOf(';')));
+        }
+        return restTemplate.exchange("http://localhost:" + port + path, HttpMethod.GET, new HttpEntity<>(headers),
+                String.class);
+    }
+
+    private ResponseEntity<Void> addBird(String name) {
+        var bird = CreateBirdDto.builder()
+                .name(name)
+                .color("Brown")
+                .weight(20.0)
+                .height(10.0)
+                .build();
+        var response = restTemplate.postForEntity("http://localhost:" + port + "/birds?returnResource=false", bird,
+                Void.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return response;
+    }
+}
@@ -0,0 +1,197 @@
+package replica;
+
+import com.spirent.birdapp.replica.ReadReplicaProperties;
+import com.spirent.birdapp.replica.ReadYourWritesFilter;
+import com.spirent.birdapp.replica.ReplicaRoutingDataSource;
+import com.spirent.birdapp.replica.ReplicaStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.Cookie;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReplicaRoutingDataSourceTest {
+    private static final long NOW = 1_700_000_000_000_000L;
+    private static final long SECOND = 1_000_000L;
+
+    private final AtomicLong clock = new AtomicLong(NOW);
+    private final ReadReplicaProperties properties = new ReadReplicaProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<ReplicaStatus> replicas = new ArrayList<>();
+    private final List<Connection> connections = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+    private DataSource primary;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        primary = dataSource("primary");
+        for (var name : List.of("a", "b", "c")) {
+            var replica = new ReplicaStatus(name, dataSource(name));
+            replica.checked(NOW, 1_000_000);
+            replicas.add(replica);
+        }
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.clear();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void readOnly_roundRobinsOverTheUsableReplicas() throws Exception {
+        //Given
+        var router = router();
+        replicas.get(2).checked(NOW - 6 * SECOND, 1_000_000);
+        //When
+        var routes = new ArrayList<String>();
+        for (int i = 0; i < 6; i++) {
+            routes.add(read(router));
+        }
+        //Then
+        assertThat(routes).containsOnly("a", "b");
+        assertThat(routes).filteredOn("a"::equals).hasSize(4);
+        assertEquals(2.0, meterRegistry.get("birdapp.replica.reads").tag("target", "b").counter().count());
+    }
+
+    @Test
+    public void readOnly_withLeastLatency_picksTheFastestUsableReplica() throws Exception {
+        //Given
+        properties.setSelection(ReadReplicaProperties.Selection.LEAST_LATENCY);
+        var router = router();
+        replicas.get(1).checked(NOW, 10_000);
+        replicas.get(2).checked(NOW, 1_000);
+        replicas.get(2).unreachable();
+        //Then
+        assertEquals("b", read(router));
+        assertEquals("b", read(router));
+    }
+
+    @Test
+    public void readOnly_withoutAUsableReplica_readsFromThePrimary() throws Exception {
+        //Given
+        var router = router();
+        replicas.get(0).unreachable();
+        replicas.get(1).unreachable();
+        //When
+        clock.set(NOW + 6 * SECOND);
+        //Then
+        assertEquals("primary", read(router));
+        assertEquals("primary", write(router));
+    }
+
+    @Test
+    public void readsOfARequest_stayOnOneReplica_untilItWrites() throws Exception {
+        //Given
+        var router = router();
+        var request = new MockHttpServletRequest();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        //When
+        var first = read(router);
+        var second = read(router);
+        var written = write(router);
+        clock.set(NOW + SECOND);
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        //Then
+        assertEquals("a", first);
+        assertEquals("a", second);
+        assertEquals("primary", written);
+        assertEquals("primary", read(router));
+        assertEquals(NOW + SECOND, request.getAttribute(ReplicaRoutingDataSource.LAST_WRITE));
+    }
+
+    @Test
+    public void readsOfAClientThatWrote_goToThePrimary_untilAReplicaCaughtUp() throws Exception {
+        //Given
+        var router = router();
+        var written = new Cookie(ReadYourWritesFilter.COOKIE, Long.toString(NOW));
+        //When
+        var beforeCatchUp = readWithCookie(router, written);
+        replicas.get(1).checked(NOW + SECOND, 1_000_000);
+        var afterCatchUp = readWithCookie(router, written);
+        //Then
+        assertEquals("primary", beforeCatchUp);
+        assertEquals("b", afterCatchUp);
+        assertEquals("c", readWithCookie(router, new Cookie(ReadYourWritesFilter.COOKIE, "garbage")));
+    }
+
+    @Test
+    public void filter_givesAClientThatWroteTheCookie() throws Exception {
+        //Given
+        var filter = new ReadYourWritesFilter(Duration.ofSeconds(6));
+        var request = new MockHttpServletRequest();
+        var response = new MockHttpServletResponse();
+        var readRequest = new MockHttpServletRequest();
+        var readResponse = new MockHttpServletResponse();
+        //When
+        filter.doFilter(request, response, (servletRequest, servletResponse) -> {
+            servletRequest.setAttribute(ReplicaRoutingDataSource.LAST_WRITE, NOW);
+            servletResponse.getWriter().write("{}");
+        });
+        filter.doFilter(readRequest, readResponse, (servletRequest, servletResponse) ->
+                servletResponse.getWriter().write("[]"));
+        //Then
+        assertThat(response.getHeader(HttpHeaders.SET_COOKIE))
+                .startsWith(ReadYourWritesFilter.COOKIE + "=" + NOW)
+                .contains("Max-Age=6");
+        assertThat(readResponse.getHeaders(HttpHeaders.SET_COOKIE)).isEmpty();
+    }
+
+    private ReplicaRoutingDataSource router() {
+        properties.setMaxLag(Duration.ofSeconds(5));
+        return new ReplicaRoutingDataSource(primary, replicas, properties, meterRegistry, clock::get);
+    }
+
+    private String read(ReplicaRoutingDataSource router) throws Exception {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try {
+            return route(router);
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        }
+    }
+
+    private String readWithCookie(ReplicaRoutingDataSource router, Cookie cookie) throws Exception {
+        var request = new MockHttpServletRequest();
+        request.setCookies(cookie);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        return read(router);
+    }
+
+    private String write(ReplicaRoutingDataSource router) throws Exception {
+        return route(router);
+    }
+
+    private String route(ReplicaRoutingDataSource router) throws Exception {
+        return names.get(connections.indexOf(router.getConnection()));
+    }
+
+    private DataSource dataSource(String name) throws Exception {
+        var dataSource = mock(DataSource.class);
+        var connection = mock(Connection.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        connections.add(connection);
+        names.add(name);
+        return dataSource;
+    }
+}
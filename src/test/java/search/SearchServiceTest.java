@@ -0,0 +1,120 @@
+package search;
+
+import com.spirent.birdapp.search.SearchResultDto;
+import com.spirent.birdapp.search.SearchService;
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class SearchServiceTest {
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private SearchService searchService;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        searchService = new SearchService(jdbcTemplate, Optional.empty());
+        searchService.indexBird(1L, "House Sparrow", "Brown");
+        searchService.indexBird(2L, "Sparrowhawk", "Grey");
+        searchService.indexBird(3L, "Robin", "Red");
+        searchService.indexLocations(List.of("Sparrow Lake", "Hyde Park"));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        searchService.destroy();
+    }
+
+    @Test
+    public void search_ranksExactMatchesAbovePrefixMatches() {
+        //When
+        var results = searchService.search("sparrow", null, 10);
+        //Then
+        assertThat(results).extracting(SearchResultDto::getName)
+                .containsExactly("House Sparrow", "Sparrow Lake", "Sparrowhawk");
+        assertEquals(1L, results.get(0).getBirdId());
+        assertTrue(results.get(0).getScore() > results.get(2).getScore());
+    }
+
+    @Test
+    public void search_matchesPrefixesAndTypos() {
+        assertThat(searchService.search("rob", null, 10)).extracting(SearchResultDto::getName).containsExactly("Robin");
+        assertThat(searchService.search("sparow hous", null, 10)).extracting(SearchResultDto::getName).containsExactly("House Sparrow");
+        assertThat(searchService.search("gray", null, 10)).extracting(SearchResultDto::getName).containsExactly("Sparrowhawk");
+    }
+
+    @Test
+    public void search_whenTypeIsGiven_onlyReturnsThatType() {
+        //When
+        var results = searchService.search("sparrow", SearchResultDto.Type.LOCATION, 10);
+        //Then
+        assertThat(results).extracting(SearchResultDto::getName).containsExactly("Sparrow Lake");
+        assertEquals(null, results.get(0).getBirdId());
+    }
+
+    @Test
+    public void indexBird_replacesTheBirdAndRemoveBirdDeletesIt() {
+        //When
+        searchService.indexBird(3L, "European Robin", "Orange");
+        searchService.removeBird(2L);
+        //Then
+        assertThat(searchService.search("european", null, 10)).extracting(SearchResultDto::getBirdId).containsExactly(3L);
+        assertThat(searchService.search("robin", null, 10)).hasSize(1);
+        assertThat(searchService.search("sparrowhawk", null, 10)).isEmpty();
+    }
+
+    @Test
+    public void indexBird_inATransaction_waitsForTheCommit() {
+        //Given
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            //When
+            searchService.indexBird(4L, "Blackbird", "Black");
+            //Then
+            assertThat(searchService.search("blackbird", null, 10)).isEmpty();
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertThat(searchService.search("blackbird", null, 10)).extracting(SearchResultDto::getBirdId).containsExactly(4L);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void rebuild_indexesTheBirdsAndLocationsOfTheDatabase() throws Exception {
+        //Given
+        var row = mock(ResultSet.class);
+        when(row.getLong(1)).thenReturn(5L);
+        when(row.getString(2)).thenReturn("Magpie");
+        when(row.getString(3)).thenReturn("Black");
+        doAnswer(invocation -> {
+            invocation.<RowCallbackHandler>getArgument(1).processRow(row);
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT id, name, color FROM bird"), any(RowCallbackHandler.class));
+        //When
+        searchService.rebuild();
+        //Then
+        assertThat(searchService.search("magpi", null, 10)).extracting(SearchResultDto::getBirdId).containsExactly(5L);
+    }
+}
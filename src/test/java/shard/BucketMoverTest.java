@@ -0,0 +1,56 @@
+package shard;
+
+import com.spirent.birdapp.shard.BucketMover;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BucketMoverTest {
+
+    @Test
+    public void plan_forAnAddedShard_movesItsShareOfBuckets() {
+        //Given
+        var owners = new ArrayList<String>();
+        for (int bucket = 0; bucket < 256; bucket++) {
+            owners.add(bucket % 2 == 0 ? "a" : "b");
+        }
+        //When
+        var moves = BucketMover.plan(owners, List.of("a", "b", "c"));
+        //Then
+        assertEquals(85, moves.size());
+        assertThat(moves).allMatch(move -> move.to().equals("c"));
+        assertThat(moves).extracting(BucketMover.Move::bucket).doesNotHaveDuplicates();
+        moves.forEach(move -> {
+            assertEquals(owners.get(move.bucket()), move.from());
+            owners.set(move.bucket(), move.to());
+        });
+        assertThat(List.of("a", "b", "c")).allMatch(shard -> {
+            int buckets = Collections.frequency(owners, shard);
+            return buckets == 85 || buckets == 86;
+        });
+    }
+
+    @Test
+    public void plan_forBalancedShards_movesNothing() {
+        //Given
+        var owners = List.of("a", "b", "c", "a", "b", "c", "a");
+        //Then
+        assertThat(BucketMover.plan(owners, List.of("a", "b", "c"))).isEmpty();
+    }
+
+    @Test
+    public void plan_spreadsTheBucketsOfOneShard() {
+        //Given
+        var owners = Collections.nCopies(8, "a");
+        //When
+        var moves = BucketMover.plan(owners, List.of("a", "b", "c", "d"));
+        //Then
+        assertEquals(6, moves.size());
+        assertThat(moves).extracting(BucketMover.Move::to).containsOnly("b", "c", "d")
+                .filteredOn("b"::equals).hasSize(2);
+    }
+}
@@ -0,0 +1,93 @@
+package shard;
+
+import com.spirent.birdapp.shard.Shard;
+import com.spirent.birdapp.shard.ShardDirectory;
+import com.spirent.birdapp.shard.ShardProperties;
+import com.spirent.birdapp.shard.ShardedSightingStore;
+import com.spirent.birdapp.shard.Shards;
+import com.spirent.birdapp.sighting.SightingDto;
+import com.spirent.birdapp.sighting.SightingIdAllocator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ShardedSightingStoreTest {
+    private Shards shards;
+    private ShardedSightingStore store;
+
+    @BeforeEach
+    public void setUp() {
+        // shard-2 still has the rows 3 to 6 of a bucket being switched to shard-1
+        shards = new Shards(List.of(
+                shard("shard-1", LongStream.rangeClosed(1, 10).toArray()),
+                shard("shard-2", new long[]{3, 4, 5, 6, 11, 12})));
+        store = new ShardedSightingStore(shards, mock(ShardDirectory.class), mock(SightingIdAllocator.class),
+                mock(PlatformTransactionManager.class), new ShardProperties(), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        shards.close();
+    }
+
+    @Test
+    public void findPageAfter_returnsFullPagesOfDistinctSightings_untilTheEnd() {
+        //Given
+        var ids = new ArrayList<Long>();
+        var pageSizes = new ArrayList<Integer>();
+        long after = 0;
+        //When
+        List<SightingDto> page;
+        do {
+            page = store.findPageAfter(after, 4);
+            page.forEach(sighting -> ids.add(sighting.getId()));
+            pageSizes.add(page.size());
+            after = page.isEmpty() ? after : page.get(page.size() - 1).getId();
+        } while (page.size() == 4);
+        //Then
+        assertEquals(LongStream.rangeClosed(1, 12).boxed().toList(), ids);
+        assertThat(pageSizes).containsExactly(4, 4, 4, 0);
+    }
+
+    @Test
+    public void findPageAfter_isShortOnlyAtTheEnd() {
+        //When
+        var page = store.findPageAfter(8, 5);
+        //Then
+        assertThat(page).extracting(SightingDto::getId).containsExactly(9L, 10L, 11L, 12L);
+    }
+
+    /**
+     * Answers 'WHERE s.id > ? ORDER BY s.id LIMIT ?' from the given ids.
+     */
+    @SuppressWarnings("unchecked")
+    private static Shard shard(String name, long[] ids) {
+        var jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyLong(), anyInt())).thenAnswer(invocation -> {
+            long after = invocation.getArgument(2);
+            int limit = invocation.getArgument(3);
+            return LongStream.of(ids)
+                    .filter(id -> id > after)
+                    .limit(limit)
+                    .mapToObj(id -> SightingDto.builder().id(id).birdName("Bird " + id).build())
+                    .toList();
+        });
+        return new Shard(name, null, jdbcTemplate, null);
+    }
+}
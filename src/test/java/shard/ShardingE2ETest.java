@@ -0,0 +1,195 @@
+package shard;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spirent.birdapp.shard.BucketMoveDto;
+import com.spirent.birdapp.shard.ShardDirectory;
+import com.spirent.birdapp.shard.Shards;
+import com.spirent.birdapp.sighting.CreateSightingDto;
+import com.spirent.birdapp.sighting.SightingBatchResultDto;
+import com.spirent.birdapp.sighting.SightingDto;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the 'sharding' profile with a primary and two shards: sightings are spread over the shards by bird, queries
+ * merge the shards' results in order, and a bucket moved while it is being written keeps all its sightings.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        classes = com.spirent.birdapp.BirdAppApplication.class,
+        properties = {"bird-app.bird-cache.near-cache=false", "bird-app.sharding.buckets=16"})
+@Testcontainers
+@ActiveProfiles({"test", "sharding"})
+public class ShardingE2ETest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 5, 1, 6, 0);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    Shards shards;
+    @Autowired
+    ShardDirectory shardDirectory;
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Container
+    public static MySQLContainer<?> mySQLContainer = new MySQLContainer<>("mysql:latest")
+            .withDatabaseName("testdb");
+    @Container
+    public static MySQLContainer<?> shard1Container = new MySQLContainer<>("mysql:latest")
+            .withDatabaseName("testdb");
+    @Container
+    public static MySQLContainer<?> shard2Container = new MySQLContainer<>("mysql:latest")
+            .withDatabaseName("testdb");
+
+    @DynamicPropertySource
+    public static void registerPgProperties(DynamicPropertyRegistry registry) {
+        //override application.yaml and application-sharding.yaml
+        registry.add("spring.datasource.url", mySQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", mySQLContainer::getUsername);
+        registry.add("spring.datasource.password", mySQLContainer::getPassword);
+        var shards = List.of(shard1Container, shard2Container);
+        for (int i = 0; i < shards.size(); i++) {
+            var shard = shards.get(i);
+            var name = "shard-" + (i + 1);
+            registry.add("bird-app.sharding.shards[" + i + "].name", () -> name);
+            registry.add("bird-app.sharding.shards[" + i + "].url", shard::getJdbcUrl);
+            registry.add("bird-app.sharding.shards[" + i + "].username", shard::getUsername);
+            registry.add("bird-app.sharding.shards[" + i + "].password", shard::getPassword);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        shards.all().forEach(shard -> shard.jdbcTemplate().execute("DELETE FROM sighting"));
+        jdbcTemplate.execute("DELETE FROM bird");
+    }
+
+    @Test
+    public void sightings_areSpreadOverTheShards_andQueriedInOrder() throws Exception {
+        //Given
+        var sightings = new ArrayList<CreateSightingDto>();
+        for (int i = 0; i < 200; i++) {
+            sightings.add(sighting("Bird " + (i % 20), i % 2 == 0 ? "Park" : "Lake", START.plusMinutes(199 - i)));
+        }
+
+        //When
+        var results = addSightings(sightings);
+        var inPark = get("/sightings/location/Park");
+        var inRange = get("/sightings/datetime/" + START.plusMinutes(50) + "/" + START.plusMinutes(149));
+        var ofBird = get("/sightings/birdname/Bird 3");
+
+        //Then
+        assertThat(results).allMatch(result -> result.getStatus() == SightingBatchResultDto.Status.CREATED);
+        for (var shard : shards.all()) {
+            assertThat(shard.jdbcTemplate().queryForObject("SELECT COUNT(*) FROM sighting", Long.class))
+                    .isPositive();
+        }
+        assertEquals(100, inPark.size());
+        assertThat(inPark).isSortedAccordingTo(Comparator.comparing(SightingDto::getId));
+        assertEquals(100, inRange.size());
+        assertThat(inRange).isSortedAccordingTo(Comparator.comparing(SightingDto::getDateTime));
+        assertEquals(10, ofBird.size());
+        assertThat(ofBird).allMatch(sighting -> sighting.getBirdName().equals("Bird 3"));
+    }
+
+    @Test
+    public void movingABucket_whileItIsWritten_keepsAllItsSightings() throws Exception {
+        //Given
+        addSightings(List.of(sighting("Robin", "Park", START)));
+        long robinId = jdbcTemplate.queryForObject("SELECT id FROM bird WHERE name = 'Robin'", Long.class);
+        int bucket = shardDirectory.bucketOf(robinId);
+        var from = shardDirectory.shardOf(bucket);
+        var to = from.equals("shard-1") ? "shard-2" : "shard-1";
+        var stop = new AtomicBoolean();
+        var written = new AtomicInteger(1);
+        var writer = Thread.ofVirtual().start(() -> {
+            while (!stop.get()) {
+                var result = addSightings(List.of(sighting("Robin", "Park", START.plusMinutes(written.get()))));
+                if (result.get(0).getStatus() == SightingBatchResultDto.Status.CREATED) {
+                    written.incrementAndGet();
+                }
+            }
+        });
+        Thread.sleep(500);
+
+        //When
+        var move = restTemplate.postForEntity("http://localhost:" + port + "/shards/buckets/" + bucket
+                + "/move?to=" + to, null, BucketMoveDto.class);
+        Thread.sleep(500);
+        stop.set(true);
+        writer.join();
+
+        //Then
+        assertThat(move.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertEquals(to, move.getBody().getTo());
+        assertEquals(to, shardDirectory.shardOf(bucket));
+        var robins = get("/sightings/birdname/Robin");
+        assertEquals(written.get(), robins.size());
+        assertEquals(written.get(), get("/sightings/location/Park").size());
+        assertEquals(0, shards.get(from).jdbcTemplate().queryForObject(
+                "SELECT COUNT(*) FROM sighting WHERE bucket = ?", Integer.class, bucket));
+    }
+
+    @Test
+    public void deletingABird_deletesItsSightingsOnTheShards() throws Exception {
+        //Given
+        addSightings(List.of(sighting("Robin", "Park", START), sighting("Wren", "Park", START)));
+        long robinId = jdbcTemplate.queryForObject("SELECT id FROM bird WHERE name = 'Robin'", Long.class);
+
+        //When
+        restTemplate.exchange("http://localhost:" + port + "/birds", HttpMethod.DELETE, new HttpEntity<>(robinId),
+                Void.class);
+        Thread.sleep(1000);
+
+        //Then
+        assertThat(get("/sightings/location/Park")).extracting(SightingDto::getBirdName).containsExactly("Wren");
+    }
+
+    private List<SightingBatchResultDto> addSightings(List<CreateSightingDto> sightings) {
+        return List.of(restTemplate.postForObject("http://localhost:" + port + "/sightings/batch", sightings,
+                SightingBatchResultDto[].class));
+    }
+
+    private List<SightingDto> get(String path) throws Exception {
+        var body = restTemplate.getForObject("http://localhost:" + port + path, String.class);
+        return objectMapper.readValue(body, new TypeReference<>() {
+        });
+    }
+
+    private static CreateSightingDto sighting(String birdName, String location, LocalDateTime dateTime) {
+        return CreateSightingDto.builder()
+                .birdName(birdName)
+                .location(location)
+                .dateTime(dateTime)
+                .build();
+    }
+}
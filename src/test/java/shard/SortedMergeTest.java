@@ -0,0 +1,64 @@
+package shard;
+
+import com.spirent.birdapp.shard.SortedMerge;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SortedMergeTest {
+
+    @Test
+    public void merge_returnsTheElementsOfAllListsInOrder() {
+        //Given
+        var lists = List.of(List.of(1, 4, 7), List.<Integer>of(), List.of(2, 3, 8, 9), List.of(5, 6));
+        //When
+        var merged = SortedMerge.merge(lists, Comparator.naturalOrder(), Function.identity(), Integer.MAX_VALUE);
+        //Then
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9), merged);
+    }
+
+    @Test
+    public void merge_keepsOneOfTheElementsWithTheSameKey() {
+        //Given
+        var lists = List.of(List.of("1a", "3a", "4a"), List.of("2b", "3b", "5b"));
+        //When
+        var merged = SortedMerge.merge(lists, Comparator.comparing((String s) -> s.charAt(0)),
+                (String s) -> s.charAt(0), Integer.MAX_VALUE);
+        //Then
+        assertThat(merged).hasSize(5);
+        assertThat(merged).map(s -> s.charAt(0)).containsExactly('1', '2', '3', '4', '5');
+    }
+
+    @Test
+    public void merge_stopsAtTheLimit() {
+        //Given
+        var lists = List.of(List.of(1, 3, 5, 7), List.of(2, 4, 6, 8));
+        //When
+        var merged = SortedMerge.merge(lists, Comparator.naturalOrder(), Function.identity(), 3);
+        //Then
+        assertEquals(List.of(1, 2, 3), merged);
+    }
+
+    @Test
+    public void merge_ofRandomLists_isSorted() {
+        //Given
+        var random = new Random(42);
+        var lists = new ArrayList<List<Integer>>();
+        var all = new ArrayList<Integer>();
+        for (int list = 0; list < 8; list++) {
+            var values = random.ints(random.nextInt(100), 0, 1_000_000).sorted().boxed().toList();
+            lists.add(values);
+            all.addAll(values);
+        }
+        //When
+        var merged = SortedMerge.merge(lists, Comparator.naturalOrder(), Function.identity(), Integer.MAX_VALUE);
+        //Then
+        assertEquals(all.stream().sorted().distinct().toList(), merged);
+    }
+}
@@ -0,0 +1,136 @@
+package sighting;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ActiveProfilesResolver;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Steps up the number of concurrent clients calling GET /sightings/location/{location} and reports the p99
+ * latency and error count at every step, to find the concurrency at which latency degrades.
+ * Runs the platform-thread mode by default, the virtual-thread mode with {@code -Dbenchmark.virtual-threads=true},
+ * or the WebFlux and R2DBC stack of the 'reactive' profile with {@code -Dbenchmark.reactive=true}.
+ * Only runs when asked for: {@code mvn test -Dbenchmark=true}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        classes = com.spirent.birdapp.BirdAppApplication.class)
+@Testcontainers
+@ActiveProfiles(resolver = ConcurrencyLoadBenchmarkE2ETest.ModeProfilesResolver.class)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class ConcurrencyLoadBenchmarkE2ETest {
+    private static final int[] CLIENTS = {25, 50, 100, 200, 400, 800, 1_600};
+    private static final int REQUESTS_PER_CLIENT = 20;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Container
+    public static MySQLContainer<?> mySQLContainer = new MySQLContainer<>("mysql:latest")
+            .withDatabaseName("testdb");
+
+    @DynamicPropertySource
+    public static void registerPgProperties(DynamicPropertyRegistry registry) {
+        //override application.yaml
+        registry.add("spring.datasource.url", mySQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", mySQLContainer::getUsername);
+        registry.add("spring.datasource.password", mySQLContainer::getPassword);
+        registry.add("spring.threads.virtual.enabled", () -> System.getProperty("benchmark.virtual-threads", "false"));
+        registry.add("spring.r2dbc.url", () -> "r2dbc:mysql://" + mySQLContainer.getHost() + ":"
+                + mySQLContainer.getFirstMappedPort() + "/" + mySQLContainer.getDatabaseName());
+        registry.add("spring.r2dbc.username", mySQLContainer::getUsername);
+        registry.add("spring.r2dbc.password", mySQLContainer::getPassword);
+    }
+
+    public static class ModeProfilesResolver implements ActiveProfilesResolver {
+        @Override
+        public String[] resolve(Class<?> testClass) {
+            return Boolean.getBoolean("benchmark.reactive") ? new String[]{"test", "reactive"} : new String[]{"test"};
+        }
+    }
+
+    @BeforeEach
+    public void setup() {
+        jdbcTemplate.execute("INSERT INTO bird (id, name, color, height, weight) VALUES (1, 'Bird 1', 'Red', 10.0, 20.0)");
+        var sightings = new ArrayList<Object[]>();
+        for (int i = 0; i < 10_000; i++) {
+            sightings.add(new Object[]{i + 1, "Location " + i % 100, LocalDateTime.of(2024, 5, 8, 0, 0).plusMinutes(i)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO sighting (id, bird_id, location, date_time) VALUES (?, 1, ?, ?)", sightings);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.execute("DELETE FROM sighting");
+        jdbcTemplate.execute("DELETE FROM bird");
+    }
+
+    @Test
+    public void stepLoad() throws InterruptedException {
+        System.out.printf("virtual threads: %s, reactive: %s%n", System.getProperty("benchmark.virtual-threads", "false"),
+                Boolean.getBoolean("benchmark.reactive"));
+        try (var httpClient = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build()) {
+            for (int clients : CLIENTS) {
+                runStep(httpClient, clients);
+            }
+        }
+    }
+
+    private void runStep(HttpClient httpClient, int clients) throws InterruptedException {
+        var latencies = new long[clients * REQUESTS_PER_CLIENT];
+        var next = new AtomicInteger();
+        var errors = new AtomicInteger();
+        var done = new CountDownLatch(clients);
+        long start = System.nanoTime();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int client = 0; client < clients; client++) {
+                int location = client % 100;
+                executor.submit(() -> {
+                    var request = HttpRequest.newBuilder(
+                            URI.create("http://localhost:" + port + "/sightings/location/Location%20" + location)).build();
+                    for (int i = 0; i < REQUESTS_PER_CLIENT; i++) {
+                        long requestStart = System.nanoTime();
+                        try {
+                            if (httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() != 200) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[next.getAndIncrement()] = System.nanoTime() - requestStart;
+                    }
+                    done.countDown();
+                });
+            }
+            done.await();
+        }
+        long elapsed = System.nanoTime() - start;
+        Arrays.sort(latencies);
+        System.out.printf("%5d clients: %7.0f req/s, p50 %5d ms, p99 %5d ms, %d errors%n", clients,
+                latencies.length / (elapsed / 1e9), latencies[latencies.length / 2] / 1_000_000,
+                latencies[latencies.length * 99 / 100] / 1_000_000, errors.get());
+    }
+}
@@ -0,0 +1,80 @@
+package sighting;
+
+import com.spirent.birdapp.sighting.GeoBox;
+import com.spirent.birdapp.sighting.Geohash;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GeohashTest {
+
+    @Test
+    public void encode_matchesTheReferenceGeohash() {
+        //When
+        var geohash = Geohash.encode(57.64911, 10.40744);
+        //Then
+        assertEquals(Geohash.PRECISION, geohash.length());
+        assertThat(geohash).startsWith("u4pruydqqvj");
+    }
+
+    @Test
+    public void cover_containsTheGeohashOfEveryPointInTheBox() {
+        //Given
+        var random = new Random(42);
+        for (int run = 0; run < 200; run++) {
+            double size = Math.pow(10, -4 + random.nextInt(6));
+            double minLatitude = Math.max(-90, -90 + random.nextDouble() * 180 - size);
+            double minLongitude = -180 + random.nextDouble() * 360;
+            double maxLongitude = minLongitude + size * 2 > 180 ? minLongitude + size * 2 - 360 : minLongitude + size * 2;
+            var box = GeoBox.of(minLatitude, minLongitude, Math.min(90, minLatitude + size), maxLongitude).orElseThrow();
+
+            //When
+            var ranges = Geohash.cover(box);
+
+            //Then
+            assertThat(ranges).isNotEmpty();
+            for (int i = 1; i < ranges.size(); i++) {
+                assertTrue(ranges.get(i - 1).to().compareTo(ranges.get(i).from()) < 0, "ranges are sorted and disjoint");
+            }
+            for (int point = 0; point < 50; point++) {
+                double latitude = box.minLatitude() + random.nextDouble() * (box.maxLatitude() - box.minLatitude());
+                double longitude = box.minLongitude() + random.nextDouble() * size * 2;
+                var geohash = Geohash.encode(latitude, longitude > 180 ? longitude - 360 : longitude);
+                assertTrue(ranges.stream().anyMatch(range -> range.from().compareTo(geohash) <= 0 && range.to().compareTo(geohash) >= 0),
+                        () -> geohash + " of " + latitude + "," + longitude + " is not covered by " + ranges);
+            }
+        }
+    }
+
+    @Test
+    public void cover_whenTheBoxIsSmall_usesFewFineRanges() {
+        //Given
+        var box = GeoBox.around(48.8566, 2.3522, 500).orElseThrow();
+        //When
+        var ranges = Geohash.cover(box);
+        //Then
+        assertThat(ranges).hasSizeLessThanOrEqualTo(16);
+        assertThat(ranges.get(0).from().length()).isGreaterThanOrEqualTo(5);
+    }
+
+    @Test
+    public void around_whenTheCircleCrossesTheAntimeridian_wrapsTheLongitudes() {
+        //When
+        var box = GeoBox.around(0, 179.99, 10_000).orElseThrow();
+        //Then
+        assertTrue(box.crossesAntimeridian());
+        assertTrue(box.contains(0, -179.99));
+        assertTrue(box.contains(0, 179.95));
+        assertTrue(!box.contains(0, 0));
+    }
+
+    @Test
+    public void around_whenThePointOrRadiusIsInvalid_returnsEmpty() {
+        assertTrue(GeoBox.around(91, 0, 1000).isEmpty());
+        assertTrue(GeoBox.around(0, 0, 0).isEmpty());
+        assertTrue(GeoBox.of(10, 0, 5, 1).isEmpty());
+    }
+}
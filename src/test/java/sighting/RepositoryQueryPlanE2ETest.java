@@ -0,0 +1,158 @@
+package sighting;
+
+import com.spirent.birdapp.bird.BirdRepository;
+import com.spirent.birdapp.sighting.SightingRepository;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs every lookup of {@link SightingRepository} and {@link BirdRepository} against a large seeded dataset,
+ * captures the SQL Hibernate generated for it and fails if MySQL's EXPLAIN shows a full table or index scan.
+ * Queries that list a whole table on purpose (findAll, streaming) are not checked.
+ */
+@SpringBootTest(classes = com.spirent.birdapp.BirdAppApplication.class)
+@Testcontainers
+@ActiveProfiles("test")
+public class RepositoryQueryPlanE2ETest {
+    private static final int BIRDS = 2_000;
+    private static final int SIGHTINGS = 100_000;
+    private static final LocalDateTime FIRST_SIGHTING = LocalDateTime.of(2022, 1, 1, 0, 0);
+
+    private static boolean seeded;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    BirdRepository birdRepository;
+    @Autowired
+    SightingRepository sightingRepository;
+
+    @Container
+    public static MySQLContainer<?> mySQLContainer = new MySQLContainer<>("mysql:latest")
+            .withDatabaseName("testdb");
+
+    @DynamicPropertySource
+    public static void registerPgProperties(DynamicPropertyRegistry registry) {
+        //override application.yaml
+        registry.add("spring.datasource.url", () -> mySQLContainer.getJdbcUrl() + "?rewriteBatchedStatements=true");
+        registry.add("spring.datasource.username", mySQLContainer::getUsername);
+        registry.add("spring.datasource.password", mySQLContainer::getPassword);
+        registry.add("spring.jpa.properties.hibernate.session_factory.statement_inspector",
+                CapturingStatementInspector.class::getName);
+    }
+
+    @BeforeEach
+    public void seedOnce() {
+        if (seeded) {
+            return;
+        }
+        var birds = new ArrayList<Object[]>(BIRDS);
+        for (int id = 1; id <= BIRDS; id++) {
+            birds.add(new Object[]{id, "Bird " + id, "Color " + id % 100});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO bird (id, name, color, height, weight) VALUES (?, ?, ?, 1.0, 1.0)", birds);
+
+        var sightings = new ArrayList<Object[]>(SIGHTINGS);
+        for (int id = 1; id <= SIGHTINGS; id++) {
+            sightings.add(new Object[]{id, id % BIRDS + 1, "Location " + id % 1_000, FIRST_SIGHTING.plusMinutes(id * 10L)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO sighting (id, bird_id, location, date_time) VALUES (?, ?, ?, ?)", sightings);
+        jdbcTemplate.execute("ANALYZE TABLE bird, sighting");
+        seeded = true;
+    }
+
+    @BeforeEach
+    public void clearCapturedStatements() {
+        CapturingStatementInspector.STATEMENTS.clear();
+    }
+
+    @Test
+    public void birdFindByName_usesAnIndex() {
+        birdRepository.findByName("Bird 42");
+        assertNoFullScan("Bird 42");
+    }
+
+    @Test
+    public void birdFindAllBirdsByName_usesAnIndex() {
+        birdRepository.findAllBirds("Bird 42", null);
+        assertNoFullScan("Bird 42", "Bird 42", null, null);
+    }
+
+    @Test
+    public void birdFindAllBirdsByColor_usesAnIndex() {
+        birdRepository.findAllBirds(null, "Color 42");
+        assertNoFullScan(null, null, "Color 42", "Color 42");
+    }
+
+    @Test
+    public void birdFindAllBirdsByNameAndColor_usesAnIndex() {
+        birdRepository.findAllBirds("Bird 42", "Color 42");
+        assertNoFullScan("Bird 42", "Bird 42", "Color 42", "Color 42");
+    }
+
+    @Test
+    public void sightingFindByBirdName_usesAnIndex() {
+        sightingRepository.findByBirdName("Bird 42");
+        assertNoFullScan("Bird 42");
+    }
+
+    @Test
+    public void sightingFindByLocation_usesAnIndex() {
+        sightingRepository.findByLocation("Location 42");
+        assertNoFullScan("Location 42");
+    }
+
+    @Test
+    public void sightingFindByDateTimeBetween_usesAnIndex() {
+        var start = FIRST_SIGHTING.plusDays(100);
+        var end = start.plusDays(1);
+        sightingRepository.findByDateTimeBetween(start, end);
+        assertNoFullScan(start, end);
+    }
+
+    @Test
+    public void sightingFindPageAfter_usesAnIndex() {
+        sightingRepository.findPageAfter(50_000L, Limit.of(100));
+        assertNoFullScan(50_000L, 100);
+    }
+
+    /**
+     * EXPLAINs the last captured statement with the given parameters, in the order of its placeholders.
+     */
+    private void assertNoFullScan(Object... parameters) {
+        assertThat(CapturingStatementInspector.STATEMENTS).isNotEmpty();
+        var sql = CapturingStatementInspector.STATEMENTS.get(CapturingStatementInspector.STATEMENTS.size() - 1);
+        var plan = jdbcTemplate.queryForList("EXPLAIN " + sql, parameters);
+        assertThat(plan)
+                .as("Query plan of %s", sql)
+                .isNotEmpty()
+                .noneMatch(row -> "ALL".equals(row.get("type")) || "index".equals(row.get("type")));
+    }
+
+    public static class CapturingStatementInspector implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
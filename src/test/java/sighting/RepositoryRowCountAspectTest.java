@@ -0,0 +1,67 @@
+package sighting;
+
+import com.spirent.birdapp.RepositoryRowCountAspect;
+import com.spirent.birdapp.sighting.SightingDto;
+import com.spirent.birdapp.sighting.SightingRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RepositoryRowCountAspectTest {
+    @Mock
+    private SightingRepository sightingRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private SightingRepository proxy;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        var proxyFactory = new AspectJProxyFactory(sightingRepository);
+        proxyFactory.addAspect(new RepositoryRowCountAspect(meterRegistry));
+        proxy = proxyFactory.getProxy();
+    }
+
+    @Test
+    public void recordsRowCountPerRepositoryMethod() {
+        //Given
+        when(sightingRepository.findByLocation("lake")).thenReturn(List.of(
+                SightingDto.builder().id(1L).birdName("sparrow").build(),
+                SightingDto.builder().id(2L).birdName("crow").build()));
+
+        //When
+        proxy.findByLocation("lake");
+        proxy.findByLocation("lake");
+
+        //Then
+        var rows = meterRegistry.get("birdapp.repository.rows")
+                .tag("repository", "SightingRepository")
+                .tag("method", "findByLocation")
+                .summary();
+        assertEquals(2, rows.count());
+        assertEquals(4, rows.totalAmount());
+    }
+
+    @Test
+    public void ignoresMethodsNotReturningACollection() {
+        //Given
+        when(sightingRepository.findById(1L)).thenReturn(Optional.empty());
+
+        //When
+        proxy.findById(1L);
+
+        //Then
+        assertNull(meterRegistry.find("birdapp.repository.rows").summary());
+    }
+}
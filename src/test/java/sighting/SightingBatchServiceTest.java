@@ -0,0 +1,185 @@
+package sighting;
+
+import com.spirent.birdapp.bird.Bird;
+import com.spirent.birdapp.bird.BirdCache;
+import com.spirent.birdapp.bird.BirdRepository;
+import com.spirent.birdapp.analytics.SightingAnalyticsService;
+import com.spirent.birdapp.change.ChangeEvents;
+import com.spirent.birdapp.etag.TableVersions;
+import com.spirent.birdapp.search.SearchService;
+import com.spirent.birdapp.sighting.CreateSightingDto;
+import com.spirent.birdapp.sighting.Sighting;
+import com.spirent.birdapp.sighting.SightingBatchProperties;
+import com.spirent.birdapp.sighting.SightingBatchResultDto;
+import com.spirent.birdapp.sighting.SightingBatchService;
+import com.spirent.birdapp.sighting.SightingRepository;
+import com.spirent.birdapp.sighting.SightingStatsService;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class SightingBatchServiceTest {
+    @Mock
+    private SightingRepository sightingRepository;
+    @Mock
+    private BirdRepository birdRepository;
+    @Mock
+    private BirdCache birdCache;
+    @Mock
+    private SightingStatsService sightingStatsService;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private SearchService searchService;
+    @Mock
+    private TableVersions tableVersions;
+    @Mock
+    private SightingAnalyticsService sightingAnalyticsService;
+    @Mock
+    private ChangeEvents changeEvents;
+
+    private SightingBatchService sightingBatchService;
+    private Bird sparrow;
+
+    @BeforeEach
+    public void setUp() {
+        var properties = new SightingBatchProperties();
+        properties.setChunkSize(2);
+        sightingBatchService = new SightingBatchService(sightingRepository, birdRepository, birdCache, sightingStatsService,
+                transactionTemplate, properties, searchService, tableVersions, sightingAnalyticsService,
+                changeEvents);
+        sparrow = Bird.builder().id(1L).name("sparrow").build();
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    void addSightings_insertsOneSaveAllPerChunk() {
+        // Given
+        when(birdRepository.findAllById(anyIterable())).thenReturn(List.of(sparrow));
+        var ids = new AtomicLong();
+        when(sightingRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            var saved = new ArrayList<Sighting>();
+            invocation.<Iterable<Sighting>>getArgument(0).forEach(sighting -> {
+                sighting.setId(ids.incrementAndGet());
+                saved.add(sighting);
+            });
+            return saved;
+        });
+
+        // When
+        var result = sightingBatchService.addSightings(List.of(sighting(1L, null), sighting(1L, null),
+                sighting(1L, null)).iterator());
+
+        // Then
+        verify(sightingRepository, times(2)).saveAll(anyIterable());
+        assertEquals(3, result.size());
+        for (int i = 0; i < result.size(); i++) {
+            assertEquals(i, result.get(i).getIndex());
+            assertEquals(SightingBatchResultDto.Status.CREATED, result.get(i).getStatus());
+            assertEquals(i + 1L, result.get(i).getSightingId());
+        }
+    }
+
+    @Test
+    void addSightings_whenBirdIsUnknown_createsItOncePerName() {
+        // Given
+        when(birdRepository.findByNameIn(anyCollection())).thenReturn(List.of());
+        when(birdCache.findOrCreateByName("sparrow")).thenReturn(sparrow);
+        when(sightingRepository.saveAll(anyIterable())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        var result = sightingBatchService.addSightings(List.of(sighting(null, "sparrow"),
+                sighting(null, "sparrow")).iterator());
+
+        // Then
+        verify(birdCache, times(1)).findOrCreateByName("sparrow");
+        assertEquals(SightingBatchResultDto.Status.CREATED, result.get(0).getStatus());
+        assertEquals(SightingBatchResultDto.Status.CREATED, result.get(1).getStatus());
+    }
+
+    @Test
+    void addSightings_whenSightingIsInvalid_reportsOnlyThatSightingAsFailed() {
+        // Given
+        when(birdRepository.findAllById(anyIterable())).thenReturn(List.of(sparrow));
+        when(sightingRepository.saveAll(anyIterable())).thenAnswer(invocation -> invocation.getArgument(0));
+        var withoutLocation = sighting(1L, null);
+        withoutLocation.setLocation(null);
+
+        // When
+        var result = sightingBatchService.addSightings(List.of(sighting(1L, null), withoutLocation).iterator());
+
+        // Then
+        assertEquals(SightingBatchResultDto.Status.CREATED, result.get(0).getStatus());
+        assertEquals(SightingBatchResultDto.Status.FAILED, result.get(1).getStatus());
+        assertNotNull(result.get(1).getError());
+    }
+
+    @Test
+    void addSightings_whenValuesDoNotFitTheirColumns_reportsOnlyThoseSightingsAsFailed() {
+        // Given
+        when(birdRepository.findAllById(anyIterable())).thenReturn(List.of(sparrow));
+        when(sightingRepository.saveAll(anyIterable())).thenAnswer(invocation -> invocation.getArgument(0));
+        var longLocation = sighting(1L, null);
+        longLocation.setLocation("x".repeat(Sighting.MAX_LOCATION_LENGTH + 1));
+        var longBirdName = sighting(null, "x".repeat(Bird.MAX_NAME_LENGTH + 1));
+
+        // When
+        var result = sightingBatchService.addSightings(List.of(sighting(1L, null), longLocation, longBirdName)
+                .iterator());
+
+        // Then
+        assertEquals(SightingBatchResultDto.Status.CREATED, result.get(0).getStatus());
+        assertEquals(SightingBatchResultDto.Status.FAILED, result.get(1).getStatus());
+        assertEquals(SightingBatchResultDto.Status.FAILED, result.get(2).getStatus());
+        verify(birdCache, never()).findOrCreateByName(anyString());
+    }
+
+    @Test
+    void addSightings_whenChunkCannotBeSaved_reportsTheWholeChunkAsFailed() {
+        // Given
+        when(birdRepository.findAllById(anyIterable())).thenReturn(List.of(sparrow));
+        when(sightingRepository.saveAll(anyIterable())).thenThrow(
+                new DataIntegrityViolationException("Data too long for column 'color' at row 1"));
+
+        // When
+        var result = sightingBatchService.addSightings(List.of(sighting(1L, null), sighting(1L, null)).iterator());
+
+        // Then
+        assertEquals(2, result.size());
+        result.forEach(item -> {
+            assertEquals(SightingBatchResultDto.Status.FAILED, item.getStatus());
+            assertEquals("Batch could not be saved", item.getError());
+        });
+    }
+
+    private static CreateSightingDto sighting(Long birdId, String birdName) {
+        return CreateSightingDto.builder()
+                .birdId(birdId)
+                .birdName(birdName)
+                .location("location")
+                .dateTime(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,101 @@
+package sighting;
+
+import com.spirent.birdapp.analytics.SightingAnalyticsService;
+import com.spirent.birdapp.bulk.BulkFormat;
+import com.spirent.birdapp.change.ChangeEvents;
+import com.spirent.birdapp.etag.TableVersions;
+import com.spirent.birdapp.search.SearchService;
+import com.spirent.birdapp.sighting.Sighting;
+import com.spirent.birdapp.sighting.SightingBulkService;
+import com.spirent.birdapp.sighting.SightingIdAllocator;
+import com.spirent.birdapp.sighting.SightingStatsService;
+import jakarta.persistence.EntityManagerFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.function.Consumer;
+import org.hibernate.Cache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class SightingBulkServiceTest {
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private SightingIdAllocator sightingIdAllocator;
+    @Mock
+    private SightingStatsService sightingStatsService;
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+    @Mock
+    private SearchService searchService;
+    @Mock
+    private TableVersions tableVersions;
+    @Mock
+    private SightingAnalyticsService sightingAnalyticsService;
+    @Mock
+    private ChangeEvents changeEvents;
+
+    @InjectMocks
+    private SightingBulkService sightingBulkService;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void importSightings_rejectsLocationsLongerThanTheColumn() throws Exception {
+        //Given
+        var csv = "id,birdId,location,dateTime\n"
+                + ",1,Lake,2024-05-08T10:00:00\n"
+                + ",1," + "x".repeat(Sighting.MAX_LOCATION_LENGTH + 1) + ",2024-05-08T11:00:00\n";
+        var jpaCache = mock(jakarta.persistence.Cache.class);
+        when(entityManagerFactory.getCache()).thenReturn(jpaCache);
+        when(jpaCache.unwrap(Cache.class)).thenReturn(mock(Cache.class));
+        var robin = mock(ResultSet.class);
+        when(robin.getLong(1)).thenReturn(1L);
+        when(robin.getString(2)).thenReturn("Robin");
+        doAnswer(invocation -> {
+            invocation.<RowCallbackHandler>getArgument(2).processRow(robin);
+            return null;
+        }).when(namedParameterJdbcTemplate).query(anyString(), any(SqlParameterSource.class), any(RowCallbackHandler.class));
+        when(sightingIdAllocator.allocate(anyInt())).thenReturn(100L);
+        doAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        //When
+        var result = sightingBulkService.importSightings(BulkFormat.CSV,
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        //Then
+        assertEquals(1, result.getImported());
+        assertEquals(1, result.getRejected());
+        var parameters = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), parameters.capture());
+        assertEquals(1, parameters.getValue().size());
+        assertEquals("Lake", ((Object[]) parameters.getValue().get(0))[2]);
+    }
+}
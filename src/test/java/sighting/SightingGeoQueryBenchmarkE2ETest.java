@@ -0,0 +1,112 @@
+package sighting;
+
+import com.spirent.birdapp.sighting.GeoBox;
+import com.spirent.birdapp.sighting.SightingService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs GET /sightings/near over 10k, 100k and 1M sightings spread over Europe, with a radius that shrinks as the
+ * table grows so that every query returns about the same number of sightings. The geohash index keeps the query
+ * time about flat, while the same filter without the index grows with the table.
+ * Only runs when asked for: {@code mvn test -Dbenchmark=true}.
+ */
+@SpringBootTest(classes = com.spirent.birdapp.BirdAppApplication.class)
+@Testcontainers
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class SightingGeoQueryBenchmarkE2ETest {
+    private static final int[] SIZES = {10_000, 100_000, 1_000_000};
+    private static final double LATITUDE = 52.52;
+    private static final double LONGITUDE = 13.40;
+    private static final int RUNS = 20;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    SightingService sightingService;
+
+    @Container
+    public static MySQLContainer<?> mySQLContainer = new MySQLContainer<>("mysql:latest")
+            .withDatabaseName("testdb");
+
+    @DynamicPropertySource
+    public static void registerPgProperties(DynamicPropertyRegistry registry) {
+        //override application.yaml
+        registry.add("spring.datasource.url", mySQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", mySQLContainer::getUsername);
+        registry.add("spring.datasource.password", mySQLContainer::getPassword);
+    }
+
+    @Test
+    public void nearQueries() {
+        jdbcTemplate.execute("INSERT INTO bird (id, name, color, height, weight) VALUES (1, 'Bird 1', 'Red', 10.0, 20.0)");
+        int seeded = 0;
+        double[] indexed = new double[SIZES.length];
+        double[] scanned = new double[SIZES.length];
+        for (int i = 0; i < SIZES.length; i++) {
+            seed(seeded, SIZES[i]);
+            seeded = SIZES[i];
+            // about 100 sightings inside the circle: 35 x 50 degrees hold the whole table
+            double radius = Math.sqrt(100.0 / SIZES[i] * 35 * 50 / Math.PI) * 111_000 * Math.sqrt(Math.cos(Math.toRadians(LATITUDE)));
+
+            int rows = sightingService.getSightingsNear(LATITUDE, LONGITUDE, radius).orElseThrow().size();
+            assertEquals(countWithoutIndex(radius), rows);
+            long start = System.nanoTime();
+            for (int run = 0; run < RUNS; run++) {
+                sightingService.getSightingsNear(LATITUDE, LONGITUDE, radius);
+            }
+            indexed[i] = (System.nanoTime() - start) / 1e6 / RUNS;
+            start = System.nanoTime();
+            for (int run = 0; run < RUNS; run++) {
+                countWithoutIndex(radius);
+            }
+            scanned[i] = (System.nanoTime() - start) / 1e6 / RUNS;
+            System.out.printf("%9d sightings, radius %7.0f m, %4d rows: geohash index %6.2f ms/query, full scan %8.2f ms/query%n",
+                    SIZES[i], radius, rows, indexed[i], scanned[i]);
+        }
+
+        // 100 times the sightings: the full scan slows down with the table, the index lookup barely does
+        assertThat(indexed[SIZES.length - 1]).isLessThan(indexed[0] * 10);
+        assertThat(scanned[SIZES.length - 1]).isGreaterThan(scanned[0] * 10);
+    }
+
+    private void seed(int from, int to) {
+        jdbcTemplate.execute((ConnectionCallback<Object>) connection -> {
+            try (var statement = connection.createStatement()) {
+                statement.execute("SET SESSION cte_max_recursion_depth = " + to);
+                return statement.executeUpdate("INSERT INTO sighting (id, bird_id, location, date_time, latitude, longitude, geohash) "
+                        + "SELECT n + 1, 1, 'Europe', TIMESTAMP('2024-05-01') + INTERVAL n SECOND, latitude, longitude, "
+                        + "ST_GeoHash(longitude, latitude, 12) FROM ("
+                        + "WITH RECURSIVE seq (n) AS (SELECT " + from + " UNION ALL SELECT n + 1 FROM seq WHERE n < " + (to - 1) + ") "
+                        + "SELECT n, 35 + RAND(n) * 35 AS latitude, -10 + RAND(n + 1000000000) * 50 AS longitude FROM seq) points");
+            }
+        });
+        jdbcTemplate.execute("ANALYZE TABLE sighting");
+    }
+
+    private int countWithoutIndex(double radius) {
+        var box = GeoBox.around(LATITUDE, LONGITUDE, radius).orElseThrow();
+        return jdbcTemplate.query("SELECT latitude, longitude FROM sighting IGNORE INDEX (idx_sighting_geohash) "
+                        + "WHERE latitude BETWEEN ? AND ? AND longitude BETWEEN ? AND ?",
+                        (row, rowNum) -> GeoBox.distance(LATITUDE, LONGITUDE, row.getDouble(1), row.getDouble(2)) <= radius,
+                        box.minLatitude(), box.maxLatitude(), box.minLongitude(), box.maxLongitude())
+                .stream()
+                .filter(Boolean::booleanValue)
+                .toList()
+                .size();
+    }
+}
@@ -0,0 +1,136 @@
+package sighting;
+
+import com.spirent.birdapp.sighting.CreateSightingDto;
+import com.spirent.birdapp.sighting.SightingBatchResultDto;
+import com.spirent.birdapp.sighting.SightingDto;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures the write throughput of the sighting endpoints against a real MySQL: POST /sightings (one sighting
+ * per request and transaction), the same with a DELETE per sighting, and POST /sightings/batch.
+ * Only runs when asked for: {@code mvn test -Dbenchmark=true}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        classes = com.spirent.birdapp.BirdAppApplication.class)
+@Testcontainers
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class SightingIngestionBenchmarkE2ETest {
+    private static final int SIGHTINGS = 5_000;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Container
+    public static MySQLContainer<?> mySQLContainer = new MySQLContainer<>("mysql:latest")
+            .withDatabaseName("testdb");
+
+    @DynamicPropertySource
+    public static void registerPgProperties(DynamicPropertyRegistry registry) {
+        //override application.yaml
+        registry.add("spring.datasource.url", () -> mySQLContainer.getJdbcUrl() + "?rewriteBatchedStatements=true");
+        registry.add("spring.datasource.username", mySQLContainer::getUsername);
+        registry.add("spring.datasource.password", mySQLContainer::getPassword);
+    }
+
+    @BeforeEach
+    public void setup() {
+        jdbcTemplate.execute("INSERT INTO bird (id, name, color, height, weight) VALUES (1, 'Bird 1', 'Red', 10.0, 20.0)");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.execute("DELETE FROM sighting");
+        jdbcTemplate.execute("DELETE FROM bird");
+    }
+
+    @Test
+    public void singleInserts() {
+        var sightings = sightings();
+
+        long start = System.nanoTime();
+        for (var sighting : sightings) {
+            restTemplate.postForEntity("http://localhost:" + port + "/sightings?returnResource=false", sighting, Void.class);
+        }
+        report("POST /sightings", System.nanoTime() - start);
+
+        assertThat(countSightings()).isEqualTo(SIGHTINGS);
+    }
+
+    @Test
+    public void singleInsertsAndDeletes() {
+        var sightings = sightings();
+
+        long start = System.nanoTime();
+        for (var sighting : sightings) {
+            var saved = restTemplate.postForObject("http://localhost:" + port + "/sightings?returnResource=true",
+                    sighting, SightingDto.class);
+            restTemplate.exchange("http://localhost:" + port + "/sightings", HttpMethod.DELETE,
+                    new HttpEntity<>(saved.getId()), Void.class);
+        }
+        report("POST + DELETE /sightings", System.nanoTime() - start);
+
+        assertThat(countSightings()).isZero();
+    }
+
+    @Test
+    public void batchInsert() {
+        var sightings = sightings();
+
+        long start = System.nanoTime();
+        var results = restTemplate.postForObject("http://localhost:" + port + "/sightings/batch", sightings,
+                SightingBatchResultDto[].class);
+        report("POST /sightings/batch", System.nanoTime() - start);
+
+        assertThat(results).allMatch(result -> result.getStatus() == SightingBatchResultDto.Status.CREATED);
+        assertThat(countSightings()).isEqualTo(SIGHTINGS);
+    }
+
+    private static List<CreateSightingDto> sightings() {
+        var sightings = new ArrayList<CreateSightingDto>(SIGHTINGS);
+        var dateTime = LocalDateTime.of(2024, 5, 8, 0, 0);
+        for (int i = 0; i < SIGHTINGS; i++) {
+            sightings.add(CreateSightingDto.builder()
+                    .birdId(1L)
+                    .location("Location " + i % 100)
+                    .dateTime(dateTime.plusMinutes(i))
+                    .build());
+        }
+        return sightings;
+    }
+
+    private Integer countSightings() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sighting", Integer.class);
+    }
+
+    private static void report(String path, long nanos) {
+        System.out.printf("%s: %d sightings in %d ms (%.0f sightings/s)%n",
+                path, SIGHTINGS, nanos / 1_000_000, SIGHTINGS / (nanos / 1e9));
+    }
+}
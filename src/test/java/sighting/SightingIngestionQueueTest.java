@@ -0,0 +1,250 @@
+package sighting;
+
+import com.spirent.birdapp.sighting.CreateSightingDto;
+import com.spirent.birdapp.sighting.Sighting;
+import com.spirent.birdapp.sighting.SightingBatchResultDto;
+import com.spirent.birdapp.sighting.SightingBatchService;
+import com.spirent.birdapp.sighting.SightingIngestionOffset;
+import com.spirent.birdapp.sighting.SightingIngestionOffsetRepository;
+import com.spirent.birdapp.sighting.SightingIngestionProperties;
+import com.spirent.birdapp.sighting.SightingIngestionQueue;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the queue against an in-memory "database" in which a batch of sightings and the offset are stored together
+ * or not at all, like in one MySQL transaction.
+ */
+public class SightingIngestionQueueTest {
+    private static final LocalDateTime DATE_TIME = LocalDateTime.of(2024, 5, 8, 10, 0);
+    /**
+     * Location the "database" rejects, like a value the column cannot hold.
+     */
+    private static final String REJECTED_LOCATION = "rejected";
+
+    @TempDir
+    private Path walDirectory;
+
+    private final List<String> storedLocations = new CopyOnWriteArrayList<>();
+    private final Map<String, SightingIngestionOffset> offsets = new ConcurrentHashMap<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    public void enqueue_storesAcceptedSightingsInBatches() throws Exception {
+        //Given
+        var queue = queue(Integer.MAX_VALUE);
+        queue.start();
+
+        //When
+        for (int i = 0; i < 120; i++) {
+            assertEquals(SightingIngestionQueue.Result.ACCEPTED, queue.enqueue(sighting(i)));
+        }
+        queue.stop();
+
+        //Then
+        assertEquals(locations(0, 120), storedLocations);
+    }
+
+    @Test
+    public void enqueue_rejectsIncompleteSightings() throws Exception {
+        //Given
+        var queue = queue(Integer.MAX_VALUE);
+        queue.start();
+
+        //When
+        var result = queue.enqueue(CreateSightingDto.builder().location("lake").dateTime(DATE_TIME).build());
+        queue.stop();
+
+        //Then
+        assertEquals(SightingIngestionQueue.Result.INVALID, result);
+    }
+
+    @Test
+    public void enqueue_rejectsLocationsLongerThanTheColumn() throws Exception {
+        //Given
+        var queue = queue(Integer.MAX_VALUE);
+        queue.start();
+
+        //When
+        var result = queue.enqueue(CreateSightingDto.builder()
+                .birdId(1L)
+                .location("x".repeat(Sighting.MAX_LOCATION_LENGTH + 1))
+                .dateTime(DATE_TIME)
+                .build());
+        queue.stop();
+
+        //Then
+        assertEquals(SightingIngestionQueue.Result.INVALID, result);
+    }
+
+    @Test
+    public void enqueue_dropsOnlyTheSightingTheDatabaseRejects() throws Exception {
+        //Given
+        var queue = queue(Integer.MAX_VALUE);
+        queue.start();
+
+        //When
+        for (int i = 0; i < 120; i++) {
+            queue.enqueue(i == 60 ? CreateSightingDto.builder()
+                    .birdId(1L)
+                    .location(REJECTED_LOCATION)
+                    .dateTime(DATE_TIME)
+                    .build() : sighting(i));
+        }
+        queue.stop();
+        var restarted = queue(Integer.MAX_VALUE);
+        restarted.start();
+        restarted.stop();
+
+        //Then
+        var expected = locations(0, 120);
+        expected.remove(location(60));
+        assertEquals(expected, storedLocations);
+        assertEquals(1, meterRegistry.counter("birdapp.sighting.ingestion.dropped").count());
+    }
+
+    @Test
+    public void enqueue_rejectsSightingsAboveTheCapacity() throws Exception {
+        //Given
+        var queue = queue(0);
+        queue.start();
+
+        //When
+        var results = new ArrayList<SightingIngestionQueue.Result>();
+        for (int i = 0; i < 12; i++) {
+            results.add(queue.enqueue(sighting(i)));
+        }
+        queue.stop();
+
+        //Then
+        assertEquals(10, results.stream().filter(SightingIngestionQueue.Result.ACCEPTED::equals).count());
+        assertEquals(SightingIngestionQueue.Result.QUEUE_FULL, results.get(11));
+    }
+
+    @Test
+    public void restartAfterCrash_storesEveryAcknowledgedSightingExactlyOnce() throws Exception {
+        //Given the database goes away after three batches, while sightings keep being acknowledged
+        var crashed = queue(3);
+        crashed.start();
+        var acknowledged = new CopyOnWriteArrayList<String>();
+        try (var executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 400; i++) {
+                int index = i;
+                executor.submit(() -> {
+                    if (crashed.enqueue(sighting(index)) == SightingIngestionQueue.Result.ACCEPTED) {
+                        acknowledged.add(location(index));
+                    }
+                    return null;
+                });
+            }
+        }
+        int storedBeforeCrash = storedLocations.size();
+
+        //When the process dies without shutting down and a new one opens the same write-ahead log
+        var restarted = queue(Integer.MAX_VALUE);
+        restarted.start();
+        restarted.stop();
+
+        //Then
+        assertTrue(storedBeforeCrash > 0 && storedBeforeCrash < acknowledged.size());
+        assertEquals(acknowledged.size(), storedLocations.size());
+        assertEquals(acknowledged.stream().sorted().toList(), storedLocations.stream().sorted().toList());
+        crashed.stop();
+        assertEquals(acknowledged.size(), storedLocations.size());
+    }
+
+    /**
+     * @param successfulBatches number of batches stored before every further one fails
+     */
+    private SightingIngestionQueue queue(int successfulBatches) {
+        var properties = new SightingIngestionProperties();
+        properties.setWalDirectory(walDirectory);
+        properties.setQueueCapacity(successfulBatches == 0 ? 10 : 1000);
+        properties.setMaxBatchSize(50);
+        properties.setRetryBackoff(Duration.ofMillis(10));
+        properties.setShutdownTimeout(Duration.ofMillis(successfulBatches == Integer.MAX_VALUE ? 10_000 : 100));
+
+        var batches = new AtomicInteger();
+        var pendingLocations = new ArrayList<String>();
+        var pendingOffsets = new ArrayList<SightingIngestionOffset>();
+        var sightingBatchService = mock(SightingBatchService.class);
+        when(sightingBatchService.insertChunk(anyList(), anyList(), anyInt())).thenAnswer(invocation -> {
+            if (batches.incrementAndGet() > successfulBatches) {
+                throw new DataAccessResourceFailureException("Connection refused");
+            }
+            var chunk = invocation.<List<CreateSightingDto>>getArgument(0);
+            if (chunk.stream().anyMatch(sighting -> REJECTED_LOCATION.equals(sighting.getLocation()))) {
+                throw new DataIntegrityViolationException("Data too long for column 'location'");
+            }
+            var results = new ArrayList<SightingBatchResultDto>();
+            for (int i = 0; i < chunk.size(); i++) {
+                pendingLocations.add(chunk.get(i).getLocation());
+                results.add(SightingBatchResultDto.builder().index(i).status(SightingBatchResultDto.Status.CREATED).build());
+            }
+            return results;
+        });
+        var offsetRepository = mock(SightingIngestionOffsetRepository.class);
+        when(offsetRepository.findById(anyString())).thenAnswer(invocation ->
+                Optional.ofNullable(offsets.get(invocation.<String>getArgument(0))));
+        when(offsetRepository.save(any())).thenAnswer(invocation -> {
+            pendingOffsets.add(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        var transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            pendingLocations.clear();
+            pendingOffsets.clear();
+            var result = invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null);
+            storedLocations.addAll(pendingLocations);
+            pendingOffsets.forEach(offset -> offsets.put(offset.getWalId(), offset));
+            return result;
+        });
+        return new SightingIngestionQueue(sightingBatchService, offsetRepository, transactionTemplate, properties,
+                meterRegistry);
+    }
+
+    private static List<String> locations(int from, int to) {
+        var locations = new ArrayList<String>();
+        for (int i = from; i < to; i++) {
+            locations.add(location(i));
+        }
+        return locations;
+    }
+
+    private static String location(int i) {
+        return "location %04d".formatted(i);
+    }
+
+    private static CreateSightingDto sighting(int i) {
+        return CreateSightingDto.builder()
+                .birdId(1L)
+                .location(location(i))
+                .dateTime(DATE_TIME.plusMinutes(i))
+                .build();
+    }
+}
@@ -0,0 +1,124 @@
+package sighting;
+
+import com.spirent.birdapp.analytics.SightingAnalyticsService;
+import com.spirent.birdapp.etag.TableVersions;
+import com.spirent.birdapp.sighting.SightingPartitionMaintenance;
+import com.spirent.birdapp.sighting.SightingPartitionProperties;
+import com.spirent.birdapp.sighting.SightingRepository;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the date range queries of GET /sightings/datetime over three years of sightings (one every two minutes,
+ * about 790k rows), first on the plain table and then after partitioning it by month the way
+ * SightingPartitionMaintenance does, and checks that the partitioned queries are pruned to the months they cover.
+ * Only runs when asked for: {@code mvn test -Dbenchmark=true}.
+ */
+@SpringBootTest(classes = com.spirent.birdapp.BirdAppApplication.class)
+@Testcontainers
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class SightingPartitionBenchmarkE2ETest {
+    private static final LocalDateTime FIRST_SIGHTING = LocalDateTime.of(2022, 1, 1, 0, 0);
+    private static final int SIGHTINGS = 3 * 365 * 24 * 30;
+    private static final int RUNS = 20;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    SightingRepository sightingRepository;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Container
+    public static MySQLContainer<?> mySQLContainer = new MySQLContainer<>("mysql:latest")
+            .withDatabaseName("testdb");
+
+    @DynamicPropertySource
+    public static void registerPgProperties(DynamicPropertyRegistry registry) {
+        //override application.yaml
+        registry.add("spring.datasource.url", mySQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", mySQLContainer::getUsername);
+        registry.add("spring.datasource.password", mySQLContainer::getPassword);
+    }
+
+    @Test
+    public void dateRangeQueries() {
+        seed();
+        runQueries("plain table");
+
+        jdbcTemplate.execute("ALTER TABLE sighting DROP PRIMARY KEY, ADD PRIMARY KEY (id, date_time)");
+        jdbcTemplate.execute("ALTER TABLE sighting PARTITION BY RANGE COLUMNS (date_time) ("
+                + "PARTITION p_history VALUES LESS THAN ('2022-01-01'), PARTITION p_future VALUES LESS THAN (MAXVALUE))");
+        var properties = new SightingPartitionProperties();
+        properties.setMonthsAhead(0);
+        long start = System.nanoTime();
+        new SightingPartitionMaintenance(jdbcTemplate, properties, new TableVersions(jdbcTemplate),
+                new SightingAnalyticsService(jdbcTemplate, Optional.empty()), transactionTemplate)
+                .maintainPartitions(LocalDate.of(2024, 12, 1));
+        System.out.printf("split into monthly partitions in %d ms%n", (System.nanoTime() - start) / 1_000_000);
+        runQueries("monthly partitions");
+
+        assertEquals("p202306", partitionsRead(LocalDateTime.of(2023, 6, 1, 0, 0), LocalDateTime.of(2023, 6, 30, 23, 59)));
+        assertEquals("p202306,p202307",
+                partitionsRead(LocalDateTime.of(2023, 6, 20, 0, 0), LocalDateTime.of(2023, 7, 10, 0, 0)));
+    }
+
+    private void seed() {
+        jdbcTemplate.execute("INSERT INTO bird (id, name, color, height, weight) VALUES (1, 'Bird 1', 'Red', 10.0, 20.0)");
+        jdbcTemplate.execute((ConnectionCallback<Object>) connection -> {
+            try (var statement = connection.createStatement()) {
+                statement.execute("SET SESSION cte_max_recursion_depth = " + SIGHTINGS);
+                return statement.executeUpdate("INSERT INTO sighting (id, bird_id, location, date_time) "
+                        + "WITH RECURSIVE seq (n) AS (SELECT 0 UNION ALL SELECT n + 1 FROM seq WHERE n < " + (SIGHTINGS - 1) + ") "
+                        + "SELECT n + 1, 1, CONCAT('Location ', n % 100), TIMESTAMP('" + FIRST_SIGHTING + "') + INTERVAL 2 * n MINUTE "
+                        + "FROM seq");
+            }
+        });
+        jdbcTemplate.execute("ANALYZE TABLE sighting");
+    }
+
+    private void runQueries(String layout) {
+        runQuery(layout, "1 day", FIRST_SIGHTING.plusMonths(17), FIRST_SIGHTING.plusMonths(17).plusDays(1));
+        runQuery(layout, "1 month", FIRST_SIGHTING.plusMonths(17), FIRST_SIGHTING.plusMonths(18));
+        runQuery(layout, "6 months", FIRST_SIGHTING.plusMonths(12), FIRST_SIGHTING.plusMonths(18));
+    }
+
+    private void runQuery(String layout, String range, LocalDateTime from, LocalDateTime to) {
+        int rows = sightingRepository.findByDateTimeBetween(from, to).size();
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            sightingRepository.findByDateTimeBetween(from, to);
+        }
+        System.out.printf("%-18s %-8s %7d rows: %6.1f ms/query, partitions %s%n", layout, range, rows,
+                (System.nanoTime() - start) / 1e6 / RUNS, partitionsRead(from, to));
+    }
+
+    private String partitionsRead(LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.query("EXPLAIN SELECT s.id, b.name, s.location, s.date_time FROM sighting s "
+                                + "JOIN bird b ON b.id = s.bird_id WHERE s.date_time BETWEEN ? AND ?",
+                        (row, rowNum) -> row.getString("table").equals("s") ? row.getString("partitions") : null,
+                        from, to)
+                .stream()
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(null);
+    }
+}
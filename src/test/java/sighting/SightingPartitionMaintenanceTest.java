@@ -0,0 +1,217 @@
+package sighting;
+
+import com.spirent.birdapp.analytics.SightingAnalyticsService;
+import com.spirent.birdapp.etag.TableVersions;
+import com.spirent.birdapp.sighting.SightingPartitionMaintenance;
+import com.spirent.birdapp.sighting.SightingPartitionProperties;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class SightingPartitionMaintenanceTest {
+    private static final String LOCK_NAME = "birdapp.sighting_partitions";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private TableVersions tableVersions;
+    @Mock
+    private SightingAnalyticsService sightingAnalyticsService;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private SightingPartitionProperties properties;
+    private SightingPartitionMaintenance sightingPartitionMaintenance;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new SightingPartitionProperties();
+        sightingPartitionMaintenance = new SightingPartitionMaintenance(jdbcTemplate, properties, tableVersions,
+                sightingAnalyticsService, transactionTemplate);
+        doAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    public void maintainPartitions_splitsTheComingMonthsOffTheFuturePartition() throws Exception {
+        //Given
+        properties.setMonthsAhead(1);
+        givenLock(1);
+        givenPartitions(List.of(
+                new String[]{"p_history", "'2024-01-01 00:00:00'"},
+                new String[]{"p202401", "'2024-02-01 00:00:00'"},
+                new String[]{"p_future", "MAXVALUE"}));
+        //When
+        sightingPartitionMaintenance.maintainPartitions(LocalDate.of(2024, 2, 15));
+        //Then
+        InOrder inOrder = inOrder(jdbcTemplate);
+        inOrder.verify(jdbcTemplate).execute("ALTER TABLE sighting REORGANIZE PARTITION p_future INTO ("
+                + "PARTITION p202402 VALUES LESS THAN ('2024-03-01'), PARTITION p_future VALUES LESS THAN (MAXVALUE))");
+        inOrder.verify(jdbcTemplate).execute("ALTER TABLE sighting REORGANIZE PARTITION p_future INTO ("
+                + "PARTITION p202403 VALUES LESS THAN ('2024-04-01'), PARTITION p_future VALUES LESS THAN (MAXVALUE))");
+        inOrder.verify(jdbcTemplate).queryForObject("SELECT RELEASE_LOCK(?)", Integer.class, LOCK_NAME);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void maintainPartitions_archivesPartitionsOlderThanTheRetention() throws Exception {
+        //Given
+        properties.setMonthsAhead(0);
+        properties.setRetentionMonths(1);
+        givenLock(1);
+        givenPartitions(List.of(
+                new String[]{"p202401", "'2024-02-01 00:00:00'"},
+                new String[]{"p202402", "'2024-03-01 00:00:00'"},
+                new String[]{"p202403", "'2024-04-01 00:00:00'"},
+                new String[]{"p_future", "MAXVALUE"}));
+        givenArchive("sighting_archive_p202401", true, 0);
+        //When
+        sightingPartitionMaintenance.maintainPartitions(LocalDate.of(2024, 3, 10));
+        //Then
+        InOrder inOrder = inOrder(jdbcTemplate);
+        inOrder.verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS sighting_archive_p202401 LIKE sighting");
+        inOrder.verify(jdbcTemplate).execute("ALTER TABLE sighting_archive_p202401 REMOVE PARTITIONING");
+        inOrder.verify(jdbcTemplate).execute("ALTER TABLE sighting EXCHANGE PARTITION p202401 WITH TABLE sighting_archive_p202401");
+        inOrder.verify(jdbcTemplate).execute("ALTER TABLE sighting DROP PARTITION p202401");
+        inOrder.verify(jdbcTemplate).update("DELETE FROM sighting_stats WHERE sighting_date < ?", LocalDate.of(2024, 2, 1));
+        inOrder.verify(jdbcTemplate).queryForObject("SELECT RELEASE_LOCK(?)", Integer.class, LOCK_NAME);
+        inOrder.verifyNoMoreInteractions();
+        verify(tableVersions).bump(TableVersions.SIGHTING);
+        verify(sightingAnalyticsService).sightingsExpiredBefore(LocalDate.of(2024, 2, 1));
+    }
+
+    @Test
+    public void maintainPartitions_whenAnArchiveIsLeftFromAFailedRun_completesIt() throws Exception {
+        //Given
+        properties.setMonthsAhead(0);
+        properties.setRetentionMonths(1);
+        givenLock(1);
+        givenPartitions(List.of(
+                new String[]{"p202401", "'2024-02-01 00:00:00'"},
+                new String[]{"p202402", "'2024-03-01 00:00:00'"},
+                new String[]{"p202403", "'2024-04-01 00:00:00'"},
+                new String[]{"p_future", "MAXVALUE"}));
+        givenArchive("sighting_archive_p202401", false, 1);
+        //When
+        sightingPartitionMaintenance.maintainPartitions(LocalDate.of(2024, 3, 10));
+        //Then
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS sighting_archive_p202401 LIKE sighting");
+        verify(jdbcTemplate, never()).execute("ALTER TABLE sighting_archive_p202401 REMOVE PARTITIONING");
+        verify(jdbcTemplate, never()).execute("ALTER TABLE sighting EXCHANGE PARTITION p202401 WITH TABLE sighting_archive_p202401");
+        verify(jdbcTemplate).execute("ALTER TABLE sighting DROP PARTITION p202401");
+        verify(sightingAnalyticsService).sightingsExpiredBefore(LocalDate.of(2024, 2, 1));
+    }
+
+    @Test
+    public void maintainPartitions_whenAnotherInstanceHoldsTheLock_skips() {
+        //Given
+        givenLock(0);
+        //When
+        sightingPartitionMaintenance.maintainPartitions(LocalDate.of(2024, 3, 10));
+        //Then
+        verify(jdbcTemplate, never()).query(anyString(), ArgumentMatchers.<RowMapper<Object>>any());
+        verify(jdbcTemplate, never()).execute(anyString());
+        verify(jdbcTemplate, never()).queryForObject("SELECT RELEASE_LOCK(?)", Integer.class, LOCK_NAME);
+    }
+
+    @Test
+    public void maintainPartitionsOnStartup_whenMaintenanceFails_releasesTheLockAndDoesNotThrow() {
+        //Given
+        givenLock(1);
+        when(jdbcTemplate.query(anyString(), ArgumentMatchers.<RowMapper<Object>>any()))
+                .thenThrow(new DataAccessResourceFailureException("Connection lost"));
+        //When
+        sightingPartitionMaintenance.maintainPartitionsOnStartup();
+        //Then
+        verify(jdbcTemplate).queryForObject("SELECT RELEASE_LOCK(?)", Integer.class, LOCK_NAME);
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    public void maintainPartitions_whenRetentionActionIsDrop_dropsWithoutArchiving() throws Exception {
+        //Given
+        properties.setMonthsAhead(0);
+        properties.setRetentionMonths(1);
+        properties.setRetentionAction(SightingPartitionProperties.RetentionAction.DROP);
+        givenLock(1);
+        givenPartitions(List.of(
+                new String[]{"p202401", "'2024-02-01 00:00:00'"},
+                new String[]{"p202402", "'2024-03-01 00:00:00'"},
+                new String[]{"p202403", "'2024-04-01 00:00:00'"}));
+        //When
+        sightingPartitionMaintenance.maintainPartitions(LocalDate.of(2024, 3, 10));
+        //Then
+        verify(jdbcTemplate).execute("ALTER TABLE sighting DROP PARTITION p202401");
+        verify(jdbcTemplate, never()).execute("CREATE TABLE IF NOT EXISTS sighting_archive_p202401 LIKE sighting");
+    }
+
+    @Test
+    public void maintainPartitions_whenTableIsNotPartitioned_doesNothing() throws Exception {
+        //Given
+        givenLock(1);
+        givenPartitions(List.of());
+        //When
+        sightingPartitionMaintenance.maintainPartitions(LocalDate.of(2024, 3, 10));
+        //Then
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    private void givenLock(int acquired) {
+        when(jdbcTemplate.queryForObject("SELECT GET_LOCK(?, 0)", Integer.class, LOCK_NAME)).thenReturn(acquired);
+    }
+
+    private void givenArchive(String archive, boolean partitioned, int rows) {
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COUNT(*) FROM information_schema.PARTITIONS"),
+                eq(Integer.class), eq(archive))).thenReturn(partitioned ? 1 : 0);
+        when(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (SELECT 1 FROM " + archive + " LIMIT 1) AS first_row",
+                Integer.class)).thenReturn(rows);
+    }
+
+    /**
+     * Answers the information_schema query by running the mapper over rows of partition name and description.
+     */
+    private void givenPartitions(List<String[]> partitions) throws Exception {
+        var rows = new ArrayList<ResultSet>();
+        for (var partition : partitions) {
+            var row = mock(ResultSet.class);
+            when(row.getString("PARTITION_NAME")).thenReturn(partition[0]);
+            when(row.getString("PARTITION_DESCRIPTION")).thenReturn(partition[1]);
+            rows.add(row);
+        }
+        when(jdbcTemplate.query(anyString(), ArgumentMatchers.<RowMapper<Object>>any())).thenAnswer(invocation -> {
+            RowMapper<?> mapper = invocation.getArgument(1);
+            var mapped = new ArrayList<>();
+            for (int i = 0; i < rows.size(); i++) {
+                mapped.add(mapper.mapRow(rows.get(i), i));
+            }
+            return mapped;
+        });
+    }
+}
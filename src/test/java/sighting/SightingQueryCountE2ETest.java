@@ -0,0 +1,136 @@
+package sighting;
+
+import com.spirent.birdapp.sighting.SightingDto;
+import com.spirent.birdapp.sighting.SightingPageDto;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.List;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards the sighting read endpoints against N+1 queries: every request must be answered with exactly one
+ * SQL statement, no matter how many sightings and birds it returns. Statement counts are taken from the
+ * Hibernate statistics of the running application.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        classes = com.spirent.birdapp.BirdAppApplication.class)
+@Testcontainers
+@ActiveProfiles("test")
+public class SightingQueryCountE2ETest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @Container
+    public static MySQLContainer<?> mySQLContainer = new MySQLContainer<>("mysql:latest")
+            .withDatabaseName("testdb");
+
+    @DynamicPropertySource
+    public static void registerPgProperties(DynamicPropertyRegistry registry) {
+        //override application.yaml
+        registry.add("spring.datasource.url", mySQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", mySQLContainer::getUsername);
+        registry.add("spring.datasource.password", mySQLContainer::getPassword);
+        registry.add("spring.jpa.properties.hibernate.generate_statistics", () -> "true");
+    }
+
+    @BeforeEach
+    public void setup() {
+        for (int birdId = 1; birdId <= 3; birdId++) {
+            jdbcTemplate.update("INSERT INTO bird (id, name, color, height, weight) VALUES (?, ?, 'Red', 10.0, 20.0)",
+                    birdId, "Bird " + birdId);
+            for (int i = 0; i < 5; i++) {
+                jdbcTemplate.update("INSERT INTO sighting (id, bird_id, location, date_time) VALUES (?, ?, 'Park', '2024-05-08 10:00:00')",
+                        birdId * 10 + i, birdId);
+            }
+        }
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.execute("DELETE FROM sighting");
+        jdbcTemplate.execute("DELETE FROM bird");
+    }
+
+    @Test
+    public void getAllSightings_executesOneStatement() {
+        var response = getSightings("/sightings");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).hasSize(15);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void getSightingsByLocation_executesOneStatement() {
+        var response = getSightings("/sightings/location/Park");
+
+        assertThat(response.getBody()).hasSize(15);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void getSightingsByBirdName_executesOneStatement() {
+        var response = getSightings("/sightings/birdname/Bird 2");
+
+        assertThat(response.getBody()).hasSize(5);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void getSightingsByDateTime_executesOneStatement() {
+        var response = getSightings("/sightings/datetime/2024-05-08T00:00/2024-05-08T23:59");
+
+        assertThat(response.getBody()).hasSize(15);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void getSightingsPage_executesOneStatement() {
+        var response = restTemplate.getForEntity(
+                "http://localhost:" + port + "/sightings/page?size=10", SightingPageDto.class);
+
+        assertThat(response.getBody().getSightings()).hasSize(10);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    private ResponseEntity<List<SightingDto>> getSightings(String path) {
+        return restTemplate.exchange(
+                "http://localhost:" + port + path,
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<List<SightingDto>>() {
+                });
+    }
+}
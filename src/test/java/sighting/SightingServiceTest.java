@@ -1,28 +1,46 @@
 package sighting;
 
 import com.spirent.birdapp.bird.Bird;
-import com.spirent.birdapp.bird.BirdRepository;
+import com.spirent.birdapp.bird.BirdCache;
+import com.spirent.birdapp.analytics.SightingAnalyticsService;
+import com.spirent.birdapp.change.ChangeEventDto;
+import com.spirent.birdapp.change.ChangeEvents;
+import com.spirent.birdapp.etag.TableVersions;
+import com.spirent.birdapp.search.SearchService;
 import com.spirent.birdapp.sighting.CreateSightingDto;
 import com.spirent.birdapp.sighting.Sighting;
 import com.spirent.birdapp.sighting.SightingDto;
 import com.spirent.birdapp.sighting.SightingRepository;
 import com.spirent.birdapp.sighting.SightingService;
+import com.spirent.birdapp.sighting.SightingStatsId;
+import com.spirent.birdapp.sighting.SightingStatsService;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -32,7 +50,19 @@ public class SightingServiceTest {
     @Mock
     private SightingRepository sightingRepository;
     @Mock
-    private BirdRepository birdRepository;
+    private BirdCache birdCache;
+    @Mock
+    private SightingStatsService sightingStatsService;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private SearchService searchService;
+    @Mock
+    private TableVersions tableVersions;
+    @Mock
+    private SightingAnalyticsService sightingAnalyticsService;
+    @Mock
+    private ChangeEvents changeEvents;
 
     @InjectMocks
     private SightingService sightingService;
@@ -72,7 +102,7 @@ public class SightingServiceTest {
     @Test
     public void getAllSightings_whenSightingsExist_returnsListOfSightings() {
         //Given
-        when(sightingRepository.findAll()).thenReturn(Collections.singletonList(sighting));
+        when(sightingRepository.findAllSightings()).thenReturn(Collections.singletonList(sightingDto));
         //When
         var result = sightingService.getAllSightings();
         //Then
@@ -80,10 +110,43 @@ public class SightingServiceTest {
         assertEquals(sightingDto, result.get(0));
     }
 
+    @Test
+    public void getSightingsPage_whenPageIsFull_returnsCursorOfLastSighting() {
+        //Given
+        when(sightingRepository.findPageAfter(eq(0L), any())).thenReturn(List.of(sightingDto));
+        //When
+        var result = sightingService.getSightingsPage(null, 1);
+        //Then
+        assertEquals(List.of(sightingDto), result.getSightings());
+        assertEquals(sightingDto.getId(), result.getNextCursor());
+    }
+
+    @Test
+    public void getSightingsPage_whenLastPageIsReached_returnsNoCursor() {
+        //Given
+        when(sightingRepository.findPageAfter(eq(1L), any())).thenReturn(List.of(sightingDto));
+        //When
+        var result = sightingService.getSightingsPage(1L, 10);
+        //Then
+        assertEquals(1, result.getSightings().size());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    public void streamAllSightings_passesEverySightingToTheConsumer() {
+        //Given
+        when(sightingRepository.streamAll()).thenReturn(Stream.of(sightingDto));
+        var streamed = new ArrayList<SightingDto>();
+        //When
+        sightingService.streamAllSightings(streamed::add);
+        //Then
+        assertEquals(List.of(sightingDto), streamed);
+    }
+
     @Test
     public void getByLocation_whenSightingWithLocationExists_returnsSighting() {
         //Given
-        when(sightingRepository.findByLocation(any(String.class))).thenReturn(Collections.singletonList(sighting));
+        when(sightingRepository.findByLocation(any(String.class))).thenReturn(Collections.singletonList(sightingDto));
         //When
         var result = sightingService.getAllSightingsByLocation("location");
         //Then
@@ -94,7 +157,7 @@ public class SightingServiceTest {
     @Test
     public void getByBird_whenSightingWithBirdExists_returnsSighting() {
         //Given
-        when(sightingRepository.findByBirdName(any(String.class))).thenReturn(Collections.singletonList(sighting));
+        when(sightingRepository.findByBirdName(any(String.class))).thenReturn(Collections.singletonList(sightingDto));
         //When
         var result = sightingService.getAllSightingsByBirdName("birdName");
         //Then
@@ -102,24 +165,61 @@ public class SightingServiceTest {
         assertEquals(sightingDto, result.get(0));
     }
 
+    @Test
+    public void getSightingsNear_returnsTheSightingsInsideTheRadiusInIndexOrder() {
+        //Given
+        var near = SightingDto.builder().id(2L).birdName("sparrow").latitude(48.8570).longitude(2.3525).build();
+        var nearer = SightingDto.builder().id(3L).birdName("sparrow").latitude(48.8566).longitude(2.3522).build();
+        var outside = SightingDto.builder().id(4L).birdName("sparrow").latitude(48.8700).longitude(2.3522).build();
+        when(sightingRepository.findByGeohashBetween(any(String.class), any(String.class)))
+                .thenReturn(List.of(near, outside, nearer), List.of());
+        //When
+        var result = sightingService.getSightingsNear(48.8566, 2.3522, 500);
+        //Then
+        assertTrue(result.isPresent());
+        assertEquals(List.of(near, nearer), result.get());
+    }
+
+    @Test
+    public void getSightingsWithin_whenTheBoxIsInvalid_returnsEmptyOptional() {
+        //When
+        var result = sightingService.getSightingsWithin(50, 2, 48, 3);
+        //Then
+        assertTrue(result.isEmpty());
+        verify(sightingRepository, never()).findByGeohashBetween(any(String.class), any(String.class));
+    }
+
+    @Test
+    void addSighting_whenOnlyTheLatitudeIsGiven_returnsEmptyOptional() {
+        //Given
+        createSightingDto.setLatitude(48.8566);
+        //When
+        var result = sightingService.addSighting(createSightingDto);
+        //Then
+        assertTrue(result.isEmpty());
+        verify(birdCache, never()).findOrCreateByName(any(String.class));
+    }
+
     @Test
     void addSighting_whenBirdDoesNotExist_shouldCreateBirdAndSaveSighting() {
         // Given
         var bird = Bird.builder().name("Sparrow").build();
         var sighting = Sighting.builder()
+                .id(1L)
                 .bird(bird)
                 .location("location")
                 .dateTime(LocalDateTime.now())
                 .build();
 
-        when(birdRepository.save(any(Bird.class))).thenReturn(bird);
+        when(birdCache.findOrCreateByName("sparrow")).thenReturn(bird);
         when(sightingRepository.save(any(Sighting.class))).thenReturn(sighting);
+        runTransactions();
 
         // When
         Optional<SightingDto> result = sightingService.addSighting(createSightingDto);
 
         // Then
-        verify(birdRepository, times(1)).save(any(Bird.class));
+        verify(birdCache, times(1)).findOrCreateByName("sparrow");
         verify(sightingRepository, times(1)).save(any(Sighting.class));
         assertEquals("Sparrow", result.get().getBirdName());
     }
@@ -129,29 +229,77 @@ public class SightingServiceTest {
         // Given
         var bird = Bird.builder().name("Sparrow").build();
         var sighting = Sighting.builder()
+                .id(1L)
                 .bird(bird)
                 .location("location")
                 .dateTime(LocalDateTime.now())
                 .build();
 
+        createSightingDto.setBirdId(1L);
+        when(birdCache.findById(1L)).thenReturn(Optional.of(bird));
         when(sightingRepository.save(any(Sighting.class))).thenReturn(sighting);
+        runTransactions();
 
         // When
         var result = sightingService.addSighting(createSightingDto);
 
         // Then
+        verify(birdCache, never()).findOrCreateByName(any());
         verify(sightingRepository, times(1)).save(any(Sighting.class));
+        verify(sightingStatsService).recordAdded(List.of(sighting));
+        verify(tableVersions).bump(TableVersions.SIGHTING);
+        verify(sightingAnalyticsService).sightingsSaved(List.of(sighting));
+        verify(changeEvents).record(ChangeEventDto.Entity.SIGHTING, sighting.getId(), ChangeEventDto.Operation.CREATED,
+                result.get());
         assertEquals("Sparrow", result.get().getBirdName());
     }
 
+    @Test
+    void addSighting_whenTheCachedBirdWasDeleted_createsItAgain() {
+        // Given
+        var deleted = Bird.builder().id(1L).name("sparrow").build();
+        var recreated = Bird.builder().id(2L).name("sparrow").build();
+        when(birdCache.findOrCreateByName("sparrow")).thenReturn(deleted, recreated);
+        when(sightingRepository.save(any(Sighting.class))).thenAnswer(invocation -> {
+            Sighting saved = invocation.getArgument(0);
+            saved.setId(1L);
+            return saved;
+        });
+        doThrow(new DataIntegrityViolationException("fk_sighting_stats_bird"))
+                .when(sightingStatsService).recordAdded(argThat(sightings -> sightings.iterator().next().getBird() == deleted));
+        runTransactions();
+
+        // When
+        var result = sightingService.addSighting(createSightingDto);
+
+        // Then
+        verify(birdCache).evictAll();
+        verify(sightingStatsService).recordAdded(argThat(sightings -> sightings.iterator().next().getBird() == recreated));
+        assertTrue(result.isPresent());
+    }
+
+    @Test
+    void addSighting_whenTheBirdIsCurrent_doesNotRetryAViolation() {
+        // Given
+        var bird = Bird.builder().id(1L).name("sparrow").build();
+        when(birdCache.findOrCreateByName("sparrow")).thenReturn(bird);
+        when(sightingRepository.save(any(Sighting.class))).thenThrow(new DataIntegrityViolationException("too long"));
+        runTransactions();
+
+        // When, Then
+        assertThrows(DataIntegrityViolationException.class, () -> sightingService.addSighting(createSightingDto));
+        verify(sightingRepository, times(1)).save(any(Sighting.class));
+    }
+
     @Test
     void updateSighting_whenSightingExists_updatesAndReturnsSighting() {
         // Given
         var bird = Bird.builder().id(1L).name("sparrow").build();
 
         when(sightingRepository.findById(sightingDto.getId())).thenReturn(Optional.of(sighting));
-        when(birdRepository.findByName(sightingDto.getBirdName())).thenReturn(Optional.of(bird));
+        when(birdCache.findOrCreateByName(sightingDto.getBirdName())).thenReturn(bird);
         when(sightingRepository.save(any(Sighting.class))).thenReturn(sighting);
+        runTransactions();
 
         // When
         var result = sightingService.updateSighting(sightingDto);
@@ -162,6 +310,26 @@ public class SightingServiceTest {
         assertEquals(sightingDto.getBirdName(), result.get().getBirdName());
     }
 
+    @Test
+    void updateSighting_whenBirdChanges_movesTheSightingToTheNewStatsGroup() {
+        // Given
+        var before = SightingStatsId.of(sighting);
+        var crow = Bird.builder().id(2L).name("crow").build();
+        sightingDto.setBirdName("crow");
+
+        when(sightingRepository.findById(sightingDto.getId())).thenReturn(Optional.of(sighting));
+        when(birdCache.findOrCreateByName("crow")).thenReturn(crow);
+        when(sightingRepository.save(any(Sighting.class))).thenReturn(sighting);
+        runTransactions();
+
+        // When
+        sightingService.updateSighting(sightingDto);
+
+        // Then
+        verify(sightingStatsService).recordMoved(before,
+                new SightingStatsId(2L, "location", sightingDto.getDateTime().toLocalDate()));
+    }
+
     @Test
     void updateSighting_whenSightingDoesNotExist_returnsEmptyOptional() {
         // Given
@@ -180,9 +348,9 @@ public class SightingServiceTest {
         var bird = Bird.builder().id(1L).name("sparrow").build();
 
         when(sightingRepository.findById(sightingDto.getId())).thenReturn(Optional.of(sighting));
-        when(birdRepository.findByName(sightingDto.getBirdName())).thenReturn(Optional.empty());
-        when(birdRepository.save(any(Bird.class))).thenReturn(bird);
+        when(birdCache.findOrCreateByName(sightingDto.getBirdName())).thenReturn(bird);
         when(sightingRepository.save(any(Sighting.class))).thenReturn(sighting);
+        runTransactions();
 
         // When
         var result = sightingService.updateSighting(sightingDto);
@@ -209,8 +377,9 @@ public class SightingServiceTest {
     public void deleteSighting_whenSightingDoesNotExist_returnsEmptyOptional() {
         // Given
         when(sightingRepository.findById(any(Long.class))).thenReturn(Optional.of(sighting));
-        when(birdRepository.findByName(any(String.class))).thenReturn(Optional.of(sighting.getBird()));
+        when(birdCache.findOrCreateByName(any(String.class))).thenReturn(sighting.getBird());
         when(sightingRepository.save(any(Sighting.class))).thenReturn(sighting);
+        runTransactions();
 
         // When
         var result = sightingService.updateSighting(sightingDto);
@@ -232,6 +401,10 @@ public class SightingServiceTest {
 
         // Then
         verify(sightingRepository, times(1)).deleteById(sightingId);
+        verify(sightingStatsService).recordRemoved(sighting);
+        verify(tableVersions).bump(TableVersions.SIGHTING);
+        verify(sightingAnalyticsService).sightingDeleted(sightingId);
+        verify(changeEvents).record(ChangeEventDto.Entity.SIGHTING, sightingId, ChangeEventDto.Operation.DELETED, null);
         assertTrue(result.isPresent());
         assertEquals(sightingId, result.get());
     }
@@ -250,4 +423,9 @@ public class SightingServiceTest {
         assertTrue(result.isEmpty());
     }
 
+
+    private void runTransactions() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
 }
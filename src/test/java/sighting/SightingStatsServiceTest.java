@@ -0,0 +1,94 @@
+package sighting;
+
+import com.spirent.birdapp.bird.Bird;
+import com.spirent.birdapp.sighting.Sighting;
+import com.spirent.birdapp.sighting.SightingStatsId;
+import com.spirent.birdapp.sighting.SightingStatsRepository;
+import com.spirent.birdapp.sighting.SightingStatsService;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class SightingStatsServiceTest {
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 8);
+
+    @Mock
+    private SightingStatsRepository sightingStatsRepository;
+
+    @InjectMocks
+    private SightingStatsService sightingStatsService;
+
+    @Test
+    public void recordAdded_countsEveryGroupOnceInKeyOrder() {
+        //Given
+        var sightings = List.of(
+                sighting(2L, "lake", DAY.atTime(10, 0)),
+                sighting(1L, "lake", DAY.atTime(11, 0)),
+                sighting(2L, "lake", DAY.atTime(12, 0)));
+        //When
+        sightingStatsService.recordAdded(sightings);
+        //Then
+        InOrder inOrder = inOrder(sightingStatsRepository);
+        inOrder.verify(sightingStatsRepository).upsert(1L, "lake", DAY, 1L);
+        inOrder.verify(sightingStatsRepository).upsert(2L, "lake", DAY, 2L);
+    }
+
+    @Test
+    public void recordMoved_whenGroupChanges_decrementsOldAndIncrementsNewGroup() {
+        //When
+        sightingStatsService.recordMoved(new SightingStatsId(2L, "lake", DAY), new SightingStatsId(1L, "park", DAY));
+        //Then
+        verify(sightingStatsRepository).upsert(2L, "lake", DAY, -1L);
+        verify(sightingStatsRepository).upsert(1L, "park", DAY, 1L);
+    }
+
+    @Test
+    public void recordMoved_whenGroupIsUnchanged_doesNothing() {
+        //When
+        sightingStatsService.recordMoved(new SightingStatsId(1L, "lake", DAY), new SightingStatsId(1L, "lake", DAY));
+        //Then
+        verifyNoInteractions(sightingStatsRepository);
+    }
+
+    @Test
+    public void recordRemoved_decrementsTheGroupOfTheSighting() {
+        //When
+        sightingStatsService.recordRemoved(sighting(1L, "lake", DAY.atTime(10, 0)));
+        //Then
+        verify(sightingStatsRepository).upsert(1L, "lake", DAY, -1L);
+    }
+
+    @Test
+    public void rebuild_replacesAllGroupsAndReturnsTheirNumber() {
+        //Given
+        when(sightingStatsRepository.insertAllStats()).thenReturn(3);
+        //When
+        var groups = sightingStatsService.rebuild();
+        //Then
+        InOrder inOrder = inOrder(sightingStatsRepository);
+        inOrder.verify(sightingStatsRepository).deleteAllStats();
+        inOrder.verify(sightingStatsRepository).insertAllStats();
+        assertEquals(3, groups);
+    }
+
+    private static Sighting sighting(Long birdId, String location, LocalDateTime dateTime) {
+        return Sighting.builder()
+                .bird(Bird.builder().id(birdId).name("bird " + birdId).build())
+                .location(location)
+                .dateTime(dateTime)
+                .build();
+    }
+}
@@ -0,0 +1,178 @@
+package sighting;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spirent.birdapp.change.ChangeEventDto;
+import com.spirent.birdapp.change.ChangeEventRelay;
+import com.spirent.birdapp.sighting.SightingSubscriber;
+import com.spirent.birdapp.sighting.SightingSubscriptionProperties;
+import com.spirent.birdapp.sighting.SightingSubscriptions;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class SightingSubscriptionsTest {
+    private static final LocalDateTime MAY = LocalDateTime.of(2024, 5, 1, 0, 0);
+    private static final Duration NO_WAIT = Duration.ZERO;
+
+    @Mock
+    private ChangeEventRelay changeEventRelay;
+
+    private final SightingSubscriptionProperties properties = new SightingSubscriptionProperties();
+    private SightingSubscriptions sightingSubscriptions;
+
+    @BeforeEach
+    public void setUp() {
+        properties.setBufferSize(2);
+        properties.setMaxSubscribers(5);
+        sightingSubscriptions = new SightingSubscriptions(changeEventRelay, new ObjectMapper().findAndRegisterModules(),
+                properties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    public void publish_deliversToTheMatchingSubscribersOnly() throws Exception {
+        //Given
+        properties.setBufferSize(10);
+        var owls = sightingSubscriptions.subscribe("Owl", null, null, null).orElseThrow();
+        var barn = sightingSubscriptions.subscribe(null, "Barn", null, null).orElseThrow();
+        var owlsInTheBarnInMay = sightingSubscriptions.subscribe("Owl", "Barn", MAY, MAY.plusMonths(1)).orElseThrow();
+        var everything = sightingSubscriptions.subscribe(null, null, null, null).orElseThrow();
+        //When
+        sightingSubscriptions.publish(sighting("Owl", "Barn", MAY, "1"));
+        sightingSubscriptions.publish(sighting("Robin", "Barn", MAY, "2"));
+        sightingSubscriptions.publish(sighting("Owl", "Barn", MAY.plusMonths(1), "3"));
+        //Then
+        assertThat(json(owls.take(10, NO_WAIT))).containsExactly("1", "3");
+        assertThat(json(barn.take(10, NO_WAIT))).containsExactly("1", "2", "3");
+        assertThat(json(owlsInTheBarnInMay.take(10, NO_WAIT))).containsExactly("1");
+        assertThat(json(everything.take(1, NO_WAIT))).containsExactly("1");
+        assertThat(json(everything.take(10, NO_WAIT))).containsExactly("2", "3");
+    }
+
+    @Test
+    public void publish_toAFullBuffer_dropsTheSubscriber() throws Exception {
+        //Given
+        var slow = sightingSubscriptions.subscribe("Owl", null, null, null).orElseThrow();
+        var fast = sightingSubscriptions.subscribe("Owl", null, null, null).orElseThrow();
+        //When
+        for (int i = 0; i < 3; i++) {
+            sightingSubscriptions.publish(sighting("Owl", "Barn", MAY, Integer.toString(i)));
+            if (i == 1) {
+                fast.take(10, NO_WAIT);
+            }
+        }
+        //Then
+        assertTrue(slow.isOverflowed());
+        assertThat(slow.take(10, Duration.ofSeconds(5))).isEmpty();
+        assertFalse(fast.isOverflowed());
+        assertThat(json(fast.take(10, NO_WAIT))).containsExactly("2");
+        assertEquals(1, sightingSubscriptions.size());
+    }
+
+    @Test
+    public void subscribe_aboveTheLimit_completesEmptyUntilASubscriberLeaves() {
+        //Given
+        var subscribers = new ArrayList<SightingSubscriber>();
+        for (int i = 0; i < properties.getMaxSubscribers(); i++) {
+            subscribers.add(sightingSubscriptions.subscribe(null, "Lake " + i, null, null).orElseThrow());
+        }
+        //Then
+        assertTrue(sightingSubscriptions.subscribe(null, null, null, null).isEmpty());
+        sightingSubscriptions.unsubscribe(subscribers.get(0));
+        sightingSubscriptions.unsubscribe(subscribers.get(0));
+        assertTrue(sightingSubscriptions.subscribe(null, null, null, null).isPresent());
+        assertTrue(sightingSubscriptions.subscribe(null, null, null, null).isEmpty());
+    }
+
+    @Test
+    public void take_waitsForTheNextSighting() throws Exception {
+        //Given
+        var subscriber = sightingSubscriptions.subscribe(null, "Barn", null, null).orElseThrow();
+        try (var executor = Executors.newSingleThreadScheduledExecutor()) {
+            executor.schedule(() -> sightingSubscriptions.publish(sighting("Owl", "Barn", MAY, "1")),
+                    100, TimeUnit.MILLISECONDS);
+            //When
+            var sightings = subscriber.take(10, Duration.ofSeconds(5));
+            //Then
+            assertThat(json(sightings)).containsExactly("1");
+        }
+        assertThat(subscriber.take(10, Duration.ofMillis(50))).isEmpty();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void createdSightingsOfTheRelay_arePublished() throws Exception {
+        //Given
+        var listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(changeEventRelay).addListener(listener.capture());
+        var subscriber = sightingSubscriptions.subscribe(null, "Barn", MAY, null).orElseThrow();
+        var created = "{\"id\":7,\"birdName\":\"Owl\",\"location\":\"Barn\",\"dateTime\":\"2024-05-02T10:00:00\"}";
+        //When
+        listener.getValue().accept(List.of(
+                event(1, ChangeEventDto.Entity.SIGHTING, ChangeEventDto.Operation.CREATED, created),
+                event(2, ChangeEventDto.Entity.SIGHTING, ChangeEventDto.Operation.UPDATED, created),
+                event(3, ChangeEventDto.Entity.BIRD, ChangeEventDto.Operation.CREATED, "{\"id\":1,\"name\":\"Owl\"}"),
+                event(4, ChangeEventDto.Entity.SIGHTING, ChangeEventDto.Operation.CREATED,
+                        "{\"id\":8,\"birdName\":\"Owl\",\"location\":\"Barn\",\"dateTime\":null}")));
+        //Then
+        assertThat(json(subscriber.take(10, NO_WAIT))).containsExactly(created);
+    }
+
+    @Test
+    public void publish_onlyLooksAtTheSubscribersOfTheSightingsBirdAndLocation() throws Exception {
+        //Given
+        properties.setMaxSubscribers(100_000);
+        var subscribers = new ArrayList<SightingSubscriber>();
+        for (int i = 0; i < 50_000; i++) {
+            subscribers.add(i % 2 == 0
+                    ? sightingSubscriptions.subscribe("Bird " + i % 1000, null, null, null).orElseThrow()
+                    : sightingSubscriptions.subscribe(null, "Lake " + i % 1000, null, null).orElseThrow());
+        }
+        //When
+        sightingSubscriptions.publish(sighting("Bird 10", "Lake 11", MAY, "1"));
+        //Then
+        var received = 0;
+        for (var subscriber : subscribers) {
+            received += subscriber.take(10, NO_WAIT).size();
+        }
+        assertEquals(100, received);
+    }
+
+    private static SightingSubscriber.LiveSighting sighting(String birdName, String location, LocalDateTime dateTime,
+            String json) {
+        return new SightingSubscriber.LiveSighting(birdName, location, dateTime, json);
+    }
+
+    private static ChangeEventDto event(long id, ChangeEventDto.Entity entity, ChangeEventDto.Operation operation,
+            String data) {
+        return ChangeEventDto.builder()
+                .id(id)
+                .entity(entity)
+                .entityId(id)
+                .operation(operation)
+                .data(data)
+                .time(MAY)
+                .build();
+    }
+
+    private static List<String> json(List<SightingSubscriber.LiveSighting> sightings) {
+        return sightings.stream().map(SightingSubscriber.LiveSighting::json).toList();
+    }
+}
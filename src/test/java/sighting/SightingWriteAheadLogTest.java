@@ -0,0 +1,116 @@
+package sighting;
+
+import com.spirent.birdapp.sighting.CreateSightingDto;
+import com.spirent.birdapp.sighting.SightingWriteAheadLog;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SightingWriteAheadLogTest {
+    private static final LocalDateTime DATE_TIME = LocalDateTime.of(2024, 5, 8, 10, 15, 30, 500);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void recover_returnsTheRecordsAfterTheCommittedSequence() throws IOException {
+        //Given
+        try (var wal = new SightingWriteAheadLog(directory, 1024)) {
+            for (int i = 0; i < 5; i++) {
+                wal.sync(wal.append(sighting(i)));
+            }
+        }
+
+        //When
+        List<SightingWriteAheadLog.Record> records;
+        try (var wal = new SightingWriteAheadLog(directory, 1024)) {
+            records = wal.recover(2);
+        }
+
+        //Then
+        assertEquals(List.of(3L, 4L, 5L), records.stream().map(SightingWriteAheadLog.Record::sequence).toList());
+        assertEquals(sighting(2), records.get(0).sighting());
+        assertEquals(sighting(4), records.get(2).sighting());
+    }
+
+    @Test
+    public void reopen_cutsOffATornRecordAndContinuesTheSequence() throws IOException {
+        //Given
+        var wal = new SightingWriteAheadLog(directory, 1024 * 1024);
+        wal.sync(wal.append(sighting(0)));
+        wal.sync(wal.append(sighting(1)));
+        // crash halfway through writing the third record, without closing the log
+        var segment = segments().get(0);
+        long acknowledgedSize = Files.size(segment);
+        wal.append(sighting(2));
+        try (var file = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            file.truncate(acknowledgedSize + 7);
+        }
+
+        //When
+        List<SightingWriteAheadLog.Record> records;
+        try (var reopened = new SightingWriteAheadLog(directory, 1024 * 1024)) {
+            records = reopened.recover(0);
+            reopened.sync(reopened.append(sighting(3)));
+        }
+
+        //Then
+        assertEquals(2, records.size());
+        assertEquals(acknowledgedSize + recordSize(3), Files.size(segment));
+        try (var reopened = new SightingWriteAheadLog(directory, 1024 * 1024)) {
+            assertEquals(List.of(1L, 2L, 3L), reopened.recover(0).stream().map(SightingWriteAheadLog.Record::sequence).toList());
+        }
+    }
+
+    @Test
+    public void truncate_deletesOnlyFullyCommittedSegments() throws IOException {
+        //Given
+        try (var wal = new SightingWriteAheadLog(directory, 100)) {
+            for (int i = 0; i < 10; i++) {
+                wal.sync(wal.append(sighting(i)));
+            }
+            int segmentCount = segments().size();
+
+            //When
+            wal.truncate(6);
+
+            //Then
+            assertTrue(segments().size() < segmentCount);
+        }
+        try (var wal = new SightingWriteAheadLog(directory, 100)) {
+            var records = wal.recover(6);
+            assertEquals(List.of(7L, 8L, 9L, 10L), records.stream().map(SightingWriteAheadLog.Record::sequence).toList());
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".wal")).sorted().toList();
+        }
+    }
+
+    private static long recordSize(int i) {
+        var sighting = sighting(i);
+        // header, flags, bird id, bird name, location, date and checksum
+        var birdName = sighting.getBirdName() == null ? 0 : 2 + sighting.getBirdName().length();
+        return 12 + 1 + 8 + birdName + 2 + sighting.getLocation().length() + 12 + 4;
+    }
+
+    private static CreateSightingDto sighting(int i) {
+        return CreateSightingDto.builder()
+                .birdId((long) i)
+                .birdName(i % 2 == 0 ? null : "bird " + i)
+                .location("lake " + i)
+                .dateTime(DATE_TIME.plusMinutes(i))
+                .build();
+    }
+}